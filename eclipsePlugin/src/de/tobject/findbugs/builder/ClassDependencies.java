@@ -0,0 +1,224 @@
+/*
+ * Contributions to FindBugs
+ * Copyright (C) 2011, Andrei Loskutov
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package de.tobject.findbugs.builder;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.annotation.CheckForNull;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import de.tobject.findbugs.FindbugsPlugin;
+import de.tobject.findbugs.util.Util;
+import edu.umd.cs.findbugs.SystemProperties;
+
+/**
+ * Remembers, per project, which application classes reference which other
+ * classes, as seen by the last analysis. On an incremental build the classes
+ * depending on the changed ones are analyzed again together with the changed
+ * classes, so that warnings which depend on the changed code (e.g. on a called
+ * method or on a super class) are updated on save.
+ * <p>
+ * Like the class data cache, the index is only kept in a soft reference and is
+ * dropped on full builds and whenever the project configuration changes.
+ *
+ * @see FindBugs2Eclipse#cleanClassClache(IProject)
+ */
+final class ClassDependencies {
+
+    /**
+     * Maximum number of dependent files added to an incremental build. If a
+     * change has more dependents, only the changed files are analyzed: the
+     * next full build updates the rest, but a single save stays cheap.
+     */
+    private static final int MAX_DEPENDENT_FILES = SystemProperties.getInt("findbugs.eclipse.maxDependentFiles", 20);
+
+    private static final WeakHashMap<IProject, SoftReference<ClassDependencies>> projectDependencies =
+        new WeakHashMap<>();
+
+    /** dotted application class name -&gt; dotted names of referenced classes */
+    private final Map<String, Set<String>> references = new HashMap<>();
+
+    /** dotted class name -&gt; dotted names of the application classes referencing it */
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    private ClassDependencies() {
+        super();
+    }
+
+    /**
+     * @return the index for the given project, or null if there is none (yet)
+     */
+    static synchronized @CheckForNull ClassDependencies get(IProject project) {
+        SoftReference<ClassDependencies> ref = projectDependencies.get(project);
+        return ref != null ? ref.get() : null;
+    }
+
+    /**
+     * @return the index for the given project, created if necessary
+     */
+    static synchronized ClassDependencies getOrCreate(IProject project) {
+        ClassDependencies dependencies = get(project);
+        if (dependencies == null) {
+            dependencies = new ClassDependencies();
+            projectDependencies.put(project, new SoftReference<>(dependencies));
+        }
+        return dependencies;
+    }
+
+    static synchronized void clear(IProject project) {
+        projectDependencies.remove(project);
+    }
+
+    /**
+     * Replaces the references recorded for the given application class
+     *
+     * @param className
+     *            dotted name of an analyzed application class
+     * @param referenced
+     *            dotted names of the classes it references
+     */
+    synchronized void update(String className, Set<String> referenced) {
+        Set<String> old = references.put(className, referenced);
+        if (old != null) {
+            for (String ref : old) {
+                Set<String> set = dependents.get(ref);
+                if (set != null) {
+                    set.remove(className);
+                    if (set.isEmpty()) {
+                        dependents.remove(ref);
+                    }
+                }
+            }
+        }
+        for (String ref : referenced) {
+            if (ref.equals(className)) {
+                continue;
+            }
+            Set<String> set = dependents.get(ref);
+            if (set == null) {
+                set = new HashSet<>();
+                dependents.put(ref, set);
+            }
+            set.add(className);
+        }
+    }
+
+    /**
+     * @param className
+     *            dotted class name
+     * @return dotted names of the application classes referencing the given
+     *         class, never null
+     */
+    synchronized Set<String> getDependents(String className) {
+        Set<String> set = dependents.get(className);
+        if (set == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(set);
+    }
+
+    /**
+     * Adds the source files of the classes depending on the classes defined
+     * in the given (changed) java files to the given work items. Does nothing
+     * if the dependencies of the project are not known yet.
+     *
+     * @param project
+     *            the java project
+     * @param files
+     *            work items of an incremental build
+     * @return the given list if nothing was added, otherwise a new list
+     *         containing given and dependent work items
+     */
+    static List<WorkItem> addDependentFiles(IProject project, List<WorkItem> files) {
+        ClassDependencies dependencies = get(project);
+        if (dependencies == null || files.isEmpty()) {
+            return files;
+        }
+        IJavaProject javaProject = JavaCore.create(project);
+        Set<IResource> changed = new HashSet<>();
+        Set<String> dependentClasses = new LinkedHashSet<>();
+        for (WorkItem item : files) {
+            IResource resource = item.getCorespondingResource();
+            if (resource == null) {
+                continue;
+            }
+            changed.add(resource);
+            if (!(resource instanceof IFile) || !Util.isJavaFile(resource)) {
+                continue;
+            }
+            ICompilationUnit unit = JavaCore.createCompilationUnitFrom((IFile) resource);
+            if (unit == null) {
+                continue;
+            }
+            try {
+                for (IType type : unit.getAllTypes()) {
+                    dependentClasses.addAll(dependencies.getDependents(type.getFullyQualifiedName('$')));
+                }
+            } catch (JavaModelException e) {
+                FindbugsPlugin.getDefault().logException(e, "Error collecting types of " + resource);
+            }
+        }
+        if (dependentClasses.isEmpty()) {
+            return files;
+        }
+        Set<IResource> dependentFiles = new LinkedHashSet<>();
+        for (String className : dependentClasses) {
+            // nested classes live in the file of their top level class
+            int nested = className.indexOf('$');
+            String topLevel = nested > 0 ? className.substring(0, nested) : className;
+            try {
+                IType type = javaProject.findType(topLevel);
+                if (type == null || type.isBinary()) {
+                    continue;
+                }
+                IResource resource = type.getResource();
+                if (resource != null && !changed.contains(resource)) {
+                    dependentFiles.add(resource);
+                }
+            } catch (JavaModelException e) {
+                FindbugsPlugin.getDefault().logException(e, "Error searching type " + topLevel);
+            }
+        }
+        if (dependentFiles.isEmpty() || dependentFiles.size() > MAX_DEPENDENT_FILES) {
+            return files;
+        }
+        List<WorkItem> result = new ArrayList<>(files);
+        for (IResource resource : dependentFiles) {
+            result.add(new WorkItem(resource));
+        }
+        return result;
+    }
+}
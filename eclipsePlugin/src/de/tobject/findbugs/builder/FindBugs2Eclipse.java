@@ -48,6 +48,8 @@ import edu.umd.cs.findbugs.FindBugs2;
 import edu.umd.cs.findbugs.Footprint;
 import edu.umd.cs.findbugs.ProjectStats;
 import edu.umd.cs.findbugs.SortedBugCollection;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.ba.XField;
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
@@ -55,9 +57,11 @@ import edu.umd.cs.findbugs.classfile.IClassPath;
 import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
 import edu.umd.cs.findbugs.classfile.analysis.ClassData;
 import edu.umd.cs.findbugs.classfile.engine.ClassDataAnalysisEngine;
+import edu.umd.cs.findbugs.classfile.engine.ReusedClassInfoAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.impl.AnalysisCache;
 import edu.umd.cs.findbugs.log.Profiler;
 import edu.umd.cs.findbugs.log.Profiler.Profile;
+import edu.umd.cs.findbugs.util.ClassName;
 
 public class FindBugs2Eclipse extends FindBugs2 {
 
@@ -67,6 +71,15 @@ public class FindBugs2Eclipse extends FindBugs2 {
     private static WeakHashMap<IProject, SoftReference<Map<ClassDescriptor, Object>>> classAnalysisCache =
         new WeakHashMap<>();
 
+    /**
+     * XClass objects of the library classes of the last analysis of a project.
+     * Library classes can't change without the class data cache being
+     * dropped, so these can be reused by the next (incremental) build instead
+     * of parsing all referenced library classes again.
+     */
+    private static WeakHashMap<IProject, SoftReference<ReusedClassInfoAnalysisEngine>> libraryClassInfoCache =
+        new WeakHashMap<>();
+
     private AnalysisCache analysisCache;
     private final IProject project;
 
@@ -116,6 +129,7 @@ public class FindBugs2Eclipse extends FindBugs2 {
         if(cacheClassData) {
             int eventMask = IResourceChangeEvent.POST_BUILD | IResourceChangeEvent.PRE_CLOSE;
             ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceListener, eventMask);
+            setReusedClassInfos(getLibraryClassInfos(project));
         }
         reporter = bugReporter;
     }
@@ -154,13 +168,19 @@ public class FindBugs2Eclipse extends FindBugs2 {
         Map<ClassDescriptor, Object> classAnalysis = wr != null? wr.get() : null;
         if(classAnalysis != null) {
             analysisCache.reuseClassAnalysis(ClassData.class, classAnalysis);
-            // TODO would be nice to reuse ClassInfoAnalysisEngine: XClass.class,
-            // JavaClassAnalysisEngine: JavaClass.class
-            // but unfortunately there are side effects for analysis during data generation
-            // which we can't have if we would just re-use the data
         }
     }
 
+    private static synchronized ReusedClassInfoAnalysisEngine getLibraryClassInfos(IProject project) {
+        SoftReference<ReusedClassInfoAnalysisEngine> wr = libraryClassInfoCache.get(project);
+        ReusedClassInfoAnalysisEngine libraryClasses = wr != null? wr.get() : null;
+        if(libraryClasses == null) {
+            libraryClasses = new ReusedClassInfoAnalysisEngine();
+            libraryClassInfoCache.put(project, new SoftReference<>(libraryClasses));
+        }
+        return libraryClasses;
+    }
+
     private void postProcessCaches() {
         IClassPath classPath = analysisCache.getClassPath();
 
@@ -180,13 +200,22 @@ public class FindBugs2Eclipse extends FindBugs2 {
         }
         Set<Entry<String, ICodeBaseEntry>> entrySet2 = classPath.getApplicationCodebaseEntries().entrySet();
         DescriptorFactory descriptorFactory = DescriptorFactory.instance();
+        Map<ClassDescriptor, Object> xclassAnalysis = cacheClassData ? analysisCache.getClassAnalysis(XClass.class) : null;
+        ClassDependencies dependencies = xclassAnalysis != null ? ClassDependencies.getOrCreate(project) : null;
         for (Entry<String, ICodeBaseEntry> entry : entrySet2) {
             String className = entry.getKey();
             if(cacheClassData) {
                 if(className.endsWith(".class")) {
                     className = className.substring(0, className.length() - 6);
                 }
-                classAnalysis.remove(descriptorFactory.getClassDescriptor(className));
+                ClassDescriptor descriptor = descriptorFactory.getClassDescriptor(className);
+                classAnalysis.remove(descriptor);
+                if(dependencies != null) {
+                    Object xclass = xclassAnalysis.get(descriptor);
+                    if(xclass instanceof XClass) {
+                        dependencies.update(descriptor.toDottedClassName(), getReferencedClasses((XClass) xclass));
+                    }
+                }
             }
             data.byteSizeApp += entry.getValue().getNumBytes();
         }
@@ -198,6 +227,31 @@ public class FindBugs2Eclipse extends FindBugs2 {
         reportExtraData(data);
     }
 
+    /**
+     * @return dotted names of the classes the given class depends on: super
+     *         types, types of fields and classes of called methods
+     */
+    private static Set<String> getReferencedClasses(XClass xclass) {
+        Set<String> result = new HashSet<>();
+        ClassDescriptor superclass = xclass.getSuperclassDescriptor();
+        if(superclass != null) {
+            result.add(superclass.toDottedClassName());
+        }
+        for (ClassDescriptor iface : xclass.getInterfaceDescriptorList()) {
+            result.add(iface.toDottedClassName());
+        }
+        for (ClassDescriptor called : xclass.getCalledClassDescriptors()) {
+            result.add(called.toDottedClassName());
+        }
+        for (XField field : xclass.getXFields()) {
+            String fieldClass = ClassName.fromFieldSignature(field.getSignature());
+            if(fieldClass != null) {
+                result.add(ClassName.toDottedClassName(fieldClass));
+            }
+        }
+        return result;
+    }
+
     @SuppressWarnings("boxing")
     private void reportExtraData(AnalysisData data) {
         SortedBugCollection bugCollection = reporter.getBugCollection();
@@ -252,6 +306,8 @@ public class FindBugs2Eclipse extends FindBugs2 {
     public static void cleanClassClache(IProject project) {
         auxClassPaths.remove(project);
         classAnalysisCache.remove(project);
+        libraryClassInfoCache.remove(project);
+        ClassDependencies.clear(project);
     }
 
     static void checkClassPathChanges(List<String> auxClassPath, IProject project) {
@@ -260,6 +316,8 @@ public class FindBugs2Eclipse extends FindBugs2 {
         if(oldAuxCp != null && !oldAuxCp.equals(auxClassPath)) {
             auxClassPaths.put(project, new SoftReference<List<String>>(new ArrayList<>(auxClassPath)));
             classAnalysisCache.remove(project);
+            libraryClassInfoCache.remove(project);
+            ClassDependencies.clear(project);
         } else if(oldAuxCp == null){
             auxClassPaths.put(project, new SoftReference<List<String>>(new ArrayList<>(auxClassPath)));
         }
@@ -141,6 +141,11 @@ public class FindBugsBuilder extends IncrementalProjectBuilder {
                 files.add(new WorkItem(project));
             } else {
                 files = ResourceUtils.collectIncremental(resourceDelta);
+                IPreferenceStore store = FindbugsPlugin.getPluginPreferences(project);
+                if (store.getBoolean(FindBugsConstants.KEY_CACHE_CLASS_DATA)) {
+                    // re-analyze classes depending on the changed ones too
+                    files = ClassDependencies.addDependentFiles(project, files);
+                }
                 if(files.size() == 1){
                     IResource corespondingResource = files.get(0).getCorespondingResource();
                     if(corespondingResource != null) {
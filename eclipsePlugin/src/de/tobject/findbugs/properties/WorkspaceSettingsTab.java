@@ -79,6 +79,7 @@ public class WorkspaceSettingsTab extends Composite {
         cacheClassData.setSelection(store.getBoolean(FindBugsConstants.KEY_CACHE_CLASS_DATA));
         cacheClassData.setText("Cache .class data (useful for slow file system && lot of RAM) (experimental)");
         cacheClassData.setToolTipText("Reuse .class data for the next FindBugs analysis. " +
+                "On incremental builds, classes depending on the changed ones are analyzed again. " +
                 "The cache will survive until the next project build.");
 
         if(!isWorkspaceSettings()) {
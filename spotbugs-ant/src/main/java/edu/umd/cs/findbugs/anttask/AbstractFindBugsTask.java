@@ -20,16 +20,22 @@
 package edu.umd.cs.findbugs.anttask;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.taskdefs.Java;
+import org.apache.tools.ant.taskdefs.LogOutputStream;
 import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.Reference;
 
+import edu.umd.cs.findbugs.AnalysisDaemonClient;
+import edu.umd.cs.findbugs.ExitCodes;
+
 /**
  * Abstract base class for Ant tasks that run programs (main() methods) in
  * findbugs.jar or findbugsGUI.jar.
@@ -93,6 +99,10 @@ public abstract class AbstractFindBugsTask extends Task {
 
     private Java findbugsEngine = null;
 
+    private int daemonPort = 0;
+
+    private String inputString = null;
+
     public String execResultProperty = "edu.umd.cs.findbugs.anttask.AbstractFindBugsTask" + "." + RESULT_PROPERTY_SUFFIX;
 
     /**
@@ -160,6 +170,19 @@ public abstract class AbstractFindBugsTask extends Task {
         this.timeout = timeout;
     }
 
+    /**
+     * Submit the analysis to the SpotBugs daemon listening on the given port
+     * instead of starting a new JVM. Only supported by tasks running the
+     * FindBugs2 engine; jvm arguments and system properties are ignored then,
+     * they must be passed to the daemon JVM.
+     *
+     * @param port
+     *            port of a running edu.umd.cs.findbugs.AnalysisDaemon
+     */
+    public void setDaemonPort(int port) {
+        this.daemonPort = port;
+    }
+
     /**
      * Set the failOnError flag
      *
@@ -389,6 +412,7 @@ public abstract class AbstractFindBugsTask extends Task {
      * upon launching.
      */
     protected void setInputString(String input) {
+        inputString = input;
         findbugsEngine.setInputString(input);
     }
 
@@ -416,6 +440,11 @@ public abstract class AbstractFindBugsTask extends Task {
          * been set, so unique identifiers must be used for each execution if we
          * want to get the exit code)
          */
+        if (daemonPort > 0) {
+            afterExecuteJavaProcess(execInDaemon());
+            return;
+        }
+
         String execReturnCodeIdentifier = execResultProperty + "." + UUID.randomUUID().toString();
         getFindbugsEngine().setResultProperty(execReturnCodeIdentifier);
 
@@ -437,6 +466,25 @@ public abstract class AbstractFindBugsTask extends Task {
         afterExecuteJavaProcess(rc);
     }
 
+    /**
+     * Run the configured engine arguments in the SpotBugs daemon.
+     *
+     * @return exit code of the analysis
+     */
+    private int execInDaemon() throws BuildException {
+        if (!"edu.umd.cs.findbugs.FindBugs2".equals(mainClass)) {
+            throw new BuildException("daemonPort is not supported by task <" + getTaskName() + "/>", getLocation());
+        }
+        String[] args = getFindbugsEngine().getCommandLine().getJavaCommand().getArguments();
+        try (LogOutputStream out = new LogOutputStream(this, Project.MSG_INFO);
+                LogOutputStream err = new LogOutputStream(this, Project.MSG_WARN)) {
+            return AnalysisDaemonClient.submit(daemonPort, args, inputString, out, err);
+        } catch (IOException e) {
+            log("Failed to run analysis in SpotBugs daemon on port " + daemonPort + ": " + e);
+            return ExitCodes.ERROR_FLAG;
+        }
+    }
+
     protected abstract void configureFindbugsEngine();
 
     protected abstract void beforeExecuteJavaProcess();
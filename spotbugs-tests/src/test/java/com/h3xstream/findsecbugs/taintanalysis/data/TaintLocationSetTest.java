@@ -0,0 +1,96 @@
+/**
+ * Find Security Bugs
+ * Copyright (c) Philippe Arteau, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.h3xstream.findsecbugs.taintanalysis.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.h3xstream.findsecbugs.FindSecBugsGlobalConfig;
+
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+
+public class TaintLocationSetTest {
+
+    private static final MethodDescriptor METHOD = new MethodDescriptor("Test", "method", "()V");
+
+    private static TaintLocation location(int position) {
+        return new TaintLocation(METHOD, position);
+    }
+
+    private static TaintLocationSet set(int limit, int... positions) {
+        TaintLocationSet set = TaintLocationSet.EMPTY;
+        for (int position : positions) {
+            set = set.with(location(position), limit);
+        }
+        return set;
+    }
+
+    private static List<TaintLocation> locations(int... positions) {
+        List<TaintLocation> result = new ArrayList<>();
+        for (int position : positions) {
+            result.add(location(position));
+        }
+        return result;
+    }
+
+    @Test
+    public void testWithKeepsSmallestLocations() {
+        TaintLocationSet set = set(3, 5, 1, 4, 2, 3);
+        assertEquals(locations(1, 2, 3), new ArrayList<>(set));
+
+        // over the limit and after the kept locations
+        assertSame(set, set.with(location(9), 3));
+        // already contained
+        assertSame(set, set.with(location(2), 3));
+        // smaller than a kept location, the largest one is dropped
+        assertEquals(locations(0, 1, 2), new ArrayList<>(set.with(location(0), 3)));
+    }
+
+    @Test
+    public void testUnionIsLimited() {
+        TaintLocationSet a = set(10, 1, 3, 5, 7);
+        TaintLocationSet b = set(10, 2, 3, 6);
+
+        assertEquals(locations(1, 2, 3, 5, 6, 7), new ArrayList<>(a.union(b, 10)));
+        assertEquals(locations(1, 2, 3), new ArrayList<>(a.union(b, 3)));
+        assertEquals(locations(1, 3), new ArrayList<>(a.union(TaintLocationSet.EMPTY, 2)));
+        assertEquals(locations(2, 3), new ArrayList<>(TaintLocationSet.EMPTY.union(b, 2)));
+        assertSame(a, a.union(set(10, 3, 5), 10));
+    }
+
+    @Test
+    public void testMaxLocationsIsAtLeastOne() {
+        FindSecBugsGlobalConfig config = FindSecBugsGlobalConfig.getInstance();
+        int maxLocations = config.getTaintMaxLocations();
+        try {
+            config.setTaintMaxLocations(-1);
+            assertEquals(1, config.getTaintMaxLocations());
+            TaintLocationSet set = set(config.getTaintMaxLocations(), 2, 1);
+            assertEquals(Arrays.asList(location(1)), new ArrayList<>(set));
+            assertEquals(1, set.union(set(10, 0, 3), config.getTaintMaxLocations()).size());
+        } finally {
+            config.setTaintMaxLocations(maxLocations);
+        }
+    }
+}
@@ -23,7 +23,11 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
@@ -104,13 +108,39 @@ public abstract class AbstractIntegrationTest {
         return bugReporter.getBugCollection();
     }
 
+    /**
+     * Describe the bugs of the last analysis, so that the outputs of two runs
+     * can be compared.
+     *
+     * @return the sorted instance keys, priorities and lines of the bugs
+     */
+    protected List<String> getBugDescriptions() {
+        List<String> result = new ArrayList<>();
+        for (BugInstance bug : getBugCollection()) {
+            result.add(bug.getInstanceKey() + " " + bug.getPriority() + " " + bug.getPrimarySourceLineAnnotation());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
     /**
      * Sets up a FB engine to run on the 'spotbugsTestCases' project. It enables
      * all the available detectors and reports all the bug categories. Uses a
      * low priority threshold.
      */
     protected void performAnalysis(@SlashedClassName final String... analyzeMe) {
+        performAnalysis(engine -> {
+        }, analyzeMe);
+    }
+
+    /**
+     * Same as {@link #performAnalysis(String...)}, with additional engine
+     * settings.
+     */
+    protected void performAnalysis(Consumer<? super FindBugs2> engineConfiguration,
+            @SlashedClassName final String... analyzeMe) {
         AnalysisRunner runner = new AnalysisRunner();
+        runner.setEngineConfiguration(engineConfiguration);
 
         final File lib = getFindbugsTestCasesFile("lib");
         for (final File f : lib.listFiles()) {
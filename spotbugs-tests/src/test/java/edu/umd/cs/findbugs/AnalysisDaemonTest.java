@@ -0,0 +1,141 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs an {@link AnalysisDaemon} in the test VM and talks to it with the
+ * {@link AnalysisDaemonClient} and with hand made requests.
+ */
+public class AnalysisDaemonTest {
+
+    @Rule
+    public TemporaryFolder home = new TemporaryFolder();
+
+    private String oldHome;
+
+    private int port;
+
+    private Thread daemon;
+
+    @Before
+    public void startDaemon() throws Exception {
+        // the token file is written to the user home
+        oldHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.getRoot().getAbsolutePath());
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        AnalysisDaemon analysisDaemon = new AnalysisDaemon(port);
+        daemon = new Thread(() -> {
+            try {
+                analysisDaemon.run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "test-daemon");
+        daemon.setDaemon(true);
+        daemon.start();
+        File tokenFile = AnalysisDaemonClient.getTokenFile(port);
+        for (int i = 0; i < 500 && tokenFile.length() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue("daemon did not start", tokenFile.length() > 0);
+    }
+
+    @After
+    public void stopDaemon() throws Exception {
+        try {
+            AnalysisDaemonClient.stop(port);
+            daemon.join(10_000);
+            assertFalse("daemon did not stop", daemon.isAlive());
+            assertFalse(AnalysisDaemonClient.getTokenFile(port).exists());
+        } finally {
+            System.setProperty("user.home", oldHome);
+        }
+    }
+
+    @Test
+    public void testJobOutputAndExitCode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(0, AnalysisDaemonClient.submit(port, new String[] { "-version" }, null, out, err));
+
+        int exitCode = AnalysisDaemonClient.submit(port, new String[0], null, out, err);
+        assertEquals(ExitCodes.ERROR_FLAG, exitCode);
+        assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("No files to be analyzed"));
+    }
+
+    @Test
+    public void testWrongTokenIsRejected() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(AnalysisDaemonClient.PROTOCOL_VERSION);
+            AnalysisDaemonClient.writeString(out, "0123456789abcdef0123456789abcdef");
+            out.flush();
+            // no command and no job data was sent, the daemon answers anyway
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(AnalysisDaemonClient.FRAME_ERR, in.readByte());
+            String message = AnalysisDaemonClient.readString(in, 1024);
+            assertTrue(message, message.startsWith("Rejected"));
+            assertEquals(AnalysisDaemonClient.FRAME_EXIT, in.readByte());
+            assertEquals(ExitCodes.ERROR_FLAG, in.readInt());
+        }
+        assertDaemonAnswers();
+    }
+
+    @Test
+    public void testOversizedRequestIsDropped() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(AnalysisDaemonClient.PROTOCOL_VERSION);
+            // token length far beyond the limit, without the token itself
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+            assertEquals("connection should be closed", -1, socket.getInputStream().read());
+        }
+        assertDaemonAnswers();
+    }
+
+    private void assertDaemonAnswers() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, AnalysisDaemonClient.submit(port, new String[] { "-version" }, null, out, out));
+    }
+}
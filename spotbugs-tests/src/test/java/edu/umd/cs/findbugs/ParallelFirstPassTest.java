@@ -0,0 +1,54 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that running the first pass detectors on worker threads reports the
+ * same bugs as running them on the analysis thread.
+ */
+public class ParallelFirstPassTest extends AbstractIntegrationTest {
+
+    /**
+     * Classes whose bugs depend on the field summary, the side effect free
+     * methods and the type qualifiers collected by the first pass
+     */
+    static final String[] CLASSES = { "AssignedOnlyInCtor.class", "BadEquals.class", "BadSerial.class",
+        "CloseStream.class", "ConcurrentModificationBug.class", "DeadStore.class", "Doublecheck.class",
+        "DumbMethods.class", "jsr305/TaintedTest.class", "rangeArray/IoOperationRangeArrayLengthExpected.class" };
+
+    @Test
+    public void testSameBugsAsSerialFirstPass() {
+        performAnalysis(engine -> engine.setFirstPassThreads(1), CLASSES);
+        List<String> serial = getBugDescriptions();
+        assertFalse(serial.isEmpty());
+
+        for (int threads : new int[] { 2, 3 }) {
+            performAnalysis(engine -> engine.setFirstPassThreads(threads), CLASSES);
+            assertEquals("bugs found with " + threads + " first pass threads", serial, getBugDescriptions());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.umd.cs.findbugs.classfile.engine.ReusedClassInfoAnalysisEngine;
+
+/**
+ * Checks that an analysis reusing the library classes of a previous analysis,
+ * as the Eclipse plugin does between builds, reports the same bugs as one
+ * parsing all the classes.
+ */
+public class ReusedClassInfoTest extends AbstractIntegrationTest {
+
+    @Test
+    public void testWarmRunSameBugsAsColdRun() {
+        performAnalysis(ShardedAnalysisTest.CLASSES);
+        List<String> cold = getBugDescriptions();
+        assertFalse(cold.isEmpty());
+
+        ReusedClassInfoAnalysisEngine kept = new ReusedClassInfoAnalysisEngine();
+        performAnalysis(engine -> engine.setReusedClassInfos(kept), ShardedAnalysisTest.CLASSES);
+        assertEquals(cold, getBugDescriptions());
+        assertTrue(kept.getClassCount() > 0);
+        assertEquals(0, kept.getReusedCount());
+
+        performAnalysis(engine -> engine.setReusedClassInfos(kept), ShardedAnalysisTest.CLASSES);
+        assertTrue(kept.getReusedCount() > 0);
+        assertEquals(cold, getBugDescriptions());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that merging the bugs of the shards of an analysis gives the bugs of
+ * the whole analysis, as {@link edu.umd.cs.findbugs.workflow.ShardedAnalysis}
+ * does.
+ */
+public class ShardedAnalysisTest extends AbstractIntegrationTest {
+
+    /**
+     * Classes with several bugs of the same pattern in one method, and taint
+     * sinks reached through the methods of another class
+     */
+    static final String[] CLASSES = { "DeadStore.class", "DumbMethods.class", "SqlInjection.class",
+        "SqlInjection2.class", "taint/TaintSummaryOrder.class", "taint/TaintSummaryOrderHelper.class" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMergedShardsSameBugsAsWholeAnalysis() {
+        performAnalysis(CLASSES);
+        List<String> whole = getBugDescriptions();
+        assertFalse(whole.isEmpty());
+
+        for (int shardCount : new int[] { 2, 3 }) {
+            List<String> merged = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                int shardIndex = i;
+                performAnalysis(engine -> engine.setShard(shardIndex, shardCount), CLASSES);
+                merged.addAll(getBugDescriptions());
+            }
+            Collections.sort(merged);
+            assertEquals("bugs found with " + shardCount + " shards", whole, merged);
+        }
+    }
+
+    /**
+     * The slices only run the detectors not keeping state, on their own
+     * classes, and one more worker runs the other detectors on all the
+     * classes
+     */
+    @Test
+    public void testSplitDetectorsSameBugsAsWholeAnalysis() {
+        performAnalysis(CLASSES);
+        List<String> whole = getBugDescriptions();
+
+        int shardCount = 3;
+        List<String> merged = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            int shardIndex = i;
+            performAnalysis(engine -> {
+                engine.setShard(shardIndex, shardCount);
+                engine.setShardDetectors(false);
+            }, CLASSES);
+            merged.addAll(getBugDescriptions());
+        }
+        performAnalysis(engine -> {
+            engine.setShard(0, shardCount);
+            engine.setShardDetectors(true);
+        }, CLASSES);
+        merged.addAll(getBugDescriptions());
+        Collections.sort(merged);
+        assertEquals(whole, merged);
+    }
+
+    /**
+     * A checkpointed analysis lets the injection detectors analyze the methods
+     * reaching their sinks in the taint pre-scan, instead of in the class
+     * visits
+     */
+    @Test
+    public void testSinksVisitedInPreScanSameBugs() {
+        performAnalysis(CLASSES);
+        List<String> visited = getBugDescriptions();
+
+        File checkpoint = new File(folder.getRoot(), "checkpoint");
+        performAnalysis(engine -> engine.setCheckpointFile(checkpoint.getPath(), false), CLASSES);
+        assertEquals(visited, getBugDescriptions());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.umd.cs.findbugs.AbstractIntegrationTest;
+import edu.umd.cs.findbugs.SystemProperties;
+
+/**
+ * Checks that solving the dataflow analyses with a worklist reports the same
+ * bugs as sweeping over all the blocks.
+ */
+public class DataflowWorklistTest extends AbstractIntegrationTest {
+
+    /** packages of the test cases with many null checks, loops and branches */
+    static final String[] PACKAGES = { "npe", "bugIdeas", "sfBugsNew" };
+
+    private final String useWorklist = SystemProperties.getProperty(Dataflow.WORKLIST_PROPERTY, "false");
+
+    @After
+    public void restoreWorklist() {
+        SystemProperties.setProperty(Dataflow.WORKLIST_PROPERTY, useWorklist);
+    }
+
+    @Test
+    public void testSameBugsAsSweeps() {
+        SystemProperties.setProperty(Dataflow.WORKLIST_PROPERTY, "false");
+        performAnalysis(PACKAGES);
+        List<String> sweeps = getBugDescriptions();
+        assertFalse(sweeps.isEmpty());
+
+        SystemProperties.setProperty(Dataflow.WORKLIST_PROPERTY, "true");
+        performAnalysis(PACKAGES);
+        assertEquals(sweeps, getBugDescriptions());
+    }
+}
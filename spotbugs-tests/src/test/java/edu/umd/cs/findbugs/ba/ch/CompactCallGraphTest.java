@@ -0,0 +1,140 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba.ch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+
+/**
+ * Tests the compressed sparse row storage of the {@link CompactCallGraph} and
+ * the order of its strongly connected components.
+ */
+public class CompactCallGraphTest {
+
+    private static MethodDescriptor[] methods(int count) {
+        MethodDescriptor[] methods = new MethodDescriptor[count];
+        for (int i = 0; i < count; i++) {
+            methods[i] = new MethodDescriptor("test/Calls", "m" + i, "()V", true);
+        }
+        return methods;
+    }
+
+    /**
+     * m0 calls m1 and m2, m1 and m2 call each other, m2 calls m4, m3 calls
+     * itself. The calls are not given in the order of their callers.
+     */
+    private static CompactCallGraph sample() {
+        CompactCallGraph graph = new CompactCallGraph();
+        graph.build(methods(5), new int[] { 2, 0, 2, 0, 1, 3 }, new int[] { 1, 1, 4, 2, 2, 3 });
+        return graph;
+    }
+
+    @Test
+    public void testRows() {
+        CompactCallGraph graph = sample();
+        assertEquals(5, graph.getNumMethods());
+        assertEquals(6, graph.getNumCalls());
+        // the calls of each method keep their order
+        assertArrayEquals(new int[] { 1, 2 }, graph.getCallees(0));
+        assertArrayEquals(new int[] { 2 }, graph.getCallees(1));
+        assertArrayEquals(new int[] { 1, 4 }, graph.getCallees(2));
+        assertArrayEquals(new int[] { 3 }, graph.getCallees(3));
+        assertArrayEquals(new int[0], graph.getCallees(4));
+        assertArrayEquals(new int[0], graph.getCallers(0));
+        assertArrayEquals(new int[] { 2, 0 }, graph.getCallers(1));
+        assertArrayEquals(new int[] { 0, 1 }, graph.getCallers(2));
+        assertArrayEquals(new int[] { 3 }, graph.getCallers(3));
+        assertArrayEquals(new int[] { 2 }, graph.getCallers(4));
+        assertEquals(2, graph.getNumCallees(2));
+        assertEquals(4, graph.getCallee(2, 1));
+        assertEquals(0, graph.getCaller(1, 1));
+        assertArrayEquals(new int[0], graph.getDispatchCallees(2));
+        assertEquals(3, graph.getId(new MethodDescriptor("test/Calls", "m3", "()V", true)));
+        assertEquals(-1, graph.getId(new MethodDescriptor("test/Calls", "m5", "()V", true)));
+    }
+
+    @Test
+    public void testComponents() {
+        CompactCallGraph graph = sample();
+        assertEquals(4, graph.getNumComponents());
+        assertEquals(graph.getComponent(1), graph.getComponent(2));
+        assertTrue(graph.isRecursive(graph.getComponent(1)));
+        assertTrue(graph.isRecursive(graph.getComponent(3)));
+        assertFalse(graph.isRecursive(graph.getComponent(0)));
+        assertFalse(graph.isRecursive(graph.getComponent(4)));
+
+        // the components list all the methods once
+        int[] all = new int[0];
+        for (int component = 0; component < graph.getNumComponents(); component++) {
+            for (int id : graph.getComponentMembers(component)) {
+                assertEquals(component, graph.getComponent(id));
+                all = Arrays.copyOf(all, all.length + 1);
+                all[all.length - 1] = id;
+            }
+        }
+        Arrays.sort(all);
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, all);
+        assertCalleesFirst(graph);
+    }
+
+    @Test
+    public void testLongChain() {
+        // deeper than the Java stack would allow with a recursive search
+        int count = 100_000;
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        for (int i = 0; i < count - 1; i++) {
+            sources[i] = i;
+            targets[i] = i + 1;
+        }
+        // and a cycle back from the last method to the middle one
+        sources[count - 1] = count - 1;
+        targets[count - 1] = count / 2;
+        CompactCallGraph graph = new CompactCallGraph();
+        graph.build(methods(count), sources, targets);
+
+        assertEquals(count / 2 + 1, graph.getNumComponents());
+        assertEquals(graph.getComponent(count / 2), graph.getComponent(count - 1));
+        assertNotEquals(graph.getComponent(count / 2 - 1), graph.getComponent(count / 2));
+        assertEquals(0, graph.getComponent(count - 1));
+        assertCalleesFirst(graph);
+    }
+
+    /**
+     * Components are in reverse topological order: the callees of a method
+     * are in its component or in a component before it.
+     */
+    private static void assertCalleesFirst(CompactCallGraph graph) {
+        for (int id = 0; id < graph.getNumMethods(); id++) {
+            for (int callee : graph.getCallees(id)) {
+                assertTrue(id + " calls " + callee, graph.getComponent(callee) <= graph.getComponent(id));
+            }
+        }
+    }
+}
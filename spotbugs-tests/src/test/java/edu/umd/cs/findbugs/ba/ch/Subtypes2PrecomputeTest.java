@@ -0,0 +1,107 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2007 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba.ch;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.FindBugsTestCase;
+import edu.umd.cs.findbugs.RunnableWithExceptions;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+
+/**
+ * Tests for the known subtypes kept by Subtypes2 when the supertype labels are
+ * precomputed.
+ */
+public class Subtypes2PrecomputeTest extends FindBugsTestCase {
+
+    private static final ClassDescriptor COLLECTION = DescriptorFactory.createClassDescriptor(Collection.class);
+
+    private static final ClassDescriptor ABSTRACT_COLLECTION = DescriptorFactory.createClassDescriptor(AbstractCollection.class);
+
+    private static final ClassDescriptor ARRAY_LIST = DescriptorFactory.createClassDescriptor(ArrayList.class);
+
+    private static final ClassDescriptor RUNNABLE = DescriptorFactory.createClassDescriptor(Runnable.class);
+
+    private static XClass getXClass(ClassDescriptor descriptor) throws CheckedAnalysisException {
+        return Global.getAnalysisCache().getClassAnalysis(XClass.class, descriptor);
+    }
+
+    public void testKnownSubtypesAreKept() throws Throwable {
+        executeFindBugsTest(new RunnableWithExceptions() {
+            @Override
+            public void run() throws Throwable {
+                Subtypes2 test = new Subtypes2(true);
+                test.addClass(getXClass(ABSTRACT_COLLECTION));
+
+                Set<ClassDescriptor> subtypes = test.getSubtypes(COLLECTION);
+                assertTrue(subtypes.contains(ABSTRACT_COLLECTION));
+                assertFalse(subtypes.contains(ARRAY_LIST));
+                assertSame(subtypes, test.getSubtypes(COLLECTION));
+            }
+        });
+    }
+
+    public void testNewSubtypeInvalidatesSupertypes() throws Throwable {
+        executeFindBugsTest(new RunnableWithExceptions() {
+            @Override
+            public void run() throws Throwable {
+                Subtypes2 test = new Subtypes2(true);
+                test.addClass(getXClass(ABSTRACT_COLLECTION));
+                Set<ClassDescriptor> before = test.getSubtypes(COLLECTION);
+                Set<ClassDescriptor> unrelated = test.getSubtypes(RUNNABLE);
+
+                test.addClass(getXClass(ARRAY_LIST));
+
+                Set<ClassDescriptor> after = test.getSubtypes(COLLECTION);
+                assertNotSame(before, after);
+                assertTrue(after.contains(ARRAY_LIST));
+                assertTrue(after.containsAll(before));
+                // no edge was added below Runnable
+                assertSame(unrelated, test.getSubtypes(RUNNABLE));
+            }
+        });
+    }
+
+    public void testSameSubtypesAsWithoutPrecompute() throws Throwable {
+        executeFindBugsTest(new RunnableWithExceptions() {
+            @Override
+            public void run() throws Throwable {
+                Subtypes2 precomputed = new Subtypes2(true);
+                Subtypes2 searched = new Subtypes2(false);
+                for (ClassDescriptor descriptor : new ClassDescriptor[] { ABSTRACT_COLLECTION, ARRAY_LIST }) {
+                    precomputed.getSubtypes(COLLECTION);
+                    precomputed.addClass(getXClass(descriptor));
+                    searched.addClass(getXClass(descriptor));
+                    assertEquals(searched.getSubtypes(COLLECTION), precomputed.getSubtypes(COLLECTION));
+                }
+                for (ClassDescriptor descriptor : new ClassDescriptor[] { COLLECTION, ABSTRACT_COLLECTION, RUNNABLE }) {
+                    assertEquals(searched.isSubtype(ARRAY_LIST, descriptor), precomputed.isSubtype(ARRAY_LIST, descriptor));
+                }
+            }
+        });
+    }
+}
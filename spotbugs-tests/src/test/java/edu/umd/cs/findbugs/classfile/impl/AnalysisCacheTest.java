@@ -0,0 +1,79 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2006-2007 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.MethodGen;
+
+import edu.umd.cs.findbugs.FindBugsTestCase;
+import edu.umd.cs.findbugs.RunnableWithExceptions;
+import edu.umd.cs.findbugs.ba.CFG;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.bcel.BCELUtil;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+
+/**
+ * Tests for the method analyses the AnalysisCache keeps from one pass to the
+ * next.
+ */
+public class AnalysisCacheTest extends FindBugsTestCase {
+
+    /** more classes than the ClassContext cache holds */
+    private static final Class<?>[] OTHER_CLASSES = { java.util.ArrayList.class, java.util.LinkedList.class,
+        java.util.HashMap.class, java.util.TreeMap.class, java.util.HashSet.class, java.util.TreeSet.class,
+        java.util.ArrayDeque.class, java.util.Vector.class, java.util.Hashtable.class, java.util.Stack.class,
+        java.util.BitSet.class, java.util.Random.class };
+
+    public void testPassInvariantAnalysesAreFoundInNextPass() throws Throwable {
+        executeFindBugsTest(new RunnableWithExceptions() {
+            @Override
+            public void run() throws Throwable {
+                AnalysisCache cache = (AnalysisCache) Global.getAnalysisCache();
+                ClassDescriptor descriptor = DescriptorFactory.createClassDescriptor(StringBuilder.class);
+                ClassContext classContext = cache.getClassAnalysis(ClassContext.class, descriptor);
+                JavaClass javaClass = classContext.getJavaClass();
+                Method method = javaClass.getMethods()[0];
+                MethodDescriptor methodDescriptor = BCELUtil.getMethodDescriptor(javaClass, method);
+                MethodGen methodGen = cache.getMethodAnalysis(MethodGen.class, methodDescriptor);
+                cache.getMethodAnalysis(CFG.class, methodDescriptor);
+
+                cache.purgeBeforePass();
+                // the next pass visits the other classes before coming back
+                for (Class<?> c : OTHER_CLASSES) {
+                    cache.getClassAnalysis(ClassContext.class, DescriptorFactory.createClassDescriptor(c));
+                }
+                int hits = cache.getKeptMethodAnalysisHits();
+
+                // the ClassContext was evicted, only the pass-invariant
+                // analyses are kept
+                ClassContext newClassContext = cache.getClassAnalysis(ClassContext.class, descriptor);
+                assertNotSame(classContext, newClassContext);
+                assertSame(javaClass, newClassContext.getJavaClass());
+                assertSame(methodGen, cache.getMethodAnalysis(MethodGen.class, methodDescriptor));
+                assertEquals(hits + 1, cache.getKeptMethodAnalysisHits());
+                assertNull(newClassContext.getMethodAnalysis(CFG.class, methodDescriptor));
+            }
+        });
+    }
+}
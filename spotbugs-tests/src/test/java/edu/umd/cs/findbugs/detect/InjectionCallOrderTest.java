@@ -0,0 +1,64 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package edu.umd.cs.findbugs.detect;
+
+import static edu.umd.cs.findbugs.test.CountMatcher.containsExactly;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.umd.cs.findbugs.AbstractIntegrationTest;
+import edu.umd.cs.findbugs.test.matcher.BugInstanceMatcher;
+import edu.umd.cs.findbugs.test.matcher.BugInstanceMatcherBuilder;
+
+/**
+ * Checks that the injection sinks of the callees are propagated to the
+ * callers, whatever the order the classes are visited in.
+ */
+public class InjectionCallOrderTest extends AbstractIntegrationTest {
+
+    private static final String CALLER = "taint/InjectionCallOrder.class";
+
+    private static final String DAO = "taint/InjectionCallOrderDao.class";
+
+    @Test
+    public void testSinksArePropagatedToCallers() {
+        performAnalysis(CALLER, DAO);
+        assertSqlInjections("truePositive", 1);
+        assertSqlInjections("trueNegative", 0);
+        assertSqlInjections("cycleTruePositive", 1);
+    }
+
+    @Test
+    public void testSameBugsInAnyClassOrder() {
+        performAnalysis(CALLER, DAO);
+        List<String> bugs = getBugDescriptions();
+        performAnalysis(DAO, CALLER);
+        assertEquals(bugs, getBugDescriptions());
+    }
+
+    private void assertSqlInjections(String method, int count) {
+        BugInstanceMatcher matcher = new BugInstanceMatcherBuilder().bugType("SQL_INJECTION_JDBC")
+                .inClass("InjectionCallOrder").inMethod(method).build();
+        assertThat(getBugCollection(), containsExactly(count, matcher));
+    }
+}
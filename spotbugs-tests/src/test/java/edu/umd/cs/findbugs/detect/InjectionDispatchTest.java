@@ -0,0 +1,72 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package edu.umd.cs.findbugs.detect;
+
+import static edu.umd.cs.findbugs.test.CountMatcher.containsExactly;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.h3xstream.findsecbugs.FindSecBugsGlobalConfig;
+
+import edu.umd.cs.findbugs.AbstractIntegrationTest;
+import edu.umd.cs.findbugs.test.matcher.BugInstanceMatcher;
+import edu.umd.cs.findbugs.test.matcher.BugInstanceMatcherBuilder;
+
+/**
+ * Checks that the sink filter keeps the callers of application methods
+ * implementing a library interface, when the methods reach a sink.
+ */
+public class InjectionDispatchTest extends AbstractIntegrationTest {
+
+    private static final String DISPATCH = "taint/InjectionDispatch.class";
+
+    private static final String SELECT = "taint/InjectionDispatchSelect.class";
+
+    @Test
+    public void testSinkReachedThroughLibraryInterface() {
+        performAnalysis(DISPATCH, SELECT);
+        assertSqlInjections("truePositive", 1);
+        assertSqlInjections("trueNegative", 0);
+    }
+
+    @Test
+    public void testSameBugsWithoutSinkFilter() {
+        performAnalysis(DISPATCH, SELECT);
+        List<String> filtered = getBugDescriptions();
+        FindSecBugsGlobalConfig config = FindSecBugsGlobalConfig.getInstance();
+        boolean sinkPrefilter = config.isSinkPrefilter();
+        config.setSinkPrefilter(false);
+        try {
+            performAnalysis(DISPATCH, SELECT);
+        } finally {
+            config.setSinkPrefilter(sinkPrefilter);
+        }
+        assertEquals(getBugDescriptions(), filtered);
+    }
+
+    private void assertSqlInjections(String method, int count) {
+        BugInstanceMatcher matcher = new BugInstanceMatcherBuilder().bugType("SQL_INJECTION_JDBC")
+                .inClass("InjectionDispatch").inMethod(method).build();
+        assertThat(getBugCollection(), containsExactly(count, matcher));
+    }
+}
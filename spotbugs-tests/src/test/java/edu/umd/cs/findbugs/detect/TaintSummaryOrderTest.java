@@ -0,0 +1,65 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package edu.umd.cs.findbugs.detect;
+
+import static edu.umd.cs.findbugs.test.CountMatcher.containsExactly;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.umd.cs.findbugs.AbstractIntegrationTest;
+import edu.umd.cs.findbugs.test.matcher.BugInstanceMatcher;
+import edu.umd.cs.findbugs.test.matcher.BugInstanceMatcherBuilder;
+
+/**
+ * Checks that the taint summaries of the callees are known when the callers
+ * are analyzed, whatever the order of the methods and classes.
+ */
+public class TaintSummaryOrderTest extends AbstractIntegrationTest {
+
+    private static final String ORDER = "taint/TaintSummaryOrder.class";
+
+    private static final String HELPER = "taint/TaintSummaryOrderHelper.class";
+
+    @Test
+    public void testCalleeSummariesAreUsed() {
+        performAnalysis(ORDER, HELPER);
+        assertSqlInjections("truePositive", 1);
+        assertSqlInjections("trueNegative", 0);
+        assertSqlInjections("recursiveTruePositive", 1);
+        assertSqlInjections("recursiveTrueNegative", 0);
+    }
+
+    @Test
+    public void testSameBugsInAnyClassOrder() {
+        performAnalysis(ORDER, HELPER);
+        List<String> bugs = getBugDescriptions();
+        performAnalysis(HELPER, ORDER);
+        assertEquals(bugs, getBugDescriptions());
+    }
+
+    private void assertSqlInjections(String method, int count) {
+        BugInstanceMatcher matcher = new BugInstanceMatcherBuilder().bugType("SQL_INJECTION_JDBC")
+                .inClass("TaintSummaryOrder").inMethod(method).build();
+        assertThat(getBugCollection(), containsExactly(count, matcher));
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2005, University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PersistentHashMap}, in particular for keys with colliding
+ * hashes and for the nodes collapsed when entries are removed.
+ */
+public class PersistentHashMapTest {
+
+    /** Key with a chosen hash code, so that tests can make keys collide. */
+    private static final class Key {
+        final int id;
+
+        final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "Key(" + id + ", " + hash + ")";
+        }
+    }
+
+    @Test
+    public void testPutAndGet() {
+        PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, Integer> one = empty.plus("a", 1);
+        PersistentHashMap<String, Integer> two = one.plus("b", 2);
+        PersistentHashMap<String, Integer> replaced = two.plus("a", 3);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(1, one.size());
+        assertEquals(Integer.valueOf(1), one.get("a"));
+        assertNull(one.get("b"));
+        assertEquals(2, two.size());
+        assertEquals(Integer.valueOf(2), two.get("b"));
+        assertEquals(2, replaced.size());
+        assertEquals(Integer.valueOf(3), replaced.get("a"));
+        // the older versions are unchanged
+        assertEquals(Integer.valueOf(1), two.get("a"));
+        assertFalse(one.containsKey("b"));
+        assertSame(replaced, replaced.plus("a", replaced.get("a")));
+    }
+
+    @Test
+    public void testNullKeyAndValue() {
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String> empty().plus(null, "x").plus("y", null);
+
+        assertEquals(2, map.size());
+        assertEquals("x", map.get(null));
+        assertTrue(map.containsKey("y"));
+        assertNull(map.get("y"));
+        assertEquals(1, map.minus(null).size());
+        assertFalse(map.minus(null).containsKey(null));
+    }
+
+    @Test
+    public void testRemove() {
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer> empty().plus("a", 1).plus("b", 2);
+
+        assertSame(map, map.minus("c"));
+        PersistentHashMap<String, Integer> removed = map.minus("a");
+        assertEquals(1, removed.size());
+        assertFalse(removed.containsKey("a"));
+        assertEquals(Integer.valueOf(2), removed.get("b"));
+        assertTrue(removed.minus("b").isEmpty());
+        assertEquals(Integer.valueOf(1), map.get("a"));
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        Key[] keys = { new Key(0, 42), new Key(1, 42), new Key(2, 42) };
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        for (Key key : keys) {
+            map = map.plus(key, key.id);
+        }
+        assertEquals(3, map.size());
+        for (Key key : keys) {
+            assertEquals(Integer.valueOf(key.id), map.get(key));
+        }
+        assertNull(map.get(new Key(3, 42)));
+
+        PersistentHashMap<Key, Integer> replaced = map.plus(keys[1], 10);
+        assertEquals(3, replaced.size());
+        assertEquals(Integer.valueOf(10), replaced.get(keys[1]));
+        assertEquals(Integer.valueOf(1), map.get(keys[1]));
+
+        // removing from the collision node until a single leaf is left
+        PersistentHashMap<Key, Integer> two = map.minus(keys[0]);
+        assertEquals(2, two.size());
+        assertFalse(two.containsKey(keys[0]));
+        PersistentHashMap<Key, Integer> one = two.minus(keys[2]);
+        assertEquals(1, one.size());
+        assertEquals(Integer.valueOf(1), one.get(keys[1]));
+        assertEquals(Integer.valueOf(0), one.plus(keys[0], 0).get(keys[0]));
+        assertTrue(one.minus(keys[1]).isEmpty());
+    }
+
+    @Test
+    public void testCollisionNodeWithOtherHashes() {
+        // the same low bits as the colliding keys, so they share trie nodes
+        Key a = new Key(0, 7);
+        Key b = new Key(1, 7);
+        Key c = new Key(2, 7 + (1 << 5));
+        Key d = new Key(3, 7 + (1 << 10));
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.<Key, Integer> empty().plus(a, 0).plus(b, 1).plus(c, 2)
+                .plus(d, 3);
+        assertSameEntries(expected(a, b, c, d), map);
+
+        assertSameEntries(expected(b, c, d), map.minus(a));
+        assertSameEntries(expected(a, c, d), map.minus(b));
+        assertSameEntries(expected(a, b, d), map.minus(c));
+        assertSameEntries(expected(c, d), map.minus(a).minus(b));
+        assertSameEntries(expected(a), map.minus(b).minus(c).minus(d));
+        // the nodes left after the collapse still take new entries
+        assertSameEntries(expected(a, b), map.minus(b).minus(c).minus(d).plus(b, 1));
+        assertSameEntries(expected(a, c), map.minus(b).minus(d).minus(c).plus(c, 2));
+    }
+
+    @Test
+    public void testDeepTrieCollapse() {
+        // hashes only differing in their highest bits make the deepest trie
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            keys.add(new Key(i, i << 29));
+        }
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        Map<Key, Integer> expected = new HashMap<>();
+        for (Key key : keys) {
+            map = map.plus(key, key.id);
+            expected.put(key, key.id);
+            assertSameEntries(expected, map);
+        }
+        for (Key key : keys) {
+            map = map.minus(key);
+            expected.remove(key);
+            assertSameEntries(expected, map);
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testSameAsHashMap() {
+        Random random = new Random(3);
+        Key[] keys = new Key[200];
+        for (int i = 0; i < keys.length; i++) {
+            // few distinct hashes, so that many keys collide
+            keys[i] = new Key(i, random.nextInt(4) == 0 ? random.nextInt(8) : random.nextInt());
+        }
+
+        List<PersistentHashMap<Key, Integer>> versions = new ArrayList<>();
+        List<Map<Key, Integer>> copies = new ArrayList<>();
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        Map<Key, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            Key key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                Integer value = random.nextInt(10);
+                map = map.plus(key, value);
+                expected.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            if (i % 100 == 0) {
+                assertSameEntries(expected, map);
+                assertEquals(expected.hashCode(), map.hashCode());
+                versions.add(map);
+                copies.add(new HashMap<>(expected));
+            }
+        }
+        assertSameEntries(expected, map);
+        // the older versions are unchanged
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(copies.get(i), versions.get(i));
+        }
+    }
+
+    /**
+     * Check the entries of a map both by looking them up and by iterating over
+     * them.
+     */
+    private static void assertSameEntries(Map<Key, Integer> expected, PersistentHashMap<Key, Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        assertEquals(expected, new HashMap<>(actual));
+    }
+
+    private static Map<Key, Integer> expected(Key... keys) {
+        Map<Key, Integer> result = new HashMap<>();
+        for (Key key : keys) {
+            result.put(key, key.id);
+        }
+        return result;
+    }
+}
@@ -18,6 +18,7 @@
 package com.h3xstream.findsecbugs;
 
 import edu.umd.cs.findbugs.SystemProperties;
+import edu.umd.cs.findbugs.ba.Dataflow;
 
 /**
  * This class contains some flag that can be used to create global configuration.
@@ -26,6 +27,15 @@ import edu.umd.cs.findbugs.SystemProperties;
  */
 public class FindSecBugsGlobalConfig {
 
+    /**
+     * Default iteration budget of the taint analysis of a method. The budget
+     * is exceeded in iteration budget + 1, while the dataflow framework starts
+     * reporting and dumping a method in iteration dataflow.maxiters + 1, so
+     * one iteration below dataflow.maxiters is the largest budget degrading
+     * the analysis first
+     */
+    public static final int DEFAULT_TAINT_BUDGET_ITERATIONS = Math.max(1, Dataflow.getMaxIterations() - 1);
+
     private static final FindSecBugsGlobalConfig instance = new FindSecBugsGlobalConfig();
 
     private String findSecBugsVersion = "1.6.0";
@@ -39,6 +49,15 @@ public class FindSecBugsGlobalConfig {
     private String customConfigFile;
     private boolean taintedMainArgument;
     private boolean reportPotentialXssWrongContext;
+    private boolean orderedTaintSummaries;
+    private int taintSummaryMaxIterations;
+    private String taintSummaryCacheDir;
+    private int taintMaxLocations;
+    private boolean sinkPrefilter;
+    private int taintBudgetInstructions;
+    private int taintBudgetIterations;
+    private long taintBudgetMillis;
+    private int taintBudgetSources;
 
     protected FindSecBugsGlobalConfig() {
         debugOutputTaintConfigs = Boolean.parseBoolean(loadFromSystem("findsecbugs.taint.outputconfigs", Boolean.FALSE.toString()));
@@ -47,6 +66,16 @@ public class FindSecBugsGlobalConfig {
         taintedMainArgument = Boolean.parseBoolean(loadFromSystem("findsecbugs.taint.taintedmainargument", Boolean.TRUE.toString()));
         reportPotentialXssWrongContext = Boolean.parseBoolean(loadFromSystem("findsecbugs.taint.reportpotentialxsswrongcontext", Boolean.FALSE.toString()));
         debugTaintState = Boolean.parseBoolean(loadFromSystem("findsecbugs.taint.debugtaintstate", Boolean.FALSE.toString()));
+        orderedTaintSummaries = Boolean.parseBoolean(loadFromSystem("findsecbugs.taint.orderedsummaries", Boolean.TRUE.toString()));
+        taintSummaryMaxIterations = Integer.parseInt(loadFromSystem("findsecbugs.taint.summarymaxiterations", "5"));
+        taintSummaryCacheDir = loadFromSystem("findsecbugs.taint.summarycachedir", null);
+        taintMaxLocations = Math.max(1, Integer.parseInt(loadFromSystem("findsecbugs.taint.maxlocations", "32")));
+        sinkPrefilter = Boolean.parseBoolean(loadFromSystem("findsecbugs.taint.sinkprefilter", Boolean.TRUE.toString()));
+        taintBudgetInstructions = Integer.parseInt(loadFromSystem("findsecbugs.taint.budget.instructions", "10000"));
+        taintBudgetIterations = Integer.parseInt(loadFromSystem("findsecbugs.taint.budget.iterations",
+                String.valueOf(DEFAULT_TAINT_BUDGET_ITERATIONS)));
+        taintBudgetMillis = Long.parseLong(loadFromSystem("findsecbugs.taint.budget.millis", "0"));
+        taintBudgetSources = Integer.parseInt(loadFromSystem("findsecbugs.taint.budget.sources", "256"));
     }
 
     public String loadFromSystem(String key, String defaultValue) {
@@ -146,4 +175,80 @@ public class FindSecBugsGlobalConfig {
     public void setReportPotentialXssWrongContext(boolean reportPotentialXssWrongContext) {
         this.reportPotentialXssWrongContext = reportPotentialXssWrongContext;
     }
+
+    public boolean isOrderedTaintSummaries() {
+        return orderedTaintSummaries;
+    }
+
+    public void setOrderedTaintSummaries(boolean orderedTaintSummaries) {
+        this.orderedTaintSummaries = orderedTaintSummaries;
+    }
+
+    public int getTaintSummaryMaxIterations() {
+        return taintSummaryMaxIterations;
+    }
+
+    public void setTaintSummaryMaxIterations(int taintSummaryMaxIterations) {
+        this.taintSummaryMaxIterations = taintSummaryMaxIterations;
+    }
+
+    public String getTaintSummaryCacheDir() {
+        return taintSummaryCacheDir;
+    }
+
+    public void setTaintSummaryCacheDir(String taintSummaryCacheDir) {
+        this.taintSummaryCacheDir = taintSummaryCacheDir;
+    }
+
+    public int getTaintMaxLocations() {
+        return taintMaxLocations;
+    }
+
+    /**
+     * @param taintMaxLocations maximal number of locations kept in a taint
+     *        fact, values below 1 are raised to 1
+     */
+    public void setTaintMaxLocations(int taintMaxLocations) {
+        this.taintMaxLocations = Math.max(1, taintMaxLocations);
+    }
+
+    public boolean isSinkPrefilter() {
+        return sinkPrefilter;
+    }
+
+    public void setSinkPrefilter(boolean sinkPrefilter) {
+        this.sinkPrefilter = sinkPrefilter;
+    }
+
+    public int getTaintBudgetInstructions() {
+        return taintBudgetInstructions;
+    }
+
+    public void setTaintBudgetInstructions(int taintBudgetInstructions) {
+        this.taintBudgetInstructions = taintBudgetInstructions;
+    }
+
+    public int getTaintBudgetIterations() {
+        return taintBudgetIterations;
+    }
+
+    public void setTaintBudgetIterations(int taintBudgetIterations) {
+        this.taintBudgetIterations = taintBudgetIterations;
+    }
+
+    public long getTaintBudgetMillis() {
+        return taintBudgetMillis;
+    }
+
+    public void setTaintBudgetMillis(long taintBudgetMillis) {
+        this.taintBudgetMillis = taintBudgetMillis;
+    }
+
+    public int getTaintBudgetSources() {
+        return taintBudgetSources;
+    }
+
+    public void setTaintBudgetSources(int taintBudgetSources) {
+        this.taintBudgetSources = taintBudgetSources;
+    }
 }
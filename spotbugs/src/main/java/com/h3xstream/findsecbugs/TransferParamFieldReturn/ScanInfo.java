@@ -29,12 +29,27 @@ public class ScanInfo {
     public static List<String> classList = new ArrayList<String>();
     //已扫描类
     public static Set<String> classSet = new HashSet<String>();
+    //已扫描方法
+    public static Set<String> methodSet = new HashSet<String>();
 //    public static Map<String,Map<String,Set<Integer>>> paramToStaticField = new HashMap<String,Map<String, Set<Integer>>>();
 
     public static ScanInfo getInstance(){
         return  cf;
     }
 
+    /**
+     * Forgets the results of a previous analysis in the same VM
+     */
+    public void clear(){
+        returnType.clear();
+        paToFd.clear();
+        fdToRt.clear();
+        paToRt.clear();
+        fdToPa.clear();
+        classSet.clear();
+        methodSet.clear();
+    }
+
     public void initClass(Collection<ClassDescriptor> classDescriptor){
         for(ClassDescriptor cd:classDescriptor){
             classList.add(cd.getClassName());
@@ -51,10 +66,29 @@ public class ScanInfo {
     public void visitClass(ClassContext classContext) throws CheckedAnalysisException{
         classSet.add(classContext.toString());
         for(Method method:classContext.getMethodsInCallOrder()){
+            visitMethod(classContext, method);
+        }
+    }
+
+    /**
+     * Leaves a method out of the scan, e.g. because no detector needs its
+     * taint dataflow
+     */
+    public void skipMethod(String fullMethodName){
+        methodSet.add(fullMethodName);
+    }
+
+    /**
+     * Scans a single method, unless it has been scanned before, e.g. by
+     * {@link com.h3xstream.findsecbugs.taintanalysis.TaintSummaryPass} in
+     * call graph order
+     */
+    public void visitMethod(ClassContext classContext, Method method) throws CheckedAnalysisException{
+            String currentMethod = classContext.getJavaClass().getClassName().replace('.', '/') + "."
+                    + method.getName() + method.getSignature();
+            if(method.getCode() == null || !methodSet.add(currentMethod)) return;
             TaintDataflow dataflow = getTaintDataFlow(classContext, method);
             ConstantPoolGen cpg = classContext.getConstantPoolGen();
-            //method
-            String currentMethod = getFullMethodName(classContext.getMethodGen(method));
 
             Set<String> typeset = new HashSet<String>();
 
@@ -127,7 +161,6 @@ public class ScanInfo {
             if(mmaf.size()>0){
                 fdToPa.put(currentMethod,mmaf);
             }
-        }
     }
 
     protected void processPutfield(Taint t, FieldInstruction in, ConstantPoolGen cpg,Map<Integer, Set<String>> mmap){
@@ -154,11 +187,6 @@ public class ScanInfo {
         MethodDescriptor descriptor = BCELUtil.getMethodDescriptor(classContext.getJavaClass(), method);
         return Global.getAnalysisCache().getMethodAnalysis(TaintDataflow.class, descriptor);
     }
-    private static String getFullMethodName(MethodGen methodGen) {
-        String methodNameWithSignature = methodGen.getName() + methodGen.getSignature();
-        String slashedClassName = methodGen.getClassName().replace('.', '/');
-        return slashedClassName + "." + methodNameWithSignature;
-    }
     private static Iterator<Location> getLocationIterator(ClassContext classContext, Method method)
             throws CheckedAnalysisException {
         try {
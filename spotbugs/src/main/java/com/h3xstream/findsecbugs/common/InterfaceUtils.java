@@ -18,7 +18,6 @@
 package com.h3xstream.findsecbugs.common;
 
 import edu.umd.cs.findbugs.ba.AnalysisContext;
-import edu.umd.cs.findbugs.ba.Hierarchy;
 import org.apache.bcel.classfile.JavaClass;
 
 public class InterfaceUtils {
@@ -28,9 +27,10 @@ public class InterfaceUtils {
     }
 
     public static boolean isSubtype(String className, String... superClasses) {
+        TypeHierarchy hierarchy = TypeHierarchy.getInstance();
         for(String potentialSuperClass : superClasses) {
             try {
-                if(Hierarchy.isSubtype(className, potentialSuperClass)) {
+                if(hierarchy.isSubtype(className, potentialSuperClass)) {
                     return true;
                 }
             } catch (ClassNotFoundException e) {
@@ -0,0 +1,182 @@
+/**
+ * Find Security Bugs
+ * Copyright (c) Philippe Arteau, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.h3xstream.findsecbugs.common;
+
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.ba.ch.Subtypes2;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Supertypes of classes, looked up from the {@link XClass} information of the
+ * analysis cache instead of the BCEL repository.
+ * <p>
+ * Subtype tests are answered by {@link Subtypes2}, which already keeps the
+ * supertypes of the classes asked about. Class names are slashed.
+ */
+public class TypeHierarchy {
+
+    private static final TypeHierarchy INSTANCE = new TypeHierarchy();
+
+    private TypeHierarchy() {
+    }
+
+    /**
+     * @return the type hierarchy of the current analysis
+     */
+    public static TypeHierarchy getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param className slashed or dotted class name
+     * @return slashed names of the super classes, nearest first, up to the
+     *         first class that cannot be found
+     */
+    public List<String> getSuperclasses(String className) {
+        String name = className.replace('.', '/');
+        if (isArray(name)) {
+            return Collections.emptyList();
+        }
+        List<String> superclasses = new ArrayList<String>();
+        Set<String> seen = new HashSet<String>();
+        seen.add(name);
+        XClass xclass = lookup(name);
+        while (xclass != null && xclass.getSuperclassDescriptor() != null) {
+            String superclass = xclass.getSuperclassDescriptor().getClassName();
+            if (!seen.add(superclass)) {
+                // a (broken) cyclic hierarchy
+                break;
+            }
+            superclasses.add(superclass);
+            xclass = lookup(superclass);
+        }
+        return superclasses;
+    }
+
+    /**
+     * @param className slashed or dotted class name
+     * @return slashed names of all the interfaces implemented by the class or
+     *         its super classes (including the class itself if it is an
+     *         interface), breadth first like JavaClass.getAllInterfaces()
+     */
+    public List<String> getAllInterfaces(String className) {
+        String name = className.replace('.', '/');
+        if (isArray(name)) {
+            return Collections.emptyList();
+        }
+        List<String> interfaces = new ArrayList<String>();
+        Deque<String> queue = new ArrayDeque<String>();
+        Set<String> seen = new HashSet<String>();
+        queue.add(name);
+        seen.add(name);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            XClass xclass = lookup(current);
+            if (xclass == null) {
+                continue;
+            }
+            if (xclass.isInterface()) {
+                interfaces.add(current);
+            }
+            ClassDescriptor superclass = xclass.getSuperclassDescriptor();
+            if (superclass != null && seen.add(superclass.getClassName())) {
+                queue.add(superclass.getClassName());
+            }
+            for (ClassDescriptor directInterface : xclass.getInterfaceDescriptorList()) {
+                if (seen.add(directInterface.getClassName())) {
+                    queue.add(directInterface.getClassName());
+                }
+            }
+        }
+        return interfaces;
+    }
+
+    /**
+     * @param className slashed or dotted class name
+     * @param possibleSupertype slashed or dotted class name
+     * @return true if the class is the possible supertype or one of its
+     *         subtypes, false if it is not
+     * @throws ClassNotFoundException if it is not a known subtype, but a class
+     *         of its hierarchy cannot be found
+     */
+    public boolean isSubtype(String className, String possibleSupertype) throws ClassNotFoundException {
+        String name = className.replace('.', '/');
+        String supertype = possibleSupertype.replace('.', '/');
+        if (name.equals(supertype)) {
+            return true;
+        }
+        if (isArray(name) || isArray(supertype)) {
+            return false;
+        }
+        Subtypes2 subtypes2 = AnalysisContext.currentAnalysisContext().getSubtypes2();
+        return subtypes2.isSubtype(DescriptorFactory.createClassDescriptor(name),
+                DescriptorFactory.createClassDescriptor(supertype));
+    }
+
+    /**
+     * Same as ObjectType.subclassOf(ObjectType): interfaces are never
+     * subclasses of anything
+     *
+     * @param className slashed or dotted class name
+     * @param possibleSuperclass slashed or dotted class name
+     * @return true if both are classes and the first is the second or one of
+     *         its subclasses
+     * @throws ClassNotFoundException if it is not a known subclass, but a class
+     *         of its hierarchy cannot be found
+     */
+    public boolean isSubclass(String className, String possibleSuperclass) throws ClassNotFoundException {
+        if (isInterface(className.replace('.', '/')) || isInterface(possibleSuperclass.replace('.', '/'))) {
+            return false;
+        }
+        return isSubtype(className, possibleSuperclass);
+    }
+
+    private boolean isInterface(String className) {
+        if (isArray(className)) {
+            return false;
+        }
+        XClass xclass = lookup(className);
+        return xclass != null && xclass.isInterface();
+    }
+
+    private static boolean isArray(String className) {
+        return className.startsWith("[") || className.endsWith("]");
+    }
+
+    private static XClass lookup(String className) {
+        ClassDescriptor descriptor = DescriptorFactory.createClassDescriptor(className);
+        try {
+            return Global.getAnalysisCache().getClassAnalysis(XClass.class, descriptor);
+        } catch (CheckedAnalysisException e) {
+            AnalysisContext.reportMissingClass(descriptor);
+            return null;
+        }
+    }
+}
@@ -23,19 +23,55 @@ import org.apache.bcel.generic.Instruction;
 import org.apache.bcel.generic.InvokeInstruction;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Matches invoke instructions by class, method name and signature.
+ * <p>
+ * Matchers are usually static and tested on every invoke instruction, so the
+ * names are compiled into hash sets when first used, and the result for a
+ * constant pool entry is remembered for the constant pool of the class being
+ * visited: each method reference of the class is resolved and compared once.
+ */
 public class InvokeMatcherBuilder {
 
+    private static final byte UNKNOWN = 0;
+    private static final byte MATCH = 1;
+    private static final byte NO_MATCH = 2;
+
+    /**
+     * Results of the matcher for the entries of a constant pool
+     */
+    private static final class Results {
+        final Object constantPool;
+        final byte[] byIndex;
+
+        Results(Object constantPool, int size) {
+            this.constantPool = constantPool;
+            this.byIndex = new byte[size];
+        }
+    }
+
     private List<String> classesNames = new ArrayList<String>();
     private List<String> methodNames = new ArrayList<String>();
     private List<String> argSignatures = new ArrayList<String>();
 
+    /** compiled when first matching, null if any class matches */
+    private Set<String> dottedClasses;
+    private Set<String> slashedClasses;
+    private Set<String> methods;
+    private Set<String> signatures;
+    private volatile boolean compiled;
+    private volatile Results results;
+
 
     public InvokeMatcherBuilder atClass(String... classesNames) {
         for(String clz : classesNames) {
             this.classesNames.add(clz.replace('/','.'));
         }
+        compiled = false;
         return this;
     }
 
@@ -43,6 +79,7 @@ public class InvokeMatcherBuilder {
         for(String method : methodNames) {
             this.methodNames.add(method);
         }
+        compiled = false;
         return this;
     }
 
@@ -50,37 +87,79 @@ public class InvokeMatcherBuilder {
         for(String method : argSignatures) {
             this.argSignatures.add(method);
         }
+        compiled = false;
         return this;
     }
 
     public boolean matches(OpcodeStackDetector opcodeStackDetector) {
-        if(classesNames.size() != 0 && !classesNames.contains(opcodeStackDetector.getClassConstantOperand().replace('/','.'))) {
-            return false;
+        int index = opcodeStackDetector.getConstantRefIndex();
+        Results current = getResults(opcodeStackDetector.getConstantPool(),
+                opcodeStackDetector.getConstantPool().getLength());
+        if (index < current.byIndex.length && current.byIndex[index] != UNKNOWN) {
+            return current.byIndex[index] == MATCH;
         }
-        if(methodNames.size() != 0 && !methodNames.contains(opcodeStackDetector.getNameConstantOperand())) {
-            return false;
+        boolean match = (slashedClasses == null || slashedClasses.contains(opcodeStackDetector.getClassConstantOperand()))
+                && (methods == null || methods.contains(opcodeStackDetector.getNameConstantOperand()))
+                && (signatures == null || signatures.contains(opcodeStackDetector.getSigConstantOperand()));
+        if (index < current.byIndex.length) {
+            current.byIndex[index] = match ? MATCH : NO_MATCH;
         }
-        if(argSignatures.size() != 0 && !argSignatures.contains(opcodeStackDetector.getSigConstantOperand())) {
-            return false;
-        }
-        return true;
+        return match;
     }
 
 
     public boolean matches(Instruction instruction, ConstantPoolGen cpg) {
         if(instruction != null && instruction instanceof InvokeInstruction) {
             InvokeInstruction invokeInstruction = (InvokeInstruction) instruction;
-            if (classesNames.size() != 0 && !classesNames.contains(invokeInstruction.getClassName(cpg))) {
-                return false;
-            }
-            else if (methodNames.size() != 0 && !methodNames.contains(invokeInstruction.getMethodName(cpg))) {
-                return false;
+            int index = invokeInstruction.getIndex();
+            Results current = getResults(cpg, cpg.getSize());
+            if (index < current.byIndex.length && current.byIndex[index] != UNKNOWN) {
+                return current.byIndex[index] == MATCH;
             }
-            else if (argSignatures.size() != 0 && !argSignatures.contains(invokeInstruction.getSignature(cpg))) {
-                return false;
+            boolean match = (dottedClasses == null || dottedClasses.contains(invokeInstruction.getClassName(cpg)))
+                    && (methods == null || methods.contains(invokeInstruction.getMethodName(cpg)))
+                    && (signatures == null || signatures.contains(invokeInstruction.getSignature(cpg)));
+            if (index < current.byIndex.length) {
+                current.byIndex[index] = match ? MATCH : NO_MATCH;
             }
-            return true;
+            return match;
         }
         return false;
     }
+
+    /**
+     * @return the results for the given constant pool, new ones if the
+     *         previous matches were done in another class
+     */
+    private Results getResults(Object constantPool, int size) {
+        if (!compiled) {
+            compile();
+        }
+        Results current = results;
+        if (current == null || current.constantPool != constantPool) {
+            current = new Results(constantPool, size);
+            results = current;
+        }
+        return current;
+    }
+
+    private synchronized void compile() {
+        if (compiled) {
+            return;
+        }
+        if (classesNames.isEmpty()) {
+            dottedClasses = null;
+            slashedClasses = null;
+        } else {
+            dottedClasses = new HashSet<String>(classesNames);
+            slashedClasses = new HashSet<String>();
+            for (String className : classesNames) {
+                slashedClasses.add(className.replace('.', '/'));
+            }
+        }
+        methods = methodNames.isEmpty() ? null : new HashSet<String>(methodNames);
+        signatures = argSignatures.isEmpty() ? null : new HashSet<String>(argSignatures);
+        results = null;
+        compiled = true;
+    }
 }
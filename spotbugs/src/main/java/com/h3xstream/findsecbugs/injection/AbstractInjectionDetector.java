@@ -19,6 +19,7 @@ package com.h3xstream.findsecbugs.injection;
 
 import com.h3xstream.findsecbugs.taintanalysis.Taint;
 import com.h3xstream.findsecbugs.taintanalysis.TaintFrame;
+import com.h3xstream.findsecbugs.taintanalysis.TaintFrameModelingVisitor;
 import com.h3xstream.findsecbugs.taintanalysis.data.UnknownSource;
 import com.h3xstream.findsecbugs.taintanalysis.data.UnknownSourceType;
 import edu.umd.cs.findbugs.BugReporter;
@@ -27,11 +28,15 @@ import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.ba.DataflowAnalysisException;
+import edu.umd.cs.findbugs.bcel.BCELUtil;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 import edu.umd.cs.findbugs.util.ClassName;
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.INVOKESTATIC;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InvokeInstruction;
 
@@ -44,38 +49,107 @@ import java.util.*;
  */
 public abstract class AbstractInjectionDetector extends AbstractTaintDetector {
 
-    
-    protected final Map<String, Set<InjectionSink>> injectionSinks = new HashMap<String, Set<InjectionSink>>();
-    private final Map<MethodAndSink, Taint> sinkTaints = new HashMap<MethodAndSink, Taint>();
+    /**
+     * Sinks found in each method, with the taint of the injected value if it
+     * depends on the method parameters
+     */
+    protected final Map<String, Map<InjectionSink, Taint>> injectionSinks = new HashMap<String, Map<InjectionSink, Taint>>();
+    private final InjectionCallSites callSites = InjectionCallSites.getInstance();
+    private SinkReachability sinkReachability;
+    private boolean sinkPrefilter = true;
 
 
     protected AbstractInjectionDetector(BugReporter bugReporter) {
         super(bugReporter);
+        callSites.addUser();
     }
 
     /**
-     * Once the analysis is completed, all the collected sinks are reported as bugs.
+     * Once the analysis is completed, the sinks are propagated to the callers
+     * of their methods, and all the collected sinks are reported as bugs.
      */
     @Override
     public void report() {
+        propagateSinks();
         // collect sinks and report each once
         Set<InjectionSink> injectionSinksToReport = new HashSet<InjectionSink>();
-        for (Set<InjectionSink> injectionSinkSet : injectionSinks.values()) {
-            for (InjectionSink injectionSink : injectionSinkSet) {
-                injectionSinksToReport.add(injectionSink);
-            }
+        for (Map<InjectionSink, Taint> injectionSinkMap : injectionSinks.values()) {
+            injectionSinksToReport.addAll(injectionSinkMap.keySet());
         }
+        injectionSinks.clear();
+        callSites.removeUser();
         for (InjectionSink injectionSink : injectionSinksToReport) {
             bugReporter.reportBug(injectionSink.generateBugInstance(false));
         }
     }
-    
+
+    /**
+     * The methods reaching a sink of this detector are analyzed by the taint
+     * pre-scan when it covers the detector, nothing is left to find here.
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (isVisitedInFirstPass()) {
+            return;
+        }
+        super.visitClassContext(classContext);
+    }
+
+    /**
+     * @return true if the methods which may reach a sink of this detector
+     *         have been analyzed by the taint pre-scan of the first pass, so
+     *         the state kept across classes is complete before the class
+     *         visits
+     */
+    public boolean isVisitedInFirstPass() {
+        SinkReachability reachability = Global.getAnalysisCache().getOptionalDatabase(SinkReachability.class);
+        return reachability != null && reachability.isVisited(this);
+    }
+
+    @Override
+    protected void analyzeMethod(ClassContext classContext, Method method) throws CheckedAnalysisException {
+        if (!maySink(BCELUtil.getMethodDescriptor(classContext.getJavaClass(), method))) {
+            // no sink of this detector can be reached, no bug to find
+            return;
+        }
+        super.analyzeMethod(classContext, method);
+    }
+
+    /**
+     * Methods are skipped only if the methods reaching the sinks of this
+     * detector have been computed with the taint summaries, before the
+     * detectors run
+     */
+    private boolean maySink(MethodDescriptor method) {
+        if (sinkReachability == null) {
+            if (!sinkPrefilter) {
+                return true;
+            }
+            sinkReachability = Global.getAnalysisCache().getOptionalDatabase(SinkReachability.class);
+            if (sinkReachability == null || !sinkReachability.covers(this)) {
+                sinkPrefilter = false;
+                return true;
+            }
+        }
+        return sinkReachability.maySink(this, method);
+    }
+
+    /**
+     * The methods which cannot reach a sink of the detector are skipped by
+     * {@link #analyzeMethod(ClassContext, Method)}. Detectors overriding it
+     * to look for something else must return false.
+     *
+     * @return true if only the methods which may reach a sink are analyzed
+     */
+    protected boolean isSinkPrefiltered() {
+        return true;
+    }
+
     @Override
     protected void analyzeLocation(ClassContext classContext, Method method, InstructionHandle handle,
                                    ConstantPoolGen cpg, InvokeInstruction invoke, TaintFrame fact, String currentMethod)
             throws DataflowAnalysisException {
-            SourceLineAnnotation sourceLine = SourceLineAnnotation.fromVisitedInstruction(classContext, method, handle);
-            checkSink(cpg, invoke, fact, sourceLine, currentMethod);
+            recordCallSite(classContext, method, handle, cpg, invoke, fact, currentMethod);
             InjectionPoint injectionPoint = getInjectionPoint(invoke, cpg, handle);
             for (int offset : injectionPoint.getInjectableArguments()) {
                 int priority = getPriorityFromTaintFrame(fact, offset);
@@ -91,15 +165,9 @@ public abstract class AbstractInjectionDetector extends AbstractTaintDetector {
                 injectionSink.addLines(parameterTaint.getAllLocations());
                 injectionSink.addSources(parameterTaint.getSources());
                 if (parameterTaint.hasParameters()) {
-                    // add sink to multi map
-                    Set<InjectionSink> sinkSet = injectionSinks.get(currentMethod);
-                    if (sinkSet == null) {
-                        sinkSet = new HashSet<InjectionSink>();
-                    }
-                    assert !sinkSet.contains(injectionSink) : "duplicate sink";
-                    sinkSet.add(injectionSink);
-                    injectionSinks.put(currentMethod, sinkSet);
-                    sinkTaints.put(new MethodAndSink(currentMethod, injectionSink), parameterTaint);
+                    // add sink to multi map, callers are checked when reporting
+                    assert !getSinks(currentMethod).containsKey(injectionSink) : "duplicate sink";
+                    getSinks(currentMethod).put(injectionSink, parameterTaint);
                 } else {
                     // sink cannot be influenced by other methods calls, so report it immediately
                     bugReporter.reportBug(injectionSink.generateBugInstance(true));
@@ -145,115 +213,117 @@ public abstract class AbstractInjectionDetector extends AbstractTaintDetector {
         }
     }
     
-    private void checkSink(ConstantPoolGen cpg, InvokeInstruction invoke, TaintFrame fact,
-                           SourceLineAnnotation line, String currentMethod) throws DataflowAnalysisException {
-        for (MethodAndSink methodAndSink : getSinks(cpg, invoke, fact)) {
-            Taint sinkTaint = sinkTaints.get(methodAndSink);
-            assert sinkTaint != null : "sink taint not stored in advance";
-            Set<Integer> taintParameters = sinkTaint.getParameters();
-            Taint finalTaint = Taint.valueOf(sinkTaint.getNonParametricState());
-            for (Integer offset : taintParameters) {
-                Taint parameterTaint = fact.getStackValue(offset);
-                finalTaint = Taint.merge(finalTaint, parameterTaint);
-            }
-            if (finalTaint == null) {
+    private Map<InjectionSink, Taint> getSinks(String method) {
+        Map<InjectionSink, Taint> sinks = injectionSinks.get(method);
+        if (sinks == null) {
+            sinks = new HashMap<InjectionSink, Taint>();
+            injectionSinks.put(method, sinks);
+        }
+        return sinks;
+    }
+
+    /**
+     * Records calls of application methods which may get sinks of this
+     * detector
+     */
+    private void recordCallSite(ClassContext classContext, Method method, InstructionHandle handle,
+                                ConstantPoolGen cpg, InvokeInstruction invoke, TaintFrame fact, String currentMethod)
+            throws DataflowAnalysisException {
+        int argumentCount = fact.getNumArgumentsIncludingObjectInstance(invoke, cpg);
+        if (argumentCount == 0 || argumentCount > fact.getStackDepth()) {
+            return;
+        }
+        String className = TaintFrameModelingVisitor.getInstanceClassName(invoke, cpg, fact);
+        if (className.endsWith("]")
+                || !AnalysisContext.currentAnalysisContext().isApplicationClass(ClassName.toDottedClassName(className))) {
+            // only application methods have sinks
+            return;
+        }
+        String callee = callSites.getDeclaration(className + "." + invoke.getMethodName(cpg) + invoke.getSignature(cpg));
+        if (callee == null || !maySink(toMethodDescriptor(callee, invoke instanceof INVOKESTATIC))) {
+            return;
+        }
+        Taint[] arguments = new Taint[argumentCount];
+        for (int i = 0; i < argumentCount; i++) {
+            arguments[i] = fact.getStackValue(i);
+        }
+        callSites.record(currentMethod, handle.getPosition(), callee, arguments,
+                SourceLineAnnotation.fromVisitedInstruction(classContext, method, handle));
+    }
+
+    /**
+     * Checks the calls of the methods with sinks depending on their
+     * parameters, until no new sink is found. The result does not depend on
+     * the order the methods were visited in.
+     */
+    private void propagateSinks() {
+        Deque<String> worklist = new ArrayDeque<String>(new TreeSet<String>(injectionSinks.keySet()));
+        Set<String> queued = new HashSet<String>(worklist);
+        while (!worklist.isEmpty()) {
+            String callee = worklist.poll();
+            queued.remove(callee);
+            List<InjectionCallSites.CallSite> calls = callSites.getCallSites(callee);
+            if (calls.isEmpty()) {
                 continue;
             }
-            if (!sinkTaint.isSafe() && sinkTaint.hasTags()) {
-                for (Taint.Tag tag : sinkTaint.getTags()) {
-                    finalTaint.addTag(tag);
-                }
-            }
-            if (sinkTaint.isRemovingTags()) {
-                for (Taint.Tag tag : sinkTaint.getTagsToRemove()) {
-                    finalTaint.removeTag(tag);
-                }
-            }
-            InjectionSink sink = methodAndSink.getSink();
-            if (finalTaint.hasParameters()) {
-                Set<InjectionSink> sinkSet = injectionSinks.get(currentMethod);
-                if (sinkSet == null) {
-                    sinkSet = new HashSet<InjectionSink>();
+            // copied, the method may call itself
+            Map<InjectionSink, Taint> sinks = new HashMap<InjectionSink, Taint>(injectionSinks.get(callee));
+            for (InjectionCallSites.CallSite call : calls) {
+                for (Map.Entry<InjectionSink, Taint> sink : sinks.entrySet()) {
+                    if (checkSink(call, sink.getKey(), sink.getValue()) && queued.add(call.getCaller())) {
+                        worklist.add(call.getCaller());
+                    }
                 }
-                sinkSet.add(sink);
-                injectionSinks.put(currentMethod, sinkSet);
-                sinkTaints.put(new MethodAndSink(currentMethod, sink), finalTaint);
-            } else {
-                // confirm sink to be tainted or called only with safe values
-                sink.updateSinkPriority(getPriority(finalTaint));
-            }
-            if (!finalTaint.isSafe()) {
-                sink.addLine(line);
-                sink.addLines(finalTaint.getAllLocations());
             }
         }
     }
 
-    private Set<MethodAndSink> getSinks(ConstantPoolGen cpg, InvokeInstruction invoke, TaintFrame frame) {
-        String className = getInstanceClassName(cpg, invoke, frame);
-        String methodName = "." + invoke.getMethodName(cpg) + invoke.getSignature(cpg);
-        String fullMethodName = className.concat(methodName);
-        Set<InjectionSink> sinks = injectionSinks.get(fullMethodName);
-        if (sinks != null) {
-            assert !sinks.isEmpty() : "empty set of sinks";
-            return getMethodAndSinks(fullMethodName, sinks);
+    /**
+     * @return true if the sink is a new or changed sink of the calling method
+     */
+    private boolean checkSink(InjectionCallSites.CallSite call, InjectionSink sink, Taint sinkTaint) {
+        Set<Integer> taintParameters = sinkTaint.getParameters();
+        Taint finalTaint = Taint.valueOf(sinkTaint.getNonParametricState());
+        for (Integer offset : taintParameters) {
+            finalTaint = Taint.merge(finalTaint, call.getArgument(offset));
         }
-        try {
-            if (className.endsWith("]")) {
-                // not a real class
-                return Collections.emptySet();
-            }
-            JavaClass javaClass = Repository.lookupClass(className);
-            assert javaClass != null;
-            return getSuperSinks(javaClass, methodName);
-        } catch (ClassNotFoundException ex) {
-            AnalysisContext.reportMissingClass(ex);
+        if (finalTaint == null) {
+            return false;
         }
-        return Collections.emptySet();
-    }
-    
-    private Set<MethodAndSink> getMethodAndSinks(String method, Set<InjectionSink> sinks) {
-        Set<MethodAndSink> methodAndSinks = new HashSet<MethodAndSink>();
-        for (InjectionSink sink : sinks) {
-            methodAndSinks.add(new MethodAndSink(method, sink));
-        }
-        return methodAndSinks;
-    }
-    
-    private Set<MethodAndSink> getSuperSinks(JavaClass javaClass, String method) throws ClassNotFoundException {
-        for (JavaClass superClass : javaClass.getSuperClasses()) {
-            String fullMethodName = superClass.getClassName().replace('.', '/').concat(method);
-            Set<InjectionSink> sinks = injectionSinks.get(fullMethodName);
-            if (sinks != null) {
-                return getMethodAndSinks(fullMethodName, sinks);
+        if (!sinkTaint.isSafe() && sinkTaint.hasTags()) {
+            for (Taint.Tag tag : sinkTaint.getTags()) {
+                finalTaint.addTag(tag);
             }
         }
-        for (JavaClass interfaceClass : javaClass.getAllInterfaces()) {
-            String fullMethodName = interfaceClass.getClassName().replace('.', '/').concat(method);
-            Set<InjectionSink> sinks = injectionSinks.get(fullMethodName);
-            if (sinks != null) {
-                return getMethodAndSinks(fullMethodName, sinks);
+        if (sinkTaint.isRemovingTags()) {
+            for (Taint.Tag tag : sinkTaint.getTagsToRemove()) {
+                finalTaint.removeTag(tag);
             }
         }
-        return Collections.emptySet();
-    }
-    
-    private static String getInstanceClassName(ConstantPoolGen cpg, InvokeInstruction invoke, TaintFrame frame) {
-        try {
-            int instanceIndex = frame.getNumArgumentsIncludingObjectInstance(invoke, cpg) - 1;
-            if (instanceIndex != -1) {
-                assert instanceIndex < frame.getStackDepth();
-                Taint instanceTaint = frame.getStackValue(instanceIndex);
-                String className = instanceTaint.getRealInstanceClassName();
-                if (className != null) {
-                    return className;
-                }
-            }
-        } catch (DataflowAnalysisException ex) {
-            assert false : ex.getMessage();
+        if (!finalTaint.isSafe()) {
+            sink.addLine(call.getLine());
+            sink.addLines(finalTaint.getAllLocations());
         }
-        String dottedClassName = invoke.getReferenceType(cpg).toString();
-        return ClassName.toSlashedClassName(dottedClassName);
+        if (!finalTaint.hasParameters()) {
+            // confirm sink to be tainted or called only with safe values
+            sink.updateSinkPriority(getPriority(finalTaint));
+            return false;
+        }
+        Map<InjectionSink, Taint> callerSinks = getSinks(call.getCaller());
+        Taint previousTaint = callerSinks.get(sink);
+        Taint mergedTaint = previousTaint == null ? finalTaint : Taint.merge(previousTaint, finalTaint);
+        if (mergedTaint.equals(previousTaint)) {
+            return false;
+        }
+        callerSinks.put(sink, mergedTaint);
+        return true;
+    }
+
+    private static MethodDescriptor toMethodDescriptor(String fullMethodName, boolean isStatic) {
+        int dot = fullMethodName.indexOf('.');
+        int signature = fullMethodName.indexOf('(');
+        return DescriptorFactory.instance().getMethodDescriptor(fullMethodName.substring(0, dot),
+                fullMethodName.substring(dot + 1, signature), fullMethodName.substring(signature), isStatic);
     }
 
     abstract protected InjectionPoint getInjectionPoint(
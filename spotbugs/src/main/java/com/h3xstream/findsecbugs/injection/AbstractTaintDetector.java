@@ -67,17 +67,28 @@ public abstract class AbstractTaintDetector implements Detector {
             return;
         }
         for (Method method : classContext.getMethodsInCallOrder()) {
-            if (classContext.getMethodGen(method) == null) {
-                continue;
-            }
-            try {
-//                sMethod = method;
-                analyzeMethod(classContext, method);
-            } catch (CheckedAnalysisException e) {
-                logException(classContext, method, e);
-            } catch (RuntimeException e) {
-                logException(classContext, method, e);
-            }
+            visitMethod(classContext, method);
+        }
+    }
+
+    /**
+     * Analyzes a method of a class this detector analyzes, the failures are
+     * logged
+     *
+     * @param classContext the class of the method
+     * @param method the method to analyze
+     */
+    void visitMethod(ClassContext classContext, Method method) {
+        if (classContext.getMethodGen(method) == null) {
+            return;
+        }
+        try {
+//            sMethod = method;
+            analyzeMethod(classContext, method);
+        } catch (CheckedAnalysisException e) {
+            logException(classContext, method, e);
+        } catch (RuntimeException e) {
+            logException(classContext, method, e);
         }
     }
 
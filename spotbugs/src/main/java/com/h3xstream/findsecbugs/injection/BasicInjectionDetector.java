@@ -18,14 +18,13 @@
 package com.h3xstream.findsecbugs.injection;
 
 import com.h3xstream.findsecbugs.FindSecBugsGlobalConfig;
+import com.h3xstream.findsecbugs.common.TypeHierarchy;
 import com.h3xstream.findsecbugs.taintanalysis.TaintDataflowEngine;
 import com.h3xstream.findsecbugs.taintanalysis.TaintFrameAdditionalVisitor;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.io.IO;
 import edu.umd.cs.findbugs.util.ClassName;
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.generic.ConstantPoolGen;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InvokeInstruction;
@@ -72,22 +71,17 @@ public abstract class BasicInjectionDetector extends AbstractInjectionDetector {
             return injectionPoint;
         }
 
-        try {
-            //2. Verify if the super classes match a known sink
-            JavaClass classDef = Repository.lookupClass(invoke.getClassName(cpg));
-            for (JavaClass superClass : classDef.getSuperClasses()) {
-                if ("java.lang.Object".equals(superClass.getClassName())) {
-                    continue;
-                }
-                String superClassFullMethodName = superClass.getClassName().replace('.','/')
-                        + "." + invoke.getMethodName(cpg) + invoke.getSignature(cpg);
-                injectionPoint = injectionMap.get(superClassFullMethodName);
-                if (injectionPoint != null) {
-                    return injectionPoint;
-                }
+        //2. Verify if the super classes match a known sink
+        for (String superClass : TypeHierarchy.getInstance().getSuperclasses(invoke.getClassName(cpg))) {
+            if ("java/lang/Object".equals(superClass)) {
+                continue;
+            }
+            String superClassFullMethodName = superClass
+                    + "." + invoke.getMethodName(cpg) + invoke.getSignature(cpg);
+            injectionPoint = injectionMap.get(superClassFullMethodName);
+            if (injectionPoint != null) {
+                return injectionPoint;
             }
-        } catch (ClassNotFoundException e) {
-            AnalysisContext.reportMissingClass(e);
         }
         return InjectionPoint.NONE;
     }
@@ -0,0 +1,225 @@
+/**
+ * Find Security Bugs
+ * Copyright (c) Philippe Arteau, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.h3xstream.findsecbugs.injection;
+
+import com.h3xstream.findsecbugs.common.TypeHierarchy;
+import com.h3xstream.findsecbugs.taintanalysis.Taint;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calls of application methods, with the taint of the arguments, recorded
+ * while the injection detectors visit the classes.
+ * <p>
+ * Sinks found in a method are propagated to its callers when the detectors
+ * report, so a call is checked regardless of whether the called method was
+ * visited before the calling one. Only calls of methods which may reach a sink
+ * of the recording detector are recorded. The call sites are shared by all
+ * injection detectors of an analysis, a call recorded by several detectors is
+ * stored once. The call sites are dropped once the last detector has
+ * reported.
+ */
+class InjectionCallSites {
+
+    /**
+     * A call of an application method
+     */
+    static class CallSite {
+        private final String caller;
+        private final Taint[] arguments;
+        private final SourceLineAnnotation line;
+
+        CallSite(String caller, Taint[] arguments, SourceLineAnnotation line) {
+            this.caller = caller;
+            this.arguments = arguments;
+            this.line = line;
+        }
+
+        /**
+         * @return full name of the calling method
+         */
+        String getCaller() {
+            return caller;
+        }
+
+        /**
+         * @param offset stack offset of the argument, 0 for the last one
+         * @return taint of the argument
+         */
+        Taint getArgument(int offset) {
+            return arguments[offset];
+        }
+
+        SourceLineAnnotation getLine() {
+            return line;
+        }
+    }
+
+    /** called method, as declared -&gt; call sites */
+    private final Map<String, List<CallSite>> callSitesByCallee = new HashMap<String, List<CallSite>>();
+
+    /** calling method -&gt; positions of the recorded calls in its code */
+    private final Map<String, Set<Integer>> recordedPositions = new HashMap<String, Set<Integer>>();
+
+    /** called method -&gt; declaration, {@link #NOT_FOUND} if there is none */
+    private final Map<String, String> declarations = new HashMap<String, String>();
+
+    private static final String NOT_FOUND = "";
+
+    /** detectors which have not reported yet */
+    private int users;
+
+    /**
+     * @return the call sites of the current analysis
+     */
+    static synchronized InjectionCallSites getInstance() {
+        IAnalysisCache cache = Global.getAnalysisCache();
+        InjectionCallSites callSites = cache.getOptionalDatabase(InjectionCallSites.class);
+        if (callSites == null) {
+            callSites = new InjectionCallSites();
+            cache.eagerlyPutDatabase(InjectionCallSites.class, callSites);
+        }
+        return callSites;
+    }
+
+    /**
+     * Registers a detector using the call sites
+     */
+    synchronized void addUser() {
+        users++;
+    }
+
+    /**
+     * Called by a detector once it has reported, the call sites are dropped
+     * after the last detector
+     */
+    synchronized void removeUser() {
+        if (--users <= 0) {
+            users = 0;
+            callSitesByCallee.clear();
+            recordedPositions.clear();
+            declarations.clear();
+        }
+    }
+
+    /**
+     * Records a call of the given method, unless it has been recorded before
+     *
+     * @param caller full name of the calling method
+     * @param position position of the call in the code of the caller
+     * @param callee full name of the declaration of the called method
+     * @param arguments taint of the arguments, indexed by stack offset
+     * @param line the calling instruction
+     */
+    synchronized void record(String caller, int position, String callee, Taint[] arguments,
+            SourceLineAnnotation line) {
+        Set<Integer> positions = recordedPositions.get(caller);
+        if (positions == null) {
+            positions = new HashSet<Integer>();
+            recordedPositions.put(caller, positions);
+        }
+        if (!positions.add(position)) {
+            return;
+        }
+        List<CallSite> callSites = callSitesByCallee.get(callee);
+        if (callSites == null) {
+            callSites = new ArrayList<CallSite>();
+            callSitesByCallee.put(callee, callSites);
+        }
+        callSites.add(new CallSite(caller, arguments, line));
+    }
+
+    /**
+     * @param method full name of a method
+     * @return sites calling the given method, directly or through a subclass
+     *         not overriding it
+     */
+    synchronized List<CallSite> getCallSites(String method) {
+        List<CallSite> callSites = callSitesByCallee.get(method);
+        return callSites != null ? callSites : Collections.<CallSite>emptyList();
+    }
+
+    /**
+     * Finds the method executed by a call, the first declaration in the class,
+     * its super classes or its interfaces (default methods)
+     *
+     * @param fullMethodName full name of the called method, with the real
+     *        class of the instance if known
+     * @return full name of the declared method or null if not found
+     */
+    synchronized String getDeclaration(String fullMethodName) {
+        String declaration = declarations.get(fullMethodName);
+        if (declaration == null) {
+            declaration = findDeclaration(fullMethodName);
+            declarations.put(fullMethodName, declaration != null ? declaration : NOT_FOUND);
+        }
+        return declaration.isEmpty() ? null : declaration;
+    }
+
+    private static String findDeclaration(String fullMethodName) {
+        int dot = fullMethodName.indexOf('.');
+        String className = fullMethodName.substring(0, dot);
+        String methodName = fullMethodName.substring(dot + 1, fullMethodName.indexOf('('));
+        String signature = fullMethodName.substring(fullMethodName.indexOf('('));
+        if (declares(className, methodName, signature)) {
+            return fullMethodName;
+        }
+        TypeHierarchy hierarchy = TypeHierarchy.getInstance();
+        for (String superClass : hierarchy.getSuperclasses(className)) {
+            if (declares(superClass, methodName, signature)) {
+                return superClass + "." + methodName + signature;
+            }
+        }
+        for (String interfaceClass : hierarchy.getAllInterfaces(className)) {
+            if (declares(interfaceClass, methodName, signature)) {
+                return interfaceClass + "." + methodName + signature;
+            }
+        }
+        return null;
+    }
+
+    private static boolean declares(String slashedClassName, String methodName, String signature) {
+        XClass xclass;
+        try {
+            xclass = Global.getAnalysisCache().getClassAnalysis(XClass.class,
+                    DescriptorFactory.createClassDescriptor(slashedClassName));
+        } catch (CheckedAnalysisException ex) {
+            // reported by the type hierarchy
+            return false;
+        }
+        for (XMethod method : xclass.getXMethods()) {
+            if (method.getName().equals(methodName) && method.getSignature().equals(signature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
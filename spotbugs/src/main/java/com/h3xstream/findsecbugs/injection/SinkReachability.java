@@ -0,0 +1,283 @@
+/**
+ * Find Security Bugs
+ * Copyright (c) Philippe Arteau, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.h3xstream.findsecbugs.injection;
+
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.ba.ch.CompactCallGraph;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.MethodGen;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Application methods that may reach a sink of the injection detectors, found
+ * on the {@link CompactCallGraph} with a scan of the invoke instructions,
+ * without any dataflow.
+ * <p>
+ * A method may reach a sink of a detector if it calls one of its sinks, or if
+ * it calls an application method that may reach one, directly or through a
+ * virtual call which may dispatch to it, since the sinks of a method are
+ * propagated to its callers when the detector reports. A bug is reported in
+ * the class of its sink, so when only the bugs of some classes are reported
+ * (the shard of a {@link edu.umd.cs.findbugs.workflow.ShardedAnalysis}), only
+ * the sinks of these classes are looked for. The other methods
+ * cannot lead to a bug of the detector, and their taint dataflow does not
+ * need to be checked. The taint summaries are needed for the methods reaching
+ * a sink and for the methods they call, the taint pre-scan skips the others.
+ * <p>
+ * Computed once, before the first pass, for the taint detectors of the
+ * analysis, and kept in the analysis cache. Once the taint pre-scan has
+ * derived the summaries of a checkpointed or sharded analysis, the detectors
+ * analyze the methods reaching their sinks right away, see
+ * {@link #visitMethods(IAnalysisCache, Predicate)}.
+ */
+public class SinkReachability {
+
+    private final CompactCallGraph callGraph;
+    private final List<AbstractInjectionDetector> detectors;
+    /** for each detector, ids of the methods reaching one of its sinks */
+    private final BitSet[] reaching;
+    /** ids of the methods whose taint summary is needed, null if all are */
+    private final BitSet summaryMethods;
+    /** true once the detectors have analyzed the methods reaching their sinks */
+    private boolean visited;
+
+    private SinkReachability(CompactCallGraph callGraph, List<AbstractInjectionDetector> detectors,
+            BitSet[] sinkMethods, boolean allSummaries) {
+        this.callGraph = callGraph;
+        this.detectors = detectors;
+        reaching = new BitSet[detectors.size()];
+        BitSet union = new BitSet();
+        for (int i = 0; i < reaching.length; i++) {
+            reaching[i] = propagate(sinkMethods[i], true);
+            union.or(reaching[i]);
+        }
+        summaryMethods = allSummaries ? null : propagate(union, false);
+    }
+
+    /**
+     * Computes the methods reaching the sinks of the given detectors, and
+     * stores the result in the analysis cache.
+     *
+     * @param cache the analysis cache
+     * @param callGraph the call graph of the application methods, built
+     * @param taintDetectors the taint detectors of the analysis
+     * @param reportedClasses the classes whose bugs are reported, the sinks of
+     *        the other classes are ignored
+     * @return the methods reaching the sinks
+     */
+    public static SinkReachability compute(IAnalysisCache cache, CompactCallGraph callGraph,
+            Collection<? extends AbstractTaintDetector> taintDetectors, Predicate<ClassDescriptor> reportedClasses) {
+        List<AbstractInjectionDetector> detectors = new ArrayList<AbstractInjectionDetector>();
+        boolean allSummaries = false;
+        for (AbstractTaintDetector detector : taintDetectors) {
+            if (detector instanceof AbstractInjectionDetector
+                    && ((AbstractInjectionDetector) detector).isSinkPrefiltered()) {
+                detectors.add((AbstractInjectionDetector) detector);
+            } else {
+                // checks the dataflow of every method
+                allSummaries = true;
+            }
+        }
+        BitSet[] sinkMethods = new BitSet[detectors.size()];
+        for (int i = 0; i < sinkMethods.length; i++) {
+            sinkMethods[i] = new BitSet();
+        }
+        for (int id = 0; id < callGraph.getNumMethods(); id++) {
+            MethodDescriptor method = callGraph.getMethod(id);
+            if (reportedClasses.test(method.getClassDescriptor())) {
+                findSinks(cache, method, id, detectors, sinkMethods);
+            }
+        }
+        SinkReachability reachability = new SinkReachability(callGraph, detectors, sinkMethods, allSummaries);
+        cache.eagerlyPutDatabase(SinkReachability.class, reachability);
+        return reachability;
+    }
+
+    /**
+     * @param detector an injection detector
+     * @return true if the methods reaching the sinks of the detector are known
+     */
+    boolean covers(AbstractInjectionDetector detector) {
+        return indexOf(detector) >= 0;
+    }
+
+    /**
+     * @param detector an injection detector
+     * @return true if the detector has analyzed the methods reaching its sinks
+     *         in {@link #visitMethods(IAnalysisCache, Predicate)}
+     */
+    boolean isVisited(AbstractInjectionDetector detector) {
+        return visited && covers(detector);
+    }
+
+    private int indexOf(AbstractInjectionDetector detector) {
+        for (int i = 0; i < detectors.size(); i++) {
+            if (detectors.get(i) == detector) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param detector an injection detector covered by this
+     * @param method an application method
+     * @return false if the method cannot reach any sink of the detector
+     */
+    boolean maySink(AbstractInjectionDetector detector, MethodDescriptor method) {
+        int id = callGraph.getId(method);
+        return id >= 0 && reaching[indexOf(detector)].get(id);
+    }
+
+    /**
+     * Lets each detector analyze the methods reaching its sinks, once all the
+     * taint summaries are derived. The detectors keep state across classes
+     * only for these methods, so this state is complete before the detectors
+     * visit the classes, and a class does not have to be visited again to
+     * rebuild it.
+     *
+     * @param cache the analysis cache
+     * @param visitedClasses the classes the detectors would visit
+     */
+    public void visitMethods(IAnalysisCache cache, Predicate<ClassDescriptor> visitedClasses) {
+        for (int id = 0; id < callGraph.getNumMethods(); id++) {
+            MethodDescriptor descriptor = callGraph.getMethod(id);
+            if (!visitedClasses.test(descriptor.getClassDescriptor()) || !reachesSink(id)) {
+                continue;
+            }
+            ClassContext classContext;
+            Method method;
+            try {
+                classContext = cache.getClassAnalysis(ClassContext.class, descriptor.getClassDescriptor());
+                method = cache.getMethodAnalysis(Method.class, descriptor);
+            } catch (CheckedAnalysisException ex) {
+                // reported when the other detectors visit the class
+                continue;
+            }
+            for (int i = 0; i < reaching.length; i++) {
+                AbstractInjectionDetector detector = detectors.get(i);
+                if (!reaching[i].get(id)) {
+                    continue;
+                }
+                try {
+                    if (detector.shouldAnalyzeClass(classContext)) {
+                        detector.visitMethod(classContext, method);
+                    }
+                } catch (RuntimeException ex) {
+                    AnalysisContext.logError("Exception while analyzing " + descriptor, ex);
+                }
+            }
+        }
+        visited = true;
+    }
+
+    private boolean reachesSink(int id) {
+        for (BitSet methods : reaching) {
+            if (methods.get(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param method an application method
+     * @return false if the taint summary of the method is not needed by the
+     *         detectors
+     */
+    public boolean needsSummary(MethodDescriptor method) {
+        if (summaryMethods == null) {
+            return true;
+        }
+        int id = callGraph.getId(method);
+        return id < 0 || summaryMethods.get(id);
+    }
+
+    private static void findSinks(IAnalysisCache cache, MethodDescriptor method, int id,
+            List<AbstractInjectionDetector> detectors, BitSet[] sinkMethods) {
+        MethodGen methodGen;
+        try {
+            methodGen = cache.getMethodAnalysis(MethodGen.class, method);
+        } catch (CheckedAnalysisException ex) {
+            // analyzed anyway, so that the failure is reported
+            for (BitSet methods : sinkMethods) {
+                methods.set(id);
+            }
+            return;
+        }
+        if (methodGen == null || methodGen.getInstructionList() == null) {
+            return;
+        }
+        ConstantPoolGen cpg = methodGen.getConstantPool();
+        for (InstructionHandle handle = methodGen.getInstructionList().getStart(); handle != null;
+                handle = handle.getNext()) {
+            Instruction instruction = handle.getInstruction();
+            if (!(instruction instanceof InvokeInstruction)) {
+                continue;
+            }
+            for (int i = 0; i < sinkMethods.length; i++) {
+                if (!sinkMethods[i].get(id) && detectors.get(i).getInjectionPoint(
+                        (InvokeInstruction) instruction, cpg, handle).getInjectableArguments().length > 0) {
+                    sinkMethods[i].set(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param toCallers true to add the callers of the methods, false to add
+     *        their callees
+     * @return the methods and all the methods reaching them, or reached by them
+     */
+    private BitSet propagate(BitSet methods, boolean toCallers) {
+        BitSet result = (BitSet) methods.clone();
+        int[] worklist = new int[callGraph.getNumMethods()];
+        int size = 0;
+        for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+            worklist[size++] = id;
+        }
+        while (size > 0) {
+            int id = worklist[--size];
+            for (int[] next : toCallers
+                    ? new int[][] { callGraph.getCallers(id), callGraph.getDispatchCallers(id) }
+                    : new int[][] { callGraph.getCallees(id), callGraph.getDispatchCallees(id) }) {
+                for (int other : next) {
+                    if (!result.get(other)) {
+                        result.set(other);
+                        worklist[size++] = other;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
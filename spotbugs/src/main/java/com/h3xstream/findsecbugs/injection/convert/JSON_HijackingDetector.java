@@ -39,6 +39,11 @@ public class JSON_HijackingDetector extends BasicInjectionDetector {
         if(useSafeFrame==false) bugAccumulator.reportAccumulatedBugs();
     }
 
+    @Override
+    protected boolean isSinkPrefiltered() {
+        return false;
+    }
+
     @Override
     protected void analyzeMethod(ClassContext classContext, Method method)
             throws CheckedAnalysisException {
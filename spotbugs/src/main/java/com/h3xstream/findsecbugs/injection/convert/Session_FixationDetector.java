@@ -34,6 +34,11 @@ public class Session_FixationDetector extends BasicInjectionDetector {
         }
     }
 
+    @Override
+    protected boolean isSinkPrefiltered() {
+        return false;
+    }
+
     @Override
     protected void analyzeMethod(ClassContext classContext, Method method){
         try {
@@ -19,6 +19,7 @@ package com.h3xstream.findsecbugs.jsp;
 
 import com.h3xstream.findsecbugs.common.ByteCode;
 import com.h3xstream.findsecbugs.common.JspUtils;
+import com.h3xstream.findsecbugs.common.TypeHierarchy;
 import com.h3xstream.findsecbugs.common.matcher.InvokeMatcherBuilder;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
@@ -61,7 +62,7 @@ public class JstlOutDetector implements Detector {
         JavaClass javaClass = classContext.getJavaClass();
 
         try {
-            if(!Hierarchy.isSubtype(javaClass.getClassName(), "javax.servlet.http.HttpServlet")) {
+            if(!TypeHierarchy.getInstance().isSubtype(javaClass.getClassName(), "javax.servlet.http.HttpServlet")) {
                 return;
             }
         } catch (ClassNotFoundException e) {
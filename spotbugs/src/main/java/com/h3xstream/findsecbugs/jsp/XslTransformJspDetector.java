@@ -18,6 +18,7 @@
 package com.h3xstream.findsecbugs.jsp;
 
 import com.h3xstream.findsecbugs.common.ByteCode;
+import com.h3xstream.findsecbugs.common.TypeHierarchy;
 import com.h3xstream.findsecbugs.common.matcher.InvokeMatcherBuilder;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
@@ -50,7 +51,7 @@ public class XslTransformJspDetector implements Detector {
     public void visitClassContext(ClassContext classContext) {
         JavaClass javaClass = classContext.getJavaClass();
         try {
-            if (!Hierarchy.isSubtype(javaClass.getClassName(), "javax.servlet.http.HttpServlet")) {
+            if (!TypeHierarchy.getInstance().isSubtype(javaClass.getClassName(), "javax.servlet.http.HttpServlet")) {
                 return;
             }
         } catch (ClassNotFoundException e) {
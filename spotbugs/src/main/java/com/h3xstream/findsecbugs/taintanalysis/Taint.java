@@ -18,7 +18,9 @@
 package com.h3xstream.findsecbugs.taintanalysis;
 
 import com.h3xstream.findsecbugs.FindSecBugsGlobalConfig;
+import com.h3xstream.findsecbugs.common.TypeHierarchy;
 import com.h3xstream.findsecbugs.taintanalysis.data.TaintLocation;
+import com.h3xstream.findsecbugs.taintanalysis.data.TaintLocationSet;
 import com.h3xstream.findsecbugs.taintanalysis.data.UnknownSource;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.util.ClassName;
@@ -112,11 +114,12 @@ public class Taint {
         HASH_VARIABLE;
     }
 
+    private static final FindSecBugsGlobalConfig CONFIG = FindSecBugsGlobalConfig.getInstance();
     private State state;
     private static final int INVALID_INDEX = -1;
     private int variableIndex;
-    private final Set<TaintLocation> taintLocations;
-    private final Set<TaintLocation> unknownLocations;
+    private TaintLocationSet taintLocations;
+    private TaintLocationSet unknownLocations;
     private final Set<Integer> parameters;
     private State nonParametricState;
     private ObjectType realInstanceClass;
@@ -144,8 +147,8 @@ public class Taint {
         this.fields = new HashMap<String, State>();
         this.state = state;
         this.variableIndex = INVALID_INDEX;
-        this.unknownLocations = new HashSet<TaintLocation>();
-        this.taintLocations = new HashSet<TaintLocation>();
+        this.unknownLocations = TaintLocationSet.EMPTY;
+        this.taintLocations = TaintLocationSet.EMPTY;
         this.parameters = new HashSet<Integer>();
         this.nonParametricState = State.INVALID;
         this.realInstanceClass = null;
@@ -179,8 +182,9 @@ public class Taint {
         this.fields = new HashMap<String,State>();
         this.state = taint.state;
         this.variableIndex = taint.variableIndex;
-        this.taintLocations = new HashSet<TaintLocation>(taint.taintLocations);
-        this.unknownLocations = new HashSet<TaintLocation>(taint.unknownLocations);
+        // immutable, shared with the copy
+        this.taintLocations = taint.taintLocations;
+        this.unknownLocations = taint.unknownLocations;
         this.parameters = new HashSet<Integer>(taint.getParameters());
         this.nonParametricState = taint.nonParametricState;
         this.realInstanceClass = taint.realInstanceClass;
@@ -273,7 +277,9 @@ public class Taint {
     }
 
     /**
-     * Adds location for a taint source or path to remember for reporting
+     * Adds location for a taint source or path to remember for reporting,
+     * at most {@link FindSecBugsGlobalConfig#getTaintMaxLocations()} of each
+     * kind are remembered
      *
      * @param location location to remember
      * @param isKnownTaintSource true for tainted value, false if just not safe
@@ -282,9 +288,9 @@ public class Taint {
     public void addLocation(TaintLocation location, boolean isKnownTaintSource) {
         Objects.requireNonNull(location, "location is null");
         if (isKnownTaintSource) {
-            taintLocations.add(location);
+            taintLocations = taintLocations.with(location, CONFIG.getTaintMaxLocations());
         } else {
-            unknownLocations.add(location);
+            unknownLocations = unknownLocations.with(location, CONFIG.getTaintMaxLocations());
         }
     }
 
@@ -296,14 +302,14 @@ public class Taint {
      * @return unmodifiable set of locations
      */
     public Set<TaintLocation> getTaintedLocations() {
-        return Collections.unmodifiableSet(taintLocations);
+        return taintLocations;
     }
 
     /**
      * @return All the location of tainted and unknown locations.
      */
     public Collection<TaintLocation> getUnknownLocations() {
-        return Collections.unmodifiableSet(unknownLocations);
+        return unknownLocations;
     }
 
     /**
@@ -575,10 +581,9 @@ public class Taint {
         if (a.variableIndex == b.variableIndex) {
             result.variableIndex = a.variableIndex;
         }
-        result.taintLocations.addAll(a.taintLocations);
-        result.taintLocations.addAll(b.taintLocations);
-        result.unknownLocations.addAll(a.unknownLocations);
-        result.unknownLocations.addAll(b.unknownLocations);
+        int maxLocations = CONFIG.getTaintMaxLocations();
+        result.taintLocations = a.taintLocations.union(b.taintLocations, maxLocations);
+        result.unknownLocations = a.unknownLocations.union(b.unknownLocations, maxLocations);
         if (!result.isTainted()) {
            mergeParameters(a, b, result); 
         }
@@ -622,10 +627,13 @@ public class Taint {
     private static void mergeRealInstanceClass(Taint a, Taint b, Taint result) {
         if (a.realInstanceClass != null && b.realInstanceClass != null) {
             try {
+                TypeHierarchy hierarchy = TypeHierarchy.getInstance();
+                String aClassName = a.realInstanceClass.getClassName();
+                String bClassName = b.realInstanceClass.getClassName();
                 if (a.realInstanceClass.equals(b.realInstanceClass)
-                        || b.realInstanceClass.subclassOf(a.realInstanceClass)) {
+                        || hierarchy.isSubclass(bClassName, aClassName)) {
                     result.realInstanceClass = a.realInstanceClass;
-                } else if (a.realInstanceClass.subclassOf(b.realInstanceClass)) {
+                } else if (hierarchy.isSubclass(aClassName, bClassName)) {
                     result.realInstanceClass = b.realInstanceClass;
                 }
             } catch (ClassNotFoundException ex) {
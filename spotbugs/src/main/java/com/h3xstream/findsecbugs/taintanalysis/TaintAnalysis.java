@@ -51,6 +51,12 @@ public class TaintAnalysis extends FrameDataflowAnalysis<Taint, TaintFrame> {
     private final TaintFrameModelingVisitor visitor;
     private int parameterStackSize;
     private List<Integer> slotToParameter;
+    private int maxIterations;
+    private long deadline;
+    private int maxSources;
+    private int iterations;
+    private int transfers;
+    private boolean unknownOnly;
 
     private static final List<String> TAINTED_ANNOTATIONS = loadFileContent(
             "taint-config/taint-param-annotations.txt"
@@ -73,17 +79,98 @@ public class TaintAnalysis extends FrameDataflowAnalysis<Taint, TaintFrame> {
         computeParametersInfo(descriptor.getSignature(), descriptor.isStatic());
     }
 
+    /**
+     * Thrown when the analysis of a method exceeds its budget
+     */
+    public static class BudgetExceededException extends DataflowAnalysisException {
+        private static final long serialVersionUID = 1L;
+
+        public BudgetExceededException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Limits the dataflow execution, until {@link #stopBudget()} is called
+     *
+     * @param maxIterations maximal number of dataflow iterations, 0 for no limit
+     * @param maxMillis maximal time in milliseconds, 0 for no limit
+     * @param maxSources maximal number of unknown sources of a merged value,
+     *        0 for no limit
+     */
+    public void startBudget(int maxIterations, long maxMillis, int maxSources) {
+        this.maxIterations = maxIterations;
+        this.deadline = maxMillis > 0 ? System.nanoTime() + maxMillis * 1000000L : 0;
+        this.maxSources = maxSources;
+        this.iterations = 0;
+        this.transfers = 0;
+    }
+
+    /**
+     * Stops limiting the analysis, facts are computed again for every query
+     * once the dataflow is executed
+     */
+    public void stopBudget() {
+        maxIterations = 0;
+        deadline = 0;
+        maxSources = 0;
+    }
+
+    /**
+     * In coarse mode, object fields and collection content are not modeled
+     *
+     * @param coarse true for the coarse mode
+     */
+    public void setCoarse(boolean coarse) {
+        visitor.setCoarse(coarse);
+    }
+
+    /**
+     * When even the coarse mode does not converge, every value is made
+     * unknown after each instruction, which converges at once
+     *
+     * @param unknownOnly true to only keep the shape of the frames
+     */
+    public void setUnknownOnly(boolean unknownOnly) {
+        this.unknownOnly = unknownOnly;
+    }
+
+    @Override
+    public void startIteration() {
+        iterations++;
+    }
+
     @Override
     protected void mergeValues(TaintFrame frame, TaintFrame result, int i)
             throws DataflowAnalysisException {
-        result.setValue(i, Taint.merge(result.getValue(i), frame.getValue(i)));
+        Taint merged = Taint.merge(result.getValue(i), frame.getValue(i));
+        if (maxSources > 0 && merged.getSources().size() > maxSources) {
+            throw new BudgetExceededException("more than " + maxSources + " sources of a value");
+        }
+        result.setValue(i, merged);
     }
 
     @Override
     public void transferInstruction(InstructionHandle handle, BasicBlock block, TaintFrame fact)
             throws DataflowAnalysisException {
+        checkBudget();
         visitor.setFrameAndLocation(fact, new Location(handle, block));
         visitor.analyzeInstruction(handle.getInstruction());
+        if (unknownOnly && fact.isValid()) {
+            for (int i = 0; i < fact.getNumSlots(); i++) {
+                fact.setValue(i, new Taint(Taint.State.UNKNOWN));
+            }
+        }
+    }
+
+    private void checkBudget() throws BudgetExceededException {
+        if (maxIterations > 0 && iterations > maxIterations) {
+            throw new BudgetExceededException("more than " + maxIterations + " iterations");
+        }
+        // the clock is read once every 1024 instructions only
+        if (deadline != 0 && (++transfers & 1023) == 0 && System.nanoTime() - deadline > 0) {
+            throw new BudgetExceededException("out of time");
+        }
     }
 
     @Override
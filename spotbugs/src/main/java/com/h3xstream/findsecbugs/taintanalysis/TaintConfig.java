@@ -17,18 +17,19 @@
  */
 package com.h3xstream.findsecbugs.taintanalysis;
 
-import edu.umd.cs.findbugs.ba.AnalysisContext;
+import com.h3xstream.findsecbugs.common.TypeHierarchy;
 import edu.umd.cs.findbugs.ba.DataflowAnalysisException;
 import edu.umd.cs.findbugs.ba.SignatureParser;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 
 /**
@@ -52,6 +53,26 @@ public class TaintConfig extends HashMap<String, TaintMethodConfig> {
     private final Map<String, TaintClassConfig> taintClassConfigMap = new HashMap<String, TaintClassConfig>();
     private final Map<String, TaintMethodConfigWithArgumentsAndLocation> taintMethodConfigWithArgumentsAndLocationMap =
             new HashMap<String, TaintMethodConfigWithArgumentsAndLocation>();
+    /** methods whose summary was derived by an analysis cut short by its budget */
+    private final Set<String> degradedMethods = new HashSet<String>();
+
+    /**
+     * Marks the derived summary of a method as less precise than a complete
+     * analysis would have made it, so it is not stored for later runs
+     *
+     * @param fullMethodName slashed class name + "." + method name + signature
+     */
+    public void setDegraded(String fullMethodName) {
+        degradedMethods.add(fullMethodName);
+    }
+
+    /**
+     * @param fullMethodName slashed class name + "." + method name + signature
+     * @return true if the derived summary of the method is degraded
+     */
+    public boolean isDegraded(String fullMethodName) {
+        return degradedMethods.contains(fullMethodName);
+    }
 
     /**
      * Dumps all the summaries for debugging
@@ -191,28 +212,22 @@ public class TaintConfig extends HashMap<String, TaintMethodConfig> {
     }
 
     public TaintMethodConfig getSuperMethodConfig(String className, String methodId) {
-        try {
-            if (className.endsWith("]")) {
-                // not a real class
-                return null;
-            }
-            JavaClass javaClass = Repository.lookupClass(className);
-            assert javaClass != null;
-            TaintMethodConfig methodConfig = getSuperMethodConfig(javaClass.getSuperClasses(), methodId);
-            if (methodConfig != null) {
-                return methodConfig;
-            }
-            return getSuperMethodConfig(javaClass.getAllInterfaces(), methodId);
-        } catch (ClassNotFoundException ex) {
-            AnalysisContext.reportMissingClass(ex);
+        if (className.endsWith("]")) {
+            // not a real class
             return null;
         }
+        TypeHierarchy hierarchy = TypeHierarchy.getInstance();
+        TaintMethodConfig methodConfig = getSuperMethodConfig(hierarchy.getSuperclasses(className), methodId);
+        if (methodConfig != null) {
+            return methodConfig;
+        }
+        return getSuperMethodConfig(hierarchy.getAllInterfaces(className), methodId);
     }
 
-    private TaintMethodConfig getSuperMethodConfig(JavaClass[] javaClasses, String method) {
-        assert javaClasses != null;
-        for (JavaClass classOrInterface : javaClasses) {
-            String fullMethodName = classOrInterface.getClassName().replace('.', '/').concat(method);
+    private TaintMethodConfig getSuperMethodConfig(List<String> slashedClassNames, String method) {
+        assert slashedClassNames != null;
+        for (String classOrInterface : slashedClassNames) {
+            String fullMethodName = classOrInterface.concat(method);
             TaintMethodConfig conf = get(fullMethodName);
             if (conf != null) {
                 return conf;
@@ -20,6 +20,7 @@ package com.h3xstream.findsecbugs.taintanalysis;
 import com.h3xstream.findsecbugs.FindSecBugsGlobalConfig;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.CFG;
+import edu.umd.cs.findbugs.ba.DataflowAnalysisException;
 import edu.umd.cs.findbugs.ba.DepthFirstSearch;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
@@ -30,8 +31,12 @@ import org.apache.bcel.generic.MethodGen;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -70,6 +75,10 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
         "other.txt"
     };
     private final TaintConfig taintConfig = new TaintConfig();
+    private final AtomicInteger degradedMethods = new AtomicInteger();
+    // digest of everything the derived summaries depend on, see TaintSummaryStore
+    private final MessageDigest configDigest = TaintSummaryStore.newDigest();
+    private final String configVersion;
     protected static Writer writer = null;
     private static List<TaintFrameAdditionalVisitor> visitors = new ArrayList<TaintFrameAdditionalVisitor>();
 
@@ -94,6 +103,8 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
      * Constructs the engine and loads all configured method summaries
      */
     public TaintDataflowEngine() {
+        configDigest.update((CONFIG.getFindSecBugsVersion() + ":" + CONFIG.isTaintedMainArgument())
+                .getBytes(StandardCharsets.UTF_8));
         for (String path : TAINT_CONFIG_FILENAMES) {
             loadTaintConfig(TAINT_CONFIG_PATH.concat(path), true);
         }
@@ -117,6 +128,7 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
         if (!CONFIG.isTaintedMainArgument()) {
             LOGGER.info("The argument of the main method is not considered tainted");
         }
+        configVersion = TaintSummaryStore.toHex(configDigest.digest());
     }
 
     public static void registerAdditionalVisitor(TaintFrameAdditionalVisitor visitor) {
@@ -131,7 +143,7 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
 //            String st2 = this.getClass().getResource("/").getPath();
 //            URL u1 = this.getClass().getClassLoader().getResource("");
 
-            stream = getClass().getClassLoader().getResourceAsStream(path);
+            stream = digested(getClass().getClassLoader().getResourceAsStream(path));
             taintConfig.load(stream, checkRewrite);
         } catch (IOException ex) {
             assert false : ex.getMessage();
@@ -145,9 +157,9 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
         try {
             File file = new File(path);
             if (file.exists()) {
-                stream = new FileInputStream(file);
+                stream = digested(new FileInputStream(file));
             } else {
-                stream = getClass().getClassLoader().getResourceAsStream(path);
+                stream = digested(getClass().getClassLoader().getResourceAsStream(path));
             }
             if (stream == null) {
                 String message = String.format("Could not add custom config. "
@@ -164,6 +176,10 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
         }
     }
     
+    private InputStream digested(InputStream stream) {
+        return stream != null ? new DigestInputStream(stream, configDigest) : null;
+    }
+
     @Override
     public TaintDataflow analyze(IAnalysisCache cache, MethodDescriptor descriptor)
             throws CheckedAnalysisException {
@@ -175,8 +191,31 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
         MethodGen methodGen = cache.getMethodAnalysis(MethodGen.class, descriptor);
         TaintAnalysis analysis = new TaintAnalysis(methodGen, dfs, descriptor, taintConfig, visitors);
         TaintDataflow flow = new TaintDataflow(cfg, analysis);
-        flow.execute();
-        analysis.finishAnalysis();
+        boolean degraded = false;
+        int maxInstructions = CONFIG.getTaintBudgetInstructions();
+        int maxIterations = CONFIG.getTaintBudgetIterations();
+        if (maxInstructions > 0 && methodGen.getInstructionList().getLength() > maxInstructions) {
+            degrade(descriptor, "more than " + maxInstructions + " instructions");
+            degraded = true;
+            flow = executeCoarse(cfg, dfs, methodGen, descriptor, maxIterations);
+        } else {
+            analysis.startBudget(maxIterations, CONFIG.getTaintBudgetMillis(), CONFIG.getTaintBudgetSources());
+            try {
+                flow.execute();
+            } catch (TaintAnalysis.BudgetExceededException ex) {
+                degrade(descriptor, ex.getMessage());
+                degraded = true;
+                flow = executeCoarse(cfg, dfs, methodGen, descriptor, maxIterations);
+            } finally {
+                analysis.stopBudget();
+            }
+        }
+        flow.getAnalysis().finishAnalysis();
+        // a time budget makes the summary depend on the machine load, the
+        // summaries of degraded methods are never stored for later analyses
+        if (degraded) {
+            taintConfig.setDegraded(getSlashedMethodName(methodGen));
+        }
         if (CONFIG.isDebugOutputTaintConfigs() && writer != null) {
             TaintMethodConfig derivedConfig = taintConfig.get(getSlashedMethodName(methodGen));
             if (derivedConfig != null) {
@@ -191,6 +230,44 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
         return flow;
     }
 
+    /**
+     * Executes the analysis without fields and collections, which converges
+     * faster, but still within a hard iteration limit. A method not converging
+     * even then is analyzed with unknown taint only, rather than failing
+     */
+    private TaintDataflow executeCoarse(CFG cfg, DepthFirstSearch dfs, MethodGen methodGen,
+            MethodDescriptor descriptor, int maxIterations) throws DataflowAnalysisException {
+        TaintAnalysis analysis = new TaintAnalysis(methodGen, dfs, descriptor, taintConfig, visitors);
+        TaintDataflow flow = new TaintDataflow(cfg, analysis);
+        analysis.setCoarse(true);
+        int coarseIterations = maxIterations > 0 ? maxIterations : FindSecBugsGlobalConfig.DEFAULT_TAINT_BUDGET_ITERATIONS;
+        analysis.startBudget(coarseIterations, 0, 0);
+        try {
+            flow.execute();
+            return flow;
+        } catch (DataflowAnalysisException ex) {
+            degrade(descriptor, "coarse analysis failed: " + ex.getMessage());
+        } finally {
+            analysis.stopBudget();
+        }
+        analysis = new TaintAnalysis(methodGen, dfs, descriptor, taintConfig, visitors);
+        flow = new TaintDataflow(cfg, analysis);
+        analysis.setCoarse(true);
+        analysis.setUnknownOnly(true);
+        flow.execute();
+        return flow;
+    }
+
+    /**
+     * Reports a method analyzed without fields and collections because its
+     * analysis exceeded the configured budget
+     */
+    private void degrade(MethodDescriptor descriptor, String reason) {
+        int count = degradedMethods.incrementAndGet();
+        LOGGER.log(Level.INFO, "Taint analysis budget exceeded ({0}), {1} analyzed without fields and collections"
+                + " ({2} methods so far)", new Object[] {reason, descriptor, count});
+    }
+
     private static String getSlashedMethodName(MethodGen methodGen) {
         String methodNameWithSignature = methodGen.getName() + methodGen.getSignature();
         String slashedClassName = methodGen.getClassName().replace('.', '/');
@@ -200,5 +277,12 @@ public class TaintDataflowEngine implements IMethodAnalysisEngine<TaintDataflow>
     @Override
     public void registerWith(IAnalysisCache iac) {
         iac.registerMethodAnalysisEngine(TaintDataflow.class, this);
+        // lets TaintSummaryPass inspect the derived summaries
+        iac.eagerlyPutDatabase(TaintConfig.class, taintConfig);
+        String summaryCacheDir = CONFIG.getTaintSummaryCacheDir();
+        if (summaryCacheDir != null && !summaryCacheDir.isEmpty()) {
+            iac.eagerlyPutDatabase(TaintSummaryStore.class,
+                    new TaintSummaryStore(new File(summaryCacheDir), taintConfig, configVersion));
+        }
     }
 }
@@ -53,6 +53,10 @@ public class TaintFrameModelingVisitor extends AbstractFrameModelingVisitor<Tain
     private final TaintMethodConfig analyzedMethodConfig;
     private final List<TaintFrameAdditionalVisitor> visitors;
     private final MethodGen methodGen;
+    /** locations of the method by position, shared by all the facts */
+    private final Map<Integer, TaintLocation> taintLocations = new HashMap<Integer, TaintLocation>();
+    /** true if fields and collection content are not modeled */
+    private boolean coarse;
 
     static {
         REPLACE_TAGS = new HashMap<String, Taint.Tag>();
@@ -87,6 +91,16 @@ public class TaintFrameModelingVisitor extends AbstractFrameModelingVisitor<Tain
         this.methodGen = methodGen;
     }
 
+    /**
+     * In coarse mode, the taint of object fields and collection elements is
+     * not tracked, values get the taint of the method summaries only
+     *
+     * @param coarse true to model calls without fields and collections
+     */
+    public void setCoarse(boolean coarse) {
+        this.coarse = coarse;
+    }
+
     @Override
     public void setParament() {
         super.setParament();
@@ -515,8 +529,10 @@ public class TaintFrameModelingVisitor extends AbstractFrameModelingVisitor<Tain
 //                processCollection(obj,taintCopy);
 //            }
 
-            transferTaintfield(obj,taintCopy);
-            processCollection(obj,taintCopy);
+            if (!coarse) {
+                transferTaintfield(obj,taintCopy);
+                processCollection(obj,taintCopy);
+            }
             generateConstantValue(obj,taintCopy);
 //            generateRealType(obj,taintCopy);
             modelInstruction(obj,numConsume , numProduce, taintCopy);
@@ -877,11 +893,23 @@ public class TaintFrameModelingVisitor extends AbstractFrameModelingVisitor<Tain
     }
 
     private String getInstanceClassName(InvokeInstruction invoke) {
+        return getInstanceClassName(invoke, cpg, getFrame());
+    }
+
+    /**
+     * @param invoke the invoke instruction
+     * @param cpg constant pool of the method
+     * @param frame frame before the invocation
+     * @return slashed name of the real class of the called instance if known,
+     *         of the referenced class otherwise
+     */
+    public static String getInstanceClassName(InvokeInstruction invoke, ConstantPoolGen cpg, TaintFrame frame) {
         try {
-            int instanceIndex = getFrame().getNumArgumentsIncludingObjectInstance(invoke, cpg) - 1;
-            if (instanceIndex != -1) {
-                assert instanceIndex < getFrame().getStackDepth();
-                Taint instanceTaint = getFrame().getStackValue(instanceIndex);
+            int instanceIndex = frame.getNumArgumentsIncludingObjectInstance(invoke, cpg) - 1;
+            // static methods have no instance, the deepest value is the first argument
+            if (instanceIndex != -1 && !(invoke instanceof INVOKESTATIC)) {
+                assert instanceIndex < frame.getStackDepth();
+                Taint instanceTaint = frame.getStackValue(instanceIndex);
                 String className = instanceTaint.getRealInstanceClassName();
                 if (className != null) {
                     return className;
@@ -1038,7 +1066,13 @@ public class TaintFrameModelingVisitor extends AbstractFrameModelingVisitor<Tain
     }
 
     private TaintLocation getTaintLocation() {
-        return new TaintLocation(methodDescriptor, getLocation().getHandle().getPosition());
+        int position = getLocation().getHandle().getPosition();
+        TaintLocation location = taintLocations.get(position);
+        if (location == null) {
+            location = new TaintLocation(methodDescriptor, position);
+            taintLocations.put(position, location);
+        }
+        return location;
     }
 
     /**
@@ -1064,13 +1098,19 @@ public class TaintFrameModelingVisitor extends AbstractFrameModelingVisitor<Tain
         }
         String className = methodDescriptor.getSlashedClassName();
         String methodId = "." + methodDescriptor.getName() + methodDescriptor.getSignature();
+        String fullMethodName = className.concat(methodId);
+        TaintMethodConfig existingConfig = taintConfig.get(fullMethodName);
+        if (existingConfig != null && existingConfig.isConfigured()) {
+            // prefer configured summaries to derived
+            return;
+        }
+        // a method is analyzed again if it is part of a recursive cycle,
+        // the new summary replaces the one derived before
         if (analyzedMethodConfig.isInformative()
                 || taintConfig.getSuperMethodConfig(className, methodId) != null) {
-            String fullMethodName = className.concat(methodId);
-            if (!taintConfig.containsKey(fullMethodName)) {
-                // prefer configured summaries to derived
-                taintConfig.put(fullMethodName, analyzedMethodConfig);
-            }
+            taintConfig.put(fullMethodName, analyzedMethodConfig);
+        } else if (existingConfig != null) {
+            taintConfig.remove(fullMethodName);
         }
     }
 
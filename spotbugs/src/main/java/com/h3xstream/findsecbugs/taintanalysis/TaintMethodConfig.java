@@ -227,7 +227,8 @@ public class TaintMethodConfig implements TaintTypeConfig {
         } else {
             sb.append(outputTaint.getState().name());
         }
-        if (outputTaint.hasTags()) {
+        if (outputTaint.hasTags() || outputTaint.isRemovingTags()) {
+            // added and removed tags share one section, as expected by load
             sb.append('|');
             boolean isFirst = true;
             for (Taint.Tag tag : outputTaint.getTags()) {
@@ -239,13 +240,6 @@ public class TaintMethodConfig implements TaintTypeConfig {
                 sb.append('+');
                 sb.append(tag.name());
             }
-            if (outputTaint.isRemovingTags()) {
-                sb.append(',');
-            }
-        }
-        if (outputTaint.isRemovingTags()) {
-            sb.append('|');
-            boolean isFirst = true;
             for (Taint.Tag tag : outputTaint.getTagsToRemove()) {
                 if (isFirst) {
                     isFirst = false;
@@ -0,0 +1,247 @@
+/**
+ * Find Security Bugs
+ * Copyright (c) Philippe Arteau, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.h3xstream.findsecbugs.taintanalysis;
+
+import com.h3xstream.findsecbugs.FindSecBugsGlobalConfig;
+import com.h3xstream.findsecbugs.TransferParamFieldReturn.ScanInfo;
+import com.h3xstream.findsecbugs.injection.AbstractTaintDetector;
+import com.h3xstream.findsecbugs.injection.SinkReachability;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.ba.ch.CompactCallGraph;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import org.apache.bcel.classfile.Method;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Taint pre-scan of the first pass: computes the taint summaries of the
+ * application methods bottom-up, and feeds the methods to {@link ScanInfo},
+ * before the detectors ask for the taint dataflow of a method.
+ * <p>
+ * Derived summaries are stored in the {@link TaintConfig} by
+ * {@link TaintFrameModelingVisitor#finishAnalysis()}, so a caller only sees the
+ * summary of a callee if the callee has been analyzed before. This pass takes
+ * the call graph of the application methods from the {@link CompactCallGraph}
+ * database, and computes the {@link TaintDataflow} of the strongly connected
+ * components of that graph in reverse topological order, callees first. The
+ * methods of a recursive component are analyzed again until their summaries do
+ * not change anymore, or the configured number of iterations is reached. Then
+ * the methods of the component are scanned by {@link ScanInfo}, so the callers
+ * analyzed afterwards see the fields and parameters their callees transfer.
+ * The methods which are not in the call graph (those of library classes and
+ * with ordered summaries disabled, all methods) are scanned class by class
+ * afterwards. Only the summaries are kept, the detectors compute the dataflow
+ * of a method again if the analysis cache has dropped it in the meantime.
+ * <p>
+ * With the sink prefilter enabled, the {@link SinkReachability} of the
+ * detectors is computed on the same call graph first, and the application
+ * methods which neither reach a sink nor are called by a method reaching one
+ * are neither analyzed nor scanned: no detector looks at their dataflow or
+ * summary. Once all the methods are scanned, the detectors analyze the methods
+ * reaching their sinks, so they do not keep any state built while visiting
+ * the classes afterwards.
+ */
+public class TaintSummaryPass {
+
+    private static final FindSecBugsGlobalConfig CONFIG = FindSecBugsGlobalConfig.getInstance();
+    private static final Logger LOGGER = Logger.getLogger(TaintSummaryPass.class.getName());
+
+    private final IAnalysisCache cache;
+    private final TaintConfig taintConfig;
+    private final CompactCallGraph callGraph;
+    private final SinkReachability reachability;
+
+    private TaintSummaryPass(IAnalysisCache cache, TaintConfig taintConfig, CompactCallGraph callGraph,
+            SinkReachability reachability) {
+        this.cache = cache;
+        this.taintConfig = taintConfig;
+        this.callGraph = callGraph;
+        this.reachability = reachability;
+    }
+
+    /**
+     * Runs the taint pre-scan. Only to be called if a taint detector is
+     * enabled, nothing else uses its results.
+     *
+     * @param cache the analysis cache
+     * @param appClasses the application classes
+     * @param classes the classes of the first pass
+     * @param taintDetectors the taint detectors of the analysis
+     * @param visitedClasses the application classes the detectors visit
+     * @param reportedClasses the application classes whose bugs are reported,
+     *        only their sinks are looked for
+     * @param visitSinkMethods true to let the injection detectors analyze the
+     *        methods reaching their sinks at the end of the pre-scan, so that
+     *        they do not have to visit the classes of other shards or before
+     *        a checkpoint again
+     */
+    public static void scan(IAnalysisCache cache, Collection<ClassDescriptor> appClasses,
+            Collection<ClassDescriptor> classes, Collection<? extends AbstractTaintDetector> taintDetectors,
+            Predicate<ClassDescriptor> visitedClasses, Predicate<ClassDescriptor> reportedClasses,
+            boolean visitSinkMethods) {
+        ScanInfo scanInfo = ScanInfo.getInstance();
+        scanInfo.clear();
+        TaintConfig taintConfig = cache.getOptionalDatabase(TaintConfig.class);
+        SinkReachability reachability = null;
+        if (CONFIG.isOrderedTaintSummaries() && taintConfig != null) {
+            CompactCallGraph callGraph = cache.getDatabase(CompactCallGraph.class);
+            callGraph.build(cache, appClasses);
+            if (CONFIG.isSinkPrefilter()) {
+                reachability = SinkReachability.compute(cache, callGraph, taintDetectors, reportedClasses);
+            }
+            TaintSummaryPass pass = new TaintSummaryPass(cache, taintConfig, callGraph, reachability);
+            for (int component = 0; component < callGraph.getNumComponents(); component++) {
+                if (pass.needsSummary(component)) {
+                    pass.analyzeComponent(component);
+                    pass.scanComponent(component);
+                } else {
+                    pass.skipComponent(component);
+                }
+            }
+        }
+        for (ClassDescriptor classDescriptor : classes) {
+            try {
+                scanInfo.visit(classDescriptor);
+            } catch (CheckedAnalysisException | RuntimeException ex) {
+                // reported when the detectors visit the class
+            }
+        }
+        if (reachability != null && visitSinkMethods) {
+            reachability.visitMethods(cache, visitedClasses);
+        }
+    }
+
+    /**
+     * @return true if a method of the component needs its summary, then all
+     *         of them do, since they call each other
+     */
+    private boolean needsSummary(int component) {
+        return reachability == null
+                || reachability.needsSummary(callGraph.getMethod(callGraph.getComponentMembers(component)[0]));
+    }
+
+    private void skipComponent(int component) {
+        ScanInfo scanInfo = ScanInfo.getInstance();
+        for (int id : callGraph.getComponentMembers(component)) {
+            scanInfo.skipMethod(getFullMethodName(callGraph.getMethod(id)));
+        }
+    }
+
+    private void analyzeComponent(int component) {
+        int[] members = callGraph.getComponentMembers(component);
+        if (!callGraph.isRecursive(component)) {
+            analyze(members[0]);
+            return;
+        }
+        List<String> names = new ArrayList<String>(members.length);
+        for (int id : members) {
+            names.add(getFullMethodName(callGraph.getMethod(id)));
+        }
+        // Start the fixpoint iteration from the bottom: while a method of the
+        // component has not been analyzed, calls to it return a NULL value
+        // (which merges into any other value), instead of an unknown value
+        // that would stay in the summaries for good
+        Map<String, TaintMethodConfig> seeds = new HashMap<String, TaintMethodConfig>();
+        for (String method : names) {
+            if (taintConfig.containsKey(method) || !returnsReference(method)) {
+                continue;
+            }
+            TaintMethodConfig seed = new TaintMethodConfig(false);
+            seed.setOuputTaint(new Taint(Taint.State.NULL));
+            taintConfig.put(method, seed);
+            seeds.put(method, seed);
+        }
+        for (int id : members) {
+            analyze(id);
+        }
+        int maxIterations = CONFIG.getTaintSummaryMaxIterations();
+        List<String> summaries = getSummaries(names);
+        int iteration = 1;
+        for (; iteration < maxIterations; iteration++) {
+            for (int id : members) {
+                cache.purgeMethodAnalyses(callGraph.getMethod(id));
+            }
+            for (int id : members) {
+                analyze(id);
+            }
+            List<String> newSummaries = getSummaries(names);
+            if (newSummaries.equals(summaries)) {
+                break;
+            }
+            summaries = newSummaries;
+        }
+        if (iteration == maxIterations) {
+            LOGGER.fine("Taint summaries of " + names + " did not converge after " + maxIterations + " iterations");
+        }
+        // a seed remains if the analysis of its method failed or did not store a summary
+        for (Map.Entry<String, TaintMethodConfig> seed : seeds.entrySet()) {
+            if (taintConfig.get(seed.getKey()) == seed.getValue()) {
+                taintConfig.remove(seed.getKey());
+            }
+        }
+    }
+
+    private void scanComponent(int component) {
+        ScanInfo scanInfo = ScanInfo.getInstance();
+        for (int id : callGraph.getComponentMembers(component)) {
+            MethodDescriptor method = callGraph.getMethod(id);
+            try {
+                scanInfo.visitMethod(cache.getClassAnalysis(ClassContext.class, method.getClassDescriptor()),
+                        cache.getMethodAnalysis(Method.class, method));
+            } catch (CheckedAnalysisException | RuntimeException ex) {
+                // reported when the detectors visit the method
+            }
+        }
+    }
+
+    private static boolean returnsReference(String fullMethodName) {
+        char returnType = fullMethodName.charAt(fullMethodName.lastIndexOf(')') + 1);
+        return returnType == 'L' || returnType == '[';
+    }
+
+    private void analyze(int id) {
+        try {
+            cache.getMethodAnalysis(TaintDataflow.class, callGraph.getMethod(id));
+        } catch (CheckedAnalysisException | RuntimeException ex) {
+            // the analysis cache remembers the failure, the detectors report
+            // it when they ask for the same dataflow
+        }
+    }
+
+    private List<String> getSummaries(List<String> names) {
+        List<String> summaries = new ArrayList<String>(names.size());
+        for (String method : names) {
+            TaintMethodConfig summary = taintConfig.get(method);
+            summaries.add(summary == null ? null : summary.toString());
+        }
+        return summaries;
+    }
+
+    private static String getFullMethodName(MethodDescriptor method) {
+        return method.getSlashedClassName() + "." + method.getName() + method.getSignature();
+    }
+}
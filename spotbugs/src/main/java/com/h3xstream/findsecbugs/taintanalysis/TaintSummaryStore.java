@@ -0,0 +1,338 @@
+/**
+ * Find Security Bugs
+ * Copyright (c) Philippe Arteau, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.h3xstream.findsecbugs.taintanalysis;
+
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
+import edu.umd.cs.findbugs.io.IO;
+import edu.umd.cs.findbugs.util.ClassName;
+import org.apache.bcel.generic.ObjectType;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persists derived method summaries per jar, so they do not have to be
+ * derived again by later runs analyzing the same jar.
+ * <p>
+ * The summaries of a jar are stored in a file named after the SHA-1 of the jar
+ * content, a digest of the other jars on the class path (the summaries of a
+ * method depend on those of the library methods it calls) and the version of
+ * the taint configuration, so they are used again only if neither the jar,
+ * its dependencies nor the configured summaries changed. Preloaded summaries
+ * are derived ones, a new analysis of a method replaces them. Directories are
+ * not stored, their classes are usually the ones being edited. Summaries
+ * degraded by the analysis budget are not stored either.
+ *
+ * @see com.h3xstream.findsecbugs.FindSecBugsGlobalConfig#getTaintSummaryCacheDir()
+ */
+public class TaintSummaryStore {
+
+    private static final Logger LOGGER = Logger.getLogger(TaintSummaryStore.class.getName());
+    private static final String SUFFIX = ".txt";
+
+    private final File directory;
+    private final TaintConfig taintConfig;
+    private final String configVersion;
+
+    /** path of a jar without stored summaries -&gt; file to store them in */
+    private final Map<String, File> unsavedJars = new LinkedHashMap<String, File>();
+
+    /**
+     * @param directory directory containing the stored summaries
+     * @param taintConfig summaries to extend and to store the derived ones of
+     * @param configVersion identifies the configured summaries the derived ones
+     *        are based on
+     */
+    public TaintSummaryStore(File directory, TaintConfig taintConfig, String configVersion) {
+        this.directory = directory;
+        this.taintConfig = taintConfig;
+        this.configVersion = configVersion;
+    }
+
+    /**
+     * Loads the stored summaries of the jars on the class path into the taint
+     * config. Does nothing if no summary store is configured.
+     *
+     * @param cache the analysis cache
+     */
+    public static void preload(IAnalysisCache cache) {
+        TaintSummaryStore store = cache.getOptionalDatabase(TaintSummaryStore.class);
+        if (store != null) {
+            store.load(cache.getClassPath());
+        }
+    }
+
+    /**
+     * Stores the derived summaries of the jars that had no stored summaries
+     * yet. Does nothing if no summary store is configured.
+     *
+     * @param cache the analysis cache
+     */
+    public static void save(IAnalysisCache cache) {
+        TaintSummaryStore store = cache.getOptionalDatabase(TaintSummaryStore.class);
+        if (store != null) {
+            store.store(cache.getClassPath());
+        }
+    }
+
+    private void load(IClassPath classPath) {
+        unsavedJars.clear();
+        Map<File, String> jarHashes = new LinkedHashMap<File, String>();
+        MessageDigest classPathDigest = newDigest();
+        for (File jar : getJars(classPath)) {
+            String jarHash;
+            try {
+                jarHash = hash(jar);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Cannot hash " + jar, ex);
+                // its summaries could change without the digest noticing
+                return;
+            }
+            jarHashes.put(jar, jarHash);
+            classPathDigest.update(jarHash.getBytes(StandardCharsets.UTF_8));
+        }
+        // e.g. the runtime image of the JDK
+        classPathDigest.update(String.valueOf(System.getProperty("java.version")).getBytes(StandardCharsets.UTF_8));
+        for (String path : getOtherCodeBases(classPath)) {
+            classPathDigest.update(path.getBytes(StandardCharsets.UTF_8));
+        }
+        String dependencies = toHex(classPathDigest.digest());
+        int loaded = 0;
+        for (Map.Entry<File, String> jarHash : jarHashes.entrySet()) {
+            File jar = jarHash.getKey();
+            File file = new File(directory, jarHash.getValue() + "-" + dependencies + "-" + configVersion + SUFFIX);
+            if (!file.isFile()) {
+                unsavedJars.put(jar.getPath(), file);
+                continue;
+            }
+            try {
+                loaded += load(file);
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Cannot load taint summaries from " + file, ex);
+                unsavedJars.put(jar.getPath(), file);
+            }
+        }
+        if (loaded > 0) {
+            LOGGER.log(Level.FINE, "{0} stored taint summaries loaded", loaded);
+        }
+    }
+
+    private int load(File file) throws IOException {
+        final int[] count = {0};
+        InputStream stream = new FileInputStream(file);
+        try {
+            new TaintConfigLoader().load(stream, new TaintConfigLoader.TaintConfigReceiver() {
+                @Override
+                public void receiveTaintConfig(String typeSignature, String config) throws IOException {
+                    if (taintConfig.containsKey(typeSignature)) {
+                        // configured, or already derived for another copy of the class
+                        return;
+                    }
+                    // the real instance class is appended as " (slashed/ClassName)"
+                    String realInstanceClassName = null;
+                    int open = config.indexOf(" (");
+                    if (open >= 0 && config.endsWith(")")) {
+                        realInstanceClassName = config.substring(open + 2, config.length() - 1);
+                        config = config.substring(0, open);
+                    }
+                    if (!TaintMethodConfig.accepts(typeSignature, config)) {
+                        throw new IOException("Invalid stored summary " + typeSignature + ":" + config);
+                    }
+                    TaintMethodConfig summary = new TaintMethodConfig(false).load(config);
+                    if (realInstanceClassName != null) {
+                        Taint outputTaint = summary.getOutputTaint();
+                        outputTaint.setRealInstanceClass(
+                                ObjectType.getInstance(ClassName.toDottedClassName(realInstanceClassName)));
+                        summary.setOuputTaint(outputTaint);
+                    }
+                    taintConfig.put(typeSignature, summary);
+                    count[0]++;
+                }
+            });
+        } finally {
+            IO.close(stream);
+        }
+        return count[0];
+    }
+
+    private void store(IClassPath classPath) {
+        if (unsavedJars.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, String>> summariesByJar = new HashMap<String, Map<String, String>>();
+        Map<String, String> jarByClass = new HashMap<String, String>();
+        for (Map.Entry<String, TaintMethodConfig> entry : taintConfig.entrySet()) {
+            TaintMethodConfig summary = entry.getValue();
+            String fullMethodName = entry.getKey();
+            if (summary.isConfigured() || summary.getOutputTaint() == null || taintConfig.isDegraded(fullMethodName)) {
+                continue;
+            }
+            String className = fullMethodName.substring(0, fullMethodName.indexOf('.'));
+            String jar;
+            if (jarByClass.containsKey(className)) {
+                jar = jarByClass.get(className);
+            } else {
+                jar = getJarPath(classPath, className);
+                jarByClass.put(className, jar);
+            }
+            if (jar == null || !unsavedJars.containsKey(jar)) {
+                continue;
+            }
+            Map<String, String> summaries = summariesByJar.get(jar);
+            if (summaries == null) {
+                summaries = new TreeMap<String, String>();
+                summariesByJar.put(jar, summaries);
+            }
+            summaries.put(fullMethodName, summary.toString());
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.warning("Cannot create taint summary directory " + directory);
+            return;
+        }
+        // jars without derived summaries are stored too, to not hash them again
+        for (Map.Entry<String, File> jar : unsavedJars.entrySet()) {
+            Map<String, String> summaries = summariesByJar.get(jar.getKey());
+            try {
+                write(jar.getValue(), summaries);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Cannot store taint summaries of " + jar.getKey(), ex);
+            }
+        }
+        unsavedJars.clear();
+    }
+
+    private void write(File file, Map<String, String> summaries) throws IOException {
+        // write to a temporary file first, so that concurrent runs never read
+        // a partially written file
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8));
+        try {
+            if (summaries != null) {
+                for (Map.Entry<String, String> summary : summaries.entrySet()) {
+                    writer.write(summary.getKey() + ":" + summary.getValue() + "\n");
+                }
+            }
+        } finally {
+            IO.close(writer);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            if (!file.isFile()) {
+                throw new IOException("Cannot rename " + temp + " to " + file);
+            }
+        }
+    }
+
+    private static String getJarPath(IClassPath classPath, String slashedClassName) {
+        try {
+            ICodeBaseEntry entry = classPath.lookupResource(slashedClassName + ".class");
+            String path = entry.getCodeBase().getPathName();
+            return path != null ? new File(path).getPath() : null;
+        } catch (ResourceNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static Iterable<File> getJars(IClassPath classPath) {
+        Map<String, File> jars = new LinkedHashMap<String, File>();
+        addJars(classPath.appCodeBaseIterator(), jars);
+        addJars(classPath.auxCodeBaseIterator(), jars);
+        return jars.values();
+    }
+
+    /**
+     * @return path names of the code bases which are neither jars nor
+     *         directories
+     */
+    private static List<String> getOtherCodeBases(IClassPath classPath) {
+        List<String> paths = new ArrayList<String>();
+        for (Iterator<? extends ICodeBase> i = classPath.auxCodeBaseIterator(); i.hasNext();) {
+            String path = i.next().getPathName();
+            if (path != null && !new File(path).exists()) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private static void addJars(Iterator<? extends ICodeBase> codeBases, Map<String, File> jars) {
+        while (codeBases.hasNext()) {
+            String path = codeBases.next().getPathName();
+            if (path == null) {
+                continue;
+            }
+            File file = new File(path);
+            if (file.isFile()) {
+                jars.put(file.getPath(), file);
+            }
+        }
+    }
+
+    private static String hash(File jar) throws IOException {
+        MessageDigest digest = newDigest();
+        InputStream stream = new FileInputStream(jar);
+        try {
+            byte[] buffer = new byte[65536];
+            int count;
+            while ((count = stream.read(buffer)) >= 0) {
+                digest.update(buffer, 0, count);
+            }
+        } finally {
+            IO.close(stream);
+        }
+        return toHex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-1 is not available", ex);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
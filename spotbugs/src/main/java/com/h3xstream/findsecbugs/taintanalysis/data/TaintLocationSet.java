@@ -0,0 +1,167 @@
+/**
+ * Find Security Bugs
+ * Copyright (c) Philippe Arteau, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.h3xstream.findsecbugs.taintanalysis.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted set of at most a given number of taint locations
+ * <p>
+ * Taint facts are copied for every instruction, so their locations are kept
+ * in a shared immutable array instead of a hash set copied along. When a set
+ * would grow over the limit, only the smallest locations (by method and
+ * position) are kept, which bounds the memory of facts merged from thousands
+ * of paths and the number of lines in a report.
+ */
+public final class TaintLocationSet extends AbstractSet<TaintLocation> {
+
+    public static final TaintLocationSet EMPTY = new TaintLocationSet(new TaintLocation[0]);
+
+    private final TaintLocation[] locations;
+
+    private TaintLocationSet(TaintLocation[] locations) {
+        this.locations = locations;
+    }
+
+    /**
+     * @param location location to add
+     * @param limit maximal number of locations
+     * @return set containing also the given location, this if it is already
+     *         contained or would be dropped because of the limit
+     */
+    public TaintLocationSet with(TaintLocation location, int limit) {
+        int index = Arrays.binarySearch(locations, location);
+        if (index >= 0) {
+            return this;
+        }
+        int insertion = -index - 1;
+        if (insertion >= limit) {
+            return this;
+        }
+        int size = Math.min(locations.length + 1, limit);
+        TaintLocation[] result = new TaintLocation[size];
+        System.arraycopy(locations, 0, result, 0, insertion);
+        result[insertion] = location;
+        System.arraycopy(locations, insertion, result, insertion + 1, size - insertion - 1);
+        return new TaintLocationSet(result);
+    }
+
+    /**
+     * @param other set to merge with
+     * @param limit maximal number of locations
+     * @return union of the sets, limited to the smallest locations
+     */
+    public TaintLocationSet union(TaintLocationSet other, int limit) {
+        if (other.locations.length == 0 || this == other) {
+            return this.limit(limit);
+        }
+        if (locations.length == 0) {
+            return other.limit(limit);
+        }
+        TaintLocation[] result = new TaintLocation[Math.min(locations.length + other.locations.length, limit)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (size < result.length && (i < locations.length || j < other.locations.length)) {
+            int comparison;
+            if (i == locations.length) {
+                comparison = 1;
+            } else if (j == other.locations.length) {
+                comparison = -1;
+            } else if (locations[i] == other.locations[j]) {
+                comparison = 0;
+            } else {
+                comparison = locations[i].compareTo(other.locations[j]);
+            }
+            if (comparison < 0) {
+                result[size++] = locations[i++];
+            } else if (comparison > 0) {
+                result[size++] = other.locations[j++];
+            } else {
+                result[size++] = locations[i++];
+                j++;
+            }
+        }
+        if (size == locations.length && i == size) {
+            // nothing new (common when merging facts of the same path)
+            return this;
+        }
+        return new TaintLocationSet(size == result.length ? result : Arrays.copyOf(result, size));
+    }
+
+    private TaintLocationSet limit(int limit) {
+        if (locations.length <= limit) {
+            return this;
+        }
+        return new TaintLocationSet(Arrays.copyOf(locations, limit));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof TaintLocation && Arrays.binarySearch(locations, (TaintLocation) o) >= 0;
+    }
+
+    @Override
+    public Iterator<TaintLocation> iterator() {
+        return new Iterator<TaintLocation>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < locations.length;
+            }
+
+            @Override
+            public TaintLocation next() {
+                if (next >= locations.length) {
+                    throw new NoSuchElementException();
+                }
+                return locations[next++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return locations.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof TaintLocationSet) {
+            return Arrays.equals(locations, ((TaintLocationSet) o).locations);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
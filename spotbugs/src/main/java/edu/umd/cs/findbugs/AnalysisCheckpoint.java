@@ -0,0 +1,351 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import javax.annotation.Nonnull;
+
+import org.dom4j.DocumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+
+/**
+ * Saves the progress of the reporting passes of an analysis, so that an
+ * interrupted analysis can be resumed with the same final output.
+ * <p>
+ * Every {@link #INTERVAL} classes of a reporting pass, the bugs reported since
+ * the previous checkpoint and the position in the pass are appended to the
+ * checkpoint file. The databases of the non-reporting passes are not saved:
+ * they are computed again when resuming. The classes analyzed before the
+ * checkpoint are then visited again only by the detectors keeping state across
+ * classes (the ones reporting in {@link Detector#report()} or
+ * {@link Detector2#finishPass()}), with their bug reports discarded, since
+ * these bugs are in the checkpoint.
+ * <p>
+ * The checkpoint file is a sequence of records: a header with a fingerprint of
+ * the application classes, plugins and options, then for every checkpoint the
+ * new bugs as a bug collection, followed by the position. Bugs not followed by
+ * a position, for example when the analysis was killed while writing them, are
+ * ignored. A checkpoint of another analysis is ignored.
+ */
+public class AnalysisCheckpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisCheckpoint.class);
+
+    /** number of classes between two checkpoints */
+    public static final int INTERVAL = SystemProperties.getInt("findbugs.checkpoint.interval", 1000);
+
+    private static final byte HEADER_RECORD = 1;
+    private static final byte BUGS_RECORD = 2;
+    private static final byte POSITION_RECORD = 3;
+
+    private final File file;
+
+    /** bugs reported since the last checkpoint */
+    private final List<BugInstance> pendingBugs = new ArrayList<>();
+    private boolean replaying;
+
+    /** length of the file up to the last position, -1 to start a new file */
+    private long committedLength = -1;
+
+    private int resumePass = -1;
+    private int resumeClassCount;
+    private List<BugInstance> restoredBugs = new ArrayList<>();
+
+    /**
+     * @param file
+     *            the checkpoint file
+     */
+    public AnalysisCheckpoint(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the checkpoint file, if it exists and belongs to the same analysis
+     *
+     * @param fingerprint
+     *            fingerprint of the analysis, see
+     *            {@link #fingerprint(Collection, Collection)}
+     * @return true if the analysis will be resumed
+     */
+    public boolean load(String fingerprint) {
+        if (!file.isFile()) {
+            LOG.warn("No checkpoint {}, starting the analysis from the beginning", file);
+            return false;
+        }
+        List<BugInstance> committedBugs = new ArrayList<>();
+        List<BugInstance> uncommittedBugs = new ArrayList<>();
+        Properties position = null;
+        long offset = 0;
+        long committed = -1;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] header = readRecord(in, HEADER_RECORD);
+            if (header == null || !fingerprint.equals(new String(header, StandardCharsets.UTF_8))) {
+                LOG.warn("Checkpoint {} is from another analysis, starting the analysis from the beginning", file);
+                return false;
+            }
+            offset += 5 + header.length;
+            while (true) {
+                byte type;
+                byte[] data;
+                try {
+                    type = in.readByte();
+                    data = new byte[in.readInt()];
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    // end of the file, or a record not completely written
+                    break;
+                }
+                offset += 5 + data.length;
+                if (type == BUGS_RECORD) {
+                    SortedBugCollection bugs = new SortedBugCollection();
+                    bugs.readXML(new StringReader(new String(data, StandardCharsets.UTF_8)));
+                    uncommittedBugs.addAll(bugs.getCollection());
+                } else if (type == POSITION_RECORD) {
+                    position = new Properties();
+                    position.load(new ByteArrayInputStream(data));
+                    committedBugs.addAll(uncommittedBugs);
+                    uncommittedBugs.clear();
+                    committed = offset;
+                } else {
+                    break;
+                }
+            }
+        } catch (IOException | DocumentException | RuntimeException e) {
+            if (position == null) {
+                LOG.warn("Cannot read checkpoint {}, starting the analysis from the beginning", file, e);
+                return false;
+            }
+            LOG.warn("Cannot read the end of checkpoint {}, resuming from the last complete checkpoint", file, e);
+        }
+        if (position == null) {
+            LOG.warn("Checkpoint {} has no position, starting the analysis from the beginning", file);
+            return false;
+        }
+        resumePass = Integer.parseInt(position.getProperty("pass"));
+        resumeClassCount = Integer.parseInt(position.getProperty("classes"));
+        restoredBugs = committedBugs;
+        committedLength = committed;
+        LOG.info("Resuming pass {} after {} classes, {} bugs already reported", resumePass, resumeClassCount,
+                restoredBugs.size());
+        return true;
+    }
+
+    /**
+     * @return the data of the next record, or null if it has another type
+     */
+    private static byte[] readRecord(DataInputStream in, byte type) throws IOException {
+        if (in.readByte() != type) {
+            return null;
+        }
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+    }
+
+    /**
+     * @return true if {@link #load(String)} found a checkpoint to resume from
+     */
+    public boolean isResumed() {
+        return resumePass >= 0;
+    }
+
+    /**
+     * @param reporter
+     *            the bug reporter of the analysis
+     * @return bug reporter recording the bugs for the checkpoints, and
+     *         discarding the bugs reported while replaying classes
+     */
+    public BugReporter wrap(BugReporter reporter) {
+        return new DelegatingBugReporter(reporter) {
+            @Override
+            public void reportBug(@Nonnull BugInstance bugInstance) {
+                if (replaying) {
+                    return;
+                }
+                pendingBugs.add(bugInstance);
+                getDelegate().reportBug(bugInstance);
+            }
+        };
+    }
+
+    /**
+     * Reports the bugs of the loaded checkpoint again
+     *
+     * @param reporter
+     *            the reporter returned by {@link #wrap(BugReporter)}
+     */
+    public void reportRestoredBugs(BugReporter reporter) {
+        int pending = pendingBugs.size();
+        for (BugInstance bug : restoredBugs) {
+            reporter.reportBug(bug);
+        }
+        // already in the file
+        pendingBugs.subList(pending, pendingBugs.size()).clear();
+        restoredBugs = new ArrayList<>();
+    }
+    /**
+     * @param pass
+     *            number of the pass, from 0
+     * @return true if all the classes of the pass have been analyzed before
+     *         the checkpoint
+     */
+    public boolean isReplayedPass(int pass) {
+        return pass < resumePass;
+    }
+
+    /**
+     * @param pass
+     *            number of the pass, from 0
+     * @param classCount
+     *            number of classes of the pass visited before the class
+     * @return true if the class has been analyzed before the checkpoint
+     */
+    public boolean isReplayedClass(int pass, int classCount) {
+        return pass < resumePass || pass == resumePass && classCount < resumeClassCount;
+    }
+
+    /**
+     * @param replaying
+     *            true to discard the reported bugs, which are already in the
+     *            checkpoint
+     */
+    public void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+    }
+
+    /**
+     * Appends the bugs reported since the last checkpoint and the position in
+     * the analysis to the checkpoint file
+     *
+     * @param fingerprint
+     *            fingerprint of the analysis
+     * @param pass
+     *            number of the current pass, from 0
+     * @param classCount
+     *            number of classes of the pass analyzed
+     */
+    public void save(String fingerprint, int pass, int classCount) {
+        Properties position = new Properties();
+        position.setProperty("pass", Integer.toString(pass));
+        position.setProperty("classes", Integer.toString(classCount));
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            if (committedLength < 0) {
+                out.setLength(0);
+                writeRecord(out, HEADER_RECORD, fingerprint.getBytes(StandardCharsets.UTF_8));
+            } else {
+                // drop what a failed save may have left after the last position
+                out.setLength(committedLength);
+                out.seek(committedLength);
+            }
+            if (!pendingBugs.isEmpty()) {
+                SortedBugCollection bugs = new SortedBugCollection(new Project());
+                for (BugInstance bug : pendingBugs) {
+                    bugs.add(bug, false);
+                }
+                StringWriter xml = new StringWriter();
+                bugs.writeXML(xml);
+                writeRecord(out, BUGS_RECORD, xml.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            ByteArrayOutputStream properties = new ByteArrayOutputStream();
+            position.store(properties, null);
+            writeRecord(out, POSITION_RECORD, properties.toByteArray());
+            out.getFD().sync();
+            committedLength = out.getFilePointer();
+            pendingBugs.clear();
+        } catch (IOException e) {
+            LOG.warn("Cannot write checkpoint {}", file, e);
+        }
+    }
+
+    private static void writeRecord(RandomAccessFile out, byte type, byte[] data) throws IOException {
+        out.writeByte(type);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    /**
+     * Deletes the checkpoint file once the analysis is complete
+     */
+    public void delete() {
+        if (file.exists() && !file.delete()) {
+            LOG.warn("Cannot delete checkpoint {}", file);
+        }
+    }
+
+    /**
+     * @param appClassList
+     *            the application classes, in analysis order
+     * @param settings
+     *            the detectors, plugin versions, options and auxiliary
+     *            classpath of the analysis
+     * @return a string identifying the analysis
+     */
+    public static String fingerprint(Collection<ClassDescriptor> appClassList, Collection<String> settings) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+        for (ClassDescriptor classDescriptor : appClassList) {
+            digest.update(classDescriptor.getClassName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            try {
+                digest.update(Global.getAnalysisCache().getClassAnalysis(ClassData.class, classDescriptor).getData());
+            } catch (CheckedAnalysisException e) {
+                digest.update("missing".getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+        }
+        for (String setting : settings) {
+            digest.update(setting.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+}
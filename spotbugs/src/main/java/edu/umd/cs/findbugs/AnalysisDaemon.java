@@ -0,0 +1,489 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.CheckForNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.classfile.impl.AnalysisCache;
+import edu.umd.cs.findbugs.config.CommandLine.HelpRequestedException;
+
+/**
+ * Long running SpotBugs process, executing text UI analysis jobs submitted by
+ * {@link AnalysisDaemonClient}s.
+ * <p>
+ * Jobs are run one after another in the daemon VM, so plugins loaded into the
+ * DetectorFactoryCollection stay loaded, and the class data read from library
+ * jars (including the JDK image) is reused by later jobs as long as the jar
+ * files don't change. Standard output and error of a job are sent back to the
+ * client, together with the exit code the text UI would have returned.
+ * <p>
+ * The daemon only listens on the loopback interface. Clients authenticate with
+ * a random token, which the daemon writes to a file readable only by the user
+ * running it (see {@link AnalysisDaemonClient#getTokenFile(int)}).
+ * <p>
+ * Note that system properties and options which terminate the VM (like
+ * -listPlugins) are not supported in jobs: system properties must be passed to
+ * the daemon VM itself.
+ */
+public class AnalysisDaemon {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisDaemon.class);
+
+    /** Maximal size of class data kept for later jobs */
+    private static final long MAX_CACHED_BYTES = SystemProperties.getInt("findbugs.daemon.cacheMB", 512) * 1024L * 1024L;
+
+    /** Time a client may take to send its request, in milliseconds */
+    private static final int READ_TIMEOUT = SystemProperties.getInt("findbugs.daemon.readTimeout", 30_000);
+
+    /** Limits for the request data, checked before anything is allocated */
+    static final int MAX_TOKEN_LENGTH = 256;
+
+    static final int MAX_ARGS = 100_000;
+
+    static final int MAX_ARG_LENGTH = 1024 * 1024;
+
+    static final int MAX_INPUT_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * Class data of one library jar, valid as long as the jar is not modified
+     */
+    private static class CachedCodeBase {
+        final long lastModified;
+
+        final long length;
+
+        final Map<ClassDescriptor, byte[]> classes = new HashMap<>();
+
+        long bytes;
+
+        CachedCodeBase(File file) {
+            lastModified = file.lastModified();
+            length = file.length();
+        }
+
+        boolean isValid(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
+    private final int port;
+
+    private final String token;
+
+    /** library jar path -&gt; class data, in access order */
+    private final LinkedHashMap<String, CachedCodeBase> libraryClasses = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedBytes;
+
+    private volatile boolean stopped;
+
+    public AnalysisDaemon(int port) {
+        this.port = port;
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        this.token = sb.toString();
+    }
+
+    /**
+     * Accept and execute jobs until a client asks the daemon to stop.
+     *
+     * @throws IOException
+     *             if the daemon can't listen on its port
+     */
+    public void run() throws IOException {
+        File tokenFile = AnalysisDaemonClient.getTokenFile(port);
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            writeTokenFile(tokenFile);
+            LOG.info("SpotBugs daemon listening on port {}", port);
+            while (!stopped) {
+                try (Socket socket = serverSocket.accept()) {
+                    socket.setSoTimeout(READ_TIMEOUT);
+                    handle(socket);
+                } catch (IOException | RuntimeException | Error e) {
+                    // one broken request must not take down the daemon
+                    LOG.warn("Failed to handle daemon request", e);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tokenFile.toPath());
+        }
+    }
+
+    private void writeTokenFile(File tokenFile) throws IOException {
+        File dir = tokenFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        Files.deleteIfExists(tokenFile.toPath());
+        if (!tokenFile.createNewFile()) {
+            throw new IOException("Can't create " + tokenFile);
+        }
+        // owner only
+        tokenFile.setReadable(false, false);
+        tokenFile.setWritable(false, false);
+        tokenFile.setReadable(true, true);
+        tokenFile.setWritable(true, true);
+        Files.write(tokenFile.toPath(), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        int version = in.readInt();
+        if (version != AnalysisDaemonClient.PROTOCOL_VERSION
+                || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                        AnalysisDaemonClient.readString(in, MAX_TOKEN_LENGTH).getBytes(StandardCharsets.UTF_8))) {
+            byte[] message = "Rejected: wrong protocol version or token\n".getBytes(StandardCharsets.UTF_8);
+            writeFrame(out, AnalysisDaemonClient.FRAME_ERR, message);
+            writeExit(out, ExitCodes.ERROR_FLAG);
+            return;
+        }
+        int command = in.readInt();
+        if (command == AnalysisDaemonClient.COMMAND_STOP) {
+            stopped = true;
+            writeExit(out, 0);
+            return;
+        }
+        int argc = in.readInt();
+        if (argc < 0 || argc > MAX_ARGS) {
+            throw new IOException("Invalid argument count " + argc);
+        }
+        String[] args = new String[argc];
+        for (int i = 0; i < argc; i++) {
+            args[i] = AnalysisDaemonClient.readString(in, MAX_ARG_LENGTH);
+        }
+        String input = in.readBoolean() ? AnalysisDaemonClient.readString(in, MAX_INPUT_LENGTH) : null;
+        // the job itself may run for a long time, the client is just waiting
+        socket.setSoTimeout(0);
+        int exitCode = execute(args, input, out);
+        writeExit(out, exitCode);
+    }
+
+    /**
+     * Run one job, with standard streams redirected to the client
+     *
+     * @return exit code of the job
+     */
+    private int execute(String[] args, @CheckForNull String input, DataOutputStream out) {
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        InputStream oldIn = System.in;
+        PrintStream jobOut = UTF8.printStream(
+                new BufferedOutputStream(new FrameOutputStream(out, AnalysisDaemonClient.FRAME_OUT)), true);
+        PrintStream jobErr = UTF8.printStream(
+                new BufferedOutputStream(new FrameOutputStream(out, AnalysisDaemonClient.FRAME_ERR)), true);
+        System.setOut(jobOut);
+        System.setErr(jobErr);
+        System.setIn(new ByteArrayInputStream(input != null ? input.getBytes(StandardCharsets.UTF_8) : new byte[0]));
+        int[] exitCode = { ExitCodes.ERROR_FLAG };
+        // Each job gets a fresh thread, so no thread local analysis state of
+        // the previous job can leak into it
+        Thread job = new Thread(() -> {
+            try (FindBugs2 findBugs = new DaemonFindBugs2()) {
+                exitCode[0] = execute(findBugs, args);
+            } catch (Exception | LinkageError e) {
+                e.printStackTrace(jobErr);
+            }
+        }, "spotbugs-daemon-job");
+        job.start();
+        try {
+            job.join();
+            return exitCode[0];
+        } catch (InterruptedException e) {
+            job.interrupt();
+            Thread.currentThread().interrupt();
+            return ExitCodes.ERROR_FLAG;
+        } finally {
+            jobOut.flush();
+            jobErr.flush();
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+            System.setIn(oldIn);
+        }
+    }
+
+    /**
+     * Same as {@link FindBugs#processCommandLine(TextUICommandLine, String[], IFindBugsEngine)}
+     * followed by {@link FindBugs#runMain(IFindBugsEngine, TextUICommandLine)},
+     * but returning the exit code instead of terminating the VM
+     */
+    private static int execute(FindBugs2 findBugs, String[] args) throws IOException, InterruptedException {
+        TextUICommandLine commandLine = new TextUICommandLine();
+        String[] argv;
+        int argCount;
+        try {
+            argv = commandLine.expandOptionFiles(args, true, true);
+            argCount = commandLine.parse(argv);
+        } catch (IllegalArgumentException | HelpRequestedException e) {
+            if (e.getMessage() != null) {
+                System.err.println(e.getMessage());
+            }
+            FindBugs.showCommandLineOptions(commandLine);
+            return ExitCodes.ERROR_FLAG;
+        }
+        Project project = commandLine.getProject();
+        for (int i = argCount; i < argv.length; ++i) {
+            project.addFile(argv[i]);
+        }
+        commandLine.handleXArgs();
+        commandLine.configureEngine(findBugs);
+
+        boolean justPrintConfiguration = commandLine.justPrintConfiguration();
+        if (justPrintConfiguration || commandLine.justPrintVersion()) {
+            Version.printVersion(justPrintConfiguration);
+            return 0;
+        }
+        if (project.getFileCount() == 0) {
+            System.err.println("No files to be analyzed");
+            return ExitCodes.ERROR_FLAG;
+        }
+        findBugs.execute();
+        return commandLine.setExitCode() ? FindBugs.getExitCode(findBugs) : 0;
+    }
+
+    /**
+     * FindBugs2 reusing the library class data of previous jobs
+     */
+    private class DaemonFindBugs2 extends FindBugs2 {
+        private AnalysisCache analysisCache;
+
+        @Override
+        protected IAnalysisCache createAnalysisCache() throws IOException {
+            IAnalysisCache cache = super.createAnalysisCache();
+            if (cache instanceof AnalysisCache) {
+                analysisCache = (AnalysisCache) cache;
+            }
+            return cache;
+        }
+
+        @Override
+        protected void classPathBuilt() {
+            if (analysisCache != null) {
+                reuseLibraryClasses(analysisCache);
+            }
+        }
+
+        @Override
+        protected void clearCaches() {
+            if (analysisCache != null) {
+                collectLibraryClasses(analysisCache);
+                analysisCache = null;
+            }
+            super.clearCaches();
+        }
+    }
+
+    /**
+     * Put the cached class data of unchanged library jars on the class path
+     * into the analysis cache. Classes which are now found earlier on the
+     * class path, in another code base, are skipped.
+     */
+    void reuseLibraryClasses(AnalysisCache analysisCache) {
+        IClassPath classPath = analysisCache.getClassPath();
+        Map<ClassDescriptor, Object> reused = new HashMap<>();
+        for (Iterator<? extends ICodeBase> i = classPath.auxCodeBaseIterator(); i.hasNext();) {
+            ICodeBase codeBase = i.next();
+            String pathName = codeBase.getPathName();
+            if (pathName == null) {
+                continue;
+            }
+            CachedCodeBase cached = libraryClasses.get(pathName);
+            if (cached == null) {
+                continue;
+            }
+            if (!cached.isValid(new File(pathName))) {
+                libraryClasses.remove(pathName);
+                cachedBytes -= cached.bytes;
+                continue;
+            }
+            for (Entry<ClassDescriptor, byte[]> entry : cached.classes.entrySet()) {
+                ClassDescriptor classDescriptor = entry.getKey();
+                if (reused.containsKey(classDescriptor)) {
+                    continue;
+                }
+                try {
+                    ICodeBaseEntry codeBaseEntry = classPath.lookupResource(classDescriptor.toResourceName());
+                    if (pathName.equals(codeBaseEntry.getCodeBase().getPathName())) {
+                        reused.put(classDescriptor, new ClassData(classDescriptor, codeBaseEntry, entry.getValue()));
+                    }
+                } catch (ResourceNotFoundException e) {
+                    // jar was changed in between, ignore
+                }
+            }
+        }
+        if (!reused.isEmpty()) {
+            analysisCache.reuseClassAnalysis(ClassData.class, reused);
+        }
+    }
+
+    /**
+     * Remember the class data read from library jars for later jobs
+     */
+    void collectLibraryClasses(AnalysisCache analysisCache) {
+        Map<ClassDescriptor, Object> classAnalysis = analysisCache.getClassAnalysis(ClassData.class);
+        if (classAnalysis == null) {
+            return;
+        }
+        for (Object value : classAnalysis.values()) {
+            if (!(value instanceof ClassData)) {
+                continue;
+            }
+            ClassData classData = (ClassData) value;
+            ICodeBase codeBase = classData.getCodeBaseEntry().getCodeBase();
+            String pathName = codeBase.getPathName();
+            if (codeBase.isApplicationCodeBase() || pathName == null) {
+                continue;
+            }
+            CachedCodeBase cached = libraryClasses.get(pathName);
+            if (cached == null) {
+                File file = new File(pathName);
+                if (!file.isFile()) {
+                    // directories can't be checked for modifications cheaply
+                    continue;
+                }
+                cached = new CachedCodeBase(file);
+                libraryClasses.put(pathName, cached);
+            }
+            if (cached.classes.put(classData.getClassDescriptor(), classData.getData()) == null) {
+                cached.bytes += classData.getData().length;
+                cachedBytes += classData.getData().length;
+            }
+        }
+        // evict least recently used jars
+        for (Iterator<CachedCodeBase> i = libraryClasses.values().iterator(); i.hasNext() && cachedBytes > MAX_CACHED_BYTES;) {
+            cachedBytes -= i.next().bytes;
+            i.remove();
+        }
+    }
+
+    /**
+     * Sends everything written to it as frames of the given type
+     */
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        private final int type;
+
+        FrameOutputStream(DataOutputStream out, int type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, int type, byte[] data) throws IOException {
+        out.writeByte(type);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static void writeExit(DataOutputStream out, int exitCode) throws IOException {
+        out.writeByte(AnalysisDaemonClient.FRAME_EXIT);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+    /**
+     * Start a daemon, or stop a running one.
+     *
+     * @param args
+     *            [-port &lt;port&gt;] [-stop]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = AnalysisDaemonClient.DEFAULT_PORT;
+        boolean stop = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("-port".equals(args[i]) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if ("-stop".equals(args[i])) {
+                stop = true;
+            } else {
+                System.err.println("Usage: " + AnalysisDaemon.class.getName() + " [-port <port>] [-stop]");
+                System.exit(1);
+            }
+        }
+        if (stop) {
+            AnalysisDaemonClient.stop(port);
+            return;
+        }
+        if (!CheckBcel.check()) {
+            System.exit(1);
+        }
+        new AnalysisDaemon(port).run();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Submits text UI analysis jobs to a running {@link AnalysisDaemon}.
+ * <p>
+ * This class does not depend on the rest of SpotBugs (e.g. on
+ * SystemProperties, which loads all plugins), so that a client VM starts fast.
+ */
+public class AnalysisDaemonClient {
+
+    /**
+     * System property with the port of the daemon to submit jobs to
+     */
+    public static final String PORT_PROPERTY = "findbugs.daemon.port";
+
+    public static final int DEFAULT_PORT = 9395;
+
+    static final int PROTOCOL_VERSION = 1;
+
+    static final int COMMAND_JOB = 1;
+
+    static final int COMMAND_STOP = 2;
+
+    static final int FRAME_EXIT = 0;
+
+    static final int FRAME_OUT = 1;
+
+    static final int FRAME_ERR = 2;
+
+    /** Options whose argument is a file which may not exist yet */
+    private static final List<String> OUTPUT_OPTIONS = Arrays.asList("-output", "-outputFile");
+
+    private AnalysisDaemonClient() {
+        // no instances
+    }
+
+    /**
+     * Run the given text UI command line in the daemon listening on the given
+     * port. File names relative to the current directory are converted to
+     * absolute ones.
+     *
+     * @param port
+     *            port of the daemon
+     * @param args
+     *            text UI command line arguments
+     * @param input
+     *            standard input of the job, may be null
+     * @param out
+     *            receives standard output of the job
+     * @param err
+     *            receives standard error of the job
+     * @return the exit code of the job
+     * @throws IOException
+     *             if the daemon can't be reached
+     */
+    public static int submit(int port, String[] args, @CheckForNull String input, OutputStream out, OutputStream err)
+            throws IOException {
+        try (Socket socket = connect(port)) {
+            DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeHeader(dout, port, COMMAND_JOB);
+            String[] absoluteArgs = toAbsolutePaths(args);
+            dout.writeInt(absoluteArgs.length);
+            for (String arg : absoluteArgs) {
+                writeString(dout, arg);
+            }
+            dout.writeBoolean(input != null);
+            if (input != null) {
+                writeString(dout, input);
+            }
+            dout.flush();
+            return readResponse(new DataInputStream(new BufferedInputStream(socket.getInputStream())), out, err);
+        }
+    }
+
+    /**
+     * Ask the daemon listening on the given port to stop after the current job.
+     *
+     * @param port
+     *            port of the daemon
+     * @throws IOException
+     *             if the daemon can't be reached
+     */
+    public static void stop(int port) throws IOException {
+        try (Socket socket = connect(port)) {
+            DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writeHeader(dout, port, COMMAND_STOP);
+            dout.flush();
+            readResponse(new DataInputStream(new BufferedInputStream(socket.getInputStream())), System.out, System.err);
+        }
+    }
+
+    /**
+     * @param port
+     *            port of the daemon
+     * @return file containing the token clients of the daemon running on the
+     *         given port must send
+     */
+    public static File getTokenFile(int port) {
+        return new File(new File(System.getProperty("user.home"), ".spotbugs"), "daemon-" + port + ".token");
+    }
+
+    private static Socket connect(int port) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private static void writeHeader(DataOutputStream dout, int port, int command) throws IOException {
+        File tokenFile = getTokenFile(port);
+        String token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8).trim();
+        dout.writeInt(PROTOCOL_VERSION);
+        writeString(dout, token);
+        dout.writeInt(command);
+    }
+
+    private static int readResponse(DataInputStream in, OutputStream out, OutputStream err) throws IOException {
+        byte[] buffer = new byte[8192];
+        try {
+            while (true) {
+                int type = in.readByte();
+                if (type == FRAME_EXIT) {
+                    out.flush();
+                    err.flush();
+                    return in.readInt();
+                }
+                OutputStream target = type == FRAME_ERR ? err : out;
+                int len = in.readInt();
+                while (len > 0) {
+                    int count = in.read(buffer, 0, Math.min(len, buffer.length));
+                    if (count < 0) {
+                        throw new EOFException();
+                    }
+                    target.write(buffer, 0, count);
+                    len -= count;
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("SpotBugs daemon closed the connection unexpectedly", e);
+        }
+    }
+
+    /**
+     * The daemon runs in another directory, so make all arguments naming
+     * existing files (or lists of them), and output files, absolute.
+     */
+    static String[] toAbsolutePaths(String[] args) {
+        String[] result = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i > 0 && OUTPUT_OPTIONS.contains(args[i - 1])) {
+                result[i] = new File(arg).getAbsolutePath();
+            } else if (arg.startsWith("@")) {
+                result[i] = "@" + toAbsolutePathList(arg.substring(1));
+            } else if (arg.startsWith("-")) {
+                result[i] = arg;
+            } else {
+                result[i] = toAbsolutePathList(arg);
+            }
+        }
+        return result;
+    }
+
+    private static String toAbsolutePathList(String arg) {
+        String[] parts = arg.split(File.pathSeparator, -1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (i > 0) {
+                sb.append(File.pathSeparator);
+            }
+            File file = new File(part);
+            if (!part.isEmpty() && !file.isAbsolute() && file.exists()) {
+                sb.append(file.getAbsolutePath());
+            } else {
+                sb.append(part);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Read the whole standard input, if the given text UI arguments need it
+     *
+     * @return standard input, or null if not needed
+     */
+    static @CheckForNull String readInputIfNeeded(String[] args) throws IOException {
+        if (!Arrays.asList(args).contains("-auxclasspathFromInput") && !Arrays.asList(args).contains("-xargs")) {
+            return null;
+        }
+        InputStream in = System.in;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, count);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param maxLength
+     *            maximal number of bytes the string may have, so a broken or
+     *            hostile peer can't make us allocate arbitrary amounts of memory
+     */
+    static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Run a text UI command line in the daemon listening on the port given by
+     * the findbugs.daemon.port system property, and exit with its exit code.
+     *
+     * @param args
+     *            text UI command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT).intValue();
+        String input = readInputIfNeeded(args);
+        int exitCode = submit(port, args, input, System.out, System.err);
+        System.exit(exitCode);
+    }
+}
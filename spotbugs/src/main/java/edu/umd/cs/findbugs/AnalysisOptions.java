@@ -76,6 +76,40 @@ public class AnalysisOptions {
      */
     public boolean noClassOk;
 
+    /**
+     * file where the progress of the analysis is saved, or null
+     */
+    public String checkpointFile;
+
+    /**
+     * resume the analysis from the checkpoint file
+     */
+    public boolean resume;
+
+    /**
+     * index of the slice of the application classes whose bugs are reported,
+     * from 0
+     */
+    public int shardIndex;
+
+    /**
+     * number of slices the application classes are split into, 0 or 1 to
+     * analyze all of them
+     */
+    public int shardCount;
+
+    /**
+     * in a sliced analysis, true to only run the detectors keeping state
+     * across classes, on all the classes, false to only run the other
+     * detectors, on the classes of the slice, null to run both
+     */
+    public Boolean shardStateful;
+
+    /**
+     * number of threads running the parallel detectors of the first pass
+     */
+    public int firstPassThreads = FindBugs2.FIRST_PASS_THREADS;
+
     String releaseName;
 
     String projectName;
@@ -134,6 +134,8 @@ public class DetectorFactory {
 
     private String detailHTML;
 
+    private String detailText;
+
     private int priorityAdjustment;
 
     private boolean enabledButNonReporting;
@@ -359,6 +361,14 @@ public class DetectorFactory {
      * Get an HTML document describing the Detector.
      */
     public String getDetailHTML() {
+        if (detailHTML == null && detailText != null) {
+            StringBuilder buf = new StringBuilder();
+            buf.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\">\n");
+            buf.append("<HTML><HEAD><TITLE>Detector Description</TITLE></HEAD><BODY>\n");
+            buf.append(detailText);
+            buf.append("</BODY></HTML>\n");
+            detailHTML = buf.toString();
+        }
         return detailHTML;
     }
 
@@ -369,6 +379,15 @@ public class DetectorFactory {
         this.detailHTML = detailHTML;
     }
 
+    /**
+     * Set the HTML fragment describing the Detector. The HTML document
+     * returned by {@link #getDetailHTML()} is only built when first requested.
+     */
+    void setDetailText(String detailText) {
+        this.detailText = detailText;
+        this.detailHTML = null;
+    }
+
     /**
      * Create a Detector instance. This method is only guaranteed to work for
      * old-style detectors using the BCEL bytecode framework.
@@ -412,26 +412,41 @@ public abstract class FindBugs {
         }
 
         if (commandLine.setExitCode()) {
-            int exitCode = 0;
-            LOG.info("Calculating exit code...");
-            if (errorCount > 0) {
-                exitCode |= ExitCodes.ERROR_FLAG;
-                LOG.log(FINE, "Setting 'errors encountered' flag ({0})", ExitCodes.ERROR_FLAG);
-            }
-            if (missingClassCount > 0) {
-                exitCode |= ExitCodes.MISSING_CLASS_FLAG;
-                LOG.log(FINE, "Setting 'missing class' flag ({0})", ExitCodes.MISSING_CLASS_FLAG);
-            }
-            if (bugCount > 0) {
-                exitCode |= ExitCodes.BUGS_FOUND_FLAG;
-                LOG.log(FINE, "Setting 'bugs found' flag ({0})", ExitCodes.BUGS_FOUND_FLAG);
-            }
-            LOG.log(FINE, "Exit code set to: {0}", exitCode);
-
+            int exitCode = getExitCode(findBugs);
             System.exit(exitCode);
         }
     }
 
+    /**
+     * Compute the -exitcode flags for a finished analysis.
+     *
+     * @param findBugs
+     *            the engine which has executed the analysis
+     * @return combination of the {@link ExitCodes} flags
+     */
+    public static int getExitCode(IFindBugsEngine findBugs) {
+        int bugCount = findBugs.getBugCount();
+        int missingClassCount = findBugs.getMissingClassCount();
+        int errorCount = findBugs.getErrorCount();
+
+        int exitCode = 0;
+        LOG.info("Calculating exit code...");
+        if (errorCount > 0) {
+            exitCode |= ExitCodes.ERROR_FLAG;
+            LOG.log(FINE, "Setting 'errors encountered' flag ({0})", ExitCodes.ERROR_FLAG);
+        }
+        if (missingClassCount > 0) {
+            exitCode |= ExitCodes.MISSING_CLASS_FLAG;
+            LOG.log(FINE, "Setting 'missing class' flag ({0})", ExitCodes.MISSING_CLASS_FLAG);
+        }
+        if (bugCount > 0) {
+            exitCode |= ExitCodes.BUGS_FOUND_FLAG;
+            LOG.log(FINE, "Setting 'bugs found' flag ({0})", ExitCodes.BUGS_FOUND_FLAG);
+        }
+        LOG.log(FINE, "Exit code set to: {0}", exitCode);
+        return exitCode;
+    }
+
     /**
      * @param commandLine
      * @param e
@@ -19,6 +19,7 @@
 
 package edu.umd.cs.findbugs;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -26,6 +27,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -36,11 +38,14 @@ import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
-import com.h3xstream.findsecbugs.TransferParamFieldReturn.ScanInfo;
+import com.h3xstream.findsecbugs.injection.AbstractInjectionDetector;
+import com.h3xstream.findsecbugs.injection.AbstractTaintDetector;
+import com.h3xstream.findsecbugs.taintanalysis.TaintSummaryPass;
+import com.h3xstream.findsecbugs.taintanalysis.TaintSummaryStore;
 import org.apache.bcel.classfile.ClassFormatException;
 import org.dom4j.DocumentException;
 
-import edu.umd.cs.findbugs.asm.FBClassReader;
+import edu.umd.cs.findbugs.asm.ClassNodeDetector;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.AnalysisFeatures;
 import edu.umd.cs.findbugs.ba.ObjectTypeFactory;
@@ -50,6 +55,9 @@ import edu.umd.cs.findbugs.ba.XFactory;
 import edu.umd.cs.findbugs.ba.jsr305.TypeQualifierAnnotation;
 import edu.umd.cs.findbugs.ba.jsr305.TypeQualifierApplications;
 import edu.umd.cs.findbugs.ba.jsr305.TypeQualifierValue;
+import edu.umd.cs.findbugs.bcel.AnnotationDetector;
+import edu.umd.cs.findbugs.bcel.CFGDetector;
+import edu.umd.cs.findbugs.bcel.PreorderDetector;
 import edu.umd.cs.findbugs.bugReporter.BugReporterDecorator;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
@@ -64,6 +72,9 @@ import edu.umd.cs.findbugs.classfile.IClassPathBuilder;
 import edu.umd.cs.findbugs.classfile.ICodeBase;
 import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
 import edu.umd.cs.findbugs.classfile.MissingClassException;
+import edu.umd.cs.findbugs.classfile.engine.ClassBytesPool;
+import edu.umd.cs.findbugs.classfile.engine.ReusedClassInfoAnalysisEngine;
+import edu.umd.cs.findbugs.classfile.impl.AnalysisCache;
 import edu.umd.cs.findbugs.classfile.impl.ClassFactory;
 import edu.umd.cs.findbugs.config.AnalysisFeatureSetting;
 import edu.umd.cs.findbugs.config.UserPreferences;
@@ -94,6 +105,13 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
 
     private static final boolean SCREEN_FIRST_PASS_CLASSES = SystemProperties.getBoolean("findbugs.screenFirstPass");
 
+    /**
+     * Number of threads running the {@link ParallelFirstPassDetector}s of the
+     * first pass. With the default of 1 the whole first pass runs on the
+     * analysis thread.
+     */
+    public static final int FIRST_PASS_THREADS = SystemProperties.getInt("findbugs.firstPass.threads", 1);
+
     public static final String PROP_FINDBUGS_HOST_APP = "findbugs.hostApp";
     public static final String PROP_FINDBUGS_HOST_APP_VERSION = "findbugs.hostAppVersion";
 
@@ -127,6 +145,8 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
 
     private final AnalysisOptions analysisOptions = new AnalysisOptions(true);
 
+    private ReusedClassInfoAnalysisEngine reusedClassInfos;
+
     /**
      * Constructor.
      */
@@ -215,7 +235,10 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                 // Discover all codebases in classpath and
                 // enumerate all classes (application and non-application)
                 buildClassPath();
-
+                if (reusedClassInfos != null && Global.getAnalysisCache() instanceof AnalysisCache) {
+                    reusedClassInfos.registerWith(Global.getAnalysisCache());
+                }
+                classPathBuilt();
 
                 // Build set of classes referenced by application classes
                 buildReferencedClassSet();
@@ -307,10 +330,22 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
         }
     }
 
+    /**
+     * Called after the class path was built, before any class is analyzed.
+     * Protected to allow clients to reuse some class data of previous
+     * analyses, see {@link AnalysisDaemon}
+     */
+    protected void classPathBuilt() {
+        // nothing to do
+    }
+
     /**
      * Protected to allow Eclipse plugin remember some cache data for later reuse
      */
     protected void clearCaches() {
+        if (reusedClassInfos != null && Global.getAnalysisCache() instanceof AnalysisCache) {
+            reusedClassInfos.collect((AnalysisCache) Global.getAnalysisCache());
+        }
         DescriptorFactory.clearInstance();
         ObjectTypeFactory.clearInstance();
         TypeQualifierApplications.clearInstance();
@@ -574,6 +609,54 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
         this.analysisOptions.noClassOk = noClassOk;
     }
 
+    @Override
+    public void setCheckpointFile(String checkpointFile, boolean resume) {
+        this.analysisOptions.checkpointFile = checkpointFile;
+        this.analysisOptions.resume = resume;
+    }
+
+    @Override
+    public void setShard(int shardIndex, int shardCount) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shardIndex + "/" + shardCount);
+        }
+        this.analysisOptions.shardIndex = shardIndex;
+        this.analysisOptions.shardCount = shardCount;
+    }
+
+    @Override
+    public void setShardDetectors(boolean stateful) {
+        this.analysisOptions.shardStateful = stateful;
+    }
+
+    /**
+     * Set the number of threads running the {@link ParallelFirstPassDetector}s
+     * of the first pass, {@link #FIRST_PASS_THREADS} by default.
+     *
+     * @param firstPassThreads
+     *            the number of threads, 1 to run the whole first pass on the
+     *            analysis thread
+     */
+    public void setFirstPassThreads(int firstPassThreads) {
+        if (firstPassThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of first pass threads " + firstPassThreads);
+        }
+        this.analysisOptions.firstPassThreads = firstPassThreads;
+    }
+
+    /**
+     * Reuse the library classes of a previous analysis in the same VM instead
+     * of parsing them again, and remember the library classes of this analysis
+     * in the same engine for the next one.
+     *
+     * @param reusedClassInfos
+     *            the engine kept from one analysis to the next, or null to
+     *            parse all classes
+     */
+    public void setReusedClassInfos(ReusedClassInfoAnalysisEngine reusedClassInfos) {
+        this.reusedClassInfos = reusedClassInfos;
+    }
+
     /**
      * Create the analysis cache object and register it for current execution thread.
      * <p>
@@ -984,6 +1067,36 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
 
             long startTime = System.currentTimeMillis();
             bugReporter.getProjectStats().setReferencedClasses(referencedClassSet.size());
+
+            BugReporter passBugReporter = bugReporter;
+            Set<ClassDescriptor> shardClassSet = null;
+            if (analysisOptions.shardCount > 1) {
+                shardClassSet = new HashSet<>();
+                for (int i = analysisOptions.shardIndex; i < appClassList.size(); i += analysisOptions.shardCount) {
+                    shardClassSet.add(appClassList.get(i));
+                }
+                if (Boolean.TRUE.equals(analysisOptions.shardStateful)) {
+                    // visits all the classes with the detectors keeping
+                    // state only, which no slice runs
+                    shardClassSet.clear();
+                } else {
+                    passBugReporter = createShardBugReporter(passBugReporter, shardClassSet, analysisOptions.shardIndex == 0);
+                }
+            }
+
+            AnalysisCheckpoint checkpoint = null;
+            String fingerprint = null;
+            if (analysisOptions.checkpointFile != null) {
+                checkpoint = new AnalysisCheckpoint(new File(analysisOptions.checkpointFile));
+                fingerprint = AnalysisCheckpoint.fingerprint(appClassList, getCheckpointSettings());
+                passBugReporter = checkpoint.wrap(passBugReporter);
+                if (analysisOptions.resume && checkpoint.load(fingerprint)) {
+                    checkpoint.reportRestoredBugs(passBugReporter);
+                }
+            }
+            // created before the first pass, the taint pre-scan only derives
+            // the summaries their sinks need
+            Map<DetectorFactory, Detector2> taintDetectors = createTaintDetectors(passBugReporter);
             int tag = 0;
             for (Iterator<AnalysisPass> passIterator = executionPlan.passIterator(); passIterator.hasNext();) {
                 tag++;
@@ -993,7 +1106,7 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                 boolean isNonReportingFirstPass = multiplePasses && passCount == 0;
 
                 // Instantiate the detectors
-                Detector2[] detectorList = pass.instantiateDetector2sInPass(bugReporter);
+                Detector2[] detectorList = pass.instantiateDetector2sInPass(passBugReporter, taintDetectors);
 
                 // If there are multiple passes, then on the first pass,
                 // we apply detectors to all classes referenced by the
@@ -1001,6 +1114,19 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                 // On subsequent passes, we apply detector only to application
                 // classes.
                 Collection<ClassDescriptor> classCollection = (isNonReportingFirstPass) ? referencedClassSet : appClassList;
+
+                // Detectors which can be sharded are taken out of the
+                // per-class loop and run on worker threads instead
+                Detector2[] perClassDetectorList = detectorList;
+                List<ParallelFirstPassDetector> parallelDetectors = new ArrayList<>();
+                if (isNonReportingFirstPass && analysisOptions.firstPassThreads > 1 && Global.getAnalysisCache() instanceof AnalysisCache) {
+                    perClassDetectorList = splitParallelFirstPassDetectors(detectorList, parallelDetectors);
+                }
+
+                boolean checkpointed = checkpoint != null && !isNonReportingFirstPass;
+                boolean sharded = shardClassSet != null && !isNonReportingFirstPass;
+                // the detectors keeping state run in a worker of their own
+                boolean statelessOnly = sharded && Boolean.FALSE.equals(analysisOptions.shardStateful);
                 AnalysisContext.currentXFactory().canonicalizeAll();
                 if (PROGRESS || LIST_ORDER) {
                     System.out.printf("%6d : Pass %d: %d classes%n", (System.currentTimeMillis() - startTime)/1000, passCount,  classCollection.size());
@@ -1033,18 +1159,50 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
 
                 progressReporter.startAnalysis(classCollection.size());
                 int count = 0;
-                Global.getAnalysisCache().purgeAllMethodAnalysis();
-                Global.getAnalysisCache().purgeClassAnalysis(FBClassReader.class);
-
-                try{
-                    for(ClassDescriptor cd:classCollection){
-//                        ScanInfo.scanSwitch = 0;
-                        ScanInfo.getInstance().visit(cd);
-//                        ScanInfo.scanSwitch = 1;
+                Global.getAnalysisCache().purgeBeforePass();
+
+                if (passCount == 0 && !taintDetectors.isEmpty()) {
+                    // load stored taint summaries, then derive the ones of the
+                    // application methods callees first
+                    TaintSummaryStore.preload(Global.getAnalysisCache());
+                    List<AbstractTaintDetector> detectors = new ArrayList<>();
+                    for (Detector2 detector : taintDetectors.values()) {
+                        detectors.add((AbstractTaintDetector) ((DetectorToDetector2Adapter) detector).getDetector());
+                    }
+                    // the pre-scan is done again when resuming, its bugs
+                    // are in the checkpoint
+                    boolean replayed = checkpoint != null && checkpoint.isResumed();
+                    if (replayed) {
+                        checkpoint.setReplaying(true);
+                    }
+                    try {
+                        // a shard only looks for the sinks of its classes, and
+                        // the injection detectors of a shard or checkpointed
+                        // analysis analyze the sink methods right away, so
+                        // they skip the classes not reported
+                        Set<ClassDescriptor> reportedClasses = shardClassSet;
+                        TaintSummaryPass.scan(Global.getAnalysisCache(), appClassList, classCollection, detectors,
+                                c -> classScreener.matches(c.toResourceName()) && !currentAnalysisContext.isTooBig(c),
+                                c -> reportedClasses == null || reportedClasses.contains(c),
+                                checkpoint != null || shardClassSet != null);
+                    } finally {
+                        if (replayed) {
+                            checkpoint.setReplaying(false);
+                        }
                     }
+                }
 
-                }catch (Exception e){
-                        e.printStackTrace();
+                // Classes analyzed before the checkpoint, and classes of
+                // other shards, are only visited by the detectors keeping
+                // state across classes, if this worker runs them
+                boolean[] statefulDetectors = new boolean[perClassDetectorList.length];
+                if (checkpointed || sharded) {
+                    for (int i = 0; i < perClassDetectorList.length; i++) {
+                        statefulDetectors[i] = keepsState(perClassDetectorList[i]);
+                    }
+                }
+                if (!parallelDetectors.isEmpty()) {
+                    runParallelFirstPass(parallelDetectors, classCollection);
                 }
                 for (ClassDescriptor classDescriptor : classCollection) {
                     long classStartNanoTime = 0;
@@ -1054,7 +1212,13 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                                 passCount, executionPlan.getNumPasses(), count,
                                 classCollection.size(), classDescriptor);
                     }
+                    boolean replayed = checkpointed && checkpoint.isReplayedClass(passCount, count);
+                    boolean statefulOnly = replayed && !checkpoint.isReplayedPass(passCount)
+                            || sharded && !shardClassSet.contains(classDescriptor);
                     count++;
+                    if (statefulOnly && statelessOnly) {
+                        continue;
+                    }
 
                     // Check to see if class is excluded by the class screener.
                     // In general, we do not want to screen classes from the
@@ -1066,9 +1230,12 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                         }
                         continue;
                     }
+                    if (replayed) {
+                        checkpoint.setReplaying(true);
+                    }
                     boolean isHuge = currentAnalysisContext.isTooBig(classDescriptor);
-                    if (isHuge && currentAnalysisContext.isApplicationClass(classDescriptor)) {
-                        bugReporter.reportBug(new BugInstance("SKIPPED_CLASS_TOO_BIG", Priorities.NORMAL_PRIORITY)
+                    if (isHuge && !statefulOnly && currentAnalysisContext.isApplicationClass(classDescriptor)) {
+                        passBugReporter.reportBug(new BugInstance("SKIPPED_CLASS_TOO_BIG", Priorities.NORMAL_PRIORITY)
                                 .addClass(classDescriptor));
                     }
                     currentClassName = ClassName.toDottedClassName(classDescriptor.getClassName());
@@ -1077,13 +1244,17 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                     currentAnalysisContext.setClassBeingAnalyzed(classDescriptor);
 
                     try {
-                        for (Detector2 detector : detectorList) {
+                        for (int i = 0; i < perClassDetectorList.length; i++) {
+                            Detector2 detector = perClassDetectorList[i];
                             if (Thread.interrupted()) {
                                 throw new InterruptedException();
                             }
                             if (isHuge && !FirstPassDetector.class.isAssignableFrom(detector.getClass())) {
                                 continue;
                             }
+                            if (statelessOnly ? statefulDetectors[i] : statefulOnly && !statefulDetectors[i]) {
+                                continue;
+                            }
                             if (DEBUG) {
                                 System.out.println("Applying " + detector.getDetectorClassName() + " to " + classDescriptor);
                                 // System.out.println("foo: " +
@@ -1106,6 +1277,11 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                             }
                         }
                     } finally {
+                        if (replayed) {
+                            checkpoint.setReplaying(false);
+                        } else if (checkpointed && count % AnalysisCheckpoint.INTERVAL == 0) {
+                            checkpoint.save(fingerprint, passCount, count);
+                        }
 
                         progressReporter.finishClass();
                         profiler.endContext(currentClassName);
@@ -1126,15 +1302,39 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
                 }
 
                 // Call finishPass on each detector
-                for (Detector2 detector : detectorList) {
-                    detector.finishPass();
+                if (checkpointed) {
+                    checkpoint.setReplaying(checkpoint.isReplayedPass(passCount));
+                }
+                try {
+                    for (Detector2 detector : detectorList) {
+                        if (statelessOnly && keepsState(detector)) {
+                            continue;
+                        }
+                        detector.finishPass();
+                    }
+                } finally {
+                    if (checkpointed) {
+                        checkpoint.setReplaying(false);
+                    }
                 }
 
                 progressReporter.finishPerClassAnalysis();
 
+                if (passCount == 0) {
+                    // the first pass has read all the classes it will use
+                    ClassBytesPool classBytesPool = Global.getAnalysisCache().getOptionalDatabase(ClassBytesPool.class);
+                    if (classBytesPool != null) {
+                        classBytesPool.clear();
+                    }
+                }
+
                 passCount++;
             }
 
+            TaintSummaryStore.save(Global.getAnalysisCache());
+            if (checkpoint != null) {
+                checkpoint.delete();
+            }
 
         } finally {
 
@@ -1148,6 +1348,179 @@ public class FindBugs2 implements IFindBugsEngine, AutoCloseable {
 
     }
 
+    /**
+     * Classes analyzed before the checkpoint, and classes of other shards,
+     * are visited again only by the detectors which may keep state across
+     * classes: the ones reporting in {@link Detector#report()} or
+     * {@link Detector2#finishPass()}, except the injection detectors which
+     * have analyzed the methods reaching their sinks in the taint pre-scan.
+     *
+     * @param detector
+     *            a detector of a reporting pass
+     * @return true if the detector has to visit all the classes, even if it
+     *         reports the bugs of some of them only
+     */
+    private static boolean keepsState(Detector2 detector) {
+        if (detector instanceof DetectorToDetector2Adapter) {
+            Detector wrapped = ((DetectorToDetector2Adapter) detector).getDetector();
+            if (wrapped instanceof AbstractInjectionDetector
+                    && ((AbstractInjectionDetector) wrapped).isVisitedInFirstPass()) {
+                // its state was built by the taint pre-scan
+                return false;
+            }
+            Class<?> declaringClass = getDeclaringClass(wrapped.getClass(), "report");
+            return declaringClass != BytecodeScanningDetector.class && declaringClass != PreorderDetector.class
+                    && declaringClass != AnnotationDetector.class && declaringClass != ByteCodePatternDetector.class
+                    && declaringClass != ResourceTrackingDetector.class;
+        }
+        Class<?> declaringClass = getDeclaringClass(detector.getClass(), "finishPass");
+        return declaringClass != CFGDetector.class && declaringClass != ClassNodeDetector.class;
+    }
+
+    /**
+     * @return the settings of the analysis which change its results, for the
+     *         fingerprint of the checkpoint
+     */
+    private List<String> getCheckpointSettings() {
+        List<String> settings = new ArrayList<>();
+        for (Iterator<AnalysisPass> passIterator = executionPlan.passIterator(); passIterator.hasNext();) {
+            for (Iterator<DetectorFactory> i = passIterator.next().iterator(); i.hasNext();) {
+                settings.add(i.next().getFullName());
+            }
+        }
+        for (Plugin plugin : detectorFactoryCollection.plugins()) {
+            settings.add(plugin.getPluginId() + " " + plugin.getVersion());
+        }
+        settings.add("relaxed=" + analysisOptions.relaxedReportingMode + " abridged=" + analysisOptions.abridgedMessages
+                + " suppression=" + analysisOptions.applySuppression + " merge=" + analysisOptions.mergeSimilarWarnings
+                + " nested=" + analysisOptions.scanNestedArchives + " noClassOk=" + analysisOptions.noClassOk
+                + " shard=" + analysisOptions.shardIndex + "/" + analysisOptions.shardCount
+                + " shardStateful=" + analysisOptions.shardStateful);
+        if (analysisOptions.userPreferences != null) {
+            settings.add("effort=" + analysisOptions.userPreferences.getEffort());
+            settings.add("filter=" + analysisOptions.userPreferences.getFilterSettings().toEncodedString());
+        }
+        for (AnalysisFeatureSetting setting : analysisOptions.analysisFeatureSettingList) {
+            settings.add("feature " + setting);
+        }
+        for (String entry : project.getAuxClasspathEntryList()) {
+            File file = new File(entry);
+            settings.add("aux " + entry + " " + file.length() + " " + file.lastModified());
+        }
+        return settings;
+    }
+
+    private static Class<?> getDeclaringClass(Class<?> c, String methodName) {
+        try {
+            return c.getMethod(methodName).getDeclaringClass();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return bug reporter discarding the bugs of classes out of the shard,
+     *         bugs without a class are reported by the first shard
+     */
+    private static BugReporter createShardBugReporter(BugReporter bugReporter, Set<ClassDescriptor> shardClassSet,
+            boolean firstShard) {
+        Set<String> shardClassNames = new HashSet<>();
+        for (ClassDescriptor classDescriptor : shardClassSet) {
+            shardClassNames.add(classDescriptor.getDottedClassName());
+        }
+        return new DelegatingBugReporter(bugReporter) {
+            @Override
+            public void reportBug(@Nonnull BugInstance bugInstance) {
+                ClassAnnotation primaryClass = bugInstance.getPrimaryClass();
+                if (primaryClass == null ? firstShard : shardClassNames.contains(primaryClass.getClassName())) {
+                    getDelegate().reportBug(bugInstance);
+                }
+            }
+        };
+    }
+
+    /**
+     * Create the detectors of the execution plan using the taint analysis,
+     * whose sinks decide which taint summaries the pre-scan of the first pass
+     * derives. They are used in their pass, instead of new instances.
+     *
+     * @param bugReporter
+     *            the BugReporter of the passes
+     * @return the taint detectors, by factory
+     */
+    private Map<DetectorFactory, Detector2> createTaintDetectors(BugReporter bugReporter) {
+        Map<DetectorFactory, Detector2> taintDetectors = new LinkedHashMap<>();
+        for (Iterator<AnalysisPass> passIterator = executionPlan.passIterator(); passIterator.hasNext();) {
+            for (Iterator<DetectorFactory> i = passIterator.next().iterator(); i.hasNext();) {
+                DetectorFactory factory = i.next();
+                if (factory.isDetectorClassSubtypeOf(AbstractTaintDetector.class)) {
+                    taintDetectors.put(factory, factory.createDetector2(bugReporter));
+                }
+            }
+        }
+        return taintDetectors;
+    }
+
+    /**
+     * Move the detectors implementing {@link ParallelFirstPassDetector} out of
+     * the given detector list.
+     *
+     * @param detectorList
+     *            detectors of the first pass
+     * @param parallelDetectors
+     *            list to add the parallel detectors to
+     * @return the remaining detectors, to be applied class by class
+     */
+    private static Detector2[] splitParallelFirstPassDetectors(Detector2[] detectorList,
+            List<ParallelFirstPassDetector> parallelDetectors) {
+        List<Detector2> perClassDetectors = new ArrayList<>(detectorList.length);
+        for (Detector2 detector : detectorList) {
+            if (detector instanceof DetectorToDetector2Adapter
+                    && ((DetectorToDetector2Adapter) detector).getDetector() instanceof ParallelFirstPassDetector) {
+                parallelDetectors.add((ParallelFirstPassDetector) ((DetectorToDetector2Adapter) detector).getDetector());
+            } else {
+                perClassDetectors.add(detector);
+            }
+        }
+        return perClassDetectors.toArray(new Detector2[perClassDetectors.size()]);
+    }
+
+    /**
+     * Apply the parallel detectors of the first pass to the given classes on
+     * {@link AnalysisOptions#firstPassThreads} worker threads.
+     *
+     * @param parallelDetectors
+     *            the detectors to apply
+     * @param classCollection
+     *            the classes of the first pass
+     * @throws InterruptedException
+     *             if the analysis thread is interrupted
+     */
+    private void runParallelFirstPass(List<ParallelFirstPassDetector> parallelDetectors,
+            Collection<ClassDescriptor> classCollection) throws InterruptedException {
+        Collection<ClassDescriptor> classes = classCollection;
+        if (SCREEN_FIRST_PASS_CLASSES) {
+            classes = new ArrayList<>();
+            for (ClassDescriptor classDescriptor : classCollection) {
+                if (classScreener.matches(classDescriptor.toResourceName())) {
+                    classes.add(classDescriptor);
+                }
+            }
+        }
+        if (PROGRESS) {
+            System.out.printf("Running %d detectors over %d classes on %d threads%n", parallelDetectors.size(),
+                    classes.size(), analysisOptions.firstPassThreads);
+        }
+        Profiler profiler = bugReporter.getProjectStats().getProfiler();
+        profiler.start(ParallelFirstPass.class);
+        try {
+            new ParallelFirstPass((AnalysisCache) Global.getAnalysisCache(), bugReporter, analysisOptions.firstPassThreads)
+            .execute(parallelDetectors, classes);
+        } finally {
+            profiler.end(ParallelFirstPass.class);
+        }
+    }
+
     /**
      * Notify all IClassObservers that we are visiting given class.
      *
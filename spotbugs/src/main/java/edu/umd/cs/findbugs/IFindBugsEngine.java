@@ -274,6 +274,43 @@ public interface IFindBugsEngine {
      */
     public void setNoClassOk(boolean noClassOk);
 
+    /**
+     * Set the file where the progress of the analysis is saved, so that an
+     * interrupted analysis can be resumed.
+     *
+     * @param checkpointFile
+     *            the checkpoint file, or null to save no checkpoint
+     * @param resume
+     *            true to resume the analysis from the checkpoint file, if it
+     *            exists
+     */
+    public void setCheckpointFile(String checkpointFile, boolean resume);
+
+    /**
+     * Report only the bugs of a slice of the application classes, so that the
+     * analysis can be split across several processes. The slices of the same
+     * analysis are disjoint and cover all the classes. Only the detectors
+     * keeping state across classes visit the classes of the other slices.
+     *
+     * @param shardIndex
+     *            index of the analyzed slice, from 0
+     * @param shardCount
+     *            number of slices
+     */
+    public void setShard(int shardIndex, int shardCount);
+
+    /**
+     * Split the detectors of a sliced analysis, so that the classes of the
+     * other slices are not visited at all: one worker runs the detectors
+     * keeping state across classes on all the classes, and reports all their
+     * bugs, while the slices only run the other detectors.
+     *
+     * @param stateful
+     *            true for the worker running the detectors keeping state,
+     *            false for a slice
+     */
+    public void setShardDetectors(boolean stateful);
+
     /**
      * Set the DetectorFactoryCollection from which plugins/detectors may be
      * accessed.
@@ -0,0 +1,202 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.ba.ch.Subtypes2;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.MissingClassException;
+import edu.umd.cs.findbugs.classfile.impl.AnalysisCache;
+
+/**
+ * Runs the {@link ParallelFirstPassDetector}s of the first pass over the
+ * referenced classes on a fixed number of worker threads.
+ *
+ * Worker i visits classes i, i + n, i + 2n, ... of the class list, using its
+ * own shard of every detector and its own worker AnalysisCache. Shards are
+ * merged in worker order once all the workers are done, and errors are
+ * reported on the analysis thread, so the outcome does not depend on thread
+ * scheduling. While the workers run, the databases and Subtypes2 are guarded
+ * by the single {@link AnalysisCache#getSharedStateLock() shared state lock}.
+ */
+class ParallelFirstPass {
+
+    private final AnalysisCache analysisCache;
+
+    private final BugReporter bugReporter;
+
+    private final int numThreads;
+
+    /**
+     * Error encountered on a worker thread, reported once the workers are done
+     */
+    private static class DeferredError {
+        final ClassDescriptor classDescriptor;
+
+        final String detectorClassName;
+
+        final Throwable cause;
+
+        DeferredError(ClassDescriptor classDescriptor, String detectorClassName, Throwable cause) {
+            this.classDescriptor = classDescriptor;
+            this.detectorClassName = detectorClassName;
+            this.cause = cause;
+        }
+    }
+
+    private static class WorkerResult {
+        final Detector[] shards;
+
+        final List<DeferredError> errors = new ArrayList<>();
+
+        final List<ClassDescriptor> missingClasses = new ArrayList<>();
+
+        WorkerResult(int numDetectors) {
+            shards = new Detector[numDetectors];
+        }
+    }
+
+    ParallelFirstPass(AnalysisCache analysisCache, BugReporter bugReporter, int numThreads) {
+        this.analysisCache = analysisCache;
+        this.bugReporter = bugReporter;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Apply the detectors to the classes, and merge their shards back into
+     * them. Must be called on the analysis thread.
+     *
+     * @param detectors
+     *            the detectors to run
+     * @param classCollection
+     *            the classes to visit
+     * @throws InterruptedException
+     *             if the analysis thread is interrupted
+     */
+    void execute(List<ParallelFirstPassDetector> detectors, Collection<ClassDescriptor> classCollection)
+            throws InterruptedException {
+        List<ClassDescriptor> classList = new ArrayList<>(classCollection);
+        DescriptorFactory descriptorFactory = DescriptorFactory.instance();
+        descriptorFactory.makeConcurrent();
+        Subtypes2 subtypes2 = AnalysisContext.currentAnalysisContext().getSubtypes2();
+        subtypes2.setSharedLock(analysisCache.getSharedStateLock());
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, new WorkerThreadFactory());
+        List<Future<WorkerResult>> futures = new ArrayList<>(numThreads);
+        List<WorkerResult> results = new ArrayList<>(numThreads);
+        try {
+            for (int i = 0; i < numThreads; i++) {
+                final int first = i;
+                futures.add(executor.submit(() -> visitClasses(detectors, classList, first, descriptorFactory)));
+            }
+            // wait for all the workers before touching any shared state on this thread
+            for (Future<WorkerResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof InterruptedException) {
+                        throw (InterruptedException) cause;
+                    }
+                    bugReporter.logError("Parallel first pass failed", cause);
+                }
+            }
+            for (WorkerResult result : results) {
+                for (int d = 0; d < detectors.size(); d++) {
+                    detectors.get(d).mergeShard(result.shards[d]);
+                }
+                for (DeferredError error : result.errors) {
+                    bugReporter.logError("Exception analyzing " + error.classDescriptor.toDottedClassName()
+                            + " using detector " + error.detectorClassName, error.cause);
+                }
+                for (ClassDescriptor missing : result.missingClasses) {
+                    bugReporter.reportMissingClass(missing);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            subtypes2.setSharedLock(null);
+        }
+    }
+
+    private WorkerResult visitClasses(List<ParallelFirstPassDetector> detectors, List<ClassDescriptor> classList, int first,
+            DescriptorFactory descriptorFactory) throws InterruptedException {
+        // share the descriptors of the analysis thread, so that they stay identical
+        DescriptorFactory.setInstanceForCurrentThread(descriptorFactory);
+        Global.setAnalysisCacheForCurrentThread(analysisCache.createWorkerCache());
+        try {
+            WorkerResult result = new WorkerResult(detectors.size());
+            for (int d = 0; d < detectors.size(); d++) {
+                result.shards[d] = detectors.get(d).createShard();
+            }
+            for (int c = first; c < classList.size(); c += numThreads) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                ClassDescriptor classDescriptor = classList.get(c);
+                ClassContext classContext;
+                try {
+                    classContext = Global.getAnalysisCache().getClassAnalysis(ClassContext.class, classDescriptor);
+                } catch (MissingClassException e) {
+                    result.missingClasses.add(e.getClassDescriptor());
+                    continue;
+                } catch (CheckedAnalysisException | RuntimeException e) {
+                    result.errors.add(new DeferredError(classDescriptor, ClassContext.class.getName(), e));
+                    continue;
+                }
+                for (Detector shard : result.shards) {
+                    try {
+                        shard.visitClassContext(classContext);
+                    } catch (RuntimeException e) {
+                        result.errors.add(new DeferredError(classDescriptor, shard.getClass().getName(), e));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            Global.removeAnalysisCacheForCurrentThread();
+            DescriptorFactory.clearInstance();
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "spotbugs-first-pass-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+/**
+ * A non-reporting first pass Detector whose work can be split over several
+ * threads.
+ *
+ * When the first pass runs with more than one thread (see
+ * {@link FindBugs2#FIRST_PASS_THREADS}), every worker thread gets its own
+ * shard created by {@link #createShard()}. A shard visits a disjoint subset of
+ * the referenced classes and collects its database contributions in private
+ * state. Once all classes have been visited, the shards are merged into the
+ * detector created by the execution plan, on the analysis thread, before its
+ * {@link Detector#report()} method is called.
+ *
+ * Shards must not publish anything into the AnalysisContext or the
+ * AnalysisCache themselves; that is the job of the detector they are merged
+ * into.
+ */
+public interface ParallelFirstPassDetector extends Detector, NonReportingDetector {
+
+    /**
+     * Create an empty shard of this detector. Called on the worker thread
+     * which will use the shard.
+     *
+     * @return a new Detector collecting into private state
+     */
+    Detector createShard();
+
+    /**
+     * Merge the contributions collected by a shard into this detector.
+     *
+     * @param shard
+     *            a Detector returned by {@link #createShard()}, which has
+     *            visited all of its classes
+     */
+    void mergeShard(Detector shard);
+}
@@ -37,6 +37,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -143,6 +144,16 @@ public class PluginLoader {
     /** plugin Id for parent plugin */
     String parentId;
 
+    /**
+     * Plugin descriptor and message documents parsed by init(), kept until the
+     * plugin components are loaded so that they are parsed only once
+     */
+    private Document pluginDescriptorDocument;
+
+    private List<Document> messageDocuments;
+
+    private MessageIndex messageIndex;
+
     static HashSet<String> loadedPluginIds = new HashSet<>();
     static {
         LOG.debug("Debugging plugin loading. SpotBugs version {}", Version.VERSION_STRING);
@@ -689,21 +700,35 @@ public class PluginLoader {
         LOG.debug("Loading plugin from {}", loadedFrom);
         // Plugin descriptor (a.k.a, "findbugs.xml"). Defines
         // the bug detectors and bug patterns that the plugin provides.
-        Document pluginDescriptor = getPluginDescriptor();
-        List<Document> messageCollectionList = getMessageDocuments();
+        pluginDescriptorDocument = getPluginDescriptor();
+        messageDocuments = getMessageDocuments();
+        messageIndex = new MessageIndex(messageDocuments);
 
-        Plugin constructedPlugin = constructMinimalPlugin(pluginDescriptor, messageCollectionList);
+        Plugin constructedPlugin = constructMinimalPlugin(pluginDescriptorDocument, messageDocuments);
 
         // Success!
         LOG.debug("Loaded {} from {}", constructedPlugin.getPluginId(), loadedFrom);
         return constructedPlugin;
     }
 
-    private void loadPluginComponents()
-            throws PluginException {
-        Document pluginDescriptor = getPluginDescriptor();
-        List<Document> messageCollectionList = getMessageDocuments();
+    private void loadPluginComponents() throws PluginException {
+        if (pluginDescriptorDocument == null) {
+            pluginDescriptorDocument = getPluginDescriptor();
+            messageDocuments = getMessageDocuments();
+            messageIndex = new MessageIndex(messageDocuments);
+        }
+        try {
+            loadPluginComponents(pluginDescriptorDocument, messageDocuments, messageIndex);
+        } finally {
+            // The documents are not needed anymore, everything is in the plugin now
+            pluginDescriptorDocument = null;
+            messageDocuments = null;
+            messageIndex = null;
+        }
+    }
 
+    private void loadPluginComponents(Document pluginDescriptor, List<Document> messageCollectionList,
+            MessageIndex index) throws PluginException {
         // Create PluginComponents
         try {
             List<Node> componentNodeList = XMLUtil.selectNodes(pluginDescriptor, "/FindbugsPlugin/PluginComponent");
@@ -728,8 +753,7 @@ public class PluginLoader {
                     String propertiesLocation = componentNode.valueOf("@properties");
                     boolean disabled = Boolean.valueOf(componentNode.valueOf("@disabled"));
 
-                    Node filterMessageNode = findMessageNode(messageCollectionList,
-                            "/MessageCollection/PluginComponent[@id='" + componentId + "']",
+                    Node filterMessageNode = index.find("PluginComponent", componentId,
                             "Missing Cloud description for PluginComponent " + componentId);
                     String description = getChildText(filterMessageNode, "Description").trim();
                     String details = getChildText(filterMessageNode, "Details").trim();
@@ -776,12 +800,9 @@ public class PluginLoader {
                     }
                     String kind = main.valueOf("@kind");
                     boolean analysis = Boolean.valueOf(main.valueOf("@analysis"));
-                    Element mainMessageNode = (Element) findMessageNode(messageCollectionList,
-                            "/MessageCollection/FindBugsMain[@cmd='" + cmd
-                            // + " and @class='" + className
-                            +"']/Description",
+                    Node mainMessageNode = index.find("FindBugsMain", cmd,
                             "Missing FindBugsMain description for cmd " + cmd);
-                    String description = mainMessageNode.getTextTrim();
+                    String description = getChildText(mainMessageNode, "Description").trim();
                     try {
                         Class<?> mainClass =  classLoader.loadClass(className);
                         plugin.addFindBugsMain(mainClass, cmd, description, kind, analysis);
@@ -828,17 +849,8 @@ public class PluginLoader {
 
                 // Find Detector node in one of the messages files,
                 // to get the detail HTML.
-                Node node = findMessageNode(messageCollectionList, "/MessageCollection/Detector[@class='" + className
-                        + "']/Details", "Missing Detector description for detector " + className);
-
-                Element details = (Element) node;
-                String detailHTML = details.getText();
-                StringBuilder buf = new StringBuilder();
-                buf.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\">\n");
-                buf.append("<HTML><HEAD><TITLE>Detector Description</TITLE></HEAD><BODY>\n");
-                buf.append(detailHTML);
-                buf.append("</BODY></HTML>\n");
-                factory.setDetailHTML(buf.toString());
+                Node node = index.find("Detector", className, "Missing Detector description for detector " + className);
+                factory.setDetailText(getChildText(node, "Details"));
             }
         } catch (ClassNotFoundException e) {
             throw new PluginException("Could not instantiate detector class: " + e, e);
@@ -935,12 +947,8 @@ public class PluginLoader {
             boolean experimental = Boolean.parseBoolean(bugPatternNode.valueOf("@experimental"));
 
             // Find the matching element in messages.xml (or translations)
-            String query = "/MessageCollection/BugPattern[@type='" + type + "']";
-            Node messageNode = findMessageNode(messageCollectionList, query, "messages.xml missing BugPattern element for type "
-                    + type);
-            Node bugsUrlNode = messageNode.getDocument().selectSingleNode("/MessageCollection/Plugin/"+(experimental?"AllBugsUrl":"BugsUrl"));
-
-            String bugsUrl = bugsUrlNode == null ? null : bugsUrlNode.getText();
+            Node messageNode = index.find("BugPattern", type, "messages.xml missing BugPattern element for type " + type);
+            String bugsUrl = index.getBugsUrl(messageNode.getDocument(), experimental);
 
             String shortDesc = getChildText(messageNode, "ShortDescription");
             String longDesc = getChildText(messageNode, "LongDescription");
@@ -972,6 +980,11 @@ public class PluginLoader {
         }
 
         // Create BugCodes
+        Map<String, Node> bugCodeNodes = new HashMap<>();
+        List<Node> bugCodeDefinitions = XMLUtil.selectNodes(pluginDescriptor, "/FindbugsPlugin/BugCode");
+        for (Node fbNode : bugCodeDefinitions) {
+            bugCodeNodes.putIfAbsent(fbNode.valueOf("@abbrev"), fbNode);
+        }
         Set<String> definedBugCodes = new HashSet<>();
         for (Document messageCollection : messageCollectionList) {
             List<Node> bugCodeNodeList = XMLUtil.selectNodes(messageCollection, "/MessageCollection/BugCode");
@@ -985,8 +998,7 @@ public class PluginLoader {
                 }
                 String description = bugCodeNode.getText();
 
-                String query = "/FindbugsPlugin/BugCode[@abbrev='" + abbrev + "']";
-                Node fbNode = pluginDescriptor.selectSingleNode(query);
+                Node fbNode = bugCodeNodes.get(abbrev);
                 int cweid = 0;
                 if (fbNode != null) {
                     try {
@@ -1312,6 +1324,70 @@ public class PluginLoader {
         return missingMsg;
     }
 
+    /**
+     * Index of the top level elements of the message documents by their key
+     * attribute, so that the descriptions of hundreds of bug patterns and
+     * detectors can be found without an XPath scan of every document per
+     * pattern. Documents earlier in the list take precedence.
+     */
+    private static class MessageIndex {
+        private final Map<String, Node> nodes = new HashMap<>();
+
+        private final Map<Document, String[]> bugsUrls = new HashMap<>();
+
+        MessageIndex(List<Document> messageCollectionList) {
+            for (Document document : messageCollectionList) {
+                Element root = document.getRootElement();
+                if (root == null) {
+                    continue;
+                }
+                for (Iterator<Element> i = root.elementIterator(); i.hasNext();) {
+                    Element element = i.next();
+                    String keyAttribute = getKeyAttribute(element.getName());
+                    if (keyAttribute != null) {
+                        nodes.putIfAbsent(element.getName() + ':' + element.attributeValue(keyAttribute), element);
+                    }
+                }
+            }
+        }
+
+        private static @CheckForNull String getKeyAttribute(String elementName) {
+            switch (elementName) {
+            case "BugPattern":
+                return "type";
+            case "Detector":
+                return "class";
+            case "PluginComponent":
+                return "id";
+            case "FindBugsMain":
+                return "cmd";
+            default:
+                return null;
+            }
+        }
+
+        Node find(String elementName, String key, String missingMsg) throws PluginException {
+            Node node = nodes.get(elementName + ':' + key);
+            if (node == null) {
+                throw new PluginException(missingMsg);
+            }
+            return node;
+        }
+
+        @CheckForNull
+        String getBugsUrl(Document document, boolean experimental) {
+            String[] urls = bugsUrls.get(document);
+            if (urls == null) {
+                Node bugsUrlNode = document.selectSingleNode("/MessageCollection/Plugin/BugsUrl");
+                Node allBugsUrlNode = document.selectSingleNode("/MessageCollection/Plugin/AllBugsUrl");
+                urls = new String[] { bugsUrlNode == null ? null : bugsUrlNode.getText(),
+                    allBugsUrlNode == null ? null : allBugsUrlNode.getText() };
+                bugsUrls.put(document, urls);
+            }
+            return urls[experimental ? 1 : 0];
+        }
+    }
+
     private static String getChildText(Node node, String childName) throws PluginException {
         Node child = node.selectSingleNode(childName);
         if (child == null) {
@@ -135,6 +135,16 @@ public class TextUICommandLine extends FindBugsCommandLine {
 
     private boolean mergeSimilarWarnings = true;
 
+    private String checkpointFile = null;
+
+    private boolean resume = false;
+
+    private int shardIndex = 0;
+
+    private int shardCount = 0;
+
+    private Boolean shardStateful = null;
+
     private boolean xargs = false;
 
     private boolean scanNestedArchives = true;
@@ -188,6 +198,11 @@ public class TextUICommandLine extends FindBugsCommandLine {
         addOption("-output", "filename", "Save output in named file");
         makeOptionUnlisted("-outputFile");
         addSwitchWithOptionalExtraPart("-nested", "true|false", "analyze nested jar/zip archives (default=true)");
+        addOption("-checkpoint", "filename", "Periodically save the progress of the analysis in named file");
+        addOption("-resume", "filename", "Resume the analysis from the progress saved in named file, and keep saving it");
+        addOption("-shard", "index/count", "Only report bugs in slice index (from 0) of count slices of the classes");
+        addOption("-shardDetectors", "stateful|stateless",
+                "Only run the detectors keeping state across classes, on all the classes, or only the other ones, in the slice");
 
         startOptionGroup("Output filtering options:");
         addOption("-bugCategories", "cat1[,cat2...]", "only report bugs in given categories");
@@ -410,6 +425,24 @@ public class TextUICommandLine extends FindBugsCommandLine {
                 System.err.println("Couldn't open " + outputFile + " for output: " + e.toString());
                 System.exit(1);
             }
+        } else if ("-checkpoint".equals(option) || "-resume".equals(option)) {
+            if (checkpointFile != null) {
+                throw new IllegalArgumentException("checkpoint set twice; to " + checkpointFile + " and to " + argument);
+            }
+            checkpointFile = argument;
+            resume = "-resume".equals(option);
+        } else if ("-shard".equals(option)) {
+            int slash = argument.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("-shard must be index/count, not " + argument);
+            }
+            shardIndex = Integer.parseInt(argument.substring(0, slash));
+            shardCount = Integer.parseInt(argument.substring(slash + 1));
+        } else if ("-shardDetectors".equals(option)) {
+            if (!"stateful".equals(argument) && !"stateless".equals(argument)) {
+                throw new IllegalArgumentException("-shardDetectors must be stateful or stateless, not " + argument);
+            }
+            shardStateful = "stateful".equals(argument);
         } else if ("-bugReporters".equals(option)) {
             for (String s : argument.split(",")) {
                 if (s.charAt(0) == '-') {
@@ -694,6 +727,15 @@ public class TextUICommandLine extends FindBugsCommandLine {
 
         findBugs.setScanNestedArchives(scanNestedArchives);
         findBugs.setNoClassOk(noClassOk);
+        if (checkpointFile != null) {
+            findBugs.setCheckpointFile(checkpointFile, resume);
+        }
+        if (shardCount > 0) {
+            findBugs.setShard(shardIndex, shardCount);
+            if (shardStateful != null) {
+                findBugs.setShardDetectors(shardStateful);
+            }
+        }
 
         findBugs.setBugReporterDecorators(enabledBugReporterDecorators, disabledBugReporterDecorators);
         if (applySuppression) {
@@ -989,6 +989,9 @@ public class AnalysisContext implements AutoCloseable {
                 AnalysisContext.logError("Unable to get XClass for " + appClass, e);
             }
         }
+        if (Subtypes2.PRECOMPUTE) {
+            getSubtypes2().computeSupertypeLabels();
+        }
 
         if (true && Subtypes2.DEBUG) {
             System.out.println(getSubtypes2().getGraph().getNumVertices() + " vertices in inheritance graph");
@@ -20,10 +20,14 @@
 package edu.umd.cs.findbugs.ba;
 
 import java.util.BitSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeSet;
 
@@ -160,6 +164,12 @@ public class CFG extends AbstractGraph<Edge, BasicBlock> implements Debug {
 
     private List<Edge> removedEdgeList;
 
+    /**
+     * Locations of the instructions at each bytecode offset, built when first
+     * needed and dropped when a block is added or removed
+     */
+    private Map<Integer, List<Location>> locationsByOffset;
+
     /*
      * ----------------------------------------------------------------------
      * Public methods
@@ -371,11 +381,8 @@ public class CFG extends AbstractGraph<Edge, BasicBlock> implements Debug {
      */
     public Collection<BasicBlock> getBlocksContainingInstructionWithOffset(int offset) {
         LinkedList<BasicBlock> result = new LinkedList<>();
-        for (Iterator<BasicBlock> i = blockIterator(); i.hasNext();) {
-            BasicBlock block = i.next();
-            if (block.containsInstructionWithOffset(offset)) {
-                result.add(block);
-            }
+        for (Location location : getLocationsContainingInstructionWithOffset(offset)) {
+            result.add(location.getBasicBlock());
         }
         return result;
     }
@@ -389,14 +396,16 @@ public class CFG extends AbstractGraph<Edge, BasicBlock> implements Debug {
      * @return all Locations referring to the instruction at that offset
      */
     public Collection<Location> getLocationsContainingInstructionWithOffset(int offset) {
-        LinkedList<Location> result = new LinkedList<>();
-        for (Iterator<Location> i = locationIterator(); i.hasNext();) {
-            Location location = i.next();
-            if (location.getHandle().getPosition() == offset) {
-                result.add(location);
+        if (locationsByOffset == null) {
+            Map<Integer, List<Location>> index = new HashMap<>();
+            for (Iterator<Location> i = locationIterator(); i.hasNext();) {
+                Location location = i.next();
+                index.computeIfAbsent(location.getHandle().getPosition(), k -> new ArrayList<>(1)).add(location);
             }
+            locationsByOffset = index;
         }
-        return result;
+        List<Location> result = locationsByOffset.get(offset);
+        return result != null ? Collections.unmodifiableList(result) : Collections.<Location> emptyList();
     }
 
     /**
@@ -525,6 +534,18 @@ public class CFG extends AbstractGraph<Edge, BasicBlock> implements Debug {
         return b;
     }
 
+    @Override
+    public void addVertex(BasicBlock v) {
+        super.addVertex(v);
+        locationsByOffset = null;
+    }
+
+    @Override
+    public void removeVertex(BasicBlock v) {
+        super.removeVertex(v);
+        locationsByOffset = null;
+    }
+
     /**
      * Get number of basic blocks. This is just here for compatibility with the
      * old CFG method names.
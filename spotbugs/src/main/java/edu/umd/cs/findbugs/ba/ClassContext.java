@@ -175,6 +175,17 @@ public class ClassContext {
         methodAnalysisObjectMap.clear();
     }
 
+    /**
+     * Purge the method analyses of all methods, except the given kinds of
+     * analyses.
+     *
+     * @param analysisClassesToKeep
+     *            classes of the method analysis objects to keep
+     */
+    public void purgeAllMethodAnalysesExcept(Set<Class<?>> analysisClassesToKeep) {
+        methodAnalysisObjectMap.keySet().retainAll(analysisClassesToKeep);
+    }
+
     /**
      * Purge all CFG-based method analyses for given method.
      *
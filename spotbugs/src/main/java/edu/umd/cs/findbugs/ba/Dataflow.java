@@ -20,8 +20,13 @@
 package edu.umd.cs.findbugs.ba;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
 import org.apache.bcel.generic.InstructionHandle;
@@ -31,9 +36,11 @@ import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.deref.UnconditionalValueDerefAnalysis;
 import edu.umd.cs.findbugs.ba.deref.UnconditionalValueDerefDataflow;
 import edu.umd.cs.findbugs.ba.deref.UnconditionalValueDerefSet;
+import edu.umd.cs.findbugs.ba.npe.IsNullValueAnalysis;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
 
 /**
  * Perform dataflow analysis on a method using a control flow graph. Both
@@ -63,8 +70,19 @@ public class Dataflow<Fact, AnalysisType extends DataflowAnalysis<Fact>> {
 
     private int numIterations;
 
+    private int numBlockVisits;
+
     public static boolean DEBUG = SystemProperties.getBoolean("dataflow.debug");
 
+    /**
+     * Property to solve with a worklist of the blocks whose logical
+     * predecessors changed, instead of sweeping over all blocks until nothing
+     * changes. Off by default: the value numbering may reach another fixpoint
+     * than with the sweeps. Read on each run, so that the tests can compare
+     * both.
+     */
+    static final String WORKLIST_PROPERTY = "dataflow.worklist";
+
     /**
      * Constructor.
      *
@@ -103,6 +121,14 @@ public class Dataflow<Fact, AnalysisType extends DataflowAnalysis<Fact>> {
     // Maximum number of iterations before we assume there is a bug and give up.
     private static final int MAX_ITERS = SystemProperties.getInt("dataflow.maxiters", 97);
 
+    /**
+     * @return the number of iterations after which the dataflow of a method
+     *         is reported as not converging (dataflow.maxiters)
+     */
+    public static int getMaxIterations() {
+        return MAX_ITERS;
+    }
+
     private String getFullyQualifiedMethodName() {
         String methodName;
         MethodGen methodGen = cfg.getMethodGen();
@@ -140,6 +166,124 @@ public class Dataflow<Fact, AnalysisType extends DataflowAnalysis<Fact>> {
      * points of each block.
      */
     public void execute() throws DataflowAnalysisException {
+        if (!DEBUG && SystemProperties.getBoolean(WORKLIST_PROPERTY, false) && supportsWorklist()) {
+            executeWorklist();
+        } else {
+            executeSweeps();
+        }
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        if (analysisCache != null) {
+            analysisCache.getProfiler().countDataflow(analysis.getClass(), numIterations, numBlockVisits);
+        }
+    }
+
+    /**
+     * The null value analysis collects the locations where values become null
+     * during the last iteration, and the unconditional deref analysis treats
+     * facts of back edges specially: both depend on every iteration visiting
+     * the blocks the way the sweeps do.
+     */
+    private boolean supportsWorklist() {
+        return !(analysis instanceof IsNullValueAnalysis) && !(analysis instanceof UnconditionalValueDerefAnalysis);
+    }
+
+    /**
+     * Iterate over the blocks in the order of the analysis (reverse postorder
+     * for forward analyses), visiting only the blocks with a logical
+     * predecessor whose result changed. A block reached through a forward
+     * edge is visited later in the same iteration, a block reached through a
+     * back edge in the next iteration, so that iterations match the sweeps of
+     * {@link #executeSweeps()} without the blocks that could not change.
+     * <p>
+     * Unlike the sweeps, the blocks are always visited in the order of the
+     * analysis: the sweeps switch to backward program order every other
+     * iteration after the third one. The fixpoint of a monotone analysis does
+     * not depend on the visiting order, but an analysis numbering its values
+     * in visiting order, such as {@link edu.umd.cs.findbugs.ba.vna.ValueNumberAnalysis},
+     * may number them differently, so only the reported bugs are expected to
+     * be the same.
+     */
+    private void executeWorklist() throws DataflowAnalysisException {
+        List<BasicBlock> blocks = new ArrayList<>();
+        Map<BasicBlock, Integer> rank = new HashMap<>();
+        Iterator<BasicBlock> i = blockOrder.blockIterator();
+        while (i.hasNext()) {
+            BasicBlock block = i.next();
+            rank.put(block, blocks.size());
+            blocks.add(block);
+        }
+
+        BitSet worklist = new BitSet(blocks.size());
+        worklist.set(0, blocks.size());
+        int timestamp = 0;
+        while (!worklist.isEmpty()) {
+            ++numIterations;
+            if (numIterations == MAX_ITERS + 1) {
+                reportAnalysis("Too many iterations");
+            }
+            if (numIterations >= MAX_ITERS + 9) {
+                throw new DataflowAnalysisException("Too many iterations (" + numIterations + ") in dataflow when analyzing "
+                        + getFullyQualifiedMethodName());
+            }
+
+            analysis.startIteration();
+            for (int r = worklist.nextSetBit(0); r >= 0; r = worklist.nextSetBit(r + 1)) {
+                worklist.clear(r);
+                BasicBlock block = blocks.get(r);
+                ++numBlockVisits;
+
+                Fact start = analysis.getStartFact(block);
+                Fact result = analysis.getResultFact(block);
+                int originalResultTimestamp = analysis.getLastUpdateTimestamp(result);
+
+                analysis.makeFactTop(start);
+                if (block == logicalEntryBlock()) {
+                    analysis.initEntryFact(start);
+                } else {
+                    Iterator<Edge> predEdgeIter = logicalPredecessorEdgeIterator(block);
+                    while (predEdgeIter.hasNext()) {
+                        Edge edge = predEdgeIter.next();
+                        BasicBlock logicalPred = isForwards ? edge.getSource() : edge.getTarget();
+                        Fact edgeFact = analysis.createFact();
+                        analysis.copy(analysis.getResultFact(logicalPred), edgeFact);
+                        analysis.edgeTransfer(edge, edgeFact);
+                        analysis.meetInto(edgeFact, edge, start);
+                        analysis.setLastUpdateTimestamp(start, timestamp);
+                    }
+                }
+
+                boolean resultWasTop = analysis.isTop(result);
+                Fact origResult = null;
+                if (!resultWasTop) {
+                    origResult = analysis.createFact();
+                    analysis.copy(result, origResult);
+                }
+                analysis.transfer(block, null, start, result);
+
+                boolean thisResultChanged = resultWasTop ? !analysis.isTop(result) : !analysis.same(result, origResult);
+                if (!thisResultChanged) {
+                    analysis.setLastUpdateTimestamp(result, originalResultTimestamp);
+                    continue;
+                }
+                timestamp++;
+                analysis.setLastUpdateTimestamp(result, timestamp);
+                Iterator<Edge> succEdgeIter = logicalSuccessorEdgeIterator(block);
+                while (succEdgeIter.hasNext()) {
+                    Edge edge = succEdgeIter.next();
+                    Integer succRank = rank.get(isForwards ? edge.getTarget() : edge.getSource());
+                    if (succRank != null) {
+                        worklist.set(succRank.intValue());
+                    }
+                }
+            }
+            analysis.finishIteration();
+        }
+    }
+
+    /**
+     * Sweep over all the blocks until no result changes.
+     */
+    private void executeSweeps() throws DataflowAnalysisException {
         boolean change;
         boolean debugWas = DEBUG;
         if (DEBUG) {
@@ -376,6 +520,7 @@ public class Dataflow<Fact, AnalysisType extends DataflowAnalysis<Fact>> {
                 // Apply the transfer function.
 
                 analysis.transfer(block, null, start, result);
+                ++numBlockVisits;
                 //                } else {
                 //                    analysis.copy(start, result);
                 //                }
@@ -475,6 +620,14 @@ public class Dataflow<Fact, AnalysisType extends DataflowAnalysis<Fact>> {
         return numIterations;
     }
 
+    /**
+     * Return the number of times the transfer function was applied to a
+     * block.
+     */
+    public int getNumBlockVisits() {
+        return numBlockVisits;
+    }
+
     /**
      * Get dataflow facts for start of given block.
      */
@@ -552,6 +705,15 @@ public class Dataflow<Fact, AnalysisType extends DataflowAnalysis<Fact>> {
         return isForwards ? cfg.incomingEdgeIterator(block) : cfg.outgoingEdgeIterator(block);
     }
 
+    /**
+     * Return an Iterator over edges that connect given block to its logical
+     * successors. For forward analyses, this is the outgoing edges. For
+     * backward analyses, this is the incoming edges.
+     */
+    private Iterator<Edge> logicalSuccessorEdgeIterator(BasicBlock block) {
+        return isForwards ? cfg.outgoingEdgeIterator(block) : cfg.incomingEdgeIterator(block);
+    }
+
     /**
      * Get the "logical" entry block of the CFG. For forward analyses, this is
      * the entry block. For backward analyses, this is the exit block.
@@ -193,6 +193,33 @@ public class FieldSummary {
         }
     }
 
+    /**
+     * Merge the facts collected by another summary, e.g. by a shard of a
+     * parallel first pass, into this one.
+     *
+     * @param other
+     *            summary covering a disjoint set of analyzed classes
+     */
+    public void merge(FieldSummary other) {
+        writtenOutsideOfConstructor.addAll(other.writtenOutsideOfConstructor);
+        for (Map.Entry<XField, OpcodeStack.Item> entry : other.summary.entrySet()) {
+            OpcodeStack.Item oldSummary = summary.get(entry.getKey());
+            if (oldSummary != null) {
+                Item newValue = OpcodeStack.Item.merge(entry.getValue(), oldSummary);
+                newValue.clearNewlyAllocated();
+                summary.put(entry.getKey(), newValue);
+            } else {
+                summary.put(entry.getKey(), entry.getValue());
+            }
+        }
+        fieldsWritten.putAll(other.fieldsWritten);
+        nonVoidSuperConstructorsCalled.putAll(other.nonVoidSuperConstructorsCalled);
+        for (Map.Entry<XMethod, Set<ProgramPoint>> entry : other.selfMethodsCalledFromConstructor.entrySet()) {
+            selfMethodsCalledFromConstructor.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+        }
+        callsOverriddenMethodsFromConstructor.addAll(other.callsOverriddenMethodsFromConstructor);
+    }
+
     /**
      * @param complete
      *            The complete to set.
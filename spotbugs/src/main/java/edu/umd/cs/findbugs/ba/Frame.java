@@ -21,10 +21,12 @@ package edu.umd.cs.findbugs.ba;
 
 import static edu.umd.cs.findbugs.ba.Debug.VERIFY_INTEGRITY;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import com.h3xstream.findsecbugs.taintanalysis.Taint;
 import org.apache.bcel.Const;
@@ -77,8 +79,19 @@ public abstract class Frame<ValueType> {
 
     /**
      * Array storing the values of local variables and operand stack slots.
+     * Only the first numSlots elements are used, the others are null.
      */
-    private ArrayList<ValueType> slotList;
+    private Object[] slots;
+
+    /**
+     * Number of local variable and operand stack slots in use.
+     */
+    private int numSlots;
+
+    /**
+     * List view of the slots in use.
+     */
+    private final List<ValueType> slotList = new SlotList();
 
     /**
      * Flag marking this frame as a special "TOP" value. Such Frames serve as
@@ -111,12 +124,41 @@ public abstract class Frame<ValueType> {
      */
     public Frame(int numLocals) {
         this.numLocals = numLocals;
-        this.slotList = new ArrayList<>(numLocals + DEFAULT_STACK_CAPACITY);
-        for (int i = 0; i < numLocals; ++i) {
-            slotList.add(null);
+        this.slots = new Object[numLocals + DEFAULT_STACK_CAPACITY];
+        this.numSlots = numLocals;
+    }
+
+    private final class SlotList extends AbstractList<ValueType> {
+        @Override
+        public ValueType get(int index) {
+            return slot(checkSlotIndex(index));
+        }
+
+        @Override
+        public ValueType set(int index, ValueType value) {
+            ValueType old = slot(checkSlotIndex(index));
+            slots[index] = value;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return numSlots;
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private ValueType slot(int n) {
+        return (ValueType) slots[n];
+    }
+
+    private int checkSlotIndex(int n) {
+        if (n < 0 || n >= numSlots) {
+            throw new IndexOutOfBoundsException("slot " + n + " of " + numSlots);
+        }
+        return n;
+    }
+
     /**
      * Return whether or not this object the special "TOP" value for Frames.
      * Such Frames are the identity element of the meet operation.
@@ -125,7 +167,11 @@ public abstract class Frame<ValueType> {
         return isTop;
     }
 
-    public ArrayList<ValueType> getSlotList(){
+    /**
+     * @return a view of the local variable and operand stack slots, whose
+     *         values can be replaced but not added or removed
+     */
+    public List<ValueType> getSlotList(){
         return slotList;
     }
     /**
@@ -182,7 +228,10 @@ public abstract class Frame<ValueType> {
         if (!isValid()) {
             throw new IllegalStateException("accessing top or bottom frame");
         }
-        slotList.add(value);
+        if (numSlots == slots.length) {
+            slots = Arrays.copyOf(slots, numSlots + DEFAULT_STACK_CAPACITY);
+        }
+        slots[numSlots++] = value;
     }
 
     /**
@@ -196,10 +245,12 @@ public abstract class Frame<ValueType> {
         if (!isValid()) {
             throw new DataflowAnalysisException("accessing top or bottom frame");
         }
-        if (slotList.size() == numLocals) {
+        if (numSlots == numLocals) {
             throw new DataflowAnalysisException("operand stack empty");
         }
-        return slotList.remove(slotList.size() - 1);
+        ValueType value = slot(--numSlots);
+        slots[numSlots] = null;
+        return value;
     }
 
     /**
@@ -212,11 +263,11 @@ public abstract class Frame<ValueType> {
         if (!isValid()) {
             throw new DataflowAnalysisException("accessing top or bottom frame");
         }
-        assert slotList.size() >= numLocals;
-        if (slotList.size() == numLocals) {
+        assert numSlots >= numLocals;
+        if (numSlots == numLocals) {
             throw new DataflowAnalysisException("operand stack is empty");
         }
-        return slotList.get(slotList.size() - 1);
+        return slot(numSlots - 1);
     }
 
     /**
@@ -229,10 +280,7 @@ public abstract class Frame<ValueType> {
         if (valueList.length > stackDepth) {
             throw new DataflowAnalysisException("not enough values on stack");
         }
-        int numSlots = slotList.size();
-        for (int i = numSlots - valueList.length, j = 0; i < numSlots; ++i, ++j) {
-            valueList[j] = slotList.get(i);
-        }
+        System.arraycopy(slots, numSlots - valueList.length, valueList, 0, valueList.length);
     }
 
     /**
@@ -253,8 +301,8 @@ public abstract class Frame<ValueType> {
         if (loc < 0) {
             throw new DataflowAnalysisException("can't get position " + loc + " of stack");
         }
-        int pos = slotList.size() - (loc + 1);
-        return slotList.get(pos);
+        int pos = numSlots - (loc + 1);
+        return slot(pos);
     }
 
     /**
@@ -269,7 +317,7 @@ public abstract class Frame<ValueType> {
         if (loc >= stackDepth) {
             throw new DataflowAnalysisException("not enough values on stack: access=" + loc + ", avail=" + stackDepth);
         }
-        return slotList.size() - (loc + 1);
+        return numSlots - (loc + 1);
     }
 
     /**
@@ -431,7 +479,7 @@ public abstract class Frame<ValueType> {
             throw new IllegalArgumentException();
         }
 
-        return (slotList.size() - numArguments) + i;
+        return (numSlots - numArguments) + i;
     }
 
     /**
@@ -492,9 +540,10 @@ public abstract class Frame<ValueType> {
         if (!isValid()) {
             throw new IllegalStateException("accessing top or bottom frame");
         }
-        assert slotList.size() >= numLocals;
-        if (slotList.size() > numLocals) {
-            slotList.subList(numLocals, slotList.size()).clear();
+        assert numSlots >= numLocals;
+        if (numSlots > numLocals) {
+            Arrays.fill(slots, numLocals, numSlots, null);
+            numSlots = numLocals;
         }
     }
 
@@ -502,7 +551,7 @@ public abstract class Frame<ValueType> {
      * Get the depth of the Java operand stack.
      */
     public int getStackDepth() {
-        return slotList.size() - numLocals;
+        return numSlots - numLocals;
     }
 
     /**
@@ -516,15 +565,15 @@ public abstract class Frame<ValueType> {
      * Get the number of slots (locals plus stack values).
      */
     public int getNumSlots() {
-        return slotList.size();
+        return numSlots;
     }
 
     public boolean contains(ValueType value) {
         if (!isValid()) {
             throw new IllegalStateException("accessing top or bottom frame");
         }
-        for (ValueType v : slotList) {
-            if (v.equals(value)) {
+        for (int i = 0; i < numSlots; ++i) {
+            if (slots[i].equals(value)) {
                 return true;
             }
         }
@@ -542,7 +591,7 @@ public abstract class Frame<ValueType> {
         if (!isValid()) {
             throw new IllegalStateException("accessing top or bottom frame");
         }
-        return slotList.get(n);
+        return slot(checkSlotIndex(n));
     }
 
     /**
@@ -560,7 +609,7 @@ public abstract class Frame<ValueType> {
         if (!isValid()) {
             throw new IllegalStateException("accessing top or bottom frame");
         }
-        slotList.set(n, value);
+        slots[checkSlotIndex(n)] = value;
     }
 
     /**
@@ -592,8 +641,10 @@ public abstract class Frame<ValueType> {
             return false;
         }
 
-        for (int i = 0; i < getNumSlots(); ++i) {
-            if (!getValue(i).equals(other.getValue(i))) {
+        Object[] otherSlots = other.slots;
+        for (int i = 0; i < numSlots; ++i) {
+            // values are often shared between frames
+            if (slots[i] != otherSlots[i] && !slots[i].equals(otherSlots[i])) {
                 return false;
             }
         }
@@ -609,7 +660,13 @@ public abstract class Frame<ValueType> {
      */
     public void copyFrom(Frame<ValueType> other) {
         lastUpdateTimestamp = other.lastUpdateTimestamp;
-        slotList = new ArrayList<>(other.slotList);
+        if (slots.length < other.numSlots) {
+            slots = new Object[other.slots.length];
+        } else if (numSlots > other.numSlots) {
+            Arrays.fill(slots, other.numSlots, numSlots, null);
+        }
+        System.arraycopy(other.slots, 0, slots, 0, other.numSlots);
+        numSlots = other.numSlots;
         isTop = other.isTop;
         isBottom = other.isBottom;
     }
@@ -669,9 +726,6 @@ public abstract class Frame<ValueType> {
      *         stack slots
      */
     public Collection<ValueType> allSlots() {
-        if (slotList == null) {
-            return Collections.<ValueType> emptyList();
-        }
         return Collections.<ValueType> unmodifiableCollection(slotList);
     }
 
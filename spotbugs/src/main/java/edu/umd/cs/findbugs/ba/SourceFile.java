@@ -21,12 +21,19 @@ package edu.umd.cs.findbugs.ba;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import edu.umd.cs.findbugs.SystemProperties;
 
 /**
  * Cached data for a source file. Contains a map of line numbers to byte
  * offsets, for quick searching of source lines.
+ * <p>
+ * The data of large files is not kept on the heap: only their line number map
+ * is, and the data is read again from the data source when needed.
  *
  * @author David Hovemeyer
  * @see SourceFinder
@@ -91,10 +98,82 @@ public class SourceFile {
 
     private static final int DEFAULT_SIZE = 100;
 
+    /**
+     * Files larger than this are not kept on the heap, but read again from
+     * their data source whenever a stream is requested
+     */
+    private static final int MAX_HEAP_DATA = SystemProperties.getInt("findbugs.sourceFile.maxHeapKB", 256) * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Input stream reading a file in the file system chunk by chunk, starting
+     * at a given offset. The file is only open while a chunk is read, so
+     * streams which are never closed don't leak file handles or lock the
+     * file.
+     */
+    private static class FileChunkInputStream extends InputStream {
+        private final File file;
+
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+
+        /** offset of the chunk in the file */
+        private long chunkOffset;
+
+        private int chunkLength;
+
+        private int position;
+
+        FileChunkInputStream(File file, long offset) {
+            this.file = file;
+            this.chunkOffset = offset;
+        }
+
+        private boolean fill() throws IOException {
+            if (position < chunkLength) {
+                return true;
+            }
+            chunkOffset += chunkLength;
+            chunkLength = 0;
+            position = 0;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(chunkOffset);
+                int n = raf.read(chunk);
+                if (n <= 0) {
+                    return false;
+                }
+                chunkLength = n;
+                return true;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? intValueOf(chunk[position++]) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, chunkLength - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+
     private final SourceFileDataSource dataSource;
 
     private byte[] data;
 
+    /** true if the data was too large to be kept on the heap */
+    private boolean streamed;
+
     private int[] lineNumberMap;
 
     private int numLines;
@@ -126,8 +205,7 @@ public class SourceFile {
      *         given offset
      */
     public InputStream getInputStream() throws IOException {
-        loadFileData();
-        return new ByteArrayInputStream(data);
+        return getInputStreamFromOffset(0);
     }
 
     /**
@@ -140,7 +218,25 @@ public class SourceFile {
      */
     public InputStream getInputStreamFromOffset(int offset) throws IOException {
         loadFileData();
-        return new ByteArrayInputStream(data, offset, data.length - offset);
+        if (!streamed) {
+            return new ByteArrayInputStream(data, offset, data.length - offset);
+        }
+        if (dataSource instanceof FileSourceFileDataSource) {
+            return new FileChunkInputStream(new File(dataSource.getFullFileName()), offset);
+        }
+        InputStream in = dataSource.open();
+        long remaining = offset;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        return in;
     }
 
     /**
@@ -186,27 +282,36 @@ public class SourceFile {
     }
 
     private synchronized void loadFileData() throws IOException {
-        if (data != null) {
+        if (data != null || streamed) {
             return;
         }
-    
+
         try (InputStream in = dataSource.open()) {
             ByteArrayOutputStream out = new ByteArrayOutputStream();
-        
+
             addLineOffset(0); // Line 0 starts at offset 0
             LineNumberMapBuilder mapBuilder = new LineNumberMapBuilder(this);
-        
-            // Copy all of the data from the file into the byte array output
-            // stream
-            byte[] buf = new byte[1024];
+
+            // Copy the data from the file into the byte array output stream,
+            // unless it's too large: then only the line number map is built
+            byte[] buf = new byte[CHUNK_SIZE];
             int n;
             while ((n = in.read(buf)) >= 0) {
                 mapBuilder.addData(buf, n);
-                out.write(buf, 0, n);
+                if (out != null) {
+                    out.write(buf, 0, n);
+                    if (out.size() > MAX_HEAP_DATA) {
+                        out = null;
+                    }
+                }
             }
             mapBuilder.eof();
-        
-            setData(out.toByteArray());
+
+            if (out != null) {
+                setData(out.toByteArray());
+            } else {
+                streamed = true;
+            }
         }
 
     }
@@ -221,6 +326,17 @@ public class SourceFile {
         this.data = data;
     }
 
+    /**
+     * @return number of bytes this source file occupies on the heap
+     */
+    synchronized long getHeapSize() {
+        long size = 4L * lineNumberMap.length;
+        if (data != null) {
+            size += data.length;
+        }
+        return size;
+    }
+
     public long getLastModified() {
         return dataSource.getLastModified();
     }
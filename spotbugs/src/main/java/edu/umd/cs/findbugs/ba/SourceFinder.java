@@ -31,6 +31,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -61,6 +62,11 @@ public class SourceFinder implements AutoCloseable {
 
     private static final int CACHE_SIZE = 50;
 
+    /**
+     * Maximum number of bytes the cached source files may occupy on the heap
+     */
+    private static final long CACHE_HEAP_SIZE = SystemProperties.getInt("findbugs.sourceFinder.cacheKB", 16 * 1024) * 1024L;
+
     /*
      * ----------------------------------------------------------------------
      * Helper classes
@@ -69,7 +75,9 @@ public class SourceFinder implements AutoCloseable {
 
     /**
      * Cache of SourceFiles. We use this to avoid repeatedly having to read
-     * frequently accessed source files.
+     * frequently accessed source files. The cache holds at most CACHE_SIZE
+     * files, and drops the least recently used files while the others occupy
+     * more than CACHE_HEAP_SIZE bytes on the heap.
      */
     private static class Cache extends LinkedHashMap<String, SourceFile> {
         /**
@@ -77,10 +85,30 @@ public class SourceFinder implements AutoCloseable {
          */
         private static final long serialVersionUID = 1L;
 
+        Cache() {
+            super(16, 0.75f, true);
+        }
+
         @Override
         protected boolean removeEldestEntry(Map.Entry<String, SourceFile> eldest) {
             return size() >= CACHE_SIZE;
         }
+
+        /**
+         * Drop least recently used files until the files loaded so far fit
+         * into the heap budget. The most recently used file is always kept.
+         */
+        void trim() {
+            long heapSize = 0;
+            for (SourceFile sourceFile : values()) {
+                heapSize += sourceFile.getHeapSize();
+            }
+            Iterator<SourceFile> i = values().iterator();
+            while (heapSize > CACHE_HEAP_SIZE && size() > 1) {
+                heapSize -= i.next().getHeapSize();
+                i.remove();
+            }
+        }
     }
 
     /**
@@ -484,6 +512,7 @@ public class SourceFinder implements AutoCloseable {
 
         // Is the file in the cache already? Always cache it with the canonical
         // name
+        cache.trim();
         SourceFile sourceFile = cache.get(canonicalName);
         if (sourceFile != null) {
             return sourceFile;
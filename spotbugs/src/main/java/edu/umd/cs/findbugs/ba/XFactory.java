@@ -20,11 +20,10 @@
 package edu.umd.cs.findbugs.ba;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -73,19 +72,22 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 public class XFactory {
     public static final boolean DEBUG_UNRESOLVED = SystemProperties.getBoolean("findbugs.xfactory.debugunresolved");
 
-    private final Set<ClassDescriptor> reflectiveClasses = new HashSet<>();
+    // All concurrent, because shards of a parallel first pass resolve methods
+    // and fields from several threads (see ParallelFirstPassDetector). Each
+    // descriptor must resolve to the same XMethod or XField on every thread.
+    private final Set<ClassDescriptor> reflectiveClasses = ConcurrentHashMap.newKeySet();
 
-    private final Map<MethodDescriptor, XMethod> methods = new HashMap<>();
+    private final Map<MethodDescriptor, XMethod> methods = new ConcurrentHashMap<>();
 
-    private final Map<FieldDescriptor, XField> fields = new HashMap<>();
+    private final Map<FieldDescriptor, XField> fields = new ConcurrentHashMap<>();
 
-    private final Set<XMethod> calledMethods = new HashSet<>();
+    private final Set<XMethod> calledMethods = ConcurrentHashMap.newKeySet();
 
-    private final Set<XField> emptyArrays = new HashSet<>();
+    private final Set<XField> emptyArrays = ConcurrentHashMap.newKeySet();
 
-    private final Set<String> calledMethodSignatures = new HashSet<>();
+    private final Set<String> calledMethodSignatures = ConcurrentHashMap.newKeySet();
 
-    private final Set<MethodDescriptor> functionsThatMightBeMistakenForProcedures = new HashSet<>();
+    private final Set<MethodDescriptor> functionsThatMightBeMistakenForProcedures = ConcurrentHashMap.newKeySet();
 
     public void canonicalizeAll() {
         DescriptorFactory descriptorFactory = DescriptorFactory.instance();
@@ -332,13 +334,16 @@ public class XFactory {
             return m;
         }
         m = xFactory.resolveXMethod(desc);
+        XMethod existing;
         if (m instanceof MethodDescriptor) {
-            xFactory.methods.put((MethodDescriptor) m, m);
-            DescriptorFactory.instance().canonicalize((MethodDescriptor) m);
+            existing = xFactory.methods.putIfAbsent((MethodDescriptor) m, m);
+            if (existing == null || existing == m) {
+                DescriptorFactory.instance().canonicalize((MethodDescriptor) m);
+            }
         } else {
-            xFactory.methods.put(desc, m);
+            existing = xFactory.methods.putIfAbsent(desc, m);
         }
-        return m;
+        return existing != null ? existing : m;
     }
 
     public static void profile() {
@@ -562,8 +567,8 @@ public class XFactory {
             return m;
         }
         m = xFactory.resolveXField(desc);
-        xFactory.fields.put(desc, m);
-        return m;
+        XField existing = xFactory.fields.putIfAbsent(desc, m);
+        return existing != null ? existing : m;
     }
 
     private XField resolveXField(FieldDescriptor originalDescriptor) {
@@ -48,6 +48,10 @@ class ClassVertex extends AbstractVertex<InheritanceEdge, ClassVertex> {
 
     private ClassVertex directSuperclass;
 
+    private int[] supertypeLabels;
+
+    private boolean missingSupertypes;
+
     @Override
     public String toString() {
         return classDescriptor.toString();
@@ -194,6 +198,35 @@ class ClassVertex extends AbstractVertex<InheritanceEdge, ClassVertex> {
         return directSuperclass;
     }
 
+    /**
+     * Set the labels of the transitive supertypes of the class.
+     *
+     * @param supertypeLabels
+     *            sorted labels of the supertype vertices, including this one
+     * @param missingSupertypes
+     *            true if some of the supertypes are missing classes
+     */
+    void setSupertypeLabels(int[] supertypeLabels, boolean missingSupertypes) {
+        this.supertypeLabels = supertypeLabels;
+        this.missingSupertypes = missingSupertypes;
+    }
+
+    /**
+     * @return sorted labels of the transitive supertype vertices, including
+     *         this one, or null if they have not been computed
+     */
+    @CheckForNull
+    int[] getSupertypeLabels() {
+        return supertypeLabels;
+    }
+
+    /**
+     * @return true if some of the transitive supertypes are missing classes
+     */
+    boolean hasMissingSupertypes() {
+        return missingSupertypes;
+    }
+
     private void setFlag(int flag, boolean enable) {
         if (enable) {
             flags |= flag;
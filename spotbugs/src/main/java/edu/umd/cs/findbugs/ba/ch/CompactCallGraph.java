@@ -0,0 +1,643 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba.ch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.Opcodes;
+
+import edu.umd.cs.findbugs.SystemProperties;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import edu.umd.cs.findbugs.classfile.analysis.MethodInfo;
+import edu.umd.cs.findbugs.classfile.analysis.MethodInfo.CalledMethods;
+
+/**
+ * Call graph of the concrete methods of the application classes, stored in
+ * compressed sparse row form.
+ * <p>
+ * Each method is identified by an int id, in the order of the application
+ * classes and of their methods. The callees of method <code>m</code> are
+ * <code>callees[calleeOffsets[m]]</code> to
+ * <code>callees[calleeOffsets[m + 1] - 1]</code>, in the order of their first
+ * call in the bytecode, and the callers are stored the same way. A call is
+ * resolved to the method of the referenced class or of its nearest application
+ * super class declaring it; calls to methods not implemented by the
+ * application are dropped. The graph is also decomposed into its strongly
+ * connected components, numbered in reverse topological order: every
+ * component comes after all the components it calls.
+ * </p>
+ * <p>
+ * Virtual and interface calls may also execute the methods overriding the
+ * resolved method in application subclasses, or the application
+ * implementations of an interface or abstract method, also of a library one
+ * such as {@link Runnable#run()}. These dispatch edges are stored
+ * apart, in the same form, and are not part of the components.
+ * </p>
+ * <p>
+ * The calls are the ones recorded in the {@link MethodInfo} of the application
+ * methods when their classes were parsed, the class files are not read again.
+ * The database is created empty, and {@link #build(IAnalysisCache, Collection)}
+ * fills it once, when a consumer first needs it. It is not modified
+ * afterwards, so it can be read from several threads.
+ * </p>
+ *
+ * @see InterproceduralCallGraph
+ */
+public class CompactCallGraph {
+
+    private static final boolean DEBUG = SystemProperties.getBoolean("callgraph.compact.debug");
+
+    private static final int[] NO_IDS = new int[0];
+
+    private volatile boolean built;
+
+    private MethodDescriptor[] methods = new MethodDescriptor[0];
+
+    /** full method name (slashed class name + "." + name + signature) -&gt; id */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private int[] calleeOffsets = { 0 };
+
+    private int[] callees = NO_IDS;
+
+    private int[] callerOffsets = { 0 };
+
+    private int[] callers = NO_IDS;
+
+    private int[] dispatchCalleeOffsets = { 0 };
+
+    private int[] dispatchCallees = NO_IDS;
+
+    private int[] dispatchCallerOffsets = { 0 };
+
+    private int[] dispatchCallers = NO_IDS;
+
+    /** method id -&gt; component */
+    private int[] componentOf = NO_IDS;
+
+    private int[] componentOffsets = { 0 };
+
+    private int[] componentMembers = NO_IDS;
+
+    /**
+     * Build the call graph of the given application classes. Does nothing if
+     * the graph has already been built.
+     *
+     * @param analysisCache
+     *            the analysis cache
+     * @param appClasses
+     *            the application classes
+     */
+    public synchronized void build(IAnalysisCache analysisCache, Collection<ClassDescriptor> appClasses) {
+        if (built) {
+            return;
+        }
+        Map<String, String> superClasses = new HashMap<>();
+        List<MethodDescriptor> methodList = new ArrayList<>();
+        for (ClassDescriptor classDescriptor : appClasses) {
+            XClass xclass;
+            try {
+                xclass = analysisCache.getClassAnalysis(XClass.class, classDescriptor);
+            } catch (CheckedAnalysisException e) {
+                continue; // reported when the detectors visit the class
+            }
+            String className = classDescriptor.getClassName();
+            ClassDescriptor superclass = xclass.getSuperclassDescriptor();
+            if (superclass != null) {
+                superClasses.put(className, superclass.getClassName());
+            }
+            for (XMethod xmethod : xclass.getXMethods()) {
+                if (xmethod.isAbstract() || xmethod.isNative()) {
+                    continue;
+                }
+                String fullMethodName = getFullMethodName(className, xmethod.getName(), xmethod.getSignature());
+                if (ids.containsKey(fullMethodName)) {
+                    continue;
+                }
+                ids.put(fullMethodName, methodList.size());
+                methodList.add(DescriptorFactory.instance().getMethodDescriptor(className, xmethod.getName(),
+                        xmethod.getSignature(), xmethod.isStatic()));
+            }
+        }
+        methods = methodList.toArray(new MethodDescriptor[methodList.size()]);
+
+        EdgeCollector collector = new EdgeCollector(superClasses, getOverridableMethods());
+        for (ClassDescriptor classDescriptor : appClasses) {
+            XClass xclass;
+            try {
+                xclass = analysisCache.getClassAnalysis(XClass.class, classDescriptor);
+            } catch (CheckedAnalysisException e) {
+                continue;
+            }
+            for (XMethod xmethod : xclass.getXMethods()) {
+                if (xmethod instanceof MethodInfo) {
+                    collector.collect((MethodInfo) xmethod);
+                }
+            }
+        }
+        buildAdjacency(collector.sources, collector.targets, collector.numEdges);
+        buildDispatchAdjacency(collector);
+        buildComponents();
+        built = true;
+
+        if (DEBUG) {
+            System.out.println("Compact call graph: " + methods.length + " methods, " + callees.length + " calls, "
+                    + dispatchCallees.length + " dispatch calls, " + getNumComponents() + " components");
+        }
+    }
+
+    /**
+     * @return true if the graph has been built
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * @return the number of methods in the graph
+     */
+    public int getNumMethods() {
+        return methods.length;
+    }
+
+    /**
+     * @return the number of distinct caller-callee pairs in the graph
+     */
+    public int getNumCalls() {
+        return callees.length;
+    }
+
+    /**
+     * Look up the id of a method.
+     *
+     * @param method
+     *            the method
+     * @return the id of the method, or -1 if the method is not in the graph
+     */
+    public int getId(MethodDescriptor method) {
+        Integer id = ids.get(getFullMethodName(method.getSlashedClassName(), method.getName(), method.getSignature()));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the method with the given id
+     */
+    public MethodDescriptor getMethod(int id) {
+        return methods[id];
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the number of methods called by the method
+     */
+    public int getNumCallees(int id) {
+        return calleeOffsets[id + 1] - calleeOffsets[id];
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @param i
+     *            index of the callee, between 0 and
+     *            <code>getNumCallees(id) - 1</code>
+     * @return the id of the callee
+     */
+    public int getCallee(int id, int i) {
+        return callees[calleeOffsets[id] + i];
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the ids of the methods called by the method
+     */
+    public int[] getCallees(int id) {
+        return Arrays.copyOfRange(callees, calleeOffsets[id], calleeOffsets[id + 1]);
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the number of methods calling the method
+     */
+    public int getNumCallers(int id) {
+        return callerOffsets[id + 1] - callerOffsets[id];
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @param i
+     *            index of the caller, between 0 and
+     *            <code>getNumCallers(id) - 1</code>
+     * @return the id of the caller
+     */
+    public int getCaller(int id, int i) {
+        return callers[callerOffsets[id] + i];
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the ids of the methods calling the method
+     */
+    public int[] getCallers(int id) {
+        return Arrays.copyOfRange(callers, callerOffsets[id], callerOffsets[id + 1]);
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the ids of the methods a virtual call of the method may
+     *         dispatch to, besides its callees
+     */
+    public int[] getDispatchCallees(int id) {
+        return Arrays.copyOfRange(dispatchCallees, dispatchCalleeOffsets[id], dispatchCalleeOffsets[id + 1]);
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the ids of the methods making a virtual call which may dispatch
+     *         to the method, besides its callers
+     */
+    public int[] getDispatchCallers(int id) {
+        return Arrays.copyOfRange(dispatchCallers, dispatchCallerOffsets[id], dispatchCallerOffsets[id + 1]);
+    }
+
+    /**
+     * @return the number of strongly connected components
+     */
+    public int getNumComponents() {
+        return componentOffsets.length - 1;
+    }
+
+    /**
+     * @param id
+     *            a method id
+     * @return the strongly connected component of the method
+     */
+    public int getComponent(int id) {
+        return componentOf[id];
+    }
+
+    /**
+     * @param component
+     *            a component, between 0 and
+     *            <code>getNumComponents() - 1</code>
+     * @return the ids of the methods of the component
+     */
+    public int[] getComponentMembers(int component) {
+        return Arrays.copyOfRange(componentMembers, componentOffsets[component], componentOffsets[component + 1]);
+    }
+
+    /**
+     * @param component
+     *            a component
+     * @return true if the methods of the component call each other, or if
+     *         its only method calls itself
+     */
+    public boolean isRecursive(int component) {
+        int start = componentOffsets[component];
+        if (componentOffsets[component + 1] - start > 1) {
+            return true;
+        }
+        int id = componentMembers[start];
+        for (int i = calleeOffsets[id]; i < calleeOffsets[id + 1]; i++) {
+            if (callees[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the application method a call resolves to, looking into the super
+     * classes of the referenced class.
+     *
+     * @return the id of the called method, or -1 if the method is not
+     *         implemented by the application
+     */
+    private int resolve(Map<String, String> superClasses, String className, String methodName, String signature) {
+        for (String current = className; current != null; current = superClasses.get(current)) {
+            Integer id = ids.get(getFullMethodName(current, methodName, signature));
+            if (id != null) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private static String getFullMethodName(String slashedClassName, String methodName, String signature) {
+        return slashedClassName + "." + methodName + signature;
+    }
+
+    /**
+     * Build the graph of the given methods and calls, without dispatch edges.
+     * Used by the tests.
+     *
+     * @param methodArray
+     *            the methods, indexed by id
+     * @param sources
+     *            the callers of the calls
+     * @param targets
+     *            the callees of the calls
+     */
+    synchronized void build(MethodDescriptor[] methodArray, int[] sources, int[] targets) {
+        methods = methodArray.clone();
+        for (int id = 0; id < methods.length; id++) {
+            ids.put(getFullMethodName(methods[id].getSlashedClassName(), methods[id].getName(), methods[id].getSignature()), id);
+        }
+        buildAdjacency(sources, targets, sources.length);
+        int[][] rows = toRows(NO_IDS, NO_IDS, 0);
+        dispatchCalleeOffsets = dispatchCallerOffsets = rows[0];
+        dispatchCallees = dispatchCallers = rows[1];
+        buildComponents();
+        built = true;
+    }
+
+    /**
+     * Collects the calls of the application methods as (caller, callee) pairs,
+     * in the order of the callers, and the virtual calls of application
+     * methods, from the calls recorded in the {@link MethodInfo} of the
+     * methods when their class was parsed.
+     */
+    private class EdgeCollector {
+        final Map<String, String> superClasses;
+
+        /** name + descriptor -&gt; ids of the methods which may override it */
+        final Map<String, List<Integer>> overridable;
+
+        int[] sources = new int[1024];
+
+        int[] targets = new int[1024];
+
+        int numEdges;
+
+        /** callee id -&gt; last caller seen calling it, to skip repeated calls */
+        final int[] lastCaller;
+
+        /** virtual calls: caller id, resolved callee id or -1, owner and name + descriptor */
+        final List<int[]> virtualCalls = new ArrayList<>();
+
+        final List<String> virtualOwners = new ArrayList<>();
+
+        final List<String> virtualMethods = new ArrayList<>();
+
+        EdgeCollector(Map<String, String> superClasses, Map<String, List<Integer>> overridable) {
+            this.superClasses = superClasses;
+            this.overridable = overridable;
+            this.lastCaller = new int[methods.length];
+            Arrays.fill(lastCaller, -1);
+        }
+
+        void collect(MethodInfo method) {
+            Integer id = ids.get(getFullMethodName(method.getSlashedClassName(), method.getName(), method.getSignature()));
+            CalledMethods calls = method.getCalledMethods();
+            if (id == null || calls == null) {
+                return;
+            }
+            int caller = id;
+            for (int i = 0; i < calls.size(); i++) {
+                MethodDescriptor called = calls.getMethod(i);
+                int opcode = calls.getOpcode(i);
+                String owner = called.getSlashedClassName();
+                int callee = resolve(superClasses, owner, called.getName(), called.getSignature());
+                if (callee >= 0 && lastCaller[callee] != caller) {
+                    lastCaller[callee] = caller;
+                    addEdge(caller, callee);
+                }
+                // also for library owners, e.g. Runnable.run() may execute
+                // the run() methods of the application
+                String nameAndDescriptor = called.getName() + called.getSignature();
+                if ((opcode == Opcodes.INVOKEVIRTUAL || opcode == Opcodes.INVOKEINTERFACE)
+                        && overridable.containsKey(nameAndDescriptor)) {
+                    virtualCalls.add(new int[] { caller, callee });
+                    virtualOwners.add(owner);
+                    virtualMethods.add(nameAndDescriptor);
+                }
+            }
+        }
+
+        void addEdge(int source, int target) {
+            if (numEdges == sources.length) {
+                sources = Arrays.copyOf(sources, numEdges * 2);
+                targets = Arrays.copyOf(targets, numEdges * 2);
+            }
+            sources[numEdges] = source;
+            targets[numEdges] = target;
+            numEdges++;
+        }
+    }
+
+    private void buildAdjacency(int[] sources, int[] targets, int numEdges) {
+        int[][] calleeRows = toRows(sources, targets, numEdges);
+        int[][] callerRows = toRows(targets, sources, numEdges);
+        calleeOffsets = calleeRows[0];
+        callees = calleeRows[1];
+        callerOffsets = callerRows[0];
+        callers = callerRows[1];
+    }
+
+    /**
+     * @return name + descriptor -&gt; ids of the application methods which may
+     *         override a method of a super class or interface
+     */
+    private Map<String, List<Integer>> getOverridableMethods() {
+        Map<String, List<Integer>> overridable = new HashMap<>();
+        for (int id = 0; id < methods.length; id++) {
+            MethodDescriptor method = methods[id];
+            if (method.isStatic() || "<init>".equals(method.getName())) {
+                continue;
+            }
+            overridable.computeIfAbsent(method.getName() + method.getSignature(), k -> new ArrayList<>()).add(id);
+        }
+        return overridable;
+    }
+
+    /**
+     * Add an edge from each virtual call to the methods of the application
+     * subtypes of the referenced class which may be executed instead of the
+     * resolved method. The referenced class may be a library class or
+     * interface.
+     */
+    private void buildDispatchAdjacency(EdgeCollector collector) {
+        Subtypes2 subtypes2 = AnalysisContext.currentAnalysisContext().getSubtypes2();
+        Map<String, Set<ClassDescriptor>> subtypesByOwner = new HashMap<>();
+        int[] lastCaller = new int[methods.length];
+        Arrays.fill(lastCaller, -1);
+        int[] sources = new int[collector.virtualCalls.size()];
+        int[] targets = new int[sources.length];
+        int numEdges = 0;
+        for (int i = 0; i < collector.virtualCalls.size(); i++) {
+            List<Integer> candidates = collector.overridable.get(collector.virtualMethods.get(i));
+            int caller = collector.virtualCalls.get(i)[0];
+            int callee = collector.virtualCalls.get(i)[1];
+            String ownerName = collector.virtualOwners.get(i);
+            ClassDescriptor owner = DescriptorFactory.createClassDescriptor(ownerName);
+            Set<ClassDescriptor> subtypes = subtypesByOwner.computeIfAbsent(ownerName, k -> getSubtypes(subtypes2, owner));
+            for (int candidate : candidates) {
+                ClassDescriptor type = methods[candidate].getClassDescriptor();
+                // the resolved method, or the method is not implemented there
+                if (candidate == callee || lastCaller[candidate] == caller || type.equals(owner)
+                        || subtypes != null && !subtypes.contains(type)) {
+                    continue;
+                }
+                lastCaller[candidate] = caller;
+                if (numEdges == sources.length) {
+                    sources = Arrays.copyOf(sources, numEdges * 2 + 1);
+                    targets = Arrays.copyOf(targets, numEdges * 2 + 1);
+                }
+                sources[numEdges] = caller;
+                targets[numEdges] = candidate;
+                numEdges++;
+            }
+        }
+        int[][] calleeRows = toRows(sources, targets, numEdges);
+        int[][] callerRows = toRows(targets, sources, numEdges);
+        dispatchCalleeOffsets = calleeRows[0];
+        dispatchCallees = calleeRows[1];
+        dispatchCallerOffsets = callerRows[0];
+        dispatchCallers = callerRows[1];
+    }
+
+    /**
+     * @return the known subtypes of the class, null if any class may be one
+     */
+    private static Set<ClassDescriptor> getSubtypes(Subtypes2 subtypes2, ClassDescriptor type) {
+        try {
+            return subtypes2.getSubtypes(type);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Counting sort of the edges by source, keeping the order of the edges of
+     * each source.
+     *
+     * @return the offsets of the rows of each source, and the targets
+     */
+    private int[][] toRows(int[] sources, int[] targets, int numEdges) {
+        int n = methods.length;
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < numEdges; e++) {
+            offsets[sources[e] + 1]++;
+        }
+        for (int m = 0; m < n; m++) {
+            offsets[m + 1] += offsets[m];
+        }
+        int[] values = new int[numEdges];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < numEdges; e++) {
+            values[fill[sources[e]]++] = targets[e];
+        }
+        return new int[][] { offsets, values };
+    }
+
+    /**
+     * Find the strongly connected components with Tarjan's algorithm, which
+     * emits every component after all components reachable from it. The DFS
+     * uses an explicit stack to avoid stack overflows on deep call chains.
+     */
+    private void buildComponents() {
+        int n = methods.length;
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] stacked = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        // DFS stack of (method, position of the next callee to visit)
+        int[] workMethod = new int[n];
+        int[] workPosition = new int[n];
+        Arrays.fill(index, -1);
+        int nextIndex = 0;
+
+        componentOf = new int[n];
+        componentMembers = new int[n];
+        int[] offsets = new int[n + 1];
+        int numComponents = 0;
+        int numMembers = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int workSize = 0;
+            workMethod[workSize] = root;
+            workPosition[workSize] = calleeOffsets[root];
+            workSize++;
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            stacked[root] = true;
+            while (workSize > 0) {
+                int method = workMethod[workSize - 1];
+                int position = workPosition[workSize - 1];
+                if (position < calleeOffsets[method + 1]) {
+                    workPosition[workSize - 1] = position + 1;
+                    int callee = callees[position];
+                    if (index[callee] < 0) {
+                        index[callee] = lowLink[callee] = nextIndex++;
+                        stack[stackSize++] = callee;
+                        stacked[callee] = true;
+                        workMethod[workSize] = callee;
+                        workPosition[workSize] = calleeOffsets[callee];
+                        workSize++;
+                    } else if (stacked[callee]) {
+                        lowLink[method] = Math.min(lowLink[method], index[callee]);
+                    }
+                    continue;
+                }
+                workSize--;
+                if (workSize > 0) {
+                    int caller = workMethod[workSize - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[method]);
+                }
+                if (lowLink[method] == index[method]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        stacked[member] = false;
+                        componentOf[member] = numComponents;
+                        componentMembers[numMembers++] = member;
+                    } while (member != method);
+                    offsets[++numComponents] = numMembers;
+                }
+            }
+        }
+        componentOffsets = Arrays.copyOf(offsets, numComponents + 1);
+    }
+}
@@ -20,6 +20,8 @@
 package edu.umd.cs.findbugs.ba.ch;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -28,6 +30,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.CheckForNull;
 
@@ -55,6 +58,19 @@ import edu.umd.cs.findbugs.util.Values;
 /**
  * Class for performing class hierarchy queries. Does <em>not</em> require
  * JavaClass objects to be in memory. Instead, uses XClass objects.
+ * <p>
+ * While the shards of a parallel first pass share this instance (see
+ * edu.umd.cs.findbugs.ParallelFirstPassDetector), queries hold the shared lock
+ * set by {@link #setSharedLock(Lock)}. Single-threaded runs take no lock. The
+ * public queries take the lock and call a private <code>...Locked</code>
+ * method doing the work.
+ * <p>
+ * When <code>findbugs.subtypes2.precompute</code> is set, each class is
+ * labeled with the sorted labels of its transitive supertypes once the
+ * application classes are added, and subtype queries search the label instead
+ * of traversing the graph. The known subtypes of a class are then kept
+ * instead of in a bounded cache, until an inheritance edge is added below the
+ * class.
  *
  * @author David Hovemeyer
  */
@@ -66,8 +82,13 @@ public class Subtypes2 {
 
     public static final boolean DEBUG_QUERIES = SystemProperties.getBoolean("findbugs.subtypes2.debugqueries");
 
+    public static final boolean PRECOMPUTE = SystemProperties.getBoolean("findbugs.subtypes2.precompute");
+
     private final InheritanceGraph graph;
 
+    /** vertices of the graph, indexed by label */
+    private final ArrayList<ClassVertex> vertexList;
+
     private final Map<ClassDescriptor, ClassVertex> classDescriptorToVertexMap;
 
     private final Map<ClassDescriptor, SupertypeQueryResults> supertypeSetMap;
@@ -82,6 +103,15 @@ public class Subtypes2 {
 
     private final ObjectType CLONEABLE;
 
+    /** whether the supertype labels are used, see {@link #PRECOMPUTE} */
+    private final boolean precompute;
+
+    /**
+     * Lock guarding the graph and the query caches while several threads use
+     * this instance, or null if only one thread does
+     */
+    private volatile @CheckForNull Lock sharedLock;
+
     /**
      * Object to record the results of a supertype search.
      */
@@ -115,16 +145,60 @@ public class Subtypes2 {
      * Constructor.
      */
     public Subtypes2() {
+        this(PRECOMPUTE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param precompute
+     *            true if the supertype labels should be used and the known
+     *            subtypes kept, see {@link #PRECOMPUTE}
+     */
+    Subtypes2(boolean precompute) {
+        this.precompute = precompute;
         this.graph = new InheritanceGraph();
+        this.vertexList = new ArrayList<>();
         this.classDescriptorToVertexMap = new HashMap<>();
         this.supertypeSetMap = new MapCache<>(500);
-        this.subtypeSetMap = new MapCache<>(500);
+        if (precompute) {
+            this.subtypeSetMap = new HashMap<>();
+        } else {
+            this.subtypeSetMap = new MapCache<>(500);
+        }
         this.xclassSet = new HashSet<>();
         this.SERIALIZABLE = ObjectTypeFactory.getInstance("java.io.Serializable");
         this.CLONEABLE = ObjectTypeFactory.getInstance("java.lang.Cloneable");
         this.firstCommonSuperclassQueryCache = new DualKeyHashMap<>();
     }
 
+    /**
+     * Set the lock the queries hold while several threads use this instance.
+     * The lock must be reentrant, and the only lock held by the threads while
+     * they query the hierarchy, other than the monitors of objects not calling
+     * back into this class.
+     *
+     * @param lock
+     *            the lock, or null once only one thread uses this instance
+     */
+    public void setSharedLock(@CheckForNull Lock lock) {
+        this.sharedLock = lock;
+    }
+
+    private @CheckForNull Lock lock() {
+        Lock lock = sharedLock;
+        if (lock != null) {
+            lock.lock();
+        }
+        return lock;
+    }
+
+    private static void unlock(@CheckForNull Lock lock) {
+        if (lock != null) {
+            lock.unlock();
+        }
+    }
+
     /**
      * @return Returns the graph.
      */
@@ -222,6 +296,15 @@ public class Subtypes2 {
      *            application XClass to add to the inheritance graph
      */
     public void addApplicationClass(XClass appXClass) {
+        Lock lock = lock();
+        try {
+            addApplicationClassLocked(appXClass);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private void addApplicationClassLocked(XClass appXClass) {
         for (XMethod m : appXClass.getXMethods()) {
             if (m.isStub()) {
                 return;
@@ -229,10 +312,18 @@ public class Subtypes2 {
         }
         ClassVertex vertex = addClassAndGetClassVertex(appXClass);
         vertex.markAsApplicationClass();
-
     }
 
     public boolean isApplicationClass(ClassDescriptor descriptor) {
+        Lock lock = lock();
+        try {
+            return isApplicationClassLocked(descriptor);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private boolean isApplicationClassLocked(ClassDescriptor descriptor) {
         assert descriptor != null;
         try {
             return resolveClassVertex(descriptor).isApplicationClass();
@@ -250,6 +341,15 @@ public class Subtypes2 {
      *            XClass to add to the inheritance graph
      */
     public void addClass(XClass xclass) {
+        Lock lock = lock();
+        try {
+            addClassLocked(xclass);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private void addClassLocked(XClass xclass) {
         addClassAndGetClassVertex(xclass);
     }
 
@@ -297,6 +397,8 @@ public class Subtypes2 {
         }
 
         graph.addVertex(vertex);
+        assert vertex.getLabel() == vertexList.size();
+        vertexList.add(vertex);
         classDescriptorToVertexMap.put(classDescriptor, vertex);
 
         if (vertex.isResolved()) {
@@ -325,7 +427,15 @@ public class Subtypes2 {
      *             if a missing class prevents a definitive answer
      */
     public boolean isSubtype(ReferenceType type, ReferenceType possibleSupertype) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return isSubtypeLocked(type, possibleSupertype);
+        } finally {
+            unlock(lock);
+        }
+    }
 
+    private boolean isSubtypeLocked(ReferenceType type, ReferenceType possibleSupertype) throws ClassNotFoundException {
         // Eliminate some easy cases
         if (type.equals(possibleSupertype)) {
             return true;
@@ -402,6 +512,15 @@ public class Subtypes2 {
     boolean prevResult;
 
     public boolean isSubtype(ClassDescriptor subDesc, ClassDescriptor superDesc) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return isSubtypeLocked(subDesc, superDesc);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private boolean isSubtypeLocked(ClassDescriptor subDesc, ClassDescriptor superDesc) throws ClassNotFoundException {
         if (subDesc == prevSubDesc && prevSuperDesc == superDesc) {
             return prevResult;
         }
@@ -412,6 +531,15 @@ public class Subtypes2 {
     }
 
     public boolean isSubtype(ClassDescriptor subDesc, ClassDescriptor... superDesc) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return isSubtypeLocked(subDesc, superDesc);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private boolean isSubtypeLocked(ClassDescriptor subDesc, ClassDescriptor... superDesc) throws ClassNotFoundException {
         for (ClassDescriptor s : superDesc) {
             if (subDesc.equals(s)) {
                 return true;
@@ -426,6 +554,14 @@ public class Subtypes2 {
                 }
             }
         }
+        if (precompute) {
+            for (ClassDescriptor s : superDesc) {
+                if (isSubtypeUsingLabels(subDesc, s)) {
+                    return true;
+                }
+            }
+            return false;
+        }
         SupertypeQueryResults supertypeQueryResults = getSupertypeQueryResults(subDesc);
         for (ClassDescriptor s : superDesc) {
             if (supertypeQueryResults.containsType(s)) {
@@ -436,6 +572,15 @@ public class Subtypes2 {
     }
 
     public boolean isSubtype0(ClassDescriptor subDesc, ClassDescriptor superDesc) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return isSubtype0Locked(subDesc, superDesc);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private boolean isSubtype0Locked(ClassDescriptor subDesc, ClassDescriptor superDesc) throws ClassNotFoundException {
         assert subDesc != null;
         assert superDesc != null;
         if (subDesc.equals(superDesc)) {
@@ -486,11 +631,103 @@ public class Subtypes2 {
             System.out.println("CHECK: " + subDesc + " " + superDesc);
         }
          */
+        if (precompute) {
+            return isSubtypeUsingLabels(subDesc, superDesc);
+        }
         SupertypeQueryResults supertypeQueryResults = getSupertypeQueryResults(subDesc);
         // XXX call below causes 88% of all ClassNotFoundException thrown (20000 on java* JDK7 classes)
         return supertypeQueryResults.containsType(superDesc);
     }
 
+    /**
+     * Determine whether or not a class is a subtype of another by searching
+     * the supertype labels of the class. Answers like
+     * {@link SupertypeQueryResults#containsType(ClassDescriptor)}.
+     */
+    private boolean isSubtypeUsingLabels(ClassDescriptor subDesc, ClassDescriptor superDesc) throws ClassNotFoundException {
+        ClassVertex subVertex = optionallyResolveClassVertex(subDesc);
+        int[] labels = getSupertypeLabels(subVertex);
+        ClassVertex superVertex = classDescriptorToVertexMap.get(superDesc);
+        if (superVertex != null && Arrays.binarySearch(labels, superVertex.getLabel()) >= 0) {
+            return true;
+        } else if (!subVertex.hasMissingSupertypes()) {
+            return false;
+        } else {
+            // We don't really know which class was missing.
+            // However, any missing classes will already have been reported.
+            throw new ClassNotFoundException();
+        }
+    }
+
+    /**
+     * Label every class currently in the inheritance graph with the labels of
+     * its transitive supertypes. Classes added later are labeled when they are
+     * first queried.
+     */
+    public void computeSupertypeLabels() {
+        Lock lock = lock();
+        try {
+            computeSupertypeLabelsLocked();
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private void computeSupertypeLabelsLocked() {
+        for (ClassVertex vertex : new ArrayList<>(vertexList)) {
+            getSupertypeLabels(vertex);
+        }
+    }
+
+    /**
+     * Get the sorted labels of the transitive supertypes of a class,
+     * including the class itself, computing them if needed. The supertypes of
+     * a class do not change once it is in the graph, so the labels are kept
+     * in the vertex, and reused when labeling its subtypes.
+     *
+     * @param vertex
+     *            a ClassVertex
+     * @return sorted labels of the supertype vertices
+     */
+    private int[] getSupertypeLabels(ClassVertex vertex) {
+        int[] labels = vertex.getSupertypeLabels();
+        if (labels != null) {
+            return labels;
+        }
+
+        BitSet seen = new BitSet();
+        boolean missingSupertypes = false;
+        LinkedList<ClassVertex> workList = new LinkedList<>();
+        workList.addLast(vertex);
+        while (!workList.isEmpty()) {
+            ClassVertex current = workList.removeFirst();
+            if (seen.get(current.getLabel())) {
+                continue;
+            }
+            int[] known = current.getSupertypeLabels();
+            if (known != null) {
+                // closed under supertypes, no need to look further
+                for (int label : known) {
+                    seen.set(label);
+                }
+                missingSupertypes |= current.hasMissingSupertypes();
+                continue;
+            }
+            seen.set(current.getLabel());
+            if (!current.isResolved()) {
+                missingSupertypes = true;
+            }
+            Iterator<InheritanceEdge> i = graph.outgoingEdgeIterator(current);
+            while (i.hasNext()) {
+                workList.addLast(i.next().getTarget());
+            }
+        }
+
+        labels = seen.stream().toArray();
+        vertex.setSupertypeLabels(labels, missingSupertypes);
+        return labels;
+    }
+
     /**
      * Determine whether or not a given ObjectType is a subtype of another.
      * Throws ClassNotFoundException if the question cannot be answered
@@ -506,6 +743,15 @@ public class Subtypes2 {
      *             if a missing class prevents a definitive answer
      */
     public boolean isSubtype(ObjectType type, ObjectType possibleSupertype) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return isSubtypeLocked(type, possibleSupertype);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private boolean isSubtypeLocked(ObjectType type, ObjectType possibleSupertype) throws ClassNotFoundException {
         if (DEBUG_QUERIES) {
             System.out.println("isSubtype: check " + type + " subtype of " + possibleSupertype);
         }
@@ -543,6 +789,15 @@ public class Subtypes2 {
      * @throws ClassNotFoundException
      */
     public ReferenceType getFirstCommonSuperclass(ReferenceType a, ReferenceType b) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return getFirstCommonSuperclassLocked(a, b);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private ReferenceType getFirstCommonSuperclassLocked(ReferenceType a, ReferenceType b) throws ClassNotFoundException {
         // Easy case: same types
         if (a.equals(b)) {
             return a;
@@ -700,6 +955,15 @@ public class Subtypes2 {
      * @throws ClassNotFoundException
      */
     public ObjectType getFirstCommonSuperclass(ObjectType a, ObjectType b) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return getFirstCommonSuperclassLocked(a, b);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private ObjectType getFirstCommonSuperclassLocked(ObjectType a, ObjectType b) throws ClassNotFoundException {
         // Easy case
         if (a.equals(b)) {
             return a;
@@ -708,7 +972,7 @@ public class Subtypes2 {
         ObjectType firstCommonSupertype = (ObjectType) checkFirstCommonSuperclassQueryCache(a, b);
         if (firstCommonSupertype == null) {
             firstCommonSupertype = computeFirstCommonSuperclassOfObjectTypes(a, b);
-            firstCommonSuperclassQueryCache.put(a, b, firstCommonSupertype);
+            putFirstCommonSuperclassQueryCache(a, b, firstCommonSupertype);
         }
 
         return firstCommonSupertype;
@@ -823,6 +1087,15 @@ public class Subtypes2 {
      * @throws ClassNotFoundException
      */
     public Set<ClassDescriptor> getSubtypes(ClassDescriptor classDescriptor) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return getSubtypesLocked(classDescriptor);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private Set<ClassDescriptor> getSubtypesLocked(ClassDescriptor classDescriptor) throws ClassNotFoundException {
         Set<ClassDescriptor> result = subtypeSetMap.get(classDescriptor);
         if (result == null) {
             result = computeKnownSubtypes(classDescriptor);
@@ -840,6 +1113,15 @@ public class Subtypes2 {
      * @throws ClassNotFoundException
      */
     public boolean hasSubtypes(ClassDescriptor classDescriptor) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return hasSubtypesLocked(classDescriptor);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private boolean hasSubtypesLocked(ClassDescriptor classDescriptor) throws ClassNotFoundException {
         Set<ClassDescriptor> subtypes = getDirectSubtypes(classDescriptor);
         if (DEBUG) {
             System.out.println("Direct subtypes of " + classDescriptor + " are " + subtypes);
@@ -856,7 +1138,15 @@ public class Subtypes2 {
      * @throws ClassNotFoundException
      */
     public Set<ClassDescriptor> getDirectSubtypes(ClassDescriptor classDescriptor) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return getDirectSubtypesLocked(classDescriptor);
+        } finally {
+            unlock(lock);
+        }
+    }
 
+    private Set<ClassDescriptor> getDirectSubtypesLocked(ClassDescriptor classDescriptor) throws ClassNotFoundException {
         ClassVertex startVertex = resolveClassVertex(classDescriptor);
 
         Set<ClassDescriptor> result = new HashSet<>();
@@ -881,6 +1171,16 @@ public class Subtypes2 {
      */
     public Set<ClassDescriptor> getTransitiveCommonSubtypes(ClassDescriptor classDescriptor1, ClassDescriptor classDescriptor2)
             throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return getTransitiveCommonSubtypesLocked(classDescriptor1, classDescriptor2);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private Set<ClassDescriptor> getTransitiveCommonSubtypesLocked(ClassDescriptor classDescriptor1,
+            ClassDescriptor classDescriptor2) throws ClassNotFoundException {
         Set<ClassDescriptor> subtypes1 = getSubtypes(classDescriptor1);
         Set<ClassDescriptor> result = new HashSet<>(subtypes1);
         Set<ClassDescriptor> subtypes2 = getSubtypes(classDescriptor2);
@@ -895,6 +1195,15 @@ public class Subtypes2 {
      * @return Collection of all XClass objects
      */
     public Collection<XClass> getXClassCollection() {
+        Lock lock = lock();
+        try {
+            return getXClassCollectionLocked();
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private Collection<XClass> getXClassCollectionLocked() {
         return Collections.<XClass> unmodifiableCollection(xclassSet);
     }
 
@@ -957,6 +1266,15 @@ public class Subtypes2 {
      *             if the start vertex cannot be resolved
      */
     public void traverseSupertypes(ClassDescriptor start, InheritanceGraphVisitor visitor) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            traverseSupertypesLocked(start, visitor);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private void traverseSupertypesLocked(ClassDescriptor start, InheritanceGraphVisitor visitor) throws ClassNotFoundException {
         LinkedList<SupertypeTraversalPath> workList = new LinkedList<>();
 
         ClassVertex startVertex = resolveClassVertex(start);
@@ -1008,6 +1326,15 @@ public class Subtypes2 {
      *             if the start vertex cannot be resolved
      */
     public void traverseSupertypesDepthFirst(ClassDescriptor start, SupertypeTraversalVisitor visitor) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            traverseSupertypesDepthFirstLocked(start, visitor);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private void traverseSupertypesDepthFirstLocked(ClassDescriptor start, SupertypeTraversalVisitor visitor) throws ClassNotFoundException {
         this.traverseSupertypesDepthFirstHelper(start, visitor, new HashSet<ClassDescriptor>());
     }
 
@@ -1119,7 +1446,15 @@ public class Subtypes2 {
 
 
     public boolean hasKnownSubclasses(ClassDescriptor classDescriptor) throws ClassNotFoundException {
+        Lock lock = lock();
+        try {
+            return hasKnownSubclassesLocked(classDescriptor);
+        } finally {
+            unlock(lock);
+        }
+    }
 
+    private boolean hasKnownSubclassesLocked(ClassDescriptor classDescriptor) throws ClassNotFoundException {
         ClassVertex startVertex = resolveClassVertex(classDescriptor);
         if (!startVertex.isInterface()) {
             return true;
@@ -1155,9 +1490,17 @@ public class Subtypes2 {
         return false;
     }
     private Set<ClassDescriptor> computeKnownSupertypes(ClassDescriptor classDescriptor) throws ClassNotFoundException {
-        LinkedList<ClassVertex> workList = new LinkedList<>();
-
         ClassVertex startVertex = resolveClassVertex(classDescriptor);
+        if (precompute) {
+            int[] labels = getSupertypeLabels(startVertex);
+            Set<ClassDescriptor> result = new HashSet<>(labels.length * 2);
+            for (int label : labels) {
+                result.add(vertexList.get(label).getClassDescriptor());
+            }
+            return result;
+        }
+
+        LinkedList<ClassVertex> workList = new LinkedList<>();
         workList.addLast(startVertex);
 
         Set<ClassDescriptor> result = new HashSet<>();
@@ -1193,6 +1536,15 @@ public class Subtypes2 {
      * @return SupertypeQueryResults for the class named by the ClassDescriptor
      */
     public SupertypeQueryResults getSupertypeQueryResults(ClassDescriptor classDescriptor) {
+        Lock lock = lock();
+        try {
+            return getSupertypeQueryResultsLocked(classDescriptor);
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private SupertypeQueryResults getSupertypeQueryResultsLocked(ClassDescriptor classDescriptor) {
         SupertypeQueryResults supertypeQueryResults = supertypeSetMap.get(classDescriptor);
         if (supertypeQueryResults == null) {
             supertypeQueryResults = computeSupertypes(classDescriptor);
@@ -1367,6 +1719,34 @@ public class Subtypes2 {
                         + superclassDescriptor.toDottedClassName());
             }
             graph.createEdge(vertex, superclassVertex);
+            if (precompute && !subtypeSetMap.isEmpty()) {
+                invalidateKnownSubtypes(superclassVertex);
+            }
+        }
+    }
+
+    /**
+     * Forget the known subtypes of a class and of its transitive supertypes,
+     * after a subtype was added below the class. The known subtypes of other
+     * classes do not change.
+     *
+     * @param vertex
+     *            the class which gained a direct subtype
+     */
+    private void invalidateKnownSubtypes(ClassVertex vertex) {
+        Set<ClassVertex> seen = new HashSet<>();
+        LinkedList<ClassVertex> workList = new LinkedList<>();
+        workList.addLast(vertex);
+        while (!workList.isEmpty()) {
+            ClassVertex current = workList.removeFirst();
+            if (!seen.add(current)) {
+                continue;
+            }
+            subtypeSetMap.remove(current.getClassDescriptor());
+            Iterator<InheritanceEdge> i = graph.outgoingEdgeIterator(current);
+            while (i.hasNext()) {
+                workList.addLast(i.next().getTarget());
+            }
         }
     }
 
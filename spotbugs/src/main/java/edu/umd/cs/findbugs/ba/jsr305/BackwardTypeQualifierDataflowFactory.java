@@ -19,6 +19,9 @@
 
 package edu.umd.cs.findbugs.ba.jsr305;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.annotation.meta.When;
 
 import org.apache.bcel.generic.ConstantPoolGen;
@@ -96,6 +99,35 @@ TypeQualifierDataflowFactory<BackwardTypeQualifierDataflowAnalysis, BackwardType
         return dataflow;
     }
 
+    @Override
+    protected List<BackwardTypeQualifierDataflow> getDataflows(DepthFirstSearch dfs, XMethod xmethod, CFG cfg,
+            ValueNumberDataflow vnaDataflow, ConstantPoolGen cpg, IAnalysisCache analysisCache,
+            MethodDescriptor methodDescriptor, List<TypeQualifierValue<?>> typeQualifierValues) throws CheckedAnalysisException {
+        ReverseDepthFirstSearch rdfs = analysisCache.getMethodAnalysis(ReverseDepthFirstSearch.class, methodDescriptor);
+        ForwardTypeQualifierDataflowFactory forwardFactory = analysisCache.getMethodAnalysis(
+                ForwardTypeQualifierDataflowFactory.class, methodDescriptor);
+        forwardFactory.computeDataflows(typeQualifierValues);
+
+        List<BackwardTypeQualifierDataflowAnalysis> analyses = new ArrayList<>();
+        List<BackwardTypeQualifierDataflow> dataflows = new ArrayList<>();
+        for (TypeQualifierValue<?> typeQualifierValue : typeQualifierValues) {
+            BackwardTypeQualifierDataflowAnalysis analysis = new BackwardTypeQualifierDataflowAnalysis(dfs, rdfs, xmethod, cfg,
+                    vnaDataflow, cpg, typeQualifierValue);
+            analysis.setForwardTypeQualifierDataflow(forwardFactory.getDataflow(typeQualifierValue));
+            analysis.registerSourceSinkLocations();
+            analyses.add(analysis);
+            dataflows.add(new BackwardTypeQualifierDataflow(cfg, analysis));
+        }
+
+        new MultiTypeQualifierDataflowAnalysis(analyses).execute(cfg);
+        if (ClassContext.DUMP_DATAFLOW_ANALYSIS) {
+            for (BackwardTypeQualifierDataflow dataflow : dataflows) {
+                dataflow.dumpDataflow(dataflow.getAnalysis());
+            }
+        }
+        return dataflows;
+    }
+
     @Override
     protected void populateDatabase(BackwardTypeQualifierDataflow dataflow, ValueNumberDataflow vnaDataflow, XMethod xmethod,
             TypeQualifierValue<?> tqv) throws CheckedAnalysisException {
@@ -19,10 +19,12 @@
 
 package edu.umd.cs.findbugs.ba.jsr305;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -85,4 +87,23 @@ public class DirectlyRelevantTypeQualifiersDatabase {
         methodToDirectlyRelevantQualifiersMap.put(methodDescriptor, qualifiers);
         allKnownQualifiers.addAll(qualifiers);
     }
+
+    /**
+     * Merge the entries of a database filled on another thread, e.g. by a
+     * shard of a parallel first pass. TypeQualifierValues are interned
+     * per thread, so the merged values are re-interned on the current thread.
+     *
+     * @param other
+     *            database covering a disjoint set of methods
+     */
+    public void merge(DirectlyRelevantTypeQualifiersDatabase other) {
+        for (Map.Entry<MethodDescriptor, Collection<TypeQualifierValue<?>>> entry : other.methodToDirectlyRelevantQualifiersMap
+                .entrySet()) {
+            List<TypeQualifierValue<?>> qualifiers = new ArrayList<>(entry.getValue().size());
+            for (TypeQualifierValue<?> tqv : entry.getValue()) {
+                qualifiers.add(TypeQualifierValue.getValue(tqv.typeQualifier, tqv.value));
+            }
+            setDirectlyRelevantTypeQualifiers(entry.getKey(), qualifiers);
+        }
+    }
 }
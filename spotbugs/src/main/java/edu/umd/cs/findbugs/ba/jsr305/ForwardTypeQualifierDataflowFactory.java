@@ -19,7 +19,9 @@
 
 package edu.umd.cs.findbugs.ba.jsr305;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.annotation.meta.When;
 
@@ -79,6 +81,29 @@ TypeQualifierDataflowFactory<ForwardTypeQualifierDataflowAnalysis, ForwardTypeQu
         return dataflow;
     }
 
+    @Override
+    protected List<ForwardTypeQualifierDataflow> getDataflows(DepthFirstSearch dfs, XMethod xmethod, CFG cfg,
+            ValueNumberDataflow vnaDataflow, ConstantPoolGen cpg, IAnalysisCache analysisCache,
+            MethodDescriptor methodDescriptor, List<TypeQualifierValue<?>> typeQualifierValues) throws DataflowAnalysisException {
+        List<ForwardTypeQualifierDataflowAnalysis> analyses = new ArrayList<>();
+        List<ForwardTypeQualifierDataflow> dataflows = new ArrayList<>();
+        for (TypeQualifierValue<?> typeQualifierValue : typeQualifierValues) {
+            ForwardTypeQualifierDataflowAnalysis analysis = new ForwardTypeQualifierDataflowAnalysis(dfs, xmethod, cfg,
+                    vnaDataflow, cpg, typeQualifierValue);
+            analysis.registerSourceSinkLocations();
+            analyses.add(analysis);
+            dataflows.add(new ForwardTypeQualifierDataflow(cfg, analysis));
+        }
+
+        new MultiTypeQualifierDataflowAnalysis(analyses).execute(cfg);
+        if (ClassContext.DUMP_DATAFLOW_ANALYSIS) {
+            for (ForwardTypeQualifierDataflow dataflow : dataflows) {
+                dataflow.dumpDataflow(dataflow.getAnalysis());
+            }
+        }
+        return dataflows;
+    }
+
     @Override
     protected void populateDatabase(ForwardTypeQualifierDataflow dataflow, ValueNumberDataflow vnaDataflow, XMethod xmethod,
             TypeQualifierValue<?> tqv) throws CheckedAnalysisException {
@@ -0,0 +1,191 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2007 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba.jsr305;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.bcel.generic.InstructionHandle;
+
+import edu.umd.cs.findbugs.ba.AbstractDataflowAnalysis;
+import edu.umd.cs.findbugs.ba.BasicBlock;
+import edu.umd.cs.findbugs.ba.BlockOrder;
+import edu.umd.cs.findbugs.ba.CFG;
+import edu.umd.cs.findbugs.ba.Dataflow;
+import edu.umd.cs.findbugs.ba.DataflowAnalysisException;
+import edu.umd.cs.findbugs.ba.Edge;
+
+/**
+ * Type qualifier dataflow analysis of several type qualifiers at once. Each
+ * fact holds one TypeQualifierValueSet per type qualifier, and each operation
+ * is delegated to the analysis of the type qualifier, so that a single pass
+ * over the CFG computes the facts of all the type qualifiers.
+ * <p>
+ * All the analyses must go in the same direction. Once the dataflow is
+ * executed, {@link #copyFactsToComponents(CFG)} stores the facts of each type
+ * qualifier in its own analysis, whose dataflow then answers queries as if it
+ * had been executed.
+ * </p>
+ *
+ * @see TypeQualifierDataflowFactory#computeDataflows(java.util.Collection)
+ */
+public class MultiTypeQualifierDataflowAnalysis extends AbstractDataflowAnalysis<TypeQualifierValueSet[]> {
+
+    private final TypeQualifierDataflowAnalysis[] components;
+
+    /**
+     * Constructor.
+     *
+     * @param components
+     *            the analyses of the type qualifiers, all going in the same
+     *            direction
+     */
+    public MultiTypeQualifierDataflowAnalysis(List<? extends TypeQualifierDataflowAnalysis> components) {
+        if (components.isEmpty()) {
+            throw new IllegalArgumentException("no type qualifier to analyze");
+        }
+        this.components = components.toArray(new TypeQualifierDataflowAnalysis[components.size()]);
+    }
+
+    /**
+     * Execute the dataflow of all the type qualifiers, and store the facts of
+     * each one in its analysis.
+     *
+     * @param cfg
+     *            the CFG of the method
+     * @throws DataflowAnalysisException
+     */
+    public void execute(CFG cfg) throws DataflowAnalysisException {
+        new Dataflow<>(cfg, this).execute();
+        copyFactsToComponents(cfg);
+    }
+
+    /**
+     * Store the start and result facts of each type qualifier in its
+     * analysis.
+     *
+     * @param cfg
+     *            the CFG of the method
+     */
+    public void copyFactsToComponents(CFG cfg) {
+        for (Iterator<BasicBlock> i = cfg.blockIterator(); i.hasNext();) {
+            BasicBlock block = i.next();
+            TypeQualifierValueSet[] start = getStartFact(block);
+            TypeQualifierValueSet[] result = getResultFact(block);
+            for (int j = 0; j < components.length; j++) {
+                components[j].copy(start[j], components[j].getStartFact(block));
+                components[j].copy(result[j], components[j].getResultFact(block));
+            }
+        }
+    }
+
+    @Override
+    public TypeQualifierValueSet[] createFact() {
+        TypeQualifierValueSet[] fact = new TypeQualifierValueSet[components.length];
+        for (int j = 0; j < components.length; j++) {
+            fact[j] = components[j].createFact();
+        }
+        return fact;
+    }
+
+    @Override
+    public void copy(TypeQualifierValueSet[] source, TypeQualifierValueSet[] dest) {
+        for (int j = 0; j < components.length; j++) {
+            components[j].copy(source[j], dest[j]);
+        }
+    }
+
+    @Override
+    public void initEntryFact(TypeQualifierValueSet[] result) throws DataflowAnalysisException {
+        for (int j = 0; j < components.length; j++) {
+            components[j].initEntryFact(result[j]);
+        }
+    }
+
+    @Override
+    public void makeFactTop(TypeQualifierValueSet[] fact) {
+        for (int j = 0; j < components.length; j++) {
+            components[j].makeFactTop(fact[j]);
+        }
+    }
+
+    /*
+     * The components are made top, valid or bottom together, so the first
+     * one tells the state of the fact.
+     */
+    @Override
+    public boolean isTop(TypeQualifierValueSet[] fact) {
+        return components[0].isTop(fact[0]);
+    }
+
+    @Override
+    public boolean isFactValid(TypeQualifierValueSet[] fact) {
+        return components[0].isFactValid(fact[0]);
+    }
+
+    @Override
+    public boolean isForwards() {
+        return components[0].isForwards();
+    }
+
+    @Override
+    public BlockOrder getBlockOrder(CFG cfg) {
+        return components[0].getBlockOrder(cfg);
+    }
+
+    @Override
+    public boolean same(TypeQualifierValueSet[] fact1, TypeQualifierValueSet[] fact2) {
+        for (int j = 0; j < components.length; j++) {
+            if (!components[j].same(fact1[j], fact2[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void meetInto(TypeQualifierValueSet[] fact, Edge edge, TypeQualifierValueSet[] result)
+            throws DataflowAnalysisException {
+        for (int j = 0; j < components.length; j++) {
+            components[j].meetInto(fact[j], edge, result[j]);
+        }
+    }
+
+    @Override
+    public void edgeTransfer(Edge edge, TypeQualifierValueSet[] fact) throws DataflowAnalysisException {
+        for (int j = 0; j < components.length; j++) {
+            components[j].edgeTransfer(edge, fact[j]);
+        }
+    }
+
+    @Override
+    public void transferInstruction(InstructionHandle handle, BasicBlock basicBlock, TypeQualifierValueSet[] fact)
+            throws DataflowAnalysisException {
+        for (int j = 0; j < components.length; j++) {
+            components[j].transferInstruction(handle, basicBlock, fact[j]);
+        }
+    }
+
+    @Override
+    public String factToString(TypeQualifierValueSet[] fact) {
+        return Arrays.toString(fact);
+    }
+}
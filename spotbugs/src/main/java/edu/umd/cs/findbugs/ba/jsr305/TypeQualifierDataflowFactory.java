@@ -19,10 +19,14 @@
 
 package edu.umd.cs.findbugs.ba.jsr305;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 import org.apache.bcel.generic.ConstantPoolGen;
 
+import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.CFG;
 import edu.umd.cs.findbugs.ba.DataflowAnalysisException;
 import edu.umd.cs.findbugs.ba.DepthFirstSearch;
@@ -42,6 +46,12 @@ import edu.umd.cs.findbugs.classfile.MethodDescriptor;
  */
 public abstract class TypeQualifierDataflowFactory<AnalysisType extends TypeQualifierDataflowAnalysis, DataflowType extends TypeQualifierDataflow<AnalysisType>> {
 
+    /**
+     * Compute the dataflows of several type qualifiers in a single pass over
+     * the CFG.
+     */
+    static final boolean BATCH_DATAFLOWS = SystemProperties.getBoolean("ctq.dataflow.batch", true);
+
     private static class DataflowResult<DataflowType> {
         DataflowType dataflow;
 
@@ -78,6 +88,53 @@ public abstract class TypeQualifierDataflowFactory<AnalysisType extends TypeQual
         return result.get();
     }
 
+    /**
+     * Compute the dataflows of the given type qualifiers together, so that
+     * later calls to {@link #getDataflow(TypeQualifierValue)} find them
+     * computed. If the dataflows cannot be computed together, nothing is
+     * recorded, and each dataflow is computed (and its failure reported) by
+     * getDataflow.
+     *
+     * @param typeQualifierValues
+     *            the type qualifiers of the dataflows
+     */
+    public void computeDataflows(Collection<TypeQualifierValue<?>> typeQualifierValues) {
+        if (!BATCH_DATAFLOWS) {
+            return;
+        }
+        List<TypeQualifierValue<?>> missing = new ArrayList<>();
+        for (TypeQualifierValue<?> typeQualifierValue : typeQualifierValues) {
+            if (!dataflowMap.containsKey(typeQualifierValue)) {
+                missing.add(typeQualifierValue);
+            }
+        }
+        if (missing.size() < 2) {
+            return;
+        }
+
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        XMethod xmethod = XFactory.createXMethod(methodDescriptor);
+        ValueNumberDataflow vnaDataflow;
+        List<DataflowType> dataflows;
+        try {
+            DepthFirstSearch dfs = analysisCache.getMethodAnalysis(DepthFirstSearch.class, methodDescriptor);
+            CFG cfg = analysisCache.getMethodAnalysis(CFG.class, methodDescriptor);
+            vnaDataflow = analysisCache.getMethodAnalysis(ValueNumberDataflow.class, methodDescriptor);
+            ConstantPoolGen cpg = analysisCache.getClassAnalysis(ConstantPoolGen.class, methodDescriptor.getClassDescriptor());
+
+            dataflows = getDataflows(dfs, xmethod, cfg, vnaDataflow, cpg, analysisCache, methodDescriptor, missing);
+        } catch (CheckedAnalysisException | RuntimeException e) {
+            return;
+        }
+
+        for (int i = 0; i < missing.size(); i++) {
+            DataflowResult<DataflowType> result = new DataflowResult<>();
+            result.dataflow = dataflows.get(i);
+            dataflowMap.put(missing.get(i), result);
+            populateDatabase(result, analysisCache, vnaDataflow, xmethod, missing.get(i));
+        }
+    }
+
     private DataflowResult<DataflowType> compute(TypeQualifierValue<?> typeQualifierValue) {
         DataflowResult<DataflowType> result = new DataflowResult<>();
 
@@ -95,13 +152,7 @@ public abstract class TypeQualifierDataflowFactory<AnalysisType extends TypeQual
 
             result.dataflow = dataflow;
 
-            if (TypeQualifierDatabase.USE_DATABASE) {
-                try {
-                    populateDatabase(dataflow, vnaDataflow, xmethod, typeQualifierValue);
-                } catch (DataflowAnalysisException e) {
-                    analysisCache.getErrorLogger().logError("Error populating type qualifier database", e);
-                }
-            }
+            populateDatabase(result, analysisCache, vnaDataflow, xmethod, typeQualifierValue);
         } catch (CheckedAnalysisException e) {
             result.checkedException = e;
         } catch (RuntimeException e) {
@@ -111,10 +162,36 @@ public abstract class TypeQualifierDataflowFactory<AnalysisType extends TypeQual
         return result;
     }
 
+    private void populateDatabase(DataflowResult<DataflowType> result, IAnalysisCache analysisCache,
+            ValueNumberDataflow vnaDataflow, XMethod xmethod, TypeQualifierValue<?> typeQualifierValue) {
+        if (TypeQualifierDatabase.USE_DATABASE) {
+            try {
+                populateDatabase(result.dataflow, vnaDataflow, xmethod, typeQualifierValue);
+            } catch (DataflowAnalysisException e) {
+                analysisCache.getErrorLogger().logError("Error populating type qualifier database", e);
+            } catch (CheckedAnalysisException e) {
+                result.checkedException = e;
+            } catch (RuntimeException e) {
+                result.runtimeException = e;
+            }
+        }
+    }
+
     protected abstract DataflowType getDataflow(DepthFirstSearch dfs, XMethod xmethod, CFG cfg, ValueNumberDataflow vnaDataflow,
             ConstantPoolGen cpg, IAnalysisCache analysisCache, MethodDescriptor methodDescriptor1,
             TypeQualifierValue<?> typeQualifierValue) throws CheckedAnalysisException;
 
+    /**
+     * Compute the dataflows of several type qualifiers with a
+     * {@link MultiTypeQualifierDataflowAnalysis}.
+     *
+     * @return the dataflows, in the order of the type qualifiers
+     */
+    protected abstract List<DataflowType> getDataflows(DepthFirstSearch dfs, XMethod xmethod, CFG cfg,
+            ValueNumberDataflow vnaDataflow, ConstantPoolGen cpg, IAnalysisCache analysisCache,
+            MethodDescriptor methodDescriptor1, List<TypeQualifierValue<?>> typeQualifierValues)
+                    throws CheckedAnalysisException;
+
     protected abstract void populateDatabase(DataflowType dataflow, ValueNumberDataflow vnaDataflow, XMethod xmethod,
             TypeQualifierValue<?> tqv) throws CheckedAnalysisException;
 
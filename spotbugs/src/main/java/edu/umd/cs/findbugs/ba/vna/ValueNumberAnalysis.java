@@ -79,6 +79,8 @@ public class ValueNumberAnalysis extends FrameDataflowAnalysis<ValueNumber, Valu
 
     private MergeTree mergeTree;
 
+    private final ValueNumberFrame.LoadMapStatistics loadMapStatistics = new ValueNumberFrame.LoadMapStatistics();
+
     public ValueNumberAnalysis(MethodGen methodGen, DepthFirstSearch dfs, LoadedFieldSet loadedFieldSet,
             RepositoryLookupFailureCallback lookupFailureCallback) {
 
@@ -123,6 +125,14 @@ public class ValueNumberAnalysis extends FrameDataflowAnalysis<ValueNumber, Valu
         return mergeTree;
     }
 
+    /**
+     * @return the counters of the available load map operations of the
+     *         frames of this analysis
+     */
+    public ValueNumberFrame.LoadMapStatistics getLoadMapStatistics() {
+        return loadMapStatistics;
+    }
+
     public ValueNumberFactory getFactory() {
         return factory;
     }
@@ -178,7 +188,7 @@ public class ValueNumberAnalysis extends FrameDataflowAnalysis<ValueNumber, Valu
 
     @Override
     public ValueNumberFrame createFact() {
-        return new ValueNumberFrame(methodGen.getMaxLocals());
+        return new ValueNumberFrame(methodGen.getMaxLocals(), loadMapStatistics);
     }
 
     @Override
@@ -259,6 +269,9 @@ public class ValueNumberAnalysis extends FrameDataflowAnalysis<ValueNumber, Valu
     protected void mergeInto(ValueNumberFrame frame, ValueNumberFrame result) throws DataflowAnalysisException {
         result.mergeAvailableLoadSets(frame, factory, mergeTree);
         super.mergeInto(frame, result);
+        if (ValueNumberAnalysisFeatures.PRUNE_DEAD_LOADS) {
+            result.pruneDeadLoads();
+        }
     }
 
     @Override
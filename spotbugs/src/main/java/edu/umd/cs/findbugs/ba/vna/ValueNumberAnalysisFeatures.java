@@ -45,5 +45,13 @@ public interface ValueNumberAnalysisFeatures {
      * Debug redundant load elimination.
      */
     public static final boolean RLE_DEBUG = SystemProperties.getBoolean("vna.rle.debug");
+
+    /**
+     * When set, drop the available loads whose reference and values are no
+     * longer reachable from the frame when frames are merged. This keeps the
+     * frames of methods reading many fields small, but a detector can no longer
+     * look up such a load.
+     */
+    public static final boolean PRUNE_DEAD_LOADS = SystemProperties.getBoolean("vna.rle.prune");
 }
 
@@ -38,7 +38,7 @@ import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.FieldSummary;
 import edu.umd.cs.findbugs.ba.Frame;
 import edu.umd.cs.findbugs.ba.XField;
-import edu.umd.cs.findbugs.util.Util;
+import edu.umd.cs.findbugs.util.PersistentHashMap;
 
 /**
  * A dataflow value representing a Java stack frame with value number
@@ -52,46 +52,82 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
 
     private ArrayList<ValueNumber> mergedValueList;
 
-    private Map<AvailableLoad, ValueNumber[]> availableLoadMap;
+    /*
+     * The available loads and the loads that values were previously known as are
+     * persistent maps, shared between frames by copyFrom() and only copied
+     * along the path to a changed entry. The phi values created for merged
+     * loads are kept per frame, since they must stay stable over the
+     * iterations of the dataflow on the same frame.
+     */
+    private PersistentHashMap<AvailableLoad, ValueNumber[]> availableLoadMap;
 
     private Map<AvailableLoad, ValueNumber> mergedLoads;
 
-    private Map<ValueNumber, AvailableLoad> previouslyKnownAs;
+    private PersistentHashMap<ValueNumber, AvailableLoad> previouslyKnownAs;
 
     public boolean phiNodeForLoads;
 
     private static final boolean USE_WRITTEN_OUTSIDE_OF_CONSTRUCTOR = true;
 
-    static int constructedUnmodifiableMap;
+    private final @CheckForNull LoadMapStatistics statistics;
 
-    static int reusedMap;
+    /**
+     * Counters of the available load map operations of the frames of one
+     * analysis.
+     *
+     * @see ValueNumberAnalysis#getLoadMapStatistics()
+     */
+    public static class LoadMapStatistics {
+        int sharedMaps;
 
-    static int createdEmptyMap;
+        int updatedMaps;
 
-    static int madeImmutableMutable;
+        int prunedLoads;
 
-    static int reusedMutableMap;
+        /**
+         * @return the number of maps shared with another frame instead of
+         *         being copied
+         */
+        public int getSharedMaps() {
+            return sharedMaps;
+        }
 
-    static {
-        Util.runLogAtShutdown(() -> {
-            System.err.println("Getting updatable previously known as:");
-            System.err.println("  " + createdEmptyMap + " created empty map");
-            System.err.println("  " + madeImmutableMutable + " made immutable map mutable");
-            System.err.println("  " + reusedMutableMap + " reused mutable map");
-            System.err.println("Copying map:");
-            System.err.println("  " + constructedUnmodifiableMap + " made mutable map unmodifiable");
-            System.err.println("  " + reusedMap + " reused immutable map");
-            System.err.println();
+        /**
+         * @return the number of maps derived from another one by adding or
+         *         removing entries
+         */
+        public int getUpdatedMaps() {
+            return updatedMaps;
+        }
 
-        });
+        /**
+         * @return the number of available loads dropped because neither their
+         *         reference nor their values were live any more
+         */
+        public int getPrunedLoads() {
+            return prunedLoads;
+        }
     }
 
     public ValueNumberFrame(int numLocals) {
+        this(numLocals, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numLocals
+     *            number of locals in the method
+     * @param statistics
+     *            the counters of the analysis creating the frame, or null
+     */
+    public ValueNumberFrame(int numLocals, @CheckForNull LoadMapStatistics statistics) {
         super(numLocals);
+        this.statistics = statistics;
         if (REDUNDANT_LOAD_ELIMINATION) {
-            setAvailableLoadMap(Collections.<AvailableLoad, ValueNumber[]> emptyMap());
+            setAvailableLoadMap(PersistentHashMap.<AvailableLoad, ValueNumber[]> empty());
             setMergedLoads(Collections.<AvailableLoad, ValueNumber> emptyMap());
-            setPreviouslyKnownAs(Collections.<ValueNumber, AvailableLoad> emptyMap());
+            setPreviouslyKnownAs(PersistentHashMap.<ValueNumber, AvailableLoad> empty());
         }
     }
 
@@ -149,10 +185,11 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
      */
     public void addAvailableLoad(AvailableLoad availableLoad, @Nonnull ValueNumber[] value) {
         Objects.requireNonNull(value);
-        getUpdateableAvailableLoadMap().put(availableLoad, value);
+        setAvailableLoadMap(availableLoadMap.plus(availableLoad, value));
+        countUpdate();
 
         for (ValueNumber v : value) {
-            getUpdateablePreviouslyKnownAs().put(v, availableLoad);
+            setPreviouslyKnownAs(previouslyKnownAs.plus(v, availableLoad));
             if (RLE_DEBUG) {
                 System.out.println("Adding available load of " + availableLoad + " for " + v + " to "
                         + System.identityHashCode(this));
@@ -160,12 +197,6 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
         }
     }
 
-    private static <K, V> void removeAllKeys(Map<K, V> map, Iterable<K> removeMe) {
-        for (K k : removeMe) {
-            map.remove(k);
-        }
-    }
-
     /**
      * Kill all loads of given field.
      *
@@ -296,7 +327,18 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
 
     private void killAvailableLoads(HashSet<AvailableLoad> killMe) {
         if (killMe.size() > 0) {
-            removeAllKeys(getUpdateableAvailableLoadMap(), killMe);
+            PersistentHashMap<AvailableLoad, ValueNumber[]> map = availableLoadMap;
+            for (AvailableLoad load : killMe) {
+                map = map.minus(load);
+            }
+            setAvailableLoadMap(map);
+            countUpdate();
+        }
+    }
+
+    private void countUpdate() {
+        if (statistics != null) {
+            statistics.updatedMaps++;
         }
     }
 
@@ -316,9 +358,10 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
             boolean changed = false;
             if (other.isBottom()) {
                 changed = !this.getAvailableLoadMap().isEmpty();
-                setAvailableLoadMap(Collections.<AvailableLoad, ValueNumber[]> emptyMap());
+                setAvailableLoadMap(PersistentHashMap.<AvailableLoad, ValueNumber[]> empty());
             } else if (!other.isTop()) {
-                for (Map.Entry<AvailableLoad, ValueNumber[]> e : getUpdateableAvailableLoadMap().entrySet()) {
+                PersistentHashMap<AvailableLoad, ValueNumber[]> merged = availableLoadMap;
+                for (Map.Entry<AvailableLoad, ValueNumber[]> e : availableLoadMap.entrySet()) {
                     AvailableLoad load = e.getKey();
                     ValueNumber[] myVN = e.getValue();
                     ValueNumber[] otherVN = other.getAvailableLoadMap().get(load);
@@ -364,7 +407,7 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
                                         + " x " + Arrays.toString(otherVN) + " in " + System.identityHashCode(this));
                             }
                             changed = true;
-                            e.setValue(new ValueNumber[] { phi });
+                            merged = merged.plus(load, new ValueNumber[] { phi });
                         } else {
                             if (RLE_DEBUG) {
                                 System.out.println("Reusing phi node : " + phi + " for " + load + " from "
@@ -372,20 +415,29 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
                                         + System.identityHashCode(this));
                             }
                             if (myVN.length != 1 || !myVN[0].equals(phi)) {
-                                e.setValue(new ValueNumber[] { phi });
+                                merged = merged.plus(load, new ValueNumber[] { phi });
                             }
                         }
 
                     }
 
                 }
+                if (merged != availableLoadMap) {
+                    setAvailableLoadMap(merged);
+                    countUpdate();
+                }
             }
-            Map<ValueNumber, AvailableLoad> previouslyKnownAsOther = other.getPreviouslyKnownAs();
+            PersistentHashMap<ValueNumber, AvailableLoad> previouslyKnownAsOther = other.getPreviouslyKnownAs();
             if (getPreviouslyKnownAs() != previouslyKnownAsOther && previouslyKnownAsOther.size() != 0) {
                 if (getPreviouslyKnownAs().size() == 0) {
-                    assignPreviouslyKnownAs(other);
+                    setPreviouslyKnownAs(previouslyKnownAsOther);
+                    countShare();
                 } else {
-                    getUpdateablePreviouslyKnownAs().putAll(previouslyKnownAsOther);
+                    PersistentHashMap<ValueNumber, AvailableLoad> map = previouslyKnownAs;
+                    for (Map.Entry<ValueNumber, AvailableLoad> e : previouslyKnownAsOther.entrySet()) {
+                        map = map.plus(e.getKey(), e.getValue());
+                    }
+                    setPreviouslyKnownAs(map);
                 }
             }
             if (changed) {
@@ -424,37 +476,77 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
         }
 
         if (REDUNDANT_LOAD_ELIMINATION) {
-            assignAvailableLoadMap((ValueNumberFrame) other);
-            assignPreviouslyKnownAs((ValueNumberFrame) other);
+            ValueNumberFrame otherFrame = (ValueNumberFrame) other;
+            setAvailableLoadMap(otherFrame.getAvailableLoadMap());
+            setPreviouslyKnownAs(otherFrame.getPreviouslyKnownAs());
+            countShare();
         }
 
         super.copyFrom(other);
     }
 
-    private void assignAvailableLoadMap(ValueNumberFrame other) {
-        Map<AvailableLoad, ValueNumber[]> availableLoadMapOther = other.getAvailableLoadMap();
-        if (availableLoadMapOther instanceof HashMap) {
-            availableLoadMapOther = Collections.<AvailableLoad, ValueNumber[]> unmodifiableMap(availableLoadMapOther);
-            other.setAvailableLoadMap(availableLoadMapOther);
-            setAvailableLoadMap(availableLoadMapOther);
-            constructedUnmodifiableMap++;
-        } else {
-            setAvailableLoadMap(availableLoadMapOther);
-            reusedMap++;
+    private void countShare() {
+        if (statistics != null) {
+            statistics.sharedMaps++;
         }
     }
 
-    private void assignPreviouslyKnownAs(ValueNumberFrame other) {
-        Map<ValueNumber, AvailableLoad> previouslyKnownAsOther = other.getPreviouslyKnownAs();
-        if (previouslyKnownAsOther instanceof HashMap) {
-            previouslyKnownAsOther = Collections.<ValueNumber, AvailableLoad> unmodifiableMap(previouslyKnownAsOther);
-            other.setPreviouslyKnownAs(previouslyKnownAsOther);
-            setPreviouslyKnownAs(previouslyKnownAsOther);
-            constructedUnmodifiableMap++;
-        } else {
-            setPreviouslyKnownAs(previouslyKnownAsOther);
-            reusedMap++;
+    /**
+     * Drop the available loads which can no longer matter: those whose
+     * reference is not reachable from the values in the frame, and whose
+     * values are not in the frame either. A load is reachable if its reference
+     * is in the frame, or is one of the values of another reachable load. Loads
+     * of static fields are always kept.
+     */
+    void pruneDeadLoads() {
+        if (!REDUNDANT_LOAD_ELIMINATION || !isValid() || availableLoadMap.isEmpty()) {
+            return;
         }
+        HashSet<ValueNumber> live = new HashSet<>();
+        int numSlots = getNumSlots();
+        for (int i = 0; i < numSlots; i++) {
+            live.add(getValue(i));
+        }
+        HashSet<AvailableLoad> keep = new HashSet<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<AvailableLoad, ValueNumber[]> e : availableLoadMap.entrySet()) {
+                AvailableLoad load = e.getKey();
+                if (keep.contains(load)) {
+                    continue;
+                }
+                ValueNumber reference = load.getReference();
+                if (reference == null || live.contains(reference) || containsAny(live, e.getValue())) {
+                    keep.add(load);
+                    live.addAll(Arrays.asList(e.getValue()));
+                    changed = true;
+                }
+            }
+        }
+        if (keep.size() == availableLoadMap.size()) {
+            return;
+        }
+        PersistentHashMap<AvailableLoad, ValueNumber[]> map = availableLoadMap;
+        for (AvailableLoad load : availableLoadMap.keySet()) {
+            if (!keep.contains(load)) {
+                map = map.minus(load);
+            }
+        }
+        if (statistics != null) {
+            statistics.prunedLoads += availableLoadMap.size() - map.size();
+        }
+        setAvailableLoadMap(map);
+        countUpdate();
+    }
+
+    private static boolean containsAny(Set<ValueNumber> set, ValueNumber[] values) {
+        for (ValueNumber v : values) {
+            if (set.contains(v)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -593,20 +685,11 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
         return result;
     }
 
-    private void setAvailableLoadMap(Map<AvailableLoad, ValueNumber[]> availableLoadMap) {
+    private void setAvailableLoadMap(PersistentHashMap<AvailableLoad, ValueNumber[]> availableLoadMap) {
         this.availableLoadMap = availableLoadMap;
     }
 
-    private Map<AvailableLoad, ValueNumber[]> getAvailableLoadMap() {
-        return availableLoadMap;
-    }
-
-    private Map<AvailableLoad, ValueNumber[]> getUpdateableAvailableLoadMap() {
-        if (!(availableLoadMap instanceof HashMap)) {
-            HashMap<AvailableLoad, ValueNumber[]> tmp = new HashMap<>(availableLoadMap.size() + 4);
-            tmp.putAll(availableLoadMap);
-            availableLoadMap = tmp;
-        }
+    private PersistentHashMap<AvailableLoad, ValueNumber[]> getAvailableLoadMap() {
         return availableLoadMap;
     }
 
@@ -626,27 +709,11 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
         return mergedLoads;
     }
 
-    private void setPreviouslyKnownAs(Map<ValueNumber, AvailableLoad> previouslyKnownAs) {
+    private void setPreviouslyKnownAs(PersistentHashMap<ValueNumber, AvailableLoad> previouslyKnownAs) {
         this.previouslyKnownAs = previouslyKnownAs;
     }
 
-    private Map<ValueNumber, AvailableLoad> getPreviouslyKnownAs() {
-        return previouslyKnownAs;
-    }
-
-    private Map<ValueNumber, AvailableLoad> getUpdateablePreviouslyKnownAs() {
-        if (previouslyKnownAs.size() == 0) {
-            previouslyKnownAs = new HashMap<>(4);
-            createdEmptyMap++;
-        } else if (!(previouslyKnownAs instanceof HashMap)) {
-            HashMap<ValueNumber, AvailableLoad> tmp = new HashMap<>(previouslyKnownAs.size() + 4);
-            tmp.putAll(previouslyKnownAs);
-            previouslyKnownAs = tmp;
-            madeImmutableMutable++;
-        } else {
-            reusedMutableMap++;
-        }
-
+    private PersistentHashMap<ValueNumber, AvailableLoad> getPreviouslyKnownAs() {
         return previouslyKnownAs;
     }
 
@@ -659,6 +726,9 @@ public class ValueNumberFrame extends Frame<ValueNumber> implements ValueNumberA
             return true;
         }
         ValueNumberFrame o = (ValueNumberFrame)other;
+        if (availableLoadMap == o.availableLoadMap) {
+            return true;
+        }
         if(availableLoadMap.size() != o.availableLoadMap.size()) {
             return false;
         }
@@ -22,6 +22,7 @@ package edu.umd.cs.findbugs.classfile;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -52,13 +53,15 @@ public class DescriptorFactory {
         }
     };
 
-    private final Map<String, ClassDescriptor> classDescriptorMap;
+    // Replaced by concurrent maps when the factory is shared by several
+    // threads, see makeConcurrent()
+    private Map<String, ClassDescriptor> classDescriptorMap;
 
-    private final Map<String, ClassDescriptor> dottedClassDescriptorMap;
+    private Map<String, ClassDescriptor> dottedClassDescriptorMap;
 
-    private final Map<MethodDescriptor, MethodDescriptor> methodDescriptorMap;
+    private Map<MethodDescriptor, MethodDescriptor> methodDescriptorMap;
 
-    private final Map<FieldDescriptor, FieldDescriptor> fieldDescriptorMap;
+    private Map<FieldDescriptor, FieldDescriptor> fieldDescriptorMap;
 
     private static final ClassDescriptor MODULE_INFO = new ClassDescriptor("module-info");
 
@@ -94,6 +97,44 @@ public class DescriptorFactory {
         instanceThreadLocal.remove();
     }
 
+    /**
+     * Make the current thread use the given factory, so that descriptors
+     * created on this thread are identical to those created on the threads
+     * sharing the factory. The factory must have been made concurrent.
+     *
+     * @param factory
+     *            the factory to use
+     * @see #makeConcurrent()
+     */
+    public static void setInstanceForCurrentThread(DescriptorFactory factory) {
+        if (!factory.isConcurrent()) {
+            throw new IllegalStateException("sharing a descriptor factory which is not concurrent");
+        }
+        instanceThreadLocal.set(factory);
+    }
+
+    /**
+     * Let several threads intern descriptors in this factory. Must be called
+     * before the factory is handed to other threads, by the thread owning it.
+     * The factory stays concurrent afterwards.
+     */
+    public void makeConcurrent() {
+        if (isConcurrent()) {
+            return;
+        }
+        classDescriptorMap = new ConcurrentHashMap<>(classDescriptorMap);
+        dottedClassDescriptorMap = new ConcurrentHashMap<>(dottedClassDescriptorMap);
+        methodDescriptorMap = new ConcurrentHashMap<>(methodDescriptorMap);
+        fieldDescriptorMap = new ConcurrentHashMap<>(fieldDescriptorMap);
+    }
+
+    /**
+     * @return true if several threads can intern descriptors in this factory
+     */
+    public boolean isConcurrent() {
+        return classDescriptorMap instanceof ConcurrentHashMap;
+    }
+
     public Collection<ClassDescriptor> getAllClassDescriptors() {
         return classDescriptorMap.values();
     }
@@ -128,7 +169,10 @@ public class DescriptorFactory {
                 return MODULE_INFO;
             }
             classDescriptor = new ClassDescriptor(className);
-            classDescriptorMap.put(className, classDescriptor);
+            ClassDescriptor existing = classDescriptorMap.putIfAbsent(className, classDescriptor);
+            if (existing != null) {
+                classDescriptor = existing;
+            }
         }
         return classDescriptor;
     }
@@ -177,8 +221,10 @@ public class DescriptorFactory {
         MethodDescriptor methodDescriptor = new MethodDescriptor(className, name, signature, isStatic);
         MethodDescriptor existing = methodDescriptorMap.get(methodDescriptor);
         if (existing == null) {
-            methodDescriptorMap.put(methodDescriptor, methodDescriptor);
-            existing = methodDescriptor;
+            existing = methodDescriptorMap.putIfAbsent(methodDescriptor, methodDescriptor);
+            if (existing == null) {
+                existing = methodDescriptor;
+            }
         }
         return existing;
     }
@@ -240,8 +286,10 @@ public class DescriptorFactory {
         FieldDescriptor fieldDescriptor = new FieldDescriptor(className, name, signature, isStatic);
         FieldDescriptor existing = fieldDescriptorMap.get(fieldDescriptor);
         if (existing == null) {
-            fieldDescriptorMap.put(fieldDescriptor, fieldDescriptor);
-            existing = fieldDescriptor;
+            existing = fieldDescriptorMap.putIfAbsent(fieldDescriptor, fieldDescriptor);
+            if (existing == null) {
+                existing = fieldDescriptor;
+            }
         }
         return existing;
     }
@@ -142,6 +142,14 @@ public interface IAnalysisCache {
      */
     public void purgeClassAnalysis(Class<?> analysisClass);
 
+    /**
+     * Purge the analysis results that must not be carried over to the next
+     * pass. The results of {@link IPassInvariantMethodAnalysisEngine}s may be
+     * kept up to a bounded estimated heap size, all the other method analysis
+     * results and the ASM class readers are purged.
+     */
+    public void purgeBeforePass();
+
     /**
      * Register a database factory.
      *
@@ -19,6 +19,7 @@
 
 package edu.umd.cs.findbugs.classfile.analysis;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -69,6 +70,33 @@ public class AnnotationValue {
         return annotationClass;
     }
 
+    /**
+     * Add the classes whose descriptors were created while parsing this
+     * annotation: the annotation class, and the classes of the annotations
+     * and enum constants of its values.
+     *
+     * @param result
+     *            the collection the classes are added to
+     */
+    public void addReferencedClasses(Collection<ClassDescriptor> result) {
+        result.add(annotationClass);
+        for (Object value : valueMap.values()) {
+            addReferencedClasses(value, result);
+        }
+    }
+
+    private static void addReferencedClasses(Object value, Collection<ClassDescriptor> result) {
+        if (value instanceof AnnotationValue) {
+            ((AnnotationValue) value).addReferencedClasses(result);
+        } else if (value instanceof EnumValue) {
+            result.add(((EnumValue) value).desc);
+        } else if (value instanceof Object[]) {
+            for (Object element : (Object[]) value) {
+                addReferencedClasses(element, result);
+            }
+        }
+    }
+
     /**
      * Get the value of given annotation element. See <a href=
      * "http://asm.objectweb.org/current/doc/javadoc/user/org/objectweb/asm/AnnotationVisitor.html"
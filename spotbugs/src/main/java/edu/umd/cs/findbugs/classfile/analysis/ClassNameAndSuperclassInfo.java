@@ -49,6 +49,8 @@ public class ClassNameAndSuperclassInfo extends ClassDescriptor {
 
     private final Set<ClassDescriptor> calledClassDescriptors;
 
+    private final Collection<ClassDescriptor> referencedClassDescriptors;
+
     private final int majorVersion, minorVersion;
 
     public static class Builder {
@@ -142,7 +144,6 @@ public class ClassNameAndSuperclassInfo extends ClassDescriptor {
 
     ClassNameAndSuperclassInfo(ClassDescriptor classDescriptor, ClassDescriptor superclassDescriptor,
             ClassDescriptor[] interfaceDescriptorList, ICodeBaseEntry codeBaseEntry, int accessFlags,
-            /* TODO: We aren't doing anything with this */
             Collection<ClassDescriptor> referencedClassDescriptorList,
             @Nonnull Set<ClassDescriptor> calledClassDescriptors, int majorVersion, int minorVersion) {
         super(classDescriptor.getClassName());
@@ -154,6 +155,8 @@ public class ClassNameAndSuperclassInfo extends ClassDescriptor {
             throw new NullPointerException("calledClassDescriptors must not be null");
         }
         this.calledClassDescriptors = calledClassDescriptors;
+        this.referencedClassDescriptors = referencedClassDescriptorList != null ? referencedClassDescriptorList
+                : Collections.<ClassDescriptor> emptyList();
         this.majorVersion = majorVersion;
         this.minorVersion = minorVersion;
 
@@ -208,6 +211,13 @@ public class ClassNameAndSuperclassInfo extends ClassDescriptor {
         return calledClassDescriptors;
     }
 
+    /**
+     * @return Returns the classes of the constant pool.
+     */
+    public Collection<ClassDescriptor> getReferencedClassDescriptors() {
+        return referencedClassDescriptors;
+    }
+
     /**
      * @return Returns the superclassDescriptor.
      */
@@ -19,11 +19,13 @@
 
 package edu.umd.cs.findbugs.classfile.analysis;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.annotation.ElementType;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.annotation.CheckForNull;
@@ -95,6 +97,11 @@ public class MethodInfo extends MethodDescriptor implements XMethod {
 
         int methodCallCount;
 
+        /** opcode, owner, name and descriptor of each distinct call, if recorded */
+        Map<String, MethodDescriptor> calledMethods;
+
+        ByteArrayOutputStream calledMethodOpcodes;
+
         MethodDescriptor accessMethodForMethod;
         FieldDescriptor accessMethodForField;
 
@@ -182,14 +189,46 @@ public class MethodInfo extends MethodDescriptor implements XMethod {
             map.put(annotationClass, value);
         }
 
+        /**
+         * Record a call of the method, the first call of each method with
+         * each opcode is kept
+         *
+         * @param opcode
+         *            the invoke opcode
+         * @param owner
+         *            the referenced class
+         * @param name
+         *            the name of the called method
+         * @param desc
+         *            the descriptor of the called method
+         */
+        public void addCalledMethod(int opcode, @SlashedClassName String owner, String name, String desc) {
+            if (calledMethods == null) {
+                calledMethods = new LinkedHashMap<>();
+                calledMethodOpcodes = new ByteArrayOutputStream();
+            }
+            String key = opcode + " " + owner + "." + name + desc;
+            if (!calledMethods.containsKey(key)) {
+                calledMethods.put(key, DescriptorFactory.instance().getMethodDescriptor(owner, name, desc,
+                        opcode == Opcodes.INVOKESTATIC));
+                calledMethodOpcodes.write(opcode);
+            }
+        }
+
         public MethodInfo build() {
             if (variableHasName != 0) {
                 variableIsSynthetic |= (~variableHasName);
             }
-            return new MethodInfo(className, methodName, methodSignature, methodSourceSignature, accessFlags,
+            MethodInfo methodInfo = new MethodInfo(className, methodName, methodSignature, methodSourceSignature, accessFlags,
                     isUnconditionalThrower, isUnsupported, usesConcurrency, hasBackBranch, isStub, isIdentity,
                     usesInvokeDynamic, methodCallCount, exceptions, accessMethodForMethod,
                     accessMethodForField, methodAnnotations, methodParameterAnnotations, variableIsSynthetic);
+            if (calledMethods != null) {
+                getCalledmethods().put(methodInfo, new CalledMethods(
+                        calledMethods.values().toArray(new MethodDescriptor[calledMethods.size()]),
+                        calledMethodOpcodes.toByteArray()));
+            }
+            return methodInfo;
         }
 
         public void setIsUnconditionalThrower() {
@@ -239,6 +278,44 @@ public class MethodInfo extends MethodDescriptor implements XMethod {
 
     Map<Integer, Map<ClassDescriptor, AnnotationValue>> methodParameterAnnotations;
 
+    /**
+     * The methods called by a method, in the order of their first call, with
+     * the opcode of that call
+     */
+    public static final class CalledMethods {
+        private final MethodDescriptor[] methods;
+
+        private final byte[] opcodes;
+
+        CalledMethods(MethodDescriptor[] methods, byte[] opcodes) {
+            this.methods = methods;
+            this.opcodes = opcodes;
+        }
+
+        public int size() {
+            return methods.length;
+        }
+
+        /**
+         * @param i
+         *            index of the call, between 0 and <code>size() - 1</code>
+         * @return the called method, as referenced by the call
+         */
+        public MethodDescriptor getMethod(int i) {
+            return methods[i];
+        }
+
+        /**
+         * @param i
+         *            index of the call, between 0 and <code>size() - 1</code>
+         * @return the opcode of the call, one of the invoke opcodes of
+         *         {@link Opcodes}
+         */
+        public int getOpcode(int i) {
+            return opcodes[i] & 0xff;
+        }
+    }
+
     public static class MethodInfoDatabase {
         final IdentityHashMap<MethodInfo, Void> unconditionalThrowers = new IdentityHashMap<>();
         final IdentityHashMap<MethodInfo, Void> unsupportedMethods = new IdentityHashMap<>();
@@ -246,7 +323,39 @@ public class MethodInfo extends MethodDescriptor implements XMethod {
         final IdentityHashMap<MethodInfo, FieldDescriptor> accessMethodForField = new IdentityHashMap<>();
         final IdentityHashMap<MethodInfo, Void> identityMethods = new IdentityHashMap<>();
         final IdentityHashMap<MethodInfo, Void> invokeDynamicMethods = new IdentityHashMap<>();
+        final IdentityHashMap<MethodInfo, CalledMethods> calledMethods = new IdentityHashMap<>();
+
+        /**
+         * Copy the entries of the given methods from the database of another
+         * analysis, so that the MethodInfo objects of that analysis can be
+         * reused (e.g. for library classes in an incremental build).
+         *
+         * @param from
+         *            the database of the other analysis
+         * @param methods
+         *            the methods whose entries are copied
+         */
+        public void copyEntries(MethodInfoDatabase from, Collection<? extends XMethod> methods) {
+            for (XMethod method : methods) {
+                if (!(method instanceof MethodInfo)) {
+                    continue;
+                }
+                MethodInfo m = (MethodInfo) method;
+                copyEntry(from.unconditionalThrowers, unconditionalThrowers, m);
+                copyEntry(from.unsupportedMethods, unsupportedMethods, m);
+                copyEntry(from.accessMethodForMethod, accessMethodForMethod, m);
+                copyEntry(from.accessMethodForField, accessMethodForField, m);
+                copyEntry(from.identityMethods, identityMethods, m);
+                copyEntry(from.invokeDynamicMethods, invokeDynamicMethods, m);
+                copyEntry(from.calledMethods, calledMethods, m);
+            }
+        }
 
+        private static <V> void copyEntry(IdentityHashMap<MethodInfo, V> from, IdentityHashMap<MethodInfo, V> to, MethodInfo m) {
+            if (from.containsKey(m)) {
+                to.put(m, from.get(m));
+            }
+        }
     }
 
     /**
@@ -278,6 +387,10 @@ public class MethodInfo extends MethodDescriptor implements XMethod {
         return getDatabase().invokeDynamicMethods;
     }
 
+    static IdentityHashMap<MethodInfo, CalledMethods> getCalledmethods() {
+        return getDatabase().calledMethods;
+    }
+
     MethodInfo(@SlashedClassName String className, String methodName, String methodSignature, String methodSourceSignature,
             int accessFlags, boolean isUnconditionalThrower, boolean isUnsupported, boolean usesConcurrency,
             boolean hasBackBranch, boolean isStub, boolean isIdentity,
@@ -363,6 +476,14 @@ public class MethodInfo extends MethodDescriptor implements XMethod {
         return methodCallCount;
     }
 
+    /**
+     * @return the methods called by this method, only recorded for the
+     *         methods of the application classes, null for the others
+     */
+    public @CheckForNull CalledMethods getCalledMethods() {
+        return getCalledmethods().get(this);
+    }
+
     private boolean checkFlag(int flag) {
         return (accessFlags & flag) != 0;
     }
@@ -0,0 +1,151 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import edu.umd.cs.findbugs.SystemProperties;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+
+/**
+ * Bytes of the application classes read while the class path is built, kept
+ * until the analysis asks for the data of the classes, so that each class is
+ * read (and inflated, in an archive) only once.
+ * <p>
+ * The pool is bounded by the total size of the application classes: when they
+ * do not all fit, pooling stops and the pool is emptied, since the first pass
+ * asks for the classes in another order than they are scanned, and most bytes
+ * would be dropped before being used. The class path builder then reads only
+ * the class headers again. The bytes of a class are handed out once, the
+ * ClassData of the class holds them afterwards, and the ASM and BCEL parsers
+ * read them from there. The bytes left once the first pass is over are dropped
+ * with {@link #clear()}.
+ */
+public class ClassBytesPool {
+
+    /** maximum number of bytes in the pool */
+    private static final long MAX_BYTES = SystemProperties.getInt("findbugs.classbytes.pool.kb", 64 * 1024) * 1024L;
+
+    private static final class Key {
+        final ICodeBase codeBase;
+
+        final String resourceName;
+
+        Key(ICodeBaseEntry entry) {
+            this.codeBase = entry.getCodeBase();
+            this.resourceName = entry.getResourceName();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return codeBase == other.codeBase && resourceName.equals(other.resourceName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 7919 * System.identityHashCode(codeBase) + resourceName.hashCode();
+        }
+    }
+
+    private final Map<Key, byte[]> pool = new LinkedHashMap<>();
+
+    /** total size of the classes offered to the pool */
+    private long offered;
+
+    private boolean disabled;
+
+    /**
+     * @param analysisCache
+     *            the analysis cache
+     * @return the pool of the analysis
+     */
+    public static synchronized ClassBytesPool getInstance(IAnalysisCache analysisCache) {
+        ClassBytesPool pool = analysisCache.getOptionalDatabase(ClassBytesPool.class);
+        if (pool == null) {
+            pool = new ClassBytesPool();
+            analysisCache.eagerlyPutDatabase(ClassBytesPool.class, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Reserves room for the bytes of a class about to be read. Once the
+     * application classes do not all fit, pooling stops for good.
+     *
+     * @param length
+     *            the size of the class, negative if unknown
+     * @return true if the bytes of the class should be read and put in the
+     *         pool
+     */
+    public synchronized boolean reserve(int length) {
+        if (disabled || length < 0) {
+            return false;
+        }
+        offered += length;
+        if (offered > MAX_BYTES) {
+            disabled = true;
+            pool.clear();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the bytes of a class, room must have been reserved for them
+     *
+     * @param entry
+     *            the codebase entry of the class, with its real resource name
+     * @param data
+     *            the bytes of the class
+     */
+    public synchronized void put(ICodeBaseEntry entry, byte[] data) {
+        if (!disabled) {
+            pool.put(new Key(entry), data);
+        }
+    }
+
+    /**
+     * @param entry
+     *            the codebase entry of a class
+     * @return the bytes of the class, removed from the pool, or null if they
+     *         are not in the pool
+     */
+    public synchronized @CheckForNull byte[] take(ICodeBaseEntry entry) {
+        return pool.remove(new Key(entry));
+    }
+
+    /**
+     * Drops the bytes not taken, once the first pass has read all the
+     * application classes
+     */
+    public synchronized void clear() {
+        pool.clear();
+        disabled = true;
+    }
+}
@@ -65,6 +65,10 @@ public class ClassDataAnalysisEngine extends RecomputableClassAnalysisEngine<Cla
         if (codeBaseEntry instanceof ZipInputStreamCodeBaseEntry) {
             data = ((ZipInputStreamCodeBaseEntry) codeBaseEntry).getBytes();
         } else {
+            // application classes are usually read while building the class path
+            data = ClassBytesPool.getInstance(analysisCache).take(codeBaseEntry);
+        }
+        if (data == null) {
             try {
                 // Create a ByteArrayOutputStream to capture the class data
                 int length = codeBaseEntry.getNumBytes();
@@ -339,6 +339,10 @@ public class ClassParserUsingASM implements ClassParserInterface {
             if (owner.startsWith("java/util/concurrent")) {
                 mBuilder.setUsesConcurrency();
             }
+            if (isApplicationClass() && owner.charAt(0) != '[') {
+                // for the call graph of the application methods
+                mBuilder.addCalledMethod(opcode, owner, name, desc);
+            }
             if (opcode == Opcodes.INVOKEINTERFACE) {
                 return;
             }
@@ -544,6 +548,13 @@ public class ClassParserUsingASM implements ClassParserInterface {
         this.codeBaseEntry = codeBaseEntry;
     }
 
+    /**
+     * @return true if the class is read from an application codebase
+     */
+    private boolean isApplicationClass() {
+        return codeBaseEntry != null && codeBaseEntry.getCodeBase().isApplicationCodeBase();
+    }
+
     @Override
     public void parse(final ClassNameAndSuperclassInfo.Builder cBuilder) throws InvalidClassFileFormatException {
 
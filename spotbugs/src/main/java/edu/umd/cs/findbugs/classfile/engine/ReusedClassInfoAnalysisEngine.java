@@ -0,0 +1,222 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.ba.XField;
+import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IClassAnalysisEngine;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
+import edu.umd.cs.findbugs.classfile.analysis.AnnotationValue;
+import edu.umd.cs.findbugs.classfile.analysis.ClassInfo;
+import edu.umd.cs.findbugs.classfile.analysis.MethodInfo;
+import edu.umd.cs.findbugs.classfile.analysis.MethodInfo.MethodInfoDatabase;
+import edu.umd.cs.findbugs.classfile.impl.AnalysisCache;
+
+/**
+ * Analysis engine producing the XClass objects of the library classes from
+ * the ClassInfo objects of a previous analysis in the same VM, instead of
+ * parsing the classes again. Classes found in another code base than in the
+ * previous analysis are parsed by a {@link ClassInfoAnalysisEngine}; the
+ * library code bases themselves must not have changed.
+ * <p>
+ * Parsing a class has side effects, which are replayed when its ClassInfo is
+ * reused: the descriptors of the classes it refers to are created in the
+ * DescriptorFactory of the analysis (the referenced classes, the XFactory
+ * and Subtypes2 are built from them), the entries of its methods are put in
+ * the MethodInfoDatabase and its bridge methods are set in the
+ * AnalysisContext. So an analysis reusing ClassInfo objects gives the same
+ * results as one parsing all the classes.
+ */
+public class ReusedClassInfoAnalysisEngine implements IClassAnalysisEngine<XClass> {
+
+    private final ClassInfoAnalysisEngine parser = new ClassInfoAnalysisEngine();
+
+    /** the library classes of the previous analysis, by class */
+    private final Map<ClassDescriptor, ClassInfo> classInfos = new HashMap<>();
+
+    /** code base path of the library classes */
+    private final Map<ClassDescriptor, String> codeBasePaths = new HashMap<>();
+
+    private MethodInfoDatabase methodInfoDatabase = new MethodInfoDatabase();
+
+    private final Map<MethodInfo, MethodInfo> bridges = new HashMap<>();
+
+    private int reusedCount;
+
+    /**
+     * Remember the ClassInfo objects of the library classes of an analysis,
+     * together with the side effects of their parsing, for the next one.
+     * Must be called before the DescriptorFactory and AnalysisContext of the
+     * analysis are cleared.
+     *
+     * @param analysisCache
+     *            the cache of the finished analysis
+     */
+    public void collect(AnalysisCache analysisCache) {
+        classInfos.clear();
+        codeBasePaths.clear();
+        methodInfoDatabase = new MethodInfoDatabase();
+        bridges.clear();
+        Map<ClassDescriptor, Object> xclasses = analysisCache.getClassAnalysis(XClass.class);
+        AnalysisContext context = AnalysisContext.currentAnalysisContext();
+        if (xclasses == null || context == null) {
+            return;
+        }
+        List<XMethod> methods = new ArrayList<>();
+        for (Object xclass : xclasses.values()) {
+            if (!(xclass instanceof ClassInfo)) {
+                continue;
+            }
+            ClassInfo classInfo = (ClassInfo) xclass;
+            ICodeBaseEntry codeBaseEntry = classInfo.getCodeBaseEntry();
+            if (codeBaseEntry == null) {
+                continue;
+            }
+            ICodeBase codeBase = codeBaseEntry.getCodeBase();
+            if (codeBase.isApplicationCodeBase() || codeBase.getPathName() == null) {
+                continue;
+            }
+            classInfos.put(classInfo, classInfo);
+            codeBasePaths.put(classInfo, codeBase.getPathName());
+            for (XMethod method : classInfo.getXMethods()) {
+                methods.add(method);
+                XMethod bridgeTo = context.getBridgeTo((MethodInfo) method);
+                if (bridgeTo instanceof MethodInfo) {
+                    bridges.put((MethodInfo) method, (MethodInfo) bridgeTo);
+                }
+            }
+        }
+        methodInfoDatabase.copyEntries(analysisCache.getDatabase(MethodInfoDatabase.class), methods);
+    }
+
+    /**
+     * @return the number of library classes remembered for the next analysis
+     */
+    public int getClassCount() {
+        return classInfos.size();
+    }
+
+    /**
+     * @return the number of ClassInfo objects reused since this engine was
+     *         created
+     */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    @Override
+    public XClass analyze(IAnalysisCache analysisCache, ClassDescriptor descriptor) throws CheckedAnalysisException {
+        ClassInfo classInfo = classInfos.get(descriptor);
+        if (classInfo == null || !isInSameCodeBase(analysisCache, descriptor)) {
+            return parser.analyze(analysisCache, descriptor);
+        }
+        DescriptorFactory descriptorFactory = DescriptorFactory.instance();
+        for (ClassDescriptor parsed : getParsedClassDescriptors(classInfo)) {
+            descriptorFactory.getClassDescriptor(parsed.getClassName());
+        }
+        analysisCache.getDatabase(MethodInfoDatabase.class).copyEntries(methodInfoDatabase, classInfo.getXMethods());
+        AnalysisContext context = AnalysisContext.currentAnalysisContext();
+        for (XMethod method : classInfo.getXMethods()) {
+            MethodInfo bridgeTo = bridges.get(method);
+            if (bridgeTo != null) {
+                context.setBridgeMethod((MethodInfo) method, bridgeTo);
+            }
+        }
+        reusedCount++;
+        return classInfo;
+    }
+
+    /**
+     * @return true if the class is still found in the code base it was parsed
+     *         from
+     */
+    private boolean isInSameCodeBase(IAnalysisCache analysisCache, ClassDescriptor descriptor) {
+        try {
+            ICodeBaseEntry codeBaseEntry = analysisCache.getClassPath().lookupResource(descriptor.toResourceName());
+            return codeBasePaths.get(descriptor).equals(codeBaseEntry.getCodeBase().getPathName());
+        } catch (ResourceNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the classes whose descriptors the parsing of the class created,
+     *         in about the order the parser created them
+     */
+    private static Collection<ClassDescriptor> getParsedClassDescriptors(ClassInfo classInfo) {
+        List<ClassDescriptor> result = new ArrayList<>();
+        result.add(classInfo);
+        for (ClassDescriptor iface : classInfo.getInterfaceDescriptorList()) {
+            result.add(iface);
+        }
+        if (classInfo.getSuperclassDescriptor() != null) {
+            result.add(classInfo.getSuperclassDescriptor());
+        }
+        for (AnnotationValue annotation : classInfo.getAnnotations()) {
+            annotation.addReferencedClasses(result);
+        }
+        if (classInfo.getImmediateEnclosingClass() != null) {
+            result.add(classInfo.getImmediateEnclosingClass());
+        }
+        for (XField field : classInfo.getXFields()) {
+            for (AnnotationValue annotation : field.getAnnotations()) {
+                annotation.addReferencedClasses(result);
+            }
+        }
+        for (XMethod method : classInfo.getXMethods()) {
+            for (AnnotationValue annotation : method.getAnnotations()) {
+                annotation.addReferencedClasses(result);
+            }
+            for (int i = 0; i < method.getNumParams(); i++) {
+                for (AnnotationValue annotation : method.getParameterAnnotations(i)) {
+                    annotation.addReferencedClasses(result);
+                }
+            }
+        }
+        result.addAll(classInfo.getCalledClassDescriptors());
+        result.addAll(classInfo.getReferencedClassDescriptors());
+        return result;
+    }
+
+    @Override
+    public void registerWith(IAnalysisCache analysisCache) {
+        analysisCache.registerClassAnalysisEngine(XClass.class, this);
+    }
+
+    @Override
+    public boolean canRecompute() {
+        // same as the ClassInfoAnalysisEngine
+        return false;
+    }
+}
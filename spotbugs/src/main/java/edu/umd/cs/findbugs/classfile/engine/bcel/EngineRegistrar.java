@@ -26,6 +26,7 @@ import edu.umd.cs.findbugs.ba.CheckReturnAnnotationDatabase;
 import edu.umd.cs.findbugs.ba.InnerClassAccessMap;
 import edu.umd.cs.findbugs.ba.JCIPAnnotationDatabase;
 import edu.umd.cs.findbugs.ba.SourceInfoMap;
+import edu.umd.cs.findbugs.ba.ch.CompactCallGraph;
 import edu.umd.cs.findbugs.ba.ch.Subtypes2;
 import edu.umd.cs.findbugs.ba.jsr305.DirectlyRelevantTypeQualifiersDatabase;
 import edu.umd.cs.findbugs.ba.jsr305.TypeQualifierDatabase;
@@ -86,6 +87,7 @@ public class EngineRegistrar implements IAnalysisEngineRegistrar {
         new ReflectionDatabaseFactory<>(DirectlyRelevantTypeQualifiersDatabase.class),
         new ReflectionDatabaseFactory<>(TypeQualifierDatabase.class),
         new ReflectionDatabaseFactory<>(MethodInfoDatabase.class),
+        new ReflectionDatabaseFactory<>(CompactCallGraph.class),
     };
 
     /*
@@ -36,6 +36,7 @@ import edu.umd.cs.findbugs.ba.XField;
 import edu.umd.cs.findbugs.ba.vna.LoadedFieldSet;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IPassInvariantMethodAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 
 /**
@@ -51,7 +52,8 @@ import edu.umd.cs.findbugs.classfile.MethodDescriptor;
  * get/putfield and get/putstatic, we also try to figure out field accessed
  * through calls to inner-class access methods.
  */
-public class LoadedFieldSetFactory extends AnalysisFactory<LoadedFieldSet> {
+public class LoadedFieldSetFactory extends AnalysisFactory<LoadedFieldSet>
+        implements IPassInvariantMethodAnalysisEngine<LoadedFieldSet> {
 
     static final BitSet fieldInstructionOpcodeSet = new BitSet();
     static {
@@ -25,6 +25,7 @@ import org.apache.bcel.classfile.Method;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IPassInvariantMethodAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 
 /**
@@ -32,7 +33,8 @@ import edu.umd.cs.findbugs.classfile.MethodDescriptor;
  *
  * @author David Hovemeyer
  */
-public class MethodFactory extends AnalysisFactory<Method> {
+public class MethodFactory extends AnalysisFactory<Method>
+        implements IPassInvariantMethodAnalysisEngine<Method> {
 
     public MethodFactory() {
         super("Method factory", Method.class);
@@ -31,6 +31,7 @@ import edu.umd.cs.findbugs.ba.XFactory;
 import edu.umd.cs.findbugs.ba.XMethod;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IPassInvariantMethodAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 
 /**
@@ -39,7 +40,8 @@ import edu.umd.cs.findbugs.classfile.MethodDescriptor;
  * @author David Hovemeyer
  * @author Bill Pugh
  */
-public class MethodGenFactory extends AnalysisFactory<MethodGen> {
+public class MethodGenFactory extends AnalysisFactory<MethodGen>
+        implements IPassInvariantMethodAnalysisEngine<MethodGen> {
     /**
      * Constructor.
      */
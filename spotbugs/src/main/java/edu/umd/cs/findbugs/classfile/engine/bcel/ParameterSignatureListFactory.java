@@ -24,6 +24,7 @@ import java.util.Iterator;
 import edu.umd.cs.findbugs.ba.SignatureParser;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IPassInvariantMethodAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 
 /**
@@ -31,7 +32,8 @@ import edu.umd.cs.findbugs.classfile.MethodDescriptor;
  *
  * @author David Hovemeyer
  */
-public class ParameterSignatureListFactory extends AnalysisFactory<String[]> {
+public class ParameterSignatureListFactory extends AnalysisFactory<String[]>
+        implements IPassInvariantMethodAnalysisEngine<String[]> {
     /**
      * Constructor.
      */
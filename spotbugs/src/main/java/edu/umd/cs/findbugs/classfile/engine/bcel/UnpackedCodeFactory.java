@@ -24,6 +24,7 @@ import org.apache.bcel.classfile.Method;
 import edu.umd.cs.findbugs.ba.BytecodeScanner;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IPassInvariantMethodAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 
 /**
@@ -31,7 +32,8 @@ import edu.umd.cs.findbugs.classfile.MethodDescriptor;
  *
  * @author David Hovemeyer
  */
-public class UnpackedCodeFactory extends AnalysisFactory<UnpackedCode> {
+public class UnpackedCodeFactory extends AnalysisFactory<UnpackedCode>
+        implements IPassInvariantMethodAnalysisEngine<UnpackedCode> {
     /**
      * Constructor.
      */
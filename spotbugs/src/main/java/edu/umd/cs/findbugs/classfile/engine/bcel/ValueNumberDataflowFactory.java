@@ -21,6 +21,7 @@ package edu.umd.cs.findbugs.classfile.engine.bcel;
 
 import java.util.Iterator;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.bcel.generic.MethodGen;
 
@@ -34,9 +35,11 @@ import edu.umd.cs.findbugs.ba.vna.LoadedFieldSet;
 import edu.umd.cs.findbugs.ba.vna.MergeTree;
 import edu.umd.cs.findbugs.ba.vna.ValueNumberAnalysis;
 import edu.umd.cs.findbugs.ba.vna.ValueNumberDataflow;
+import edu.umd.cs.findbugs.ba.vna.ValueNumberFrame;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import edu.umd.cs.findbugs.util.Util;
 
 /**
  * Analysis engine to produce ValueNumberDataflow objects for analyzed methods.
@@ -44,6 +47,23 @@ import edu.umd.cs.findbugs.classfile.MethodDescriptor;
  * @author David Hovemeyer
  */
 public class ValueNumberDataflowFactory extends AnalysisFactory<ValueNumberDataflow> {
+
+    private static final AtomicLong sharedMaps = new AtomicLong();
+
+    private static final AtomicLong updatedMaps = new AtomicLong();
+
+    private static final AtomicLong prunedLoads = new AtomicLong();
+
+    static {
+        Util.runLogAtShutdown(() -> {
+            System.err.println("Available load maps:");
+            System.err.println("  " + sharedMaps + " shared between frames");
+            System.err.println("  " + updatedMaps + " updated");
+            System.err.println("  " + prunedLoads + " dead loads pruned");
+            System.err.println();
+        });
+    }
+
     /**
      * Constructor.
      */
@@ -74,6 +94,10 @@ public class ValueNumberDataflowFactory extends AnalysisFactory<ValueNumberDataf
 
         ValueNumberDataflow vnaDataflow = new ValueNumberDataflow(cfg, analysis);
         vnaDataflow.execute();
+        ValueNumberFrame.LoadMapStatistics statistics = analysis.getLoadMapStatistics();
+        sharedMaps.addAndGet(statistics.getSharedMaps());
+        updatedMaps.addAndGet(statistics.getUpdatedMaps());
+        prunedLoads.addAndGet(statistics.getPrunedLoads());
         if (ClassContext.DUMP_DATAFLOW_ANALYSIS) {
             TreeSet<Location> tree = new TreeSet<>();
             for (Iterator<Location> locs = cfg.locationIterator(); locs.hasNext();) {
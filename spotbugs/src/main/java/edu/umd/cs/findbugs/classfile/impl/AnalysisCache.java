@@ -24,13 +24,21 @@ import static java.util.Objects.requireNonNull;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
+import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
 
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.SystemProperties;
@@ -47,8 +55,10 @@ import edu.umd.cs.findbugs.classfile.IClassPath;
 import edu.umd.cs.findbugs.classfile.IDatabaseFactory;
 import edu.umd.cs.findbugs.classfile.IErrorLogger;
 import edu.umd.cs.findbugs.classfile.IMethodAnalysisEngine;
+import edu.umd.cs.findbugs.classfile.IPassInvariantMethodAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 import edu.umd.cs.findbugs.classfile.UncheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.engine.bcel.UnpackedCode;
 import edu.umd.cs.findbugs.log.Profiler;
 import edu.umd.cs.findbugs.util.MapCache;
 
@@ -72,6 +82,33 @@ public class AnalysisCache implements IAnalysisCache {
      */
     private static final int MAX_CLASS_RESULTS_TO_CACHE = 5000;
 
+    /**
+     * Keep the results of pass-invariant method analyses from one pass to the
+     * next.
+     */
+    private static final boolean KEEP_PASS_INVARIANT_RESULTS = SystemProperties.getBoolean(
+            "findbugs.cache.keepPassInvariant", true);
+
+    /**
+     * Maximum estimated heap size of the pass-invariant method analysis
+     * results kept from one pass to the next, see
+     * {@link #estimateRetainedBytes(JavaClass)}.
+     */
+    private static final long KEEP_PASS_INVARIANT_MAX_BYTES = SystemProperties.getInt(
+            "findbugs.cache.keepPassInvariant.maxMegabytes", 64) * 1024L * 1024L;
+
+    /** estimated size of an object header and a few fields */
+    private static final int OBJECT_BYTES = 32;
+
+    /**
+     * estimated size of an InstructionHandle and its Instruction, which make
+     * most of a MethodGen
+     */
+    private static final int INSTRUCTION_BYTES = 2 * OBJECT_BYTES + 16;
+
+    /** estimated size of a constant and of its ConstantPoolGen entry */
+    private static final int CONSTANT_BYTES = 2 * OBJECT_BYTES;
+
     //    private static final boolean ASSERTIONS_ENABLED = SystemProperties.ASSERTIONS_ENABLED;
 
     // Fields
@@ -91,6 +128,60 @@ public class AnalysisCache implements IAnalysisCache {
 
     private final Map<?, ?> analysisLocals = Collections.synchronizedMap(new HashMap<>());
 
+    /**
+     * Results of the pass-invariant method analyses kept from one pass to the
+     * next, by class. Only these results are kept, not the ClassContexts
+     * holding the other analyses of the pass. Every pass visits the classes
+     * in the same order, so an LRU cache would have evicted a class long
+     * before the next pass comes back to it. Classes are therefore added in
+     * visiting order until {@link #KEEP_PASS_INVARIANT_MAX_BYTES} is reached,
+     * and are only evicted if their JavaClass was replaced.
+     */
+    private final Map<ClassDescriptor, KeptMethodAnalyses> keptMethodAnalyses;
+
+    /** estimated heap size of {@link #keptMethodAnalyses} */
+    private long keptBytes;
+
+    /** number of method analysis lookups answered by {@link #keptMethodAnalyses} */
+    private int keptMethodAnalysisHits;
+
+    /**
+     * The pass-invariant method analysis results of a class. They are only
+     * valid with the JavaClass they were computed from.
+     */
+    private static class KeptMethodAnalyses {
+        final JavaClass javaClass;
+
+        final Map<MethodDescriptor, Map<Class<?>, Object>> results = new HashMap<>();
+
+        long bytes;
+
+        KeptMethodAnalyses(JavaClass javaClass) {
+            this.javaClass = javaClass;
+        }
+    }
+
+    /**
+     * Cache this worker cache was forked from, or null for the analysis
+     * thread's own cache
+     */
+    private final @CheckForNull AnalysisCache parent;
+
+    /**
+     * Profiler private to a worker cache, or null to use the project profiler
+     */
+    private final @CheckForNull Profiler profiler;
+
+    /**
+     * The only lock held by worker threads on state shared with the analysis
+     * thread: the databases, the class analyses never recomputed, and
+     * Subtypes2 (see
+     * {@link edu.umd.cs.findbugs.ba.ch.Subtypes2#setSharedLock(Lock)}). Since
+     * there is a single lock, there is no lock order to get wrong. Shared with
+     * the worker caches.
+     */
+    private final ReentrantLock sharedStateLock;
+
     @Override
     public final Map<?, ?> getAnalysisLocals() {
         return analysisLocals;
@@ -162,6 +253,49 @@ public class AnalysisCache implements IAnalysisCache {
         this.databaseFactoryMap = new HashMap<>();
         this.classAnalysisMap = new HashMap<>();
         this.databaseMap = new HashMap<>();
+        this.keptMethodAnalyses = new HashMap<>();
+        this.parent = null;
+        this.profiler = null;
+        this.sharedStateLock = new ReentrantLock();
+    }
+
+    private AnalysisCache(AnalysisCache parent) {
+        this.classPath = parent.classPath;
+        this.bugReporter = parent.bugReporter;
+        this.classAnalysisEngineMap = new HashMap<>(parent.classAnalysisEngineMap);
+        this.methodAnalysisEngineMap = new HashMap<>(parent.methodAnalysisEngineMap);
+        this.databaseFactoryMap = parent.databaseFactoryMap;
+        this.classAnalysisMap = new HashMap<>();
+        this.databaseMap = parent.databaseMap;
+        this.keptMethodAnalyses = new HashMap<>();
+        this.parent = parent;
+        this.profiler = new Profiler();
+        this.sharedStateLock = parent.sharedStateLock;
+    }
+
+    /**
+     * Create a cache for use by a single worker thread. The worker cache
+     * shares the class path, the registered engines and the databases with
+     * this cache, but computes and keeps its own class and method analysis
+     * results, so it can be used concurrently with other worker caches. The
+     * class analysis results which are never recomputed, such as XClass, are
+     * still computed and kept by this cache. These lookups and the database
+     * lookups hold the {@link #getSharedStateLock() shared state lock}.
+     * <p>
+     * This cache must not be used by the analysis thread while worker caches
+     * are in use.
+     *
+     * @return a new worker cache
+     */
+    public AnalysisCache createWorkerCache() {
+        return new AnalysisCache(parent != null ? parent : this);
+    }
+
+    /**
+     * @return the lock guarding the state worker caches share with this cache
+     */
+    public Lock getSharedStateLock() {
+        return sharedStateLock;
     }
 
     @Override
@@ -186,6 +320,131 @@ public class AnalysisCache implements IAnalysisCache {
         }
     }
 
+    @Override
+    public void purgeBeforePass() {
+        purgeClassAnalysis(FBClassReader.class);
+        if (!KEEP_PASS_INVARIANT_RESULTS) {
+            purgeAllMethodAnalysis();
+            return;
+        }
+
+        Set<Class<?>> passInvariant = new HashSet<>();
+        for (Map.Entry<Class<?>, IMethodAnalysisEngine<?>> entry : methodAnalysisEngineMap.entrySet()) {
+            if (entry.getValue() instanceof IPassInvariantMethodAnalysisEngine) {
+                passInvariant.add(entry.getKey());
+            }
+        }
+        try {
+            Map<ClassDescriptor, ClassContext> map = getAllClassAnalysis(ClassContext.class);
+            Collection<?> allClassContexts = map.values();
+            for (Object c : allClassContexts) {
+                if (c instanceof ClassContext) {
+                    ((ClassContext) c).purgeAllMethodAnalysesExcept(passInvariant);
+                }
+            }
+        } catch (ClassCastException e) {
+            AnalysisContext.logError("Unable to purge method analysis", e);
+        }
+    }
+
+    /**
+     * @return the number of method analysis lookups answered by the results
+     *         kept from one pass to the next
+     */
+    public int getKeptMethodAnalysisHits() {
+        return keptMethodAnalysisHits;
+    }
+
+    /**
+     * Look up a method analysis result kept from an earlier pass.
+     *
+     * @return the kept result, or null if there is none or the ClassContext
+     *         has another JavaClass than the one it was computed from
+     */
+    private @CheckForNull Object getKeptMethodAnalysis(ClassContext classContext, Class<?> analysisClass,
+            MethodDescriptor methodDescriptor) {
+        KeptMethodAnalyses kept = keptMethodAnalyses.get(methodDescriptor.getClassDescriptor());
+        if (kept == null) {
+            return null;
+        }
+        if (kept.javaClass != classContext.getJavaClass()) {
+            // the JavaClass was evicted and parsed again, the kept results
+            // refer to the old one
+            keptMethodAnalyses.remove(methodDescriptor.getClassDescriptor());
+            keptBytes -= kept.bytes;
+            return null;
+        }
+        Map<Class<?>, Object> results = kept.results.get(methodDescriptor);
+        Object result = results != null ? results.get(analysisClass) : null;
+        if (result != null) {
+            keptMethodAnalysisHits++;
+        }
+        return result;
+    }
+
+    /**
+     * Keep a new method analysis result from one pass to the next, if it is
+     * pass-invariant and the analysis thread's cache still has room for it.
+     */
+    private void keepMethodAnalysis(ClassContext classContext, Class<?> analysisClass,
+            MethodDescriptor methodDescriptor, Object result) {
+        if (!KEEP_PASS_INVARIANT_RESULTS || parent != null || result instanceof AbnormalAnalysisResult
+                || !(methodAnalysisEngineMap.get(analysisClass) instanceof IPassInvariantMethodAnalysisEngine)) {
+            return;
+        }
+        ClassDescriptor classDescriptor = methodDescriptor.getClassDescriptor();
+        KeptMethodAnalyses kept = keptMethodAnalyses.get(classDescriptor);
+        long bytes = estimateRetainedBytes(result);
+        if (kept == null) {
+            // the JavaClass and its constant pool are retained too
+            bytes += estimateRetainedBytes(classContext.getJavaClass());
+        } else if (kept.javaClass != classContext.getJavaClass()) {
+            return;
+        }
+        if (keptBytes + bytes > KEEP_PASS_INVARIANT_MAX_BYTES) {
+            return;
+        }
+        if (kept == null) {
+            kept = new KeptMethodAnalyses(classContext.getJavaClass());
+            keptMethodAnalyses.put(classDescriptor, kept);
+        }
+        kept.results.computeIfAbsent(methodDescriptor, k -> new HashMap<>()).put(analysisClass, result);
+        kept.bytes += bytes;
+        keptBytes += bytes;
+    }
+
+    /**
+     * Estimate the heap size of a pass-invariant method analysis result, from
+     * the objects it is made of.
+     */
+    private static long estimateRetainedBytes(Object result) {
+        if (result instanceof Method) {
+            // part of the JavaClass
+            return 0;
+        }
+        if (result instanceof MethodGen) {
+            InstructionList instructions = ((MethodGen) result).getInstructionList();
+            return OBJECT_BYTES + (instructions != null ? (long) instructions.getLength() * INSTRUCTION_BYTES : 0);
+        }
+        if (result instanceof UnpackedCode) {
+            return OBJECT_BYTES + 2L * ((UnpackedCode) result).getOffsetToBytecodeMap().length;
+        }
+        return OBJECT_BYTES;
+    }
+
+    /**
+     * Estimate the heap size of a JavaClass: its constant pool, shared with
+     * the ConstantPoolGen of the kept MethodGens, and its bytecode.
+     */
+    private static long estimateRetainedBytes(JavaClass javaClass) {
+        long bytes = OBJECT_BYTES + (long) javaClass.getConstantPool().getLength() * CONSTANT_BYTES;
+        for (Method method : javaClass.getMethods()) {
+            Code code = method.getCode();
+            bytes += OBJECT_BYTES + (code != null ? code.getLength() : 0);
+        }
+        return bytes;
+    }
+
     @SuppressWarnings("unchecked")
     private <E> Map<ClassDescriptor, E> getAllClassAnalysis(Class<E> analysisClass)  {
         Map<ClassDescriptor, Object> descriptorMap
@@ -197,6 +456,10 @@ public class AnalysisCache implements IAnalysisCache {
     @Override
     public void purgeClassAnalysis(Class<?> analysisClass) {
         classAnalysisMap.remove(analysisClass);
+        if (analysisClass.equals(ClassContext.class)) {
+            keptMethodAnalyses.clear();
+            keptBytes = 0;
+        }
     }
 
     /**
@@ -204,6 +467,8 @@ public class AnalysisCache implements IAnalysisCache {
      */
     public void dispose(){
         classAnalysisMap.clear();
+        keptMethodAnalyses.clear();
+        keptBytes = 0;
         classAnalysisEngineMap.clear();
         analysisLocals.clear();
         databaseFactoryMap.clear();
@@ -239,6 +504,14 @@ public class AnalysisCache implements IAnalysisCache {
     @SuppressWarnings("unchecked")
     public <E> E getClassAnalysis(Class<E> analysisClass, @Nonnull ClassDescriptor classDescriptor) throws CheckedAnalysisException {
         requireNonNull(classDescriptor, "classDescriptor is null");
+        if (isSharedWithParent(analysisClass)) {
+            sharedStateLock.lock();
+            try {
+                return parent.getClassAnalysis(analysisClass, classDescriptor);
+            } finally {
+                sharedStateLock.unlock();
+            }
+        }
         // Get the descriptor->result map for this analysis class,
         // creating if necessary
         Map<ClassDescriptor, Object> descriptorMap = findOrCreateDescriptorMap(classAnalysisMap,
@@ -247,6 +520,14 @@ public class AnalysisCache implements IAnalysisCache {
 
         // See if there is a cached result in the descriptor map
         Object analysisResult = descriptorMap.get(classDescriptor);
+        if (analysisResult == null && analysisClass.equals(JavaClass.class)) {
+            // the kept method analyses are only valid with their JavaClass
+            KeptMethodAnalyses kept = keptMethodAnalyses.get(classDescriptor);
+            if (kept != null) {
+                analysisResult = kept.javaClass;
+                descriptorMap.put(classDescriptor, analysisResult);
+            }
+        }
         if (analysisResult == null) {
             // No cached result - compute (or recompute)
 
@@ -298,8 +579,34 @@ public class AnalysisCache implements IAnalysisCache {
         return checkedCast(analysisClass, analysisResult);
     }
 
+    /**
+     * A worker cache gets the class analysis results which are never
+     * recomputed (e.g. XClass) from the analysis thread's cache. They are
+     * interned, and computing them fills databases shared with the analysis
+     * thread, such as the MethodInfoDatabase.
+     *
+     * @param analysisClass
+     *            the analysis class
+     * @return true if the results are computed and kept by the parent cache
+     */
+    private boolean isSharedWithParent(Class<?> analysisClass) {
+        if (parent == null) {
+            return false;
+        }
+        IClassAnalysisEngine<?> engine = classAnalysisEngineMap.get(analysisClass);
+        return engine != null && !engine.canRecompute();
+    }
+
     @Override
     public <E> E probeClassAnalysis(Class<E> analysisClass, @Nonnull ClassDescriptor classDescriptor) {
+        if (isSharedWithParent(analysisClass)) {
+            sharedStateLock.lock();
+            try {
+                return parent.probeClassAnalysis(analysisClass, classDescriptor);
+            } finally {
+                sharedStateLock.unlock();
+            }
+        }
         Map<ClassDescriptor, Object> descriptorMap = classAnalysisMap.get(analysisClass);
         if (descriptorMap == null) {
             return null;
@@ -316,6 +623,12 @@ public class AnalysisCache implements IAnalysisCache {
         requireNonNull(methodDescriptor, "methodDescriptor is null");
         ClassContext classContext = getClassAnalysis(ClassContext.class, methodDescriptor.getClassDescriptor());
         Object object = classContext.getMethodAnalysis(analysisClass, methodDescriptor);
+        if (object == null && KEEP_PASS_INVARIANT_RESULTS && parent == null) {
+            object = getKeptMethodAnalysis(classContext, analysisClass, methodDescriptor);
+            if (object != null) {
+                classContext.putMethodAnalysis(analysisClass, methodDescriptor, object);
+            }
+        }
 
         if (object == null) {
             try {
@@ -330,7 +643,7 @@ public class AnalysisCache implements IAnalysisCache {
             }
 
             classContext.putMethodAnalysis(analysisClass, methodDescriptor, object);
-
+            keepMethodAnalysis(classContext, analysisClass, methodDescriptor, object);
         }
         if (Debug.VERIFY_INTEGRITY && object == null) {
             throw new IllegalStateException("AnalysisFactory failed to produce a result object");
@@ -472,6 +785,14 @@ public class AnalysisCache implements IAnalysisCache {
         return getDatabase(databaseClass, true);
     }
     public <E> E getDatabase(Class<E> databaseClass, boolean optional) {
+        if (parent != null) {
+            sharedStateLock.lock();
+            try {
+                return parent.getDatabase(databaseClass, optional);
+            } finally {
+                sharedStateLock.unlock();
+            }
+        }
         Object database = databaseMap.get(databaseClass);
 
         if (database == null) {
@@ -504,6 +825,15 @@ public class AnalysisCache implements IAnalysisCache {
 
     @Override
     public <E> void eagerlyPutDatabase(Class<E> databaseClass, E database) {
+        if (parent != null) {
+            sharedStateLock.lock();
+            try {
+                parent.eagerlyPutDatabase(databaseClass, database);
+            } finally {
+                sharedStateLock.unlock();
+            }
+            return;
+        }
         databaseMap.put(databaseClass, database);
     }
 
@@ -514,6 +844,9 @@ public class AnalysisCache implements IAnalysisCache {
 
     @Override
     public Profiler getProfiler() {
+        if (profiler != null) {
+            return profiler;
+        }
         return bugReporter.getProjectStats().getProfiler();
     }
 }
@@ -19,6 +19,7 @@
 
 package edu.umd.cs.findbugs.classfile.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileFilter;
@@ -46,6 +47,8 @@ import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
 import edu.umd.cs.findbugs.classfile.IClassFactory;
 import edu.umd.cs.findbugs.classfile.IClassPath;
 import edu.umd.cs.findbugs.classfile.IClassPathBuilder;
@@ -59,6 +62,7 @@ import edu.umd.cs.findbugs.classfile.IScannableCodeBase;
 import edu.umd.cs.findbugs.classfile.InvalidClassFileFormatException;
 import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
 import edu.umd.cs.findbugs.classfile.analysis.ClassNameAndSuperclassInfo;
+import edu.umd.cs.findbugs.classfile.engine.ClassBytesPool;
 import edu.umd.cs.findbugs.classfile.engine.ClassParser;
 import edu.umd.cs.findbugs.classfile.engine.ClassParserInterface;
 import edu.umd.cs.findbugs.io.IO;
@@ -715,7 +719,10 @@ public class ClassPathBuilder implements IClassPathBuilder {
 
     /**
      * Attempt to parse data of given resource in order to divine the real name
-     * of the class contained in the resource.
+     * of the class contained in the resource. The data is kept in the
+     * {@link ClassBytesPool} of the analysis, if any and if the application
+     * classes fit in it, so that the class does not have to be read again when
+     * it is analyzed.
      *
      * @param entry
      *            the resource
@@ -727,6 +734,15 @@ public class ClassPathBuilder implements IClassPathBuilder {
             if (resourceIn == null) {
                 throw new NullPointerException("Got null resource");
             }
+            IAnalysisCache analysisCache = Global.getAnalysisCache();
+            byte[] data = null;
+            int numBytes = entry.getNumBytes();
+            // an empty resource is left to the parser, which reports it
+            if (analysisCache != null && numBytes > 0 && !(entry instanceof ZipInputStreamCodeBaseEntry)
+                    && ClassBytesPool.getInstance(analysisCache).reserve(numBytes)) {
+                data = IO.readAll(resourceIn, numBytes);
+                resourceIn = new ByteArrayInputStream(data);
+            }
             in = new DataInputStream(resourceIn);
             ClassParserInterface parser = new ClassParser(in, null, entry);
             ClassNameAndSuperclassInfo.Builder builder = new ClassNameAndSuperclassInfo.Builder();
@@ -736,6 +752,9 @@ public class ClassPathBuilder implements IClassPathBuilder {
             if (!trueResourceName.equals(entry.getResourceName())) {
                 entry.overrideResourceName(trueResourceName);
             }
+            if (data != null) {
+                ClassBytesPool.getInstance(analysisCache).put(entry, data);
+            }
         } catch (IOException e) {
             errorLogger.logError("Invalid class resource " + entry.getResourceName() + " in " + entry, e);
         } catch (InvalidClassFileFormatException e) {
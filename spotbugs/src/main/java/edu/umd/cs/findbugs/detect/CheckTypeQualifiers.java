@@ -177,6 +177,9 @@ public class CheckTypeQualifiers extends CFGDetector {
                 BackwardTypeQualifierDataflowFactory.class, methodDescriptor);
         ValueNumberDataflow vnaDataflow = analysisCache.getMethodAnalysis(ValueNumberDataflow.class, methodDescriptor);
 
+        // One forward and one backward pass over the method for all the qualifiers
+        backwardDataflowFactory.computeDataflows(relevantQualifiers);
+
         for (TypeQualifierValue<?> typeQualifierValue : relevantQualifiers) {
 
             try {
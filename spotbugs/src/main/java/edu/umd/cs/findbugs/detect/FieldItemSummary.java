@@ -27,7 +27,8 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 
 import edu.umd.cs.findbugs.BugReporter;
-import edu.umd.cs.findbugs.NonReportingDetector;
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.ParallelFirstPassDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.ProgramPoint;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
@@ -40,7 +41,7 @@ import edu.umd.cs.findbugs.ba.ch.Subtypes2;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
-public class FieldItemSummary extends OpcodeStackDetector implements NonReportingDetector {
+public class FieldItemSummary extends OpcodeStackDetector implements ParallelFirstPassDetector {
 
     FieldSummary fieldSummary = new FieldSummary();
 
@@ -49,6 +50,22 @@ public class FieldItemSummary extends OpcodeStackDetector implements NonReportin
         context.setFieldSummary(fieldSummary);
     }
 
+    /**
+     * Shard constructor: collects into a FieldSummary which is not published
+     */
+    private FieldItemSummary() {
+    }
+
+    @Override
+    public Detector createShard() {
+        return new FieldItemSummary();
+    }
+
+    @Override
+    public void mergeShard(Detector shard) {
+        fieldSummary.merge(((FieldItemSummary) shard).fieldSummary);
+    }
+
     Set<XField> touched = new HashSet<>();
 
     @Override
@@ -40,9 +40,10 @@ import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.Type;
 
 import edu.umd.cs.findbugs.BugReporter;
-import edu.umd.cs.findbugs.NonReportingDetector;
+import edu.umd.cs.findbugs.Detector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.OpcodeStack.Item;
+import edu.umd.cs.findbugs.ParallelFirstPassDetector;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.Hierarchy2;
 import edu.umd.cs.findbugs.ba.SignatureParser;
@@ -61,7 +62,7 @@ import edu.umd.cs.findbugs.util.ClassName;
 /**
  * @author Tagir Valeev
  */
-public class FindNoSideEffectMethods extends OpcodeStackDetector implements NonReportingDetector {
+public class FindNoSideEffectMethods extends OpcodeStackDetector implements ParallelFirstPassDetector {
     private static final MethodDescriptor GET_CLASS = new MethodDescriptor("java/lang/Object", "getClass", "()Ljava/lang/Class;");
     private static final MethodDescriptor ARRAY_COPY = new MethodDescriptor("java/lang/System", "arraycopy", "(Ljava/lang/Object;ILjava/lang/Object;II)V", true);
     private static final MethodDescriptor HASH_CODE = new MethodDescriptor("java/lang/Object", "hashCode", "()I");
@@ -307,6 +308,30 @@ public class FindNoSideEffectMethods extends OpcodeStackDetector implements NonR
         Global.getAnalysisCache().eagerlyPutDatabase(NoSideEffectMethodsDatabase.class, noSideEffectMethods);
     }
 
+    /**
+     * Shard constructor: the database is only filled by the detector the
+     * shard is merged into
+     */
+    private FindNoSideEffectMethods() {
+    }
+
+    @Override
+    public Detector createShard() {
+        return new FindNoSideEffectMethods();
+    }
+
+    @Override
+    public void mergeShard(Detector shard) {
+        // Statuses of calls into other shards are still unsure at this point,
+        // computeFinalStatus() resolves them as if the classes were visited
+        // by a single detector
+        FindNoSideEffectMethods other = (FindNoSideEffectMethods) shard;
+        statusMap.putAll(other.statusMap);
+        callGraph.putAll(other.callGraph);
+        getStaticMethods.addAll(other.getStaticMethods);
+        uselessVoidCandidates.addAll(other.uselessVoidCandidates);
+    }
+
     @Override
     public void visit(JavaClass obj) {
         super.visit(obj);
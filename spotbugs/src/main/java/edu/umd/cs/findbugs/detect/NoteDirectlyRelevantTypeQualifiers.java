@@ -29,7 +29,7 @@ import org.apache.bcel.classfile.JavaClass;
 
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.Detector;
-import edu.umd.cs.findbugs.NonReportingDetector;
+import edu.umd.cs.findbugs.ParallelFirstPassDetector;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.ba.XField;
@@ -47,13 +47,33 @@ import edu.umd.cs.findbugs.visitclass.DismantleBytecode;
  * DirectlyRelevantTypeQualifiersDatabase. This helps the CheckTypeQualifiers
  * detector figure out which type qualifiers to check for each method.
  */
-public class NoteDirectlyRelevantTypeQualifiers extends DismantleBytecode implements Detector, NonReportingDetector {
+public class NoteDirectlyRelevantTypeQualifiers extends DismantleBytecode implements ParallelFirstPassDetector {
 
     private DirectlyRelevantTypeQualifiersDatabase qualifiers;
 
     public NoteDirectlyRelevantTypeQualifiers(BugReporter bugReporter) {
     }
 
+    /**
+     * Shard constructor: collects into a private database
+     */
+    private NoteDirectlyRelevantTypeQualifiers() {
+        qualifiers = new DirectlyRelevantTypeQualifiersDatabase();
+    }
+
+    @Override
+    public Detector createShard() {
+        return new NoteDirectlyRelevantTypeQualifiers();
+    }
+
+    @Override
+    public void mergeShard(Detector shard) {
+        if (qualifiers == null) {
+            qualifiers = AnalysisContext.currentAnalysisContext().getDirectlyRelevantTypeQualifiersDatabase();
+        }
+        qualifiers.merge(((NoteDirectlyRelevantTypeQualifiers) shard).qualifiers);
+    }
+
     @Override
     public void visitClassContext(ClassContext classContext) {
         if (qualifiers == null) {
@@ -31,6 +31,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.CheckForNull;
+
 import edu.umd.cs.findbugs.FindBugs2;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
@@ -48,6 +50,7 @@ public class Profiler implements XMLWriteable {
     public Profiler() {
         startTimes = new Stack<>();
         profile = new ConcurrentHashMap<>();
+        dataflowCounts = new ConcurrentHashMap<>();
         if (REPORT) {
             System.err.println("Profiling activated");
         }
@@ -176,6 +179,29 @@ public class Profiler implements XMLWriteable {
         }
     }
 
+    /**
+     * Iterations and block visits of the dataflow analyses of one class
+     */
+    public static class DataflowCount {
+        final AtomicInteger executions = new AtomicInteger();
+
+        final AtomicLong iterations = new AtomicLong();
+
+        final AtomicLong blockVisits = new AtomicLong();
+
+        public int getExecutions() {
+            return executions.get();
+        }
+
+        public long getIterations() {
+            return iterations.get();
+        }
+
+        public long getBlockVisits() {
+            return blockVisits.get();
+        }
+    }
+
     static class Clock {
         final Class<?> clazz;
 
@@ -202,6 +228,8 @@ public class Profiler implements XMLWriteable {
 
     final ConcurrentMap<Class<?>, Profile> profile;
 
+    final ConcurrentMap<Class<?>, DataflowCount> dataflowCounts;
+
     final Stack<Object> context = new Stack<>();
 
     public void startContext(Object context) {
@@ -266,6 +294,34 @@ public class Profiler implements XMLWriteable {
 
     }
 
+    /**
+     * Count an execution of a dataflow analysis
+     *
+     * @param c
+     *            the class of the analysis
+     * @param iterations
+     *            the number of iterations of the execution
+     * @param blockVisits
+     *            the number of times a block was transferred
+     */
+    public void countDataflow(Class<?> c, int iterations, int blockVisits) {
+        DataflowCount counter = dataflowCounts.get(c);
+        if (counter == null) {
+            counter = new DataflowCount();
+            DataflowCount counter2 = dataflowCounts.putIfAbsent(c, counter);
+            if (counter2 != null) {
+                counter = counter2;
+            }
+        }
+        counter.executions.incrementAndGet();
+        counter.iterations.addAndGet(iterations);
+        counter.blockVisits.addAndGet(blockVisits);
+    }
+
+    public @CheckForNull DataflowCount getDataflowCount(Class<?> c) {
+        return dataflowCounts.get(c);
+    }
+
     public static class ClassNameComparator implements Comparator<Class<?>> {
         final protected Profiler profiler;
 
@@ -391,6 +447,18 @@ public class Profiler implements XMLWriteable {
                 }
 
             }
+
+            if (!dataflowCounts.isEmpty()) {
+                stream.println("DATAFLOW REPORT");
+                stream.printf("%8s  %10s %12s %s%n", "#runs", "#iterations", "#blockVisits", "Analysis");
+                TreeSet<Class<?>> analyses = new TreeSet<>(new ClassNameComparator(this));
+                analyses.addAll(dataflowCounts.keySet());
+                for (Class<?> c : analyses) {
+                    DataflowCount count = dataflowCounts.get(c);
+                    stream.printf("%8d  %10d %12d %s%n", Integer.valueOf(count.getExecutions()),
+                            Long.valueOf(count.getIterations()), Long.valueOf(count.getBlockVisits()), c.getSimpleName());
+                }
+            }
             stream.flush();
         } catch (RuntimeException e) {
             System.err.println(e);
@@ -407,6 +475,7 @@ public class Profiler implements XMLWriteable {
      */
     public void clear() {
         profile.clear();
+        dataflowCounts.clear();
         startTimes.clear();
     }
 
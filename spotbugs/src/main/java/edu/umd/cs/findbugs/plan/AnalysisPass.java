@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 
 import edu.umd.cs.findbugs.BugReporter;
@@ -134,6 +135,27 @@ public class AnalysisPass {
         return detectorList;
     }
 
+    /**
+     * Instantiate all of the Detector2s in this pass, except the ones already
+     * created.
+     *
+     * @param bugReporter
+     *            the BugReporter
+     * @param created
+     *            detectors created before the pass, by factory
+     * @return array of Detector2s
+     */
+    public Detector2[] instantiateDetector2sInPass(BugReporter bugReporter, Map<DetectorFactory, Detector2> created) {
+        Detector2[] detectorList = new Detector2[orderedFactoryList.size()];
+        int count = 0;
+        for (Iterator<DetectorFactory> j = iterator(); j.hasNext();) {
+            DetectorFactory factory = j.next();
+            Detector2 detector = created.get(factory);
+            detectorList[count++] = detector != null ? detector : factory.createDetector2(bugReporter);
+        }
+        return detectorList;
+    }
+
     /**
      * Instantiate all of the detectors in this pass as objects implementing the
      * BCEL-only Detector interface. Detectors that do not support this
@@ -0,0 +1,405 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2005, University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable hash map with structural sharing (a hash array mapped trie).
+ * {@link #plus(Object, Object)} and {@link #minus(Object)} return a new map
+ * sharing all but the path to the changed entry with this one, so that keeping
+ * many slightly different versions of a map (e.g., one per dataflow fact)
+ * costs little more than keeping one.
+ * <p>
+ * The map is unmodifiable through the {@link Map} interface.
+ * </p>
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** maximum depth of the trie: 7 levels of bitmap nodes and a collision node */
+    private static final int MAX_DEPTH = 8;
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<>(new BitmapNode(0,
+            new Object[0]), 0);
+
+    /** An entry, stored with the hash of its key. */
+    private static final class Leaf<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        final int hash;
+
+        Leaf(int hash, K key, V value) {
+            super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Node holding the entries and sub-nodes whose hash has the same prefix,
+     * indexed by the next bits of the hash.
+     */
+    private static final class BitmapNode {
+        final int bitmap;
+
+        /** leaves and sub-nodes, in the order of their bit in the bitmap */
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    /** Node holding the entries whose keys have the same hash. */
+    private static final class CollisionNode {
+        final int hash;
+
+        final Leaf<?, ?>[] leaves;
+
+        CollisionNode(int hash, Leaf<?, ?>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    private final BitmapNode root;
+
+    private final int size;
+
+    private PersistentHashMap(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Get a map with the same entries as this one, except that the given key
+     * maps to the given value.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return the new map, or this map if the key already maps to the same
+     *         value
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        int hash = hash(key);
+        Leaf<?, ?> existing = findLeaf(hash, key);
+        if (existing != null && existing.getValue() == value) {
+            return this;
+        }
+        Object newRoot = put(root, 0, new Leaf<>(hash, key, value));
+        return new PersistentHashMap<>((BitmapNode) newRoot, existing == null ? size + 1 : size);
+    }
+
+    /**
+     * Get a map with the same entries as this one, except for the given key.
+     *
+     * @param key
+     *            the key
+     * @return the new map, or this map if it does not contain the key
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        int hash = hash(key);
+        if (findLeaf(hash, key) == null) {
+            return this;
+        }
+        if (size == 1) {
+            return empty();
+        }
+        Object newRoot = remove(root, 0, hash, key);
+        return new PersistentHashMap<>((BitmapNode) newRoot, size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findLeaf(hash(key), key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        Leaf<?, ?> leaf = findLeaf(hash(key), key);
+        return leaf == null ? null : (V) leaf.getValue();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static boolean matches(Leaf<?, ?> leaf, int hash, Object key) {
+        return leaf.hash == hash && Objects.equals(leaf.getKey(), key);
+    }
+
+    private Leaf<?, ?> findLeaf(int hash, Object key) {
+        Object node = root;
+        int shift = 0;
+        while (true) {
+            if (node instanceof Leaf) {
+                Leaf<?, ?> leaf = (Leaf<?, ?>) node;
+                return matches(leaf, hash, key) ? leaf : null;
+            } else if (node instanceof CollisionNode) {
+                for (Leaf<?, ?> leaf : ((CollisionNode) node).leaves) {
+                    if (matches(leaf, hash, key)) {
+                        return leaf;
+                    }
+                }
+                return null;
+            }
+            BitmapNode bitmapNode = (BitmapNode) node;
+            int bit = bit(hash, shift);
+            if ((bitmapNode.bitmap & bit) == 0) {
+                return null;
+            }
+            node = bitmapNode.slots[index(bitmapNode.bitmap, bit)];
+            shift += BITS;
+        }
+    }
+
+    /**
+     * Put a leaf into a node.
+     *
+     * @return the new node
+     */
+    private static Object put(Object node, int shift, Leaf<?, ?> leaf) {
+        if (node instanceof CollisionNode) {
+            CollisionNode collisionNode = (CollisionNode) node;
+            if (collisionNode.hash != leaf.hash) {
+                // push the collision node one level down
+                BitmapNode wrapper = new BitmapNode(bit(collisionNode.hash, shift), new Object[] { collisionNode });
+                return put(wrapper, shift, leaf);
+            }
+            Leaf<?, ?>[] leaves = collisionNode.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (matches(leaves[i], leaf.hash, leaf.getKey())) {
+                    Leaf<?, ?>[] newLeaves = leaves.clone();
+                    newLeaves[i] = leaf;
+                    return new CollisionNode(leaf.hash, newLeaves);
+                }
+            }
+            Leaf<?, ?>[] newLeaves = new Leaf<?, ?>[leaves.length + 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+            newLeaves[leaves.length] = leaf;
+            return new CollisionNode(leaf.hash, newLeaves);
+        }
+
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = bit(leaf.hash, shift);
+        int index = index(bitmapNode.bitmap, bit);
+        Object[] slots = bitmapNode.slots;
+        if ((bitmapNode.bitmap & bit) == 0) {
+            Object[] newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            newSlots[index] = leaf;
+            System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+            return new BitmapNode(bitmapNode.bitmap | bit, newSlots);
+        }
+
+        Object child = slots[index];
+        Object newChild;
+        if (child instanceof Leaf) {
+            Leaf<?, ?> childLeaf = (Leaf<?, ?>) child;
+            if (matches(childLeaf, leaf.hash, leaf.getKey())) {
+                newChild = leaf;
+            } else {
+                newChild = combine(childLeaf, leaf, shift + BITS);
+            }
+        } else {
+            newChild = put(child, shift + BITS, leaf);
+        }
+        Object[] newSlots = slots.clone();
+        newSlots[index] = newChild;
+        return new BitmapNode(bitmapNode.bitmap, newSlots);
+    }
+
+    /**
+     * Create the node holding two leaves with different keys.
+     */
+    private static Object combine(Leaf<?, ?> a, Leaf<?, ?> b, int shift) {
+        if (a.hash == b.hash) {
+            return new CollisionNode(a.hash, new Leaf<?, ?>[] { a, b });
+        }
+        // the hashes differ, so they diverge before the bits run out
+        int bitA = bit(a.hash, shift);
+        int bitB = bit(b.hash, shift);
+        if (bitA == bitB) {
+            return new BitmapNode(bitA, new Object[] { combine(a, b, shift + BITS) });
+        }
+        // compare the bit positions, bit 31 is a negative int
+        Object[] slots = index(bitA | bitB, bitA) == 0 ? new Object[] { a, b } : new Object[] { b, a };
+        return new BitmapNode(bitA | bitB, slots);
+    }
+
+    /**
+     * Remove the leaf of a key known to be in a node.
+     *
+     * @return the new node, a single remaining leaf (below the root), or null
+     *         if the node became empty
+     */
+    private static Object remove(Object node, int shift, int hash, Object key) {
+        if (node instanceof CollisionNode) {
+            Leaf<?, ?>[] leaves = ((CollisionNode) node).leaves;
+            if (leaves.length == 2) {
+                return matches(leaves[0], hash, key) ? leaves[1] : leaves[0];
+            }
+            Leaf<?, ?>[] newLeaves = new Leaf<?, ?>[leaves.length - 1];
+            int j = 0;
+            for (Leaf<?, ?> leaf : leaves) {
+                if (!matches(leaf, hash, key)) {
+                    newLeaves[j++] = leaf;
+                }
+            }
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = bit(hash, shift);
+        int index = index(bitmapNode.bitmap, bit);
+        Object[] slots = bitmapNode.slots;
+        Object child = slots[index];
+        Object newChild = child instanceof Leaf ? null : remove(child, shift + BITS, hash, key);
+        if (newChild != null) {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = newChild;
+            return new BitmapNode(bitmapNode.bitmap, newSlots);
+        }
+        if (slots.length == 1) {
+            return null;
+        }
+        if (slots.length == 2 && shift > 0) {
+            Object other = slots[1 - index];
+            if (other instanceof Leaf) {
+                // collapse a node holding a single leaf into the leaf
+                return other;
+            }
+        }
+        Object[] newSlots = new Object[slots.length - 1];
+        System.arraycopy(slots, 0, newSlots, 0, index);
+        System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+        return new BitmapNode(bitmapNode.bitmap & ~bit, newSlots);
+    }
+
+    /**
+     * Depth-first iterator over the leaves of the trie.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+
+        private final int[] positions = new int[MAX_DEPTH];
+
+        private int depth;
+
+        private Leaf<?, ?> next;
+
+        EntryIterator(BitmapNode root) {
+            arrays[0] = root.slots;
+            advance();
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position == array.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 1;
+                Object slot = array[position];
+                if (slot instanceof Leaf) {
+                    next = (Leaf<?, ?>) slot;
+                    return;
+                }
+                depth++;
+                arrays[depth] = slot instanceof BitmapNode ? ((BitmapNode) slot).slots : ((CollisionNode) slot).leaves;
+                positions[depth] = 0;
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> result = (Map.Entry<K, V>) next;
+            advance();
+            return result;
+        }
+    }
+}
@@ -114,6 +114,8 @@ abstract public class DismantleBytecode extends AnnotationVisitor {
 
     private Constant constantRefOperand;
 
+    private int constantRefIndex;
+
     private int intConstant;
 
     private long longConstant;
@@ -350,6 +352,16 @@ abstract public class DismantleBytecode extends AnnotationVisitor {
         return constantRefOperand;
     }
 
+    /**
+     * @return constant pool index of the constant operand
+     */
+    public int getConstantRefIndex() {
+        if (constantRefIndex < 0) {
+            throw new IllegalStateException("getConstantRefIndex called but value not available");
+        }
+        return constantRefIndex;
+    }
+
     public boolean isRegisterLoad() {
         return isRegisterLoad;
     }
@@ -476,6 +488,7 @@ abstract public class DismantleBytecode extends AnnotationVisitor {
         classConstantOperand = nameConstantOperand = sigConstantOperand = stringConstantOperand = refConstantOperand = NOT_AVAILABLE;
         refFieldIsStatic = false;
         constantRefOperand = null;
+        constantRefIndex = -1;
         registerOperand = -1;
         isRegisterLoad = false;
         isRegisterStore = false;
@@ -693,6 +706,7 @@ abstract public class DismantleBytecode extends AnnotationVisitor {
                             branchFallThrough = i;
                             break;
                         case M_CP:
+                            constantRefIndex = v;
                             constantRefOperand = getConstantPool().getConstant(v);
                             if (constantRefOperand instanceof ConstantClass) {
                                 ConstantClass clazz = (ConstantClass) constantRefOperand;
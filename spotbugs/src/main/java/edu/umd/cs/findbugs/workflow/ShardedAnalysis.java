@@ -0,0 +1,183 @@
+/*
+ * FindBugs - Find Bugs in Java programs
+ * Copyright (C) 2003-2008 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.workflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dom4j.DocumentException;
+
+import edu.umd.cs.findbugs.AnalysisError;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.FindBugs;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.SortedBugCollection;
+
+/**
+ * Analyze an application with several worker processes, each one reporting
+ * the bugs of a slice of the application classes (see the -shard option of
+ * the analysis), and merge their results.
+ * <p>
+ * Every worker runs the first pass on all the classes. The detectors keeping
+ * state across classes run in one more worker, which visits all the classes
+ * and reports all their bugs, so the merged results are the ones of a single
+ * analysis. The slices only run the other detectors, usually the costly
+ * dataflow based ones, on their own classes. The injection detectors only
+ * analyze the methods which may reach a sink of the slice, and the methods
+ * these call for their taint summaries. The project statistics are the same
+ * for all the workers, they are taken from the first one, and the errors of
+ * the first pass, reported by every worker, are only kept once.
+ * <p>
+ * Each worker still builds and holds the databases of the whole first pass:
+ * they are graphs of in-memory descriptors and class infos, which have no
+ * serialized form to share.
+ */
+public class ShardedAnalysis {
+
+    /**
+     * @return the JVM arguments of this process, without the debugging agents,
+     *         whose port could only be bound by one worker
+     */
+    private static List<String> getWorkerArguments() {
+        List<String> arguments = new ArrayList<>();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-agentlib:jdwp") || argument.startsWith("-Xrunjdwp")
+                    || "-Xdebug".equals(argument) || "-Xnoagent".equals(argument)) {
+                continue;
+            }
+            arguments.add(argument);
+        }
+        return arguments;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int shardCount = Runtime.getRuntime().availableProcessors();
+        String outputFile = null;
+        int argCount = 0;
+        while (argCount + 1 < args.length) {
+            if ("-shards".equals(args[argCount])) {
+                shardCount = Integer.parseInt(args[argCount + 1]);
+            } else if ("-output".equals(args[argCount])) {
+                outputFile = args[argCount + 1];
+            } else {
+                break;
+            }
+            argCount += 2;
+        }
+        if (argCount == args.length || shardCount < 1) {
+            System.out.println("Usage: " + ShardedAnalysis.class.getName()
+                    + " [-shards <count>] [-output <file>] <analysis options and files>");
+            System.exit(1);
+        }
+        List<String> analysisArgs = Arrays.asList(args).subList(argCount, args.length);
+
+        // the last worker runs the detectors keeping state
+        int workerCount = shardCount > 1 ? shardCount + 1 : 1;
+        File[] shardFiles = new File[workerCount];
+        Process[] workers = new Process[workerCount];
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                shardFiles[i] = File.createTempFile("shard" + i + "-", ".xml");
+                List<String> command = new ArrayList<>();
+                command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+                // same heap size and system properties as this process
+                command.addAll(getWorkerArguments());
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(FindBugs2.class.getName());
+                command.add("-xml:withMessages");
+                command.add("-shard");
+                command.add(i % shardCount + "/" + shardCount);
+                if (workerCount > 1) {
+                    command.add("-shardDetectors");
+                    command.add(i < shardCount ? "stateless" : "stateful");
+                }
+                command.add("-output");
+                command.add(shardFiles[i].getPath());
+                command.addAll(analysisArgs);
+                workers[i] = new ProcessBuilder(command).inheritIO().start();
+            }
+            boolean failed = false;
+            for (int i = 0; i < workerCount; i++) {
+                if (workers[i].waitFor() != 0) {
+                    System.err.println("Analysis of shard " + i + " failed");
+                    failed = true;
+                }
+            }
+            if (failed) {
+                System.exit(1);
+            }
+
+            FindBugs.setNoAnalysis();
+            DetectorFactoryCollection.instance();
+            SortedBugCollection results = null;
+            Set<AnalysisError> errors = new LinkedHashSet<>();
+            for (File shardFile : shardFiles) {
+                SortedBugCollection shard = new SortedBugCollection();
+                try {
+                    shard.readXML(shardFile);
+                } catch (DocumentException e) {
+                    throw new IOException("Trouble reading/parsing " + shardFile, e);
+                }
+                if (results == null) {
+                    results = shard.createEmptyCollectionWithMetadata();
+                    errors.addAll(results.getErrors());
+                } else {
+                    for (AnalysisError error : shard.getErrors()) {
+                        if (errors.add(error)) {
+                            results.addError(error);
+                        }
+                    }
+                    for (Iterator<String> i = shard.missingClassIterator(); i.hasNext();) {
+                        results.addMissingClass(i.next());
+                    }
+                }
+                // the workers report the bugs of disjoint sets of classes and
+                // detectors
+                for (BugInstance bugInstance : shard.getCollection()) {
+                    results.add(bugInstance);
+                }
+            }
+            results.setWithMessages(true);
+            if (outputFile == null) {
+                results.writeXML(System.out);
+            } else {
+                results.writeXML(outputFile);
+            }
+        } finally {
+            for (int i = 0; i < workerCount; i++) {
+                if (workers[i] != null) {
+                    workers[i].destroy();
+                }
+                if (shardFiles[i] != null) {
+                    shardFiles[i].delete();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package taint;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * The sinks are in {@link InjectionCallOrderDao}, the injections are only
+ * found in the callers if the sinks are propagated to them whatever the order
+ * the classes are visited in.
+ */
+public class InjectionCallOrder {
+    public ServletRequest request;
+
+    public void truePositive(InjectionCallOrderDao dao) throws SQLException {
+        dao.find(request.getParameter("animal"));
+    }
+
+    public void trueNegative(InjectionCallOrderDao dao) throws SQLException {
+        dao.find("ANIMAL");
+    }
+
+    public void cycleTruePositive(InjectionCallOrderDao dao) throws SQLException {
+        dao.findAll(request.getParameter("animal"), 3);
+    }
+
+    void findAgain(InjectionCallOrderDao dao, String name, int count) throws SQLException {
+        dao.findAll(name, count - 1);
+    }
+}
@@ -0,0 +1,20 @@
+package taint;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+class InjectionCallOrderDao {
+    Statement query;
+
+    void find(String name) throws SQLException {
+        query.executeQuery("select * from animals where name = '" + name + "'");
+    }
+
+    void findAll(String name, int count) throws SQLException {
+        if (count == 0) {
+            find(name);
+        } else {
+            new InjectionCallOrder().findAgain(this, name, count);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package taint;
+
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * The sink is in {@link InjectionDispatchSelect}, which is only called through
+ * the library interface {@link Consumer}.
+ */
+public class InjectionDispatch {
+    public ServletRequest request;
+
+    public void truePositive(Statement query) {
+        Consumer<Object> select = new InjectionDispatchSelect(query);
+        select.accept(request.getParameter("animal"));
+    }
+
+    public void trueNegative(Statement query) {
+        Consumer<Object> select = new InjectionDispatchSelect(query);
+        select.accept("ANIMAL");
+    }
+}
@@ -0,0 +1,22 @@
+package taint;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+class InjectionDispatchSelect implements Consumer<Object> {
+    private final Statement query;
+
+    InjectionDispatchSelect(Statement query) {
+        this.query = query;
+    }
+
+    @Override
+    public void accept(Object table) {
+        try {
+            query.executeQuery("select * from " + (String) table);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
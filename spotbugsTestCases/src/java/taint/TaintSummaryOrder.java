@@ -0,0 +1,35 @@
+package taint;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * The callers come before their callees, in this class and in
+ * {@link TaintSummaryOrderHelper}, so the taint summaries of the callees are
+ * only known to the callers if they are computed callees first.
+ */
+public class TaintSummaryOrder {
+    public ServletRequest request;
+
+    public void truePositive(Statement query) throws SQLException {
+        query.executeQuery(select(request.getParameter("animal")));
+    }
+
+    public void trueNegative(Statement query) throws SQLException {
+        query.executeQuery(select("ANIMAL"));
+    }
+
+    public void recursiveTruePositive(Statement query) throws SQLException {
+        query.executeQuery(TaintSummaryOrderHelper.repeat(request.getParameter("animal"), 3));
+    }
+
+    public void recursiveTrueNegative(Statement query) throws SQLException {
+        query.executeQuery(TaintSummaryOrderHelper.repeat("ANIMAL", 3));
+    }
+
+    private String select(String table) {
+        return "select * from " + TaintSummaryOrderHelper.quote(table);
+    }
+}
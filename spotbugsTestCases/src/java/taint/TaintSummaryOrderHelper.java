@@ -0,0 +1,15 @@
+package taint;
+
+class TaintSummaryOrderHelper {
+    static String repeat(String value, int count) {
+        return count == 0 ? value : repeatAgain(value, count - 1);
+    }
+
+    static String repeatAgain(String value, int count) {
+        return repeat(value + value, count);
+    }
+
+    static String quote(String value) {
+        return "'" + value + "'";
+    }
+}
@@ -18,6 +18,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
 
@@ -50,6 +51,9 @@ import edu.umd.cs.findbugs.plugins.DuplicatePluginIdException;
 public class AnalysisRunner {
     private final List<Path> auxClasspathEntries = new ArrayList<>();
 
+    private Consumer<? super FindBugs2> engineConfiguration = engine -> {
+    };
+
     /**
      * SpotBugs stores relation between plugin-id and {@link Plugin} instance in a static field ({@code Plugin.allPlugins}),
      * so we need to store Plugin information in static field too, to avoid duplicated plugin loading.
@@ -82,6 +86,20 @@ public class AnalysisRunner {
         return this;
     }
 
+    /**
+     * Set additional settings to apply to the engine before the analysis, such
+     * as the number of first pass threads or the shard to analyze.
+     *
+     * @param engineConfiguration
+     *            the function applying the settings
+     * @return this runner
+     */
+    @Nonnull
+    public AnalysisRunner setEngineConfiguration(Consumer<? super FindBugs2> engineConfiguration) {
+        this.engineConfiguration = Objects.requireNonNull(engineConfiguration);
+        return this;
+    }
+
     @Nonnull
     public BugCollectionBugReporter run(Path... files) {
         DetectorFactoryCollection.resetInstance(new DetectorFactoryCollection());
@@ -101,6 +119,7 @@ public class AnalysisRunner {
             preferences.getFilterSettings().clearAllCategories();
             preferences.enableAllDetectors(true);
             engine.setUserPreferences(preferences);
+            engineConfiguration.accept(engine);
 
             try {
                 engine.execute();